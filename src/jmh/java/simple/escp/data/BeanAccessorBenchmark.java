@@ -0,0 +1,91 @@
+package simple.escp.data;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare reading a bean property by using reflection (the previous implementation of <code>BeanDataSource</code>)
+ * and by using <code>BeanAccessor</code>.  Run with <code>gradle jmh</code>.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class BeanAccessorBenchmark {
+
+    private Item item;
+    private Method readMethod;
+    private BeanAccessor accessor;
+    private BeanDataSource dataSource;
+
+    @Setup
+    public void setup() throws Exception {
+        item = new Item("Item", new BigDecimal("12.50"));
+        for (PropertyDescriptor propertyDescriptor : Introspector.getBeanInfo(Item.class).getPropertyDescriptors()) {
+            if ("price".equals(propertyDescriptor.getName())) {
+                readMethod = propertyDescriptor.getReadMethod();
+            }
+        }
+        accessor = BeanAccessor.find(Item.class, "price");
+        dataSource = new BeanDataSource(item);
+    }
+
+    @Benchmark
+    public Object direct() {
+        return item.getPrice();
+    }
+
+    @Benchmark
+    public Object reflection() throws Exception {
+        return readMethod.invoke(item);
+    }
+
+    @Benchmark
+    public Object methodHandle() {
+        return accessor.get(item);
+    }
+
+    @Benchmark
+    public Object beanDataSource() {
+        return dataSource.get("price");
+    }
+
+    @Benchmark
+    public Object newBeanDataSource() {
+        return new BeanDataSource(item).get("price");
+    }
+
+    public static class Item {
+        private final String name;
+        private final BigDecimal price;
+
+        public Item(String name, BigDecimal price) {
+            this.name = name;
+            this.price = price;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public BigDecimal getPrice() {
+            return price;
+        }
+    }
+
+}
@@ -0,0 +1,528 @@
+/*
+ * Copyright 2014 Jocki Hendry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.escp;
+
+import simple.escp.dom.Line;
+import simple.escp.dom.Page;
+import simple.escp.dom.PageFormat;
+import simple.escp.dom.Report;
+import simple.escp.dom.TableColumn;
+import simple.escp.dom.line.EmptyLine;
+import simple.escp.dom.line.ListLine;
+import simple.escp.dom.line.TableLine;
+import simple.escp.dom.line.TextLine;
+import simple.escp.json.JsonTemplate;
+import simple.escp.util.EscpUtil;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ *  <code>BinaryTemplate</code> is a template that is loaded from a binary file created from the result of parsing
+ *  another template.  Loading a binary template rebuilds the <code>Report</code> and its <code>PageFormat</code>
+ *  directly, without JSON parsing.
+ *
+ *  <p>A binary file stores a checksum of the JSON text it was created from.  {@link #load(File, File)} will read
+ *  the JSON template instead if the binary file doesn't exist, is created by an incompatible version or if the
+ *  JSON template has been changed.
+ *
+ *  <p>Example:
+ *
+ *  <pre>
+ *      // At build time
+ *      try (OutputStream out = new FileOutputStream("invoice.json.bin")) {
+ *          BinaryTemplate.write(new JsonTemplate(new File("invoice.json")), out);
+ *      }
+ *
+ *      // At runtime
+ *      Template template = BinaryTemplate.load(new File("invoice.json.bin"), new File("invoice.json"));
+ *  </pre>
+ */
+public class BinaryTemplate extends Template {
+
+    private static final Logger LOG = Logger.getLogger("simple.escp");
+
+    public static final int MAGIC = 0x53455354;
+    public static final int VERSION = 1;
+    public static final String EXTENSION = ".bin";
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int LINE_NULL = 0;
+    private static final int LINE_TEXT = 1;
+    private static final int LINE_EMPTY = 2;
+    private static final int LINE_TABLE = 3;
+    private static final int LINE_LIST = 4;
+
+    private final long sourceChecksum;
+
+    /**
+     * Create a new binary template from a report that has been read.
+     *
+     * @param report the result of reading binary file.
+     * @param sourceChecksum the checksum of JSON text that was used to create the binary file.
+     */
+    private BinaryTemplate(Report report, long sourceChecksum) {
+        this.report = report;
+        this.pageFormat = report.getPageFormat();
+        this.sourceChecksum = sourceChecksum;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The report of a binary template is created when the binary file is read, so this method always returns
+     * the same <code>Report</code>.
+     */
+    @Override
+    public Report parse() {
+        return report;
+    }
+
+    /**
+     * Retrieve the checksum of JSON text that was used to create this template.
+     *
+     * @return the checksum of JSON text.
+     */
+    public long getSourceChecksum() {
+        return sourceChecksum;
+    }
+
+    /**
+     * Calculate the checksum of a JSON text.  It is the CRC-32 of UTF-8 bytes of the text.
+     *
+     * @param json the JSON text.
+     * @return the checksum of <code>json</code>.
+     */
+    public static long checksum(String json) {
+        return checksum(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Calculate the checksum of bytes.
+     *
+     * @param bytes the bytes that will be calculated.
+     * @return the CRC-32 of <code>bytes</code>.
+     */
+    private static long checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        return crc.getValue();
+    }
+
+    /**
+     * Parse a JSON template and write the result in binary format.
+     *
+     * @param template the template that will be written.
+     * @param outputStream the destination.  It will not be closed by this method.
+     * @throws IOException if error occured when writing to <code>outputStream</code>.
+     */
+    public static void write(JsonTemplate template, OutputStream outputStream) throws IOException {
+        write(template.parse(), checksum(template.getOriginalText()), outputStream);
+    }
+
+    /**
+     * Write a parsed report in binary format.
+     *
+     * @param report the result of parsing a template.
+     * @param sourceChecksum the checksum of template's source, see {@link #checksum(String)}.
+     * @param outputStream the destination.  It will not be closed by this method.
+     * @throws IOException if error occured when writing to <code>outputStream</code>.
+     */
+    public static void write(Report report, long sourceChecksum, OutputStream outputStream) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(payload)) {
+            writePageFormat(out, report.getPageFormat());
+            writeTextLines(out, report.getHeader());
+            writeTextLines(out, report.getFooter());
+            writeTextLines(out, report.getLastPageFooter());
+            out.writeInt(report.getNumberOfPages());
+            for (Page page : report) {
+                out.writeBoolean((page.getHeader().length == 0) && (page.getFooter().length == 0));
+                List<Line> content = page.getContent();
+                out.writeInt(content.size());
+                for (Line line : content) {
+                    writeLine(out, line);
+                }
+            }
+        }
+        byte[] bytes = payload.toByteArray();
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(sourceChecksum);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        out.writeLong(checksum(bytes));
+        out.flush();
+    }
+
+    /**
+     * Read a binary template.
+     *
+     * @param inputStream the source.  It will not be closed by this method.
+     * @return the binary template.
+     * @throws IOException if error occured when reading <code>inputStream</code>, if it is not a binary template,
+     *         if it is created by incompatible version or if it is corrupted.
+     */
+    public static BinaryTemplate read(InputStream inputStream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a binary template.");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary template version: " + version);
+        }
+        long sourceChecksum = in.readLong();
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        if (in.readLong() != checksum(bytes)) {
+            throw new IOException("Binary template is corrupted.");
+        }
+        try (DataInputStream payload = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            PageFormat pageFormat = readPageFormat(payload);
+            Report report = new Report(pageFormat, readTextLines(payload), readTextLines(payload),
+                readTextLines(payload));
+            int numberOfPages = payload.readInt();
+            for (int i = 0; i < numberOfPages; i++) {
+                boolean plain = payload.readBoolean();
+                int numberOfLines = payload.readInt();
+                List<Line> content = new ArrayList<>(numberOfLines);
+                for (int j = 0; j < numberOfLines; j++) {
+                    content.add(readLine(payload));
+                }
+                report.appendSinglePage(content, plain);
+            }
+            return new BinaryTemplate(report, sourceChecksum);
+        }
+    }
+
+    /**
+     * Load a template from binary file if it is still valid for the JSON template, or from the JSON template if
+     * otherwise.
+     *
+     * @param binaryFile the binary file that was created from <code>jsonFile</code>.
+     * @param jsonFile the JSON template with UTF-8 character set.
+     * @return a <code>BinaryTemplate</code> or a <code>JsonTemplate</code>.
+     * @throws IOException if error occured when reading <code>jsonFile</code>.
+     */
+    public static Template load(File binaryFile, File jsonFile) throws IOException {
+        return load(binaryFile.isFile() ? binaryFile.toURI().toURL() : null, jsonFile.toURI().toURL());
+    }
+
+    /**
+     * Load a template from binary resource if it is still valid for the JSON template, or from the JSON template if
+     * otherwise.
+     *
+     * @param binaryUrl the location of binary template that was created from <code>jsonUrl</code>.  Set this to
+     *                  <code>null</code> if there is no binary template.
+     * @param jsonUrl the location of JSON template with UTF-8 character set.
+     * @return a <code>BinaryTemplate</code> or a <code>JsonTemplate</code>.
+     * @throws IOException if error occured when reading <code>jsonUrl</code>.
+     */
+    public static Template load(URL binaryUrl, URL jsonUrl) throws IOException {
+        byte[] json;
+        try (InputStream inputStream = jsonUrl.openStream()) {
+            json = readAllBytes(inputStream);
+        }
+        if (binaryUrl != null) {
+            try (InputStream inputStream = binaryUrl.openStream()) {
+                BinaryTemplate template = read(inputStream);
+                if (template.getSourceChecksum() == checksum(json)) {
+                    LOG.fine("Using binary template [" + binaryUrl + "]");
+                    return template;
+                }
+                LOG.info("[" + jsonUrl + "] has been changed since [" + binaryUrl + "] was created.");
+            } catch (IOException e) {
+                LOG.warning("Can't read [" + binaryUrl + "]: " + e.getMessage());
+            }
+        }
+        LOG.fine("Reading JSON template [" + jsonUrl + "]");
+        return new JsonTemplate(new String(json, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Read all remaining bytes from a stream.
+     *
+     * @param inputStream the source.
+     * @return all bytes from <code>inputStream</code>.
+     * @throws IOException if error occured when reading.
+     */
+    private static byte[] readAllBytes(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int length;
+        while ((length = inputStream.read(buffer)) != -1) {
+            result.write(buffer, 0, length);
+        }
+        return result.toByteArray();
+    }
+
+    /**
+     * Write a <code>PageFormat</code>.
+     *
+     * @param out the destination.
+     * @param pageFormat the page format that will be written.
+     * @throws IOException if error occured when writing.
+     */
+    private static void writePageFormat(DataOutputStream out, PageFormat pageFormat) throws IOException {
+        writeEnum(out, pageFormat.hasLineSpacing() ? pageFormat.getLineSpacing() : null);
+        writeEnum(out, pageFormat.hasCharacterPitch() ? pageFormat.getCharacterPitch() : null);
+        writeEnum(out, pageFormat.getTypeface());
+        writeInteger(out, pageFormat.getPageLength());
+        writeInteger(out, pageFormat.getPageWidth());
+        writeInteger(out, pageFormat.getLeftMargin());
+        writeInteger(out, pageFormat.getRightMargin());
+        writeInteger(out, pageFormat.getBottomMargin());
+        out.writeBoolean(pageFormat.isAutoLineFeed());
+        out.writeBoolean(pageFormat.isAutoFormFeed());
+        out.writeBoolean(pageFormat.isUsePageLengthFromPrinter());
+    }
+
+    /**
+     * Read a <code>PageFormat</code>.
+     *
+     * @param in the source.
+     * @return the page format.
+     * @throws IOException if error occured when reading.
+     */
+    private static PageFormat readPageFormat(DataInputStream in) throws IOException {
+        PageFormat pageFormat = new PageFormat();
+        pageFormat.setLineSpacing(readEnum(in, PageFormat.LINE_SPACING.values()));
+        pageFormat.setCharacterPitch(readEnum(in, EscpUtil.CHARACTER_PITCH.values()));
+        pageFormat.setTypeface(readEnum(in, EscpUtil.TYPEFACE.values()));
+        pageFormat.setPageLength(readInteger(in));
+        pageFormat.setPageWidth(readInteger(in));
+        pageFormat.setLeftMargin(readInteger(in));
+        pageFormat.setRightMargin(readInteger(in));
+        pageFormat.setBottomMargin(readInteger(in));
+        pageFormat.setAutoLineFeed(in.readBoolean());
+        pageFormat.setAutoFormFeed(in.readBoolean());
+        pageFormat.setUsePrinterPageLength(in.readBoolean());
+        return pageFormat;
+    }
+
+    /**
+     * Write a <code>Line</code>.
+     *
+     * @param out the destination.
+     * @param line the line that will be written.
+     * @throws IOException if error occured when writing.
+     */
+    private static void writeLine(DataOutputStream out, Line line) throws IOException {
+        if (line == null) {
+            out.writeByte(LINE_NULL);
+        } else if (line instanceof TextLine) {
+            out.writeByte(LINE_TEXT);
+            writeString(out, ((TextLine) line).getText());
+        } else if (line instanceof EmptyLine) {
+            out.writeByte(LINE_EMPTY);
+        } else if (line instanceof TableLine) {
+            TableLine tableLine = (TableLine) line;
+            out.writeByte(LINE_TABLE);
+            writeString(out, tableLine.getSource());
+            out.writeBoolean(tableLine.isDrawBorder());
+            out.writeBoolean(tableLine.isDrawLineSeparator());
+            out.writeBoolean(tableLine.isDrawUnderlineSeparator());
+            out.writeInt(tableLine.getNumberOfColumns());
+            for (TableColumn column : tableLine) {
+                writeString(out, column.getText());
+                out.writeInt(column.getWidth());
+                writeString(out, column.getCaption());
+                out.writeBoolean(column.isWrap());
+            }
+        } else if (line instanceof ListLine) {
+            ListLine listLine = (ListLine) line;
+            out.writeByte(LINE_LIST);
+            writeString(out, listLine.getSource());
+            writeString(out, listLine.getLineSource());
+            writeTextLines(out, listLine.getHeader());
+            writeTextLines(out, listLine.getFooter());
+        } else {
+            throw new IllegalArgumentException("Can't write [" + line.getClass() + "] in binary template.");
+        }
+    }
+
+    /**
+     * Read a <code>Line</code>.
+     *
+     * @param in the source.
+     * @return the line.
+     * @throws IOException if error occured when reading.
+     */
+    private static Line readLine(DataInputStream in) throws IOException {
+        int type = in.readByte();
+        switch (type) {
+            case LINE_NULL:
+                return null;
+            case LINE_TEXT:
+                return new TextLine(readString(in));
+            case LINE_EMPTY:
+                return new EmptyLine();
+            case LINE_TABLE:
+                TableLine tableLine = new TableLine(readString(in));
+                tableLine.setDrawBorder(in.readBoolean());
+                tableLine.setDrawLineSeparator(in.readBoolean());
+                tableLine.setDrawUnderlineSeparator(in.readBoolean());
+                int numberOfColumns = in.readInt();
+                for (int i = 0; i < numberOfColumns; i++) {
+                    TableColumn column = tableLine.addColumn(readString(in), in.readInt());
+                    column.setCaption(readString(in));
+                    column.setWrap(in.readBoolean());
+                }
+                return tableLine;
+            case LINE_LIST:
+                return new ListLine(readString(in), readString(in), readTextLines(in), readTextLines(in));
+            default:
+                throw new IOException("Invalid line type: " + type);
+        }
+    }
+
+    /**
+     * Write an array of <code>TextLine</code>.
+     *
+     * @param out the destination.
+     * @param lines the lines that will be written.
+     * @throws IOException if error occured when writing.
+     */
+    private static void writeTextLines(DataOutputStream out, TextLine[] lines) throws IOException {
+        out.writeInt(lines.length);
+        for (TextLine line : lines) {
+            writeString(out, line.getText());
+        }
+    }
+
+    /**
+     * Read an array of <code>TextLine</code>.
+     *
+     * @param in the source.
+     * @return the lines.
+     * @throws IOException if error occured when reading.
+     */
+    private static TextLine[] readTextLines(DataInputStream in) throws IOException {
+        TextLine[] result = new TextLine[in.readInt()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = new TextLine(readString(in));
+        }
+        return result;
+    }
+
+    /**
+     * Write a nullable string.  Unlike <code>writeUTF()</code>, the length of string is not limited.
+     *
+     * @param out the destination.
+     * @param value the string that will be written.
+     * @throws IOException if error occured when writing.
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Read a nullable string.
+     *
+     * @param in the source.
+     * @return the string.
+     * @throws IOException if error occured when reading.
+     */
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write a nullable <code>Integer</code>.
+     *
+     * @param out the destination.
+     * @param value the value that will be written.
+     * @throws IOException if error occured when writing.
+     */
+    private static void writeInteger(DataOutputStream out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeInt(value);
+        }
+    }
+
+    /**
+     * Read a nullable <code>Integer</code>.
+     *
+     * @param in the source.
+     * @return the value.
+     * @throws IOException if error occured when reading.
+     */
+    private static Integer readInteger(DataInputStream in) throws IOException {
+        return in.readBoolean() ? Integer.valueOf(in.readInt()) : null;
+    }
+
+    /**
+     * Write a nullable enum value by its ordinal.
+     *
+     * @param out the destination.
+     * @param value the value that will be written.
+     * @throws IOException if error occured when writing.
+     */
+    private static void writeEnum(DataOutputStream out, Enum<?> value) throws IOException {
+        out.writeByte((value == null) ? -1 : value.ordinal());
+    }
+
+    /**
+     * Read a nullable enum value.
+     *
+     * @param in the source.
+     * @param values all values of the enum.
+     * @param <T> the type of enum.
+     * @return the value.
+     * @throws IOException if error occured when reading.
+     */
+    private static <T extends Enum<T>> T readEnum(DataInputStream in, T[] values) throws IOException {
+        int ordinal = in.readByte();
+        if (ordinal < 0) {
+            return null;
+        }
+        if (ordinal >= values.length) {
+            throw new IOException("Invalid value for " + values[0].getDeclaringClass().getSimpleName() + ": " +
+                ordinal);
+        }
+        return values[ordinal];
+    }
+
+}
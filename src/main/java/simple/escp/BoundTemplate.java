@@ -0,0 +1,318 @@
+/*
+ * Copyright 2014 Jocki Hendry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.escp;
+
+import simple.escp.data.DataSource;
+import simple.escp.data.DataSources;
+import simple.escp.data.PropertyPath;
+import simple.escp.dom.Line;
+import simple.escp.dom.Page;
+import simple.escp.dom.Report;
+import simple.escp.dom.TableColumn;
+import simple.escp.dom.line.ListLine;
+import simple.escp.dom.line.TableLine;
+import simple.escp.dom.line.TextLine;
+import simple.escp.dom.line.TextSegment;
+import simple.escp.exception.InvalidPlaceholder;
+import simple.escp.fill.FillJob;
+import simple.escp.placeholder.BoundPlaceholder;
+import simple.escp.placeholder.PlaceholderSpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ *  <code>BoundTemplate</code> is a compiled template whose placeholders have been checked against the class of
+ *  the object that will be used to fill it.  It is created by calling {@link Template#bind(Class)}.
+ *
+ *  <p>When a template is bound, every basic placeholder is resolved into a {@link PropertyPath}.  Placeholders
+ *  in a list line and the columns of a table are resolved against the element type of the list or table source,
+ *  for example <code>Item</code> for a property declared as <code>List&lt;Item&gt;</code>.  If a member can't be
+ *  found, {@link Template#bind(Class)} will throw <code>InvalidPlaceholder</code> instead of printing an empty
+ *  value later.  During filling, bound placeholders read their value through the resolved paths.
+ *
+ *  <p>Columns and sources that are scripts, and lists or tables whose element type can't be determined from
+ *  generic type information, are not checked and will be evaluated as usual.
+ *
+ *  <p>Example:
+ *
+ *  <pre>
+ *      BoundTemplate template = new JsonTemplate(file).bind(Invoice.class);
+ *      String result = template.fill(invoice);
+ *  </pre>
+ */
+public final class BoundTemplate {
+
+    private static final Logger LOG = Logger.getLogger("simple.escp");
+    private static final Set<String> RESERVED_COLUMN_NAMES = new LinkedHashSet<>(
+        Arrays.asList("row", "col", "bean", "dataSources"));
+
+    private final Class<?> rootType;
+    private final CompiledTemplate compiledTemplate;
+    private final Map<String, List<PropertyPath>> placeholderPaths = new HashMap<>();
+    private final Map<String, List<PropertyPath>> columnPaths = new HashMap<>();
+    private final Set<String> errors = new LinkedHashSet<>();
+
+    /**
+     * Create a new <code>BoundTemplate</code>.
+     *
+     * @param compiledTemplate the template that will be bound.
+     * @param rootType the class of object that will be used to fill the template.
+     * @throws InvalidPlaceholder if one or more placeholders can't be resolved against <code>rootType</code>.
+     */
+    BoundTemplate(CompiledTemplate compiledTemplate, Class<?> rootType) {
+        this.rootType = rootType;
+        Report report = compiledTemplate.getReport();
+        bind(report.getHeader(), rootType);
+        bind(report.getFooter(), rootType);
+        bind(report.getLastPageFooter(), rootType);
+        for (Page page : report) {
+            for (Line line : page.getLines()) {
+                bind(line);
+            }
+        }
+        if (!errors.isEmpty()) {
+            StringBuilder message = new StringBuilder("Template doesn't match [" + rootType.getName() + "]:");
+            for (String error : errors) {
+                message.append("\n").append(error);
+            }
+            throw new InvalidPlaceholder(message.toString());
+        }
+        this.compiledTemplate = new CompiledTemplate(compiledTemplate, createPlaceholders(placeholderPaths, false),
+            createPlaceholders(columnPaths, true));
+        LOG.fine("Bound [" + placeholderPaths.size() + "] placeholders and [" + columnPaths.size() +
+            "] columns to [" + rootType.getName() + "]");
+    }
+
+    /**
+     * Resolve placeholders in a line of report.
+     *
+     * @param line the line that will be resolved.
+     */
+    private void bind(Line line) {
+        if (line instanceof TextLine) {
+            bind(((TextLine) line).getSegments(), rootType);
+        } else if (line instanceof TableLine) {
+            TableLine tableLine = (TableLine) line;
+            Class<?> elementType = resolveElementType(tableLine.getSource());
+            if (elementType != null) {
+                for (TableColumn column : tableLine) {
+                    bindColumn(column.getText(), elementType);
+                }
+            }
+        } else if (line instanceof ListLine) {
+            ListLine listLine = (ListLine) line;
+            bind(listLine.getHeader(), rootType);
+            bind(listLine.getFooter(), rootType);
+            Class<?> elementType = resolveElementType(listLine.getSource());
+            if (elementType != null) {
+                bind(TextSegment.tokenize(listLine.getLineSource()), elementType);
+            }
+        }
+    }
+
+    /**
+     * Resolve placeholders in lines.
+     *
+     * @param lines the lines that will be resolved.
+     * @param type the class of data source for these lines.
+     */
+    private void bind(TextLine[] lines, Class<?> type) {
+        for (TextLine line : lines) {
+            bind(line.getSegments(), type);
+        }
+    }
+
+    /**
+     * Resolve basic placeholders in segments of a line.
+     *
+     * @param segments the segments that will be resolved.
+     * @param type the class of data source for these segments.
+     */
+    private void bind(TextSegment[] segments, Class<?> type) {
+        for (TextSegment segment : segments) {
+            if (segment.getType() == TextSegment.Type.BASIC_PLACEHOLDER) {
+                String text = segment.getContent();
+                PropertyPath path = resolve(PlaceholderSpec.forBasic(text).getName(), type);
+                if (path != null) {
+                    add(placeholderPaths, text, path);
+                }
+            }
+        }
+    }
+
+    /**
+     * Resolve a table column.  Columns are scripts, so only columns that are property paths will be resolved.
+     *
+     * @param text the text of column.
+     * @param elementType the class of table's row.
+     */
+    private void bindColumn(String text, Class<?> elementType) {
+        String name = PlaceholderSpec.forScript(text).getName();
+        if (!PropertyPath.isPath(name) || RESERVED_COLUMN_NAMES.contains(name)) {
+            return;
+        }
+        try {
+            add(columnPaths, text, PropertyPath.compile(elementType, name));
+        } catch (InvalidPlaceholder e) {
+            // Scripts in column can also read variables from global data source.
+            try {
+                PropertyPath.compile(rootType, name);
+            } catch (InvalidPlaceholder ignored) {
+                errors.add(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Find the element type of the source of a table or list.
+     *
+     * @param source the script for source of table or list.
+     * @return the element type or <code>null</code> if it can't be determined.
+     */
+    private Class<?> resolveElementType(String source) {
+        if (!PropertyPath.isPath(source)) {
+            LOG.fine("Can't determine element type of [" + source + "] because it is not a property path.");
+            return null;
+        }
+        PropertyPath path = resolve(source, rootType);
+        if (path == null) {
+            return null;
+        }
+        Class<?> elementType = PropertyPath.getElementType(path.getGenericType());
+        if (elementType == null) {
+            LOG.fine("Can't determine element type of [" + path + "] from [" + path.getGenericType() + "]");
+        }
+        return elementType;
+    }
+
+    /**
+     * Resolve a path and record the error if it can't be resolved.
+     *
+     * @param name the property path.
+     * @param type the class of data source.
+     * @return the resolved path or <code>null</code> if it can't be resolved.
+     */
+    private PropertyPath resolve(String name, Class<?> type) {
+        try {
+            return PropertyPath.compile(type, name);
+        } catch (InvalidPlaceholder e) {
+            errors.add(e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Add a resolved path for a placeholder text.  A placeholder text may be resolved against more than one class.
+     *
+     * @param paths the destination.
+     * @param text the placeholder text.
+     * @param path the resolved path.
+     */
+    private static void add(Map<String, List<PropertyPath>> paths, String text, PropertyPath path) {
+        List<PropertyPath> list = paths.get(text);
+        if (list == null) {
+            list = new ArrayList<>();
+            paths.put(text, list);
+        }
+        for (PropertyPath existing : list) {
+            if (existing.getRootType().equals(path.getRootType())) {
+                return;
+            }
+        }
+        list.add(path);
+    }
+
+    /**
+     * Create bound placeholders from resolved paths.
+     *
+     * @param paths the resolved paths, with placeholder text as the key.
+     * @param script <code>true</code> if placeholder texts are scripts.
+     * @return bound placeholders, with placeholder text as the key.
+     */
+    private static Map<String, BoundPlaceholder> createPlaceholders(Map<String, List<PropertyPath>> paths,
+                                                                    boolean script) {
+        Map<String, BoundPlaceholder> result = new LinkedHashMap<>();
+        for (Map.Entry<String, List<PropertyPath>> entry : paths.entrySet()) {
+            PlaceholderSpec spec = script ? PlaceholderSpec.forScript(entry.getKey()) :
+                PlaceholderSpec.forBasic(entry.getKey());
+            result.put(entry.getKey(), new BoundPlaceholder(spec,
+                entry.getValue().toArray(new PropertyPath[entry.getValue().size()])));
+        }
+        return result;
+    }
+
+    /**
+     * Retrieve the class that this template was bound to.
+     *
+     * @return the class of root object.
+     */
+    public Class<?> getRootType() {
+        return rootType;
+    }
+
+    /**
+     * Retrieve the compiled template that uses bound placeholders.  It can be filled by using
+     * <code>FillJob</code>.
+     *
+     * @return the <code>CompiledTemplate</code> of this template.
+     */
+    public CompiledTemplate getCompiledTemplate() {
+        return compiledTemplate;
+    }
+
+    /**
+     * Retrieve text of all basic placeholders that have been bound.
+     *
+     * @return a <code>Set</code> that contains placeholder texts.
+     */
+    public Set<String> getBoundPlaceholderTexts() {
+        return Collections.unmodifiableSet(placeholderPaths.keySet());
+    }
+
+    /**
+     * Retrieve text of all table columns that have been bound.
+     *
+     * @return a <code>Set</code> that contains column texts.
+     */
+    public Set<String> getBoundColumnTexts() {
+        return Collections.unmodifiableSet(columnPaths.keySet());
+    }
+
+    /**
+     * Fill this template.
+     *
+     * @param root an instance of {@link #getRootType()}.
+     * @return a <code>String</code> that may contains ESC/P commands and can be printed.
+     * @throws IllegalArgumentException if <code>root</code> is not an instance of {@link #getRootType()}.
+     */
+    public String fill(Object root) {
+        if (!rootType.isInstance(root)) {
+            throw new IllegalArgumentException("Expected an instance of [" + rootType.getName() + "] but found [" +
+                root + "].");
+        }
+        return new FillJob(compiledTemplate, new DataSource[] {DataSources.from(root)}).fill();
+    }
+
+}
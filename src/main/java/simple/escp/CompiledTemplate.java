@@ -0,0 +1,272 @@
+/*
+ * Copyright 2014 Jocki Hendry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.escp;
+
+import simple.escp.dom.Line;
+import simple.escp.dom.Page;
+import simple.escp.dom.PageFormat;
+import simple.escp.dom.Report;
+import simple.escp.dom.TableColumn;
+import simple.escp.dom.line.ListLine;
+import simple.escp.dom.line.TableLine;
+import simple.escp.dom.line.TextLine;
+import simple.escp.dom.line.TextSegment;
+import simple.escp.placeholder.BasicPlaceholder;
+import simple.escp.placeholder.BoundPlaceholder;
+import simple.escp.placeholder.Placeholder;
+import simple.escp.placeholder.ScriptPlaceholder;
+import javax.script.ScriptEngine;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ *  <code>CompiledTemplate</code> is the result of parsing a <code>Template</code> once and preparing everything
+ *  that doesn't depend on the data source.  It stores the parsed <code>Report</code>, the ESC/P commands for
+ *  the <code>PageFormat</code> and all placeholders that were found in the template in their parsed form.
+ *
+ *  <p>The same instance can be filled many times by using {@link simple.escp.fill.FillJob#FillJob(CompiledTemplate,
+ *  simple.escp.data.DataSource[])}.  Fills must not run at the same time, because functions such as
+ *  <code>%{INC}</code> keep their state in the global {@link simple.escp.fill.FillJob#FUNCTIONS} and line numbers
+ *  are written to the lines of the compiled <code>Report</code>.
+ *
+ *  <p>To create a <code>CompiledTemplate</code>, use {@link Template#compile()}.
+ */
+public final class CompiledTemplate {
+
+    private static final Logger LOG = Logger.getLogger("simple.escp");
+
+    private final Report report;
+    private final PageFormat pageFormat;
+    private final String pageFormatPrefix;
+    private final boolean dynamic;
+    private final Map<String, BasicPlaceholder> basicPlaceholders = new HashMap<>();
+    private final Map<String, ScriptPlaceholder> scriptPlaceholders = new HashMap<>();
+    private final Map<String, BoundPlaceholder> columnPlaceholders = new HashMap<>();
+
+    /**
+     * Create a new <code>CompiledTemplate</code>.
+     *
+     * @param template the template that will be parsed and compiled.
+     */
+    CompiledTemplate(Template template) {
+        this.report = template.parse();
+        this.pageFormat = report.getPageFormat();
+        this.pageFormatPrefix = pageFormat.build();
+        this.dynamic = report.hasDynamicLine();
+        collectPlaceholders(report.getHeader());
+        collectPlaceholders(report.getFooter());
+        collectPlaceholders(report.getLastPageFooter());
+        for (Page page : report) {
+            for (Line line : page.getLines()) {
+                collectPlaceholders(line);
+            }
+        }
+        LOG.fine("Compiled [" + basicPlaceholders.size() + "] basic placeholders and [" +
+            scriptPlaceholders.size() + "] script placeholders.");
+    }
+
+    /**
+     * Create a copy of another <code>CompiledTemplate</code> that uses bound placeholders.  This constructor is
+     * used by {@link BoundTemplate}.
+     *
+     * @param another the template that will be copied.
+     * @param boundPlaceholders bound placeholders that replace basic placeholders with the same text.
+     * @param boundColumns bound placeholders for table columns, with the text of column as the key.
+     */
+    CompiledTemplate(CompiledTemplate another, Map<String, BoundPlaceholder> boundPlaceholders,
+                     Map<String, BoundPlaceholder> boundColumns) {
+        this.report = another.report;
+        this.pageFormat = another.pageFormat;
+        this.pageFormatPrefix = another.pageFormatPrefix;
+        this.dynamic = another.dynamic;
+        this.basicPlaceholders.putAll(another.basicPlaceholders);
+        this.basicPlaceholders.putAll(boundPlaceholders);
+        this.scriptPlaceholders.putAll(another.scriptPlaceholders);
+        this.columnPlaceholders.putAll(boundColumns);
+    }
+
+    /**
+     * Find placeholders in a <code>Line</code>.
+     *
+     * @param line the <code>Line</code> to search for.
+     */
+    private void collectPlaceholders(Line line) {
+        if (line instanceof TextLine) {
+            collectPlaceholders(((TextLine) line).getSegments());
+        } else if (line instanceof TableLine) {
+            TableLine tableLine = (TableLine) line;
+            addScriptPlaceholder(tableLine.getSource());
+            for (TableColumn column : tableLine) {
+                addScriptPlaceholder(column.getText());
+            }
+            collectPlaceholders(tableLine.getHeader());
+            collectPlaceholders(tableLine.getFooter());
+        } else if (line instanceof ListLine) {
+            ListLine listLine = (ListLine) line;
+            addScriptPlaceholder(listLine.getSource());
+            collectPlaceholders(TextSegment.tokenize(listLine.getLineSource()));
+            collectPlaceholders(listLine.getHeader());
+            collectPlaceholders(listLine.getFooter());
+        }
+    }
+
+    /**
+     * Find placeholders in an array of <code>TextLine</code>.
+     *
+     * @param lines the lines to search for.
+     */
+    private void collectPlaceholders(TextLine[] lines) {
+        for (TextLine line : lines) {
+            collectPlaceholders(line);
+        }
+    }
+
+    /**
+     * Find placeholders in segments of a line.
+     *
+     * @param segments the segments to search for.
+     */
+    private void collectPlaceholders(TextSegment[] segments) {
+        for (TextSegment segment : segments) {
+            if (segment.getType() == TextSegment.Type.BASIC_PLACEHOLDER) {
+                String placeholderText = segment.getContent();
+                if (!basicPlaceholders.containsKey(placeholderText)) {
+                    basicPlaceholders.put(placeholderText, new BasicPlaceholder(placeholderText));
+                }
+            } else if (segment.getContentSegments().length > 0) {
+                // The script is only known after basic placeholders inside it are filled.
+                collectPlaceholders(segment.getContentSegments());
+            } else if (segment.getType() == TextSegment.Type.SCRIPT_PLACEHOLDER) {
+                addScriptPlaceholder(segment.getContent());
+            }
+        }
+    }
+
+    /**
+     * Parse and store a script placeholder.
+     *
+     * @param text the text of script placeholder.
+     */
+    private void addScriptPlaceholder(String text) {
+        if ((text != null) && !scriptPlaceholders.containsKey(text)) {
+            scriptPlaceholders.put(text, new ScriptPlaceholder(text, null));
+        }
+    }
+
+    /**
+     * Retrieve the parsed <code>Report</code> of this template.  The returned <code>Report</code> is shared by all
+     * fill operations and should not be modified.
+     *
+     * @return the result of parsing template.
+     */
+    public Report getReport() {
+        return report;
+    }
+
+    /**
+     * Retrieve the <code>PageFormat</code> of this template.
+     *
+     * @return the <code>PageFormat</code> of this template.
+     */
+    public PageFormat getPageFormat() {
+        return pageFormat;
+    }
+
+    /**
+     * Retrieve the ESC/P commands that should be printed before the content of this template.  It is the
+     * same as calling {@link simple.escp.dom.PageFormat#build()} but it is only calculated once.
+     *
+     * @return a string that contains ESC/P commands.
+     */
+    public String getPageFormatPrefix() {
+        return pageFormatPrefix;
+    }
+
+    /**
+     * Determine if the report of this template contains one or more dynamic lines, such as table or list.
+     *
+     * @return <code>true</code> if this template contains dynamic line.
+     */
+    public boolean hasDynamicLine() {
+        return dynamic;
+    }
+
+    /**
+     * Retrieve text of all basic placeholders in this template.
+     *
+     * @return a <code>Set</code> that contains placeholder texts.
+     */
+    public Set<String> getBasicPlaceholderTexts() {
+        return Collections.unmodifiableSet(basicPlaceholders.keySet());
+    }
+
+    /**
+     * Retrieve text of all script placeholders in this template, including source of tables and lists.
+     *
+     * @return a <code>Set</code> that contains placeholder texts.
+     */
+    public Set<String> getScriptPlaceholderTexts() {
+        return Collections.unmodifiableSet(scriptPlaceholders.keySet());
+    }
+
+    /**
+     * Create a new <code>BasicPlaceholder</code> from its pre-parsed version.
+     *
+     * @param text the text of placeholder.
+     * @return a new <code>BasicPlaceholder</code> or <code>null</code> if this template doesn't contain
+     *         the placeholder.
+     */
+    public BasicPlaceholder createBasicPlaceholder(String text) {
+        BasicPlaceholder placeholder = basicPlaceholders.get(text);
+        if (placeholder instanceof BoundPlaceholder) {
+            return new BoundPlaceholder((BoundPlaceholder) placeholder);
+        }
+        return (placeholder == null) ? null : new BasicPlaceholder(placeholder);
+    }
+
+    /**
+     * Create a new <code>ScriptPlaceholder</code> from its pre-parsed version.
+     *
+     * @param text the text of placeholder.
+     * @param scriptEngine the script engine that will be used by the new placeholder.
+     * @return a new <code>ScriptPlaceholder</code> or <code>null</code> if this template doesn't contain
+     *         the placeholder.
+     */
+    public ScriptPlaceholder createScriptPlaceholder(String text, ScriptEngine scriptEngine) {
+        ScriptPlaceholder placeholder = scriptPlaceholders.get(text);
+        return (placeholder == null) ? null : new ScriptPlaceholder(placeholder, scriptEngine);
+    }
+
+    /**
+     * Create a new <code>Placeholder</code> for a table column.  If the column has been bound by
+     * {@link Template#bind(Class)}, the result is a <code>BoundPlaceholder</code>.  Otherwise, it is the same as
+     * calling {@link #createScriptPlaceholder(String, javax.script.ScriptEngine)}.
+     *
+     * @param text the text of column.
+     * @param scriptEngine the script engine that will be used if the column is not bound.
+     * @return a new <code>Placeholder</code> or <code>null</code> if this template doesn't contain the column.
+     */
+    public Placeholder createColumnPlaceholder(String text, ScriptEngine scriptEngine) {
+        BoundPlaceholder placeholder = columnPlaceholders.get(text);
+        return (placeholder == null) ? createScriptPlaceholder(text, scriptEngine) :
+            new BoundPlaceholder(placeholder);
+    }
+
+}
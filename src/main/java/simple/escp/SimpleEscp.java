@@ -138,7 +138,7 @@ public class SimpleEscp {
      * @return a <code>DocPrintJob</code> that is associated with this operation.
      */
     public DocPrintJob print(Template template, Map mapSource, Object objectSource) {
-        FillJob fillJob = new FillJob(template.parse(), DataSources.from(mapSource, objectSource));
+        FillJob fillJob = new FillJob(template.compile(), DataSources.from(mapSource, objectSource));
         return print(fillJob.fill());
     }
 
@@ -150,7 +150,7 @@ public class SimpleEscp {
      * @return a <code>DocPrintJob</code> that is associated with this operation.
      */
     public DocPrintJob print(Template template, Map mapSource) {
-        FillJob fillJob = new FillJob(template.parse(), DataSources.from(mapSource));
+        FillJob fillJob = new FillJob(template.compile(), DataSources.from(mapSource));
         return print(fillJob.fill());
     }
 
@@ -162,7 +162,7 @@ public class SimpleEscp {
      * @return a <code>DocPrintJob</code> that is associated with this operation.
      */
     public DocPrintJob print(Template template, DataSource dataSource) {
-        FillJob fillJob = new FillJob(template.parse(), dataSource);
+        FillJob fillJob = new FillJob(template.compile(), dataSource);
         return print(fillJob.fill());
     }
 
@@ -174,7 +174,7 @@ public class SimpleEscp {
      * @return a <code>DocPrintJob</code> that is associated with this operation.
      */
     public DocPrintJob print(Template template, DataSource[] dataSources) {
-        FillJob fillJob = new FillJob(template.parse(), dataSources);
+        FillJob fillJob = new FillJob(template.compile(), dataSources);
         return print(fillJob.fill());
     }
 
@@ -27,6 +27,7 @@ public abstract class Template {
 
     protected PageFormat pageFormat = new PageFormat();
     protected Report report;
+    private CompiledTemplate compiledTemplate;
 
     /**
      * Retrieve current <code>PageFormat</code> associated with this template.
@@ -45,4 +46,30 @@ public abstract class Template {
      */
     public abstract Report parse();
 
+    /**
+     * Parse this template and prepare it for filling.  The result is calculated only once and the same
+     * <code>CompiledTemplate</code> will be returned on subsequent calls.
+     *
+     * @return an instance of <code>CompiledTemplate</code> for this template.
+     */
+    public synchronized CompiledTemplate compile() {
+        if (compiledTemplate == null) {
+            compiledTemplate = new CompiledTemplate(this);
+        }
+        return compiledTemplate;
+    }
+
+    /**
+     * Resolve all basic placeholders and table columns in this template against a class.  Errors in placeholders,
+     * such as a typo in <code>${customer.name}</code>, will be reported by this method instead of when the
+     * template is filled.
+     *
+     * @param rootType the class of object that will be used to fill this template.
+     * @return a <code>BoundTemplate</code> that reads values by using pre-resolved accessors.
+     * @throws simple.escp.exception.InvalidPlaceholder if one or more placeholders can't be resolved.
+     */
+    public BoundTemplate bind(Class<?> rootType) {
+        return new BoundTemplate(compile(), rootType);
+    }
+
 }
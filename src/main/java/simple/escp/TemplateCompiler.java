@@ -0,0 +1,250 @@
+/*
+ * Copyright 2014 Jocki Hendry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.escp;
+
+import simple.escp.dom.Line;
+import simple.escp.dom.PageFormat;
+import simple.escp.dom.Report;
+import simple.escp.dom.TableColumn;
+import simple.escp.dom.line.ListLine;
+import simple.escp.dom.line.TableLine;
+import simple.escp.json.JsonTemplate;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ *  <code>TemplateCompiler</code> validates JSON templates in a directory and writes them as binary templates,
+ *  so they can be loaded without JSON parsing at runtime.  It is intended to be executed at build time, for example
+ *  by the <code>precompileTemplates</code> task in Gradle build script:
+ *
+ *  <pre>
+ *      java simple.escp.TemplateCompiler src/main/resources build/templates "templates/**.json"
+ *  </pre>
+ *
+ *  <p>Every binary template is written to destination directory with the same relative path as its JSON template
+ *  followed by {@link BinaryTemplate#EXTENSION}.  If the destination directory is packaged into the same jar as
+ *  the JSON templates, <code>TemplateRegistry</code> will use the binary templates automatically.
+ */
+public class TemplateCompiler {
+
+    private static final Logger LOG = Logger.getLogger("simple.escp");
+    public static final String DEFAULT_PATTERN = "**.json";
+
+    private final File sourceDirectory;
+    private final File destinationDirectory;
+    private final List<PathMatcher> matchers = new ArrayList<>();
+
+    /**
+     * Create a new compiler for all files that match {@link #DEFAULT_PATTERN}.
+     *
+     * @param sourceDirectory the directory that contains JSON templates.
+     * @param destinationDirectory the directory for binary templates.
+     */
+    public TemplateCompiler(File sourceDirectory, File destinationDirectory) {
+        this(sourceDirectory, destinationDirectory, Collections.singletonList(DEFAULT_PATTERN));
+    }
+
+    /**
+     * Create a new compiler.
+     *
+     * @param sourceDirectory the directory that contains JSON templates.
+     * @param destinationDirectory the directory for binary templates.
+     * @param patterns glob patterns for path of JSON templates relative to <code>sourceDirectory</code>, for
+     *                 example <code>"templates/**.json"</code>.
+     */
+    public TemplateCompiler(File sourceDirectory, File destinationDirectory, List<String> patterns) {
+        if (!sourceDirectory.isDirectory()) {
+            throw new IllegalArgumentException("[" + sourceDirectory + "] is not a directory.");
+        }
+        if (patterns.isEmpty()) {
+            throw new IllegalArgumentException("Patterns can't be empty.");
+        }
+        this.sourceDirectory = sourceDirectory;
+        this.destinationDirectory = destinationDirectory;
+        for (String pattern : patterns) {
+            matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + pattern));
+        }
+    }
+
+    /**
+     * Find all JSON templates in source directory.
+     *
+     * @return path of JSON templates relative to source directory, sorted by their name.
+     * @throws IOException if error occured when reading source directory.
+     */
+    public List<Path> findTemplates() throws IOException {
+        final Path root = sourceDirectory.toPath();
+        final List<Path> result = new ArrayList<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                Path relativePath = root.relativize(file);
+                for (PathMatcher matcher : matchers) {
+                    if (matcher.matches(relativePath)) {
+                        result.add(relativePath);
+                        break;
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * Validate all JSON templates in source directory and write them as binary templates to destination directory.
+     * Invalid templates will not stop this method from processing the rest of templates.
+     *
+     * @return the binary templates that have been written.
+     * @throws IOException if error occured when reading or writing files.
+     * @throws IllegalArgumentException if at least one of templates is invalid.  The message contains the errors
+     *         for all invalid templates.
+     */
+    public List<File> compile() throws IOException {
+        List<File> result = new ArrayList<>();
+        StringBuilder errors = new StringBuilder();
+        for (Path relativePath : findTemplates()) {
+            File source = sourceDirectory.toPath().resolve(relativePath).toFile();
+            JsonTemplate template = new JsonTemplate(source);
+            try {
+                validate(template);
+            } catch (RuntimeException e) {
+                LOG.warning("Invalid template [" + source + "]: " + e.getMessage());
+                errors.append("\n").append(relativePath).append(": ").append(e.getMessage());
+                continue;
+            }
+            File destination = destinationDirectory.toPath().resolve(relativePath + BinaryTemplate.EXTENSION)
+                .toFile();
+            Files.createDirectories(destination.getParentFile().toPath());
+            try (OutputStream outputStream = Files.newOutputStream(destination.toPath())) {
+                BinaryTemplate.write(template, outputStream);
+            }
+            LOG.fine("[" + source + "] has been written to [" + destination + "]");
+            result.add(destination);
+        }
+        if (errors.length() > 0) {
+            throw new IllegalArgumentException("Invalid templates:" + errors);
+        }
+        return result;
+    }
+
+    /**
+     * Parse and compile a template, then check its tables and lists.
+     *
+     * @param template the template that will be validated.
+     * @throws IllegalArgumentException if the template is invalid.
+     */
+    public static void validate(Template template) {
+        Report report = template.parse();
+        PageFormat pageFormat = report.getPageFormat();
+        if (pageFormat.getPageLength() != null) {
+            int reserved = Math.max(report.getFooter().length, report.getLastPageFooter().length) +
+                report.getHeader().length;
+            if (reserved >= pageFormat.getPageLength()) {
+                throw new IllegalArgumentException("Header and footer need " + reserved + " lines, but page " +
+                    "length is only " + pageFormat.getPageLength() + ".");
+            }
+        }
+        for (Line line : report.getFlatLines()) {
+            if (line instanceof TableLine) {
+                validate((TableLine) line, pageFormat);
+            } else if (line instanceof ListLine) {
+                validate((ListLine) line);
+            }
+        }
+        template.compile();
+    }
+
+    /**
+     * Check a table.
+     *
+     * @param tableLine the table that will be validated.
+     * @param pageFormat the page format of report.
+     * @throws IllegalArgumentException if the table is invalid.
+     */
+    private static void validate(TableLine tableLine, PageFormat pageFormat) {
+        if (tableLine.getSource() == null || tableLine.getSource().trim().isEmpty()) {
+            throw new IllegalArgumentException("Table must have a source.");
+        }
+        if (tableLine.getNumberOfColumns() == 0) {
+            throw new IllegalArgumentException("Table [" + tableLine.getSource() + "] doesn't have any column.");
+        }
+        int index = 1;
+        for (TableColumn column : tableLine) {
+            if (column.getWidth() <= 0) {
+                throw new IllegalArgumentException("Column " + index + " in table [" + tableLine.getSource() +
+                    "] must have positive width.");
+            }
+            index++;
+        }
+        if ((pageFormat.getPageWidth() != null) && (tableLine.getWidth() > pageFormat.getPageWidth())) {
+            throw new IllegalArgumentException("Width of table [" + tableLine.getSource() + "] is " +
+                tableLine.getWidth() + ", but page width is only " + pageFormat.getPageWidth() + ".");
+        }
+    }
+
+    /**
+     * Check a list.
+     *
+     * @param listLine the list that will be validated.
+     * @throws IllegalArgumentException if the list is invalid.
+     */
+    private static void validate(ListLine listLine) {
+        if (listLine.getSource() == null || listLine.getSource().trim().isEmpty()) {
+            throw new IllegalArgumentException("List must have a source.");
+        }
+        if (listLine.getLineSource() == null || listLine.getLineSource().isEmpty()) {
+            throw new IllegalArgumentException("List [" + listLine.getSource() + "] must have a line.");
+        }
+    }
+
+    /**
+     * Compile templates from command line.
+     *
+     * @param args source directory, destination directory and optional glob patterns for templates.
+     * @throws IOException if error occured when reading or writing files.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Usage: TemplateCompiler <source directory> " +
+                "<destination directory> [pattern...]");
+        }
+        List<String> patterns = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            patterns.add(args[i]);
+        }
+        if (patterns.isEmpty()) {
+            patterns.add(DEFAULT_PATTERN);
+        }
+        List<File> result = new TemplateCompiler(new File(args[0]), new File(args[1]), patterns).compile();
+        LOG.info(result.size() + " templates have been compiled.");
+    }
+
+}
@@ -0,0 +1,344 @@
+/*
+ * Copyright 2014 Jocki Hendry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.escp;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ *  <code>TemplateRegistry</code> is a thread-safe cache for JSON templates that are read from file or from
+ *  classpath resource.  Templates returned by this registry are already compiled (see
+ *  {@link Template#compile()}) and can be filled many times, but not at the same time (see
+ *  {@link CompiledTemplate}).
+ *
+ *  <p>Every time a template is requested, this registry will compare the last modified time and the size of
+ *  template's file with the values when the template was loaded.  If they are different, the template will be
+ *  read again and the new template will replace the old one.  Classpath resources that are not stored as a file,
+ *  for example resources inside a jar, are never reloaded.
+ *
+ *  <p>If a binary template (see {@link BinaryTemplate}) with the same name followed by
+ *  {@link BinaryTemplate#EXTENSION} is found next to the JSON template and it was created from the current
+ *  content of JSON template, the binary template will be used instead, so the JSON template doesn't need to be
+ *  parsed.  Binary templates can be created at build time by {@link TemplateCompiler}.
+ *
+ *  <p>Number of templates in this registry is limited.  If the limit is reached, the least recently used
+ *  template will be removed from this registry.
+ *
+ *  <p>Example:
+ *
+ *  <pre>
+ *      TemplateRegistry registry = new TemplateRegistry();
+ *      Template template = registry.getResource("invoice.json");
+ *      simpleEscp.print(template, data);
+ *  </pre>
+ */
+public class TemplateRegistry {
+
+    private static final Logger LOG = Logger.getLogger("simple.escp");
+    public static final int DEFAULT_MAXIMUM_SIZE = 100;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final int maximumSize;
+    private final ClassLoader classLoader;
+    private final Map<String, CacheEntry> entries;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong reloadCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * Create a new registry that can store up to {@link #DEFAULT_MAXIMUM_SIZE} templates.
+     */
+    public TemplateRegistry() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Create a new registry.
+     *
+     * @param maximumSize the maximum number of templates that will be stored in this registry.
+     */
+    public TemplateRegistry(int maximumSize) {
+        this(maximumSize, TemplateRegistry.class.getClassLoader());
+    }
+
+    /**
+     * Create a new registry.
+     *
+     * @param maximumSize the maximum number of templates that will be stored in this registry.
+     * @param classLoader the <code>ClassLoader</code> used to find classpath resources.
+     */
+    public TemplateRegistry(final int maximumSize, ClassLoader classLoader) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Maximum size must be greater than zero: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        this.classLoader = classLoader;
+        this.entries = new LinkedHashMap<String, CacheEntry>(maximumSize, LOAD_FACTOR, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                if (size() > maximumSize) {
+                    LOG.fine("Evicting template [" + eldest.getKey() + "]");
+                    evictionCount.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Retrieve a template from a JSON file with UTF-8 character set.  The file will only be read if it is not in
+     * this registry yet or if the file has been changed since it was read.
+     *
+     * @param file the JSON file.
+     * @return the compiled template.
+     * @throws IOException if error occured when reading the file.
+     */
+    public Template get(File file) throws IOException {
+        String key = "file:" + file.getAbsolutePath();
+        CacheEntry entry = lookup(key);
+        if (entry != null) {
+            return entry.template;
+        }
+        return load(key, file);
+    }
+
+    /**
+     * Retrieve a template from a JSON classpath resource with UTF-8 character set.  The resource will only be read
+     * if it is not in this registry yet or if it is stored as a file that has been changed since it was read.
+     *
+     * @param name the name of resource, for example <code>"templates/invoice.json"</code>.
+     * @return the compiled template.
+     * @throws IOException if error occured when reading the resource or if the resource can't be found.
+     */
+    public Template getResource(String name) throws IOException {
+        String key = "classpath:" + name;
+        CacheEntry entry = lookup(key);
+        if (entry != null) {
+            return entry.template;
+        }
+        URL url = (classLoader == null) ? ClassLoader.getSystemResource(name) : classLoader.getResource(name);
+        if (url == null) {
+            throw new IOException("Can't find template resource [" + name + "]");
+        }
+        File file = null;
+        if ("file".equals(url.getProtocol())) {
+            try {
+                file = new File(url.toURI());
+            } catch (URISyntaxException e) {
+                LOG.fine("Can't convert [" + url + "] to file, it will never be reloaded.");
+            }
+        }
+        if (file != null) {
+            return load(key, file);
+        }
+        LOG.fine("Loading template from [" + url + "]");
+        String binaryName = name + BinaryTemplate.EXTENSION;
+        URL binaryUrl = (classLoader == null) ? ClassLoader.getSystemResource(binaryName) :
+            classLoader.getResource(binaryName);
+        return store(key, new CacheEntry(BinaryTemplate.load(binaryUrl, url), null, 0, 0));
+    }
+
+    /**
+     * Find a valid entry in this registry and update counters.
+     *
+     * @param key the key of template.
+     * @return a valid entry or <code>null</code> if the template should be loaded.
+     */
+    private CacheEntry lookup(String key) {
+        CacheEntry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        if (!entry.isValid()) {
+            LOG.fine("Template [" + key + "] has been changed and will be reloaded.");
+            reloadCount.incrementAndGet();
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return entry;
+    }
+
+    /**
+     * Read a template from file and store it in this registry.
+     *
+     * @param key the key of template.
+     * @param file the JSON file.
+     * @return the stored template.
+     * @throws IOException if error occured when reading the file.
+     */
+    private Template load(String key, File file) throws IOException {
+        LOG.fine("Loading template from [" + file + "]");
+        // Read file attributes before reading its content, so changes made while reading will be detected later.
+        long lastModified = file.lastModified();
+        long length = file.length();
+        Template template = BinaryTemplate.load(new File(file.getPath() + BinaryTemplate.EXTENSION), file);
+        return store(key, new CacheEntry(template, file, lastModified, length));
+    }
+
+    /**
+     * Compile a template and store it in this registry.  If the registry already has a template with the same key,
+     * it will be replaced by the new template.
+     *
+     * @param key the key of template.
+     * @param entry the entry that will be stored.
+     * @return the stored template.
+     */
+    private Template store(String key, CacheEntry entry) {
+        entry.template.compile();
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+        return entry.template;
+    }
+
+    /**
+     * Remove a template loaded from file from this registry.
+     *
+     * @param file the JSON file.
+     */
+    public void remove(File file) {
+        synchronized (entries) {
+            entries.remove("file:" + file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Remove a template loaded from classpath resource from this registry.
+     *
+     * @param name the name of resource.
+     */
+    public void removeResource(String name) {
+        synchronized (entries) {
+            entries.remove("classpath:" + name);
+        }
+    }
+
+    /**
+     * Remove all templates from this registry.  This will not reset counters.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Get the number of templates in this registry.
+     *
+     * @return number of templates.
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Get the maximum number of templates in this registry.
+     *
+     * @return the maximum number of templates.
+     */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Get the number of requests that are served by cached templates.
+     *
+     * @return number of cache hits.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Get the number of requests that cause template to be read, including reloading modified template.
+     *
+     * @return number of cache misses.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Get the number of requests that cause a modified template to be read again.
+     *
+     * @return number of reloads.
+     */
+    public long getReloadCount() {
+        return reloadCount.get();
+    }
+
+    /**
+     * Get the number of templates that were removed because this registry is full.
+     *
+     * @return number of evictions.
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * An immutable entry in this registry.
+     */
+    private static final class CacheEntry {
+
+        private final Template template;
+        private final File file;
+        private final long lastModified;
+        private final long length;
+
+        /**
+         * Create a new entry.
+         *
+         * @param template the template for this entry.
+         * @param file the source file of template or <code>null</code> if template should never be reloaded.
+         * @param lastModified last modified time of <code>file</code> when the template was read.
+         * @param length size of <code>file</code> when the template was read.
+         */
+        private CacheEntry(Template template, File file, long lastModified, long length) {
+            this.template = template;
+            this.file = file;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        /**
+         * Check if the source of template hasn't been changed since this entry was created.
+         *
+         * @return <code>true</code> if the template is still valid.
+         */
+        private boolean isValid() {
+            return (file == null) || ((file.lastModified() == lastModified) && (file.length() == length));
+        }
+
+    }
+
+}
@@ -0,0 +1,173 @@
+package simple.escp.data;
+
+import simple.escp.exception.InvalidPlaceholder;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.logging.Logger;
+
+/**
+ *  A <code>BeanAccessor</code> reads a single member of a Java Bean.  The member can be a property, such as
+ *  <code>"name"</code> that is read by calling <code>getName()</code>, or a method without argument, such as
+ *  <code>"@toString"</code>.
+ *
+ *  <p>The member is read by using a <code>MethodHandle</code> that is created the first time the accessor is used.
+ *  Unlike <code>Method.invoke()</code>, invoking a method handle doesn't allocate an array for arguments and
+ *  doesn't wrap exceptions.  The method handle is stored in an instance field, so JIT compiler can't inline it
+ *  like a direct call.  If a method handle can't be created, for example because of security restriction, the
+ *  accessor will use reflection.
+ */
+public final class BeanAccessor {
+
+    private static final Logger LOG = Logger.getLogger("simple.escp");
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private final String member;
+    private final Method method;
+    private volatile MethodHandle methodHandle;
+    private volatile boolean reflection;
+
+    /**
+     * Create a new accessor.
+     *
+     * @param member the member name, as it appears in placeholder.
+     * @param method the method that will be invoked to read the member.
+     */
+    BeanAccessor(String member, Method method) {
+        this.member = member;
+        this.method = method;
+    }
+
+    /**
+     * Find a member in a class.
+     *
+     * @param type the class of Java Bean.
+     * @param member a property name or a method name that starts with <code>"@"</code>.
+     * @return an accessor or <code>null</code> if <code>type</code> doesn't have the member.
+     */
+    public static BeanAccessor find(Class<?> type, String member) {
+        return BeanMetadata.of(type).getAccessor(member);
+    }
+
+    /**
+     * Retrieve the member name of this accessor.
+     *
+     * @return the member name, for example <code>"name"</code> or <code>"@toString"</code>.
+     */
+    public String getMember() {
+        return member;
+    }
+
+    /**
+     * Retrieve the method that is invoked by this accessor.
+     *
+     * @return the getter or the method without argument.
+     */
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * Retrieve the class that declares this member.
+     *
+     * @return the declaring class.
+     */
+    public Class<?> getDeclaringClass() {
+        return method.getDeclaringClass();
+    }
+
+    /**
+     * Retrieve the type of value returned by this accessor.
+     *
+     * @return the return type.
+     */
+    public Class<?> getType() {
+        return method.getReturnType();
+    }
+
+    /**
+     * Retrieve the generic type of value returned by this accessor.
+     *
+     * @return the generic return type, for example <code>List&lt;Item&gt;</code>.
+     */
+    public Type getGenericType() {
+        return method.getGenericReturnType();
+    }
+
+    /**
+     * Read the value of this member from a Java Bean.
+     *
+     * @param bean the Java Bean.  It must be an instance of the class that declares this member.
+     * @return the value of member.
+     * @throws InvalidPlaceholder if the member can't be read.
+     */
+    public Object get(Object bean) {
+        MethodHandle handle = methodHandle;
+        if ((handle == null) && !reflection) {
+            handle = createMethodHandle();
+        }
+        if (handle == null) {
+            return invoke(bean);
+        }
+        if ((bean != null) && !method.getDeclaringClass().isInstance(bean)) {
+            throw new InvalidPlaceholder("Can't read [" + member + "] from [" + bean + "].");
+        }
+        try {
+            return (Object) handle.invokeExact(bean);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            String action = member.startsWith("@") ? "execute" : "read";
+            throw new InvalidPlaceholder("Can't " + action + " [" + member + "].", e);
+        }
+    }
+
+    /**
+     * Create the method handle for this accessor.  The method handle is adapted to <code>(Object)Object</code>
+     * so it can be invoked by using <code>invokeExact()</code>.
+     *
+     * @return the method handle or <code>null</code> if it can't be created.
+     */
+    private MethodHandle createMethodHandle() {
+        MethodHandle handle = null;
+        try {
+            handle = MethodHandles.publicLookup().unreflect(method).asType(GETTER_TYPE);
+        } catch (IllegalAccessException e) {
+            try {
+                method.setAccessible(true);
+                handle = MethodHandles.lookup().unreflect(method).asType(GETTER_TYPE);
+            } catch (IllegalAccessException | RuntimeException ex) {
+                LOG.fine("Can't create method handle for [" + method + "], will use reflection.");
+                reflection = true;
+            }
+        }
+        methodHandle = handle;
+        return handle;
+    }
+
+    /**
+     * Read the value of this member by using reflection.
+     *
+     * @param bean the Java Bean.
+     * @return the value of member.
+     * @throws InvalidPlaceholder if the member can't be read.
+     */
+    private Object invoke(Object bean) {
+        try {
+            return method.invoke(bean);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            String action = member.startsWith("@") ? "execute" : "read";
+            throw new InvalidPlaceholder("Can't " + action + " [" + member + "].", e);
+        } catch (IllegalAccessException | IllegalArgumentException e) {
+            String action = member.startsWith("@") ? "execute" : "read";
+            throw new InvalidPlaceholder("Can't " + action + " [" + member + "].", e);
+        }
+    }
+
+}
@@ -1,24 +1,24 @@
 package simple.escp.data;
 
 import simple.escp.exception.InvalidPlaceholder;
-import java.beans.BeanInfo;
-import java.beans.IntrospectionException;
-import java.beans.Introspector;
 import java.beans.MethodDescriptor;
 import java.beans.PropertyDescriptor;
-import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
 import java.util.logging.Logger;
 
 /**
  * A <code>BeanDataSource</code> is a <code>DataSource</code> that obtains its value from a Java Bean object.
+ * Information about properties and methods is read once per class and shared by all instances of
+ * <code>BeanDataSource</code> (see {@link BeanMetadata}).  Nested members such as <code>"customer.name"</code> are
+ * read by using a cached {@link PropertyPath}, so a nested member can also be an entry of a <code>Map</code> or a
+ * member of a <code>JsonObject</code>.
  */
-public class BeanDataSource implements DataSource {
+public class BeanDataSource implements LookupDataSource {
 
     private static final Logger LOG = Logger.getLogger("simple.escp");
 
     private Object source;
-    private PropertyDescriptor[] propertyDescriptors;
-    private MethodDescriptor[] methodDescriptors;
+    private BeanMetadata metadata;
 
     /**
      * Create a new <code>BeanDataSource</code>.
@@ -27,13 +27,7 @@ public class BeanDataSource implements DataSource {
      */
     public BeanDataSource(Object source) {
         this.source = source;
-        try {
-            BeanInfo beanInfo = Introspector.getBeanInfo(source.getClass());
-            propertyDescriptors = beanInfo.getPropertyDescriptors();
-            methodDescriptors = beanInfo.getMethodDescriptors();
-        } catch (IntrospectionException e) {
-            throw new RuntimeException("Can't read information from object.", e);
-        }
+        this.metadata = BeanMetadata.of(source.getClass());
     }
 
     /**
@@ -44,13 +38,11 @@ public class BeanDataSource implements DataSource {
      *         the specified method name.
      */
     public MethodDescriptor getMethod(String methodName) {
-        for (MethodDescriptor methodDescriptor : methodDescriptors) {
-            if (methodDescriptor.getName().equals(methodName)) {
-                return methodDescriptor;
-            }
+        MethodDescriptor methodDescriptor = metadata.getMethod(methodName);
+        if (methodDescriptor == null) {
+            LOG.fine("Can't find method [" + methodName + "] in this bean.");
         }
-        LOG.fine("Can't find method [" + methodName + "] in this bean.");
-        return null;
+        return methodDescriptor;
     }
 
     /**
@@ -61,13 +53,11 @@ public class BeanDataSource implements DataSource {
      *         the specified property name.
      */
     public PropertyDescriptor getProperty(String propertyName) {
-        for (PropertyDescriptor propertyDescriptor : propertyDescriptors) {
-            if (propertyDescriptor.getName().equals(propertyName)) {
-                return propertyDescriptor;
-            }
+        PropertyDescriptor propertyDescriptor = metadata.getProperty(propertyName);
+        if (propertyDescriptor == null) {
+            LOG.fine("Can't find property [" + propertyName + "] in this bean.");
         }
-        LOG.fine("Can't find property [" + propertyName + "] in this bean.");
-        return null;
+        return propertyDescriptor;
     }
 
     /**
@@ -75,22 +65,10 @@ public class BeanDataSource implements DataSource {
      */
     @Override
     public boolean has(String member) {
-        if (member.contains(".")) {
-            String[] memberParts = member.split("\\.", 2);
-            String curentPart = memberParts[0];
-            String compositePart = memberParts[1];
-            if (!has(curentPart)) {
-                return false;
-            } else {
-                return (new BeanDataSource(get(curentPart))).has(compositePart);
-            }
-        } else {
-            if (member.startsWith("@")) {
-                return getMethod(member.substring(1)) != null ? true : false;
-            } else {
-                return getProperty(member) != null ? true : false;
-            }
+        if ((member.indexOf('.') < 0) && (member.indexOf('[') < 0)) {
+            return metadata.getAccessor(member) != null;
         }
+        return PropertyPath.of(member).has(source);
     }
 
     /**
@@ -98,29 +76,23 @@ public class BeanDataSource implements DataSource {
      */
     @Override
     public Object get(String member) throws InvalidPlaceholder {
-        if (!has(member)) {
+        Object value = lookup(member);
+        if (value == MISSING) {
             throw new InvalidPlaceholder("Can't find [" + member + "] in this data source.");
         }
-        if (member.contains(".")) {
-            String[] memberParts = member.split("\\.", 2);
-            String curentPart = memberParts[0];
-            String compositePart = memberParts[1];
-            return (new BeanDataSource(get(curentPart))).get(compositePart);
-        } else {
-            if (member.startsWith("@")) {
-                try {
-                    return getMethod(member.substring(1)).getMethod().invoke(source);
-                } catch (IllegalAccessException | InvocationTargetException e) {
-                    throw new InvalidPlaceholder("Can't execute [" + member + "].", e);
-                }
-            } else {
-                try {
-                    return getProperty(member).getReadMethod().invoke(source);
-                } catch (IllegalAccessException | InvocationTargetException e) {
-                    throw new InvalidPlaceholder("Can't read [" + member + "].", e);
-                }
-            }
+        return value;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object lookup(String member) {
+        if ((member.indexOf('.') < 0) && (member.indexOf('[') < 0)) {
+            BeanAccessor accessor = metadata.getAccessor(member);
+            return (accessor == null) ? MISSING : accessor.get(source);
         }
+        return PropertyPath.of(member).find(source);
     }
 
     /**
@@ -136,12 +108,8 @@ public class BeanDataSource implements DataSource {
      */
     @Override
     public String[] getMembers() {
-        String[] result = new String[propertyDescriptors.length];
-        int i = 0;
-        for (PropertyDescriptor propertyDescriptor : propertyDescriptors) {
-            result[i++] = propertyDescriptor.getName();
-        }
-        return result;
+        String[] members = metadata.getMembers();
+        return Arrays.copyOf(members, members.length);
     }
 
 }
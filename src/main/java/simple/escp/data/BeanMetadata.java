@@ -0,0 +1,136 @@
+package simple.escp.data;
+
+import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.MethodDescriptor;
+import java.beans.PropertyDescriptor;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ *  <code>BeanMetadata</code> stores the properties and methods of a Java Bean class, indexed by their name.  It is
+ *  created only once per class and shared by all <code>BeanDataSource</code> for instances of that class.
+ *
+ *  <p>Metadata is stored by using <code>ClassValue</code>, so it doesn't prevent a class (and its class loader)
+ *  from being garbage collected.
+ */
+public final class BeanMetadata {
+
+    private static final Logger LOG = Logger.getLogger("simple.escp");
+
+    private static final ClassValue<BeanMetadata> CACHE = new ClassValue<BeanMetadata>() {
+        @Override
+        protected BeanMetadata computeValue(Class<?> type) {
+            return new BeanMetadata(type);
+        }
+    };
+
+    private final Class<?> type;
+    private final Map<String, PropertyDescriptor> properties = new HashMap<>();
+    private final Map<String, MethodDescriptor> methods = new HashMap<>();
+    private final Map<String, BeanAccessor> accessors = new HashMap<>();
+    private final String[] members;
+
+    /**
+     * Read the metadata of a class.
+     *
+     * @param type the class of Java Bean.
+     */
+    private BeanMetadata(Class<?> type) {
+        LOG.fine("Reading bean information from [" + type + "]");
+        this.type = type;
+        BeanInfo beanInfo;
+        try {
+            beanInfo = Introspector.getBeanInfo(type);
+        } catch (IntrospectionException e) {
+            throw new RuntimeException("Can't read information from object.", e);
+        }
+        PropertyDescriptor[] propertyDescriptors = beanInfo.getPropertyDescriptors();
+        members = new String[propertyDescriptors.length];
+        for (int i = 0; i < propertyDescriptors.length; i++) {
+            PropertyDescriptor propertyDescriptor = propertyDescriptors[i];
+            members[i] = propertyDescriptor.getName();
+            properties.put(propertyDescriptor.getName(), propertyDescriptor);
+            if (propertyDescriptor.getReadMethod() != null) {
+                accessors.put(propertyDescriptor.getName(), new BeanAccessor(propertyDescriptor.getName(),
+                    propertyDescriptor.getReadMethod()));
+            }
+        }
+        for (MethodDescriptor methodDescriptor : beanInfo.getMethodDescriptors()) {
+            String name = methodDescriptor.getName();
+            MethodDescriptor existing = methods.get(name);
+            // Prefer method without parameter, because it is the only one that can be invoked.
+            if ((existing == null) || ((existing.getMethod().getParameterTypes().length > 0) &&
+                    (methodDescriptor.getMethod().getParameterTypes().length == 0))) {
+                methods.put(name, methodDescriptor);
+            }
+        }
+        for (MethodDescriptor methodDescriptor : methods.values()) {
+            if (methodDescriptor.getMethod().getParameterTypes().length == 0) {
+                String member = "@" + methodDescriptor.getName();
+                accessors.put(member, new BeanAccessor(member, methodDescriptor.getMethod()));
+            }
+        }
+    }
+
+    /**
+     * Retrieve the metadata for a class.  The metadata will be created if this is the first time it is requested.
+     *
+     * @param type the class of Java Bean.
+     * @return metadata for <code>type</code>.
+     */
+    public static BeanMetadata of(Class<?> type) {
+        return CACHE.get(type);
+    }
+
+    /**
+     * Retrieve the class of this metadata.
+     *
+     * @return the class of Java Bean.
+     */
+    public Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * Find a property by its name.
+     *
+     * @param name the name of property.
+     * @return a <code>PropertyDescriptor</code> or <code>null</code> if the property doesn't exist.
+     */
+    public PropertyDescriptor getProperty(String name) {
+        return properties.get(name);
+    }
+
+    /**
+     * Find a method by its name.  If there are overloaded methods, the method without parameter is preferred.
+     *
+     * @param name the name of method.
+     * @return a <code>MethodDescriptor</code> or <code>null</code> if the method doesn't exist.
+     */
+    public MethodDescriptor getMethod(String name) {
+        return methods.get(name);
+    }
+
+    /**
+     * Find the accessor for a member.
+     *
+     * @param member a property name or a method name that starts with <code>"@"</code>.
+     * @return an accessor or <code>null</code> if the member doesn't exist or can't be read.
+     */
+    public BeanAccessor getAccessor(String member) {
+        return accessors.get(member);
+    }
+
+    /**
+     * Retrieve the name of all properties.
+     *
+     * @return name of properties.  The returned array is shared, so it must not be modified.
+     */
+    String[] getMembers() {
+        return members;
+    }
+
+}
@@ -0,0 +1,320 @@
+package simple.escp.data;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A <code>ColumnarTable</code> is the source of a table whose values are stored in parallel arrays, one array per
+ * column, such as <code>long[]</code>, <code>double[]</code> and <code>String[]</code>.
+ *
+ * <p>When a <code>ColumnarTable</code> is used as the source of a table, a column whose source is the name of a
+ * column in this table is resolved into a column index once.  Its value is read and formatted directly from the
+ * array, without creating a data source or boxing primitive value for every row.  Other columns, such as scripts,
+ * will read their value from a cursor that is a <code>Map</code> of the current row.
+ *
+ * <p>Example:
+ *
+ * <pre>
+ *     ColumnarTable items = new ColumnarTable(ids.length)
+ *         .addColumn("id", ids)
+ *         .addColumn("price", prices)
+ *         .addColumn("name", names);
+ *     map.put("items", items);
+ * </pre>
+ */
+public class ColumnarTable implements Iterable<Map<String, Object>> {
+
+    private final int rowCount;
+    private final List<String> names = new ArrayList<>();
+    private final List<Object> columns = new ArrayList<>();
+    private final List<Class<?>> types = new ArrayList<>();
+    private final Map<String, Integer> indexes = new HashMap<>();
+
+    /**
+     * Create a new <code>ColumnarTable</code>.
+     *
+     * @param rowCount the number of rows in this table.
+     */
+    public ColumnarTable(int rowCount) {
+        if (rowCount < 0) {
+            throw new IllegalArgumentException("Number of rows can't be negative: " + rowCount);
+        }
+        this.rowCount = rowCount;
+    }
+
+    /**
+     * Add a column to this table.
+     *
+     * @param name the name of column.
+     * @param values the value of every row.
+     * @param type the type of values.
+     * @param length the length of <code>values</code>.
+     */
+    private void add(String name, Object values, Class<?> type, int length) {
+        if (indexes.containsKey(name)) {
+            throw new IllegalArgumentException("Column [" + name + "] already exists.");
+        }
+        if (length < rowCount) {
+            throw new IllegalArgumentException("Column [" + name + "] only has " + length + " values but table has " +
+                rowCount + " rows.");
+        }
+        indexes.put(name, names.size());
+        names.add(name);
+        columns.add(values);
+        types.add(type);
+    }
+
+    /**
+     * Add a column that contains <code>long</code> values.
+     *
+     * @param name the name of column.
+     * @param values the value of every row.
+     * @return this table.
+     */
+    public ColumnarTable addColumn(String name, long[] values) {
+        add(name, values, long.class, values.length);
+        return this;
+    }
+
+    /**
+     * Add a column that contains <code>double</code> values.
+     *
+     * @param name the name of column.
+     * @param values the value of every row.
+     * @return this table.
+     */
+    public ColumnarTable addColumn(String name, double[] values) {
+        add(name, values, double.class, values.length);
+        return this;
+    }
+
+    /**
+     * Add a column that contains objects, such as <code>String</code>.
+     *
+     * @param name the name of column.
+     * @param values the value of every row.
+     * @return this table.
+     */
+    public ColumnarTable addColumn(String name, Object[] values) {
+        add(name, values, Object.class, values.length);
+        return this;
+    }
+
+    /**
+     * Retrieve the number of rows.
+     *
+     * @return number of rows in this table.
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Retrieve the number of columns.
+     *
+     * @return number of columns in this table.
+     */
+    public int getColumnCount() {
+        return names.size();
+    }
+
+    /**
+     * Find the index of a column.
+     *
+     * @param name the name of column.
+     * @return the index of column or <code>-1</code> if this table doesn't have the column.
+     */
+    public int getColumnIndex(String name) {
+        Integer index = indexes.get(name);
+        return (index == null) ? -1 : index;
+    }
+
+    /**
+     * Retrieve the name of a column.
+     *
+     * @param column the index of column.
+     * @return the name of column.
+     */
+    public String getColumnName(int column) {
+        return names.get(column);
+    }
+
+    /**
+     * Retrieve the type of values in a column.
+     *
+     * @param column the index of column.
+     * @return <code>long.class</code>, <code>double.class</code> or <code>Object.class</code>.
+     */
+    public Class<?> getColumnType(int column) {
+        return types.get(column);
+    }
+
+    /**
+     * Read a value from a <code>long</code> column.
+     *
+     * @param column the index of column.
+     * @param row the index of row.
+     * @return the value.
+     */
+    public long getLong(int column, int row) {
+        return ((long[]) columns.get(column))[row];
+    }
+
+    /**
+     * Read a value from a <code>double</code> column.
+     *
+     * @param column the index of column.
+     * @param row the index of row.
+     * @return the value.
+     */
+    public double getDouble(int column, int row) {
+        return ((double[]) columns.get(column))[row];
+    }
+
+    /**
+     * Read a value from any column.  Primitive values will be boxed.
+     *
+     * @param column the index of column.
+     * @param row the index of row.
+     * @return the value.
+     */
+    public Object getObject(int column, int row) {
+        Class<?> type = types.get(column);
+        if (type == long.class) {
+            return getLong(column, row);
+        } else if (type == double.class) {
+            return getDouble(column, row);
+        }
+        return ((Object[]) columns.get(column))[row];
+    }
+
+    /**
+     * Create an <code>Iterator</code> that moves a cursor.  The same cursor is returned for every row, so it
+     * should not be stored.
+     *
+     * @return an <code>Iterator</code> of {@link Cursor}.
+     */
+    @Override
+    public Iterator<Map<String, Object>> iterator() {
+        final Cursor cursor = new Cursor();
+        return new Iterator<Map<String, Object>>() {
+            @Override
+            public boolean hasNext() {
+                return cursor.row + 1 < rowCount;
+            }
+
+            @Override
+            public Map<String, Object> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                cursor.row++;
+                return cursor;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("Rows can't be removed.");
+            }
+        };
+    }
+
+    /**
+     * A read-only <code>Map</code> that contains the values of the current row.
+     */
+    public final class Cursor extends AbstractMap<String, Object> {
+
+        private int row = -1;
+
+        /**
+         * Create a new cursor that is positioned before the first row.
+         */
+        private Cursor() {
+        }
+
+        /**
+         * Retrieve the table of this cursor.
+         *
+         * @return the table.
+         */
+        public ColumnarTable getTable() {
+            return ColumnarTable.this;
+        }
+
+        /**
+         * Retrieve the index of current row.
+         *
+         * @return the index of current row.
+         */
+        public int getRow() {
+            return row;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean containsKey(Object key) {
+            return indexes.containsKey(key);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Object get(Object key) {
+            Integer column = indexes.get(key);
+            return (column == null) ? null : getObject(column, row);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new Iterator<Entry<String, Object>>() {
+                        private int column;
+
+                        @Override
+                        public boolean hasNext() {
+                            return column < names.size();
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            Entry<String, Object> entry = new SimpleImmutableEntry<>(names.get(column),
+                                getObject(column, row));
+                            column++;
+                            return entry;
+                        }
+
+                        @Override
+                        public void remove() {
+                            throw new UnsupportedOperationException("Row is read-only.");
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return names.size();
+                }
+            };
+        }
+
+    }
+
+}
@@ -0,0 +1,409 @@
+package simple.escp.data;
+
+import simple.escp.exception.InvalidPlaceholder;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * A <code>CsvDataSource</code> provides the rows of a CSV file as the source of a table or a list.
+ *
+ * <p>The file is memory-mapped, so its content is not copied into heap.  The first line is the header that
+ * contains the name of columns.  Column names are resolved into column indexes once.  The rows are available as a
+ * single member (<code>"rows"</code> by default) whose value is an <code>Iterable</code>.  A line is only split into
+ * fields when one of its field is read.  Every row is a read-only <code>Map</code> from column name to value, and
+ * the same <code>Map</code> is reused for every row of an iteration, so it should not be stored.
+ *
+ * <p>Values are always <code>String</code>.  They are not converted into numbers, so a script that calculates a
+ * value must convert it first, for example <code>new BigDecimal(price) * 2</code> in Groovy or
+ * <code>Number(price) * 2</code> in JavaScript.
+ *
+ * <p>Fields can be quoted by using double quote, a double quote inside quoted field is written as two double
+ * quotes.  The separator must be an ASCII character and the charset must be compatible with ASCII, such as
+ * UTF-8.  The file can't be larger than 2 GB.
+ *
+ * <p>A <code>File</code> can be converted into <code>CsvDataSource</code> automatically by registering it:
+ * <code>DataSources.register(File.class, CsvDataSource.class)</code>.
+ */
+public class CsvDataSource implements DataSource {
+
+    private static final Logger LOG = Logger.getLogger("simple.escp");
+    public static final String DEFAULT_ROWS_MEMBER = "rows";
+    public static final char DEFAULT_SEPARATOR = ',';
+    public static final Charset DEFAULT_CHARSET = Charset.forName("UTF-8");
+
+    private static final byte QUOTE = '"';
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+    private static final int[] UTF8_BOM = {0xEF, 0xBB, 0xBF};
+    private static final int BYTE_MASK = 0xFF;
+
+    private final File file;
+    private final String rowsMember;
+    private final byte separator;
+    private final Charset charset;
+    private final MappedByteBuffer buffer;
+    private final String[] columnNames;
+    private final Map<String, Integer> columnIndexes = new HashMap<>();
+    private final int firstRow;
+    private final Rows rows = new Rows();
+
+    /**
+     * Create a new <code>CsvDataSource</code> for a UTF-8 file separated by comma.
+     *
+     * @param file the CSV file.
+     */
+    public CsvDataSource(File file) {
+        this(file, DEFAULT_ROWS_MEMBER, DEFAULT_SEPARATOR, DEFAULT_CHARSET);
+    }
+
+    /**
+     * Create a new <code>CsvDataSource</code>.
+     *
+     * @param file the CSV file.
+     * @param rowsMember the name of member that returns the rows.
+     * @param separator the separator of fields.
+     * @param charset the charset of file.
+     */
+    public CsvDataSource(File file, String rowsMember, char separator, Charset charset) {
+        if ((separator >= Byte.MAX_VALUE) || (separator == QUOTE) || (separator == CR) || (separator == LF)) {
+            throw new IllegalArgumentException("Invalid separator [" + separator + "].");
+        }
+        this.file = file;
+        this.rowsMember = rowsMember;
+        this.separator = (byte) separator;
+        this.charset = charset;
+        // The mapping stays valid after the channel is closed.
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("[" + file + "] is too large to be memory-mapped.");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            LOG.severe("Can't read [" + file + "]");
+            throw new IllegalArgumentException("Can't read [" + file + "].", e);
+        }
+        Line header = new Line(buffer.duplicate());
+        int start = skipBom();
+        int end = header.find(start);
+        if (end < 0) {
+            columnNames = new String[0];
+            firstRow = start;
+        } else {
+            columnNames = new String[header.split()];
+            for (int i = 0; i < columnNames.length; i++) {
+                columnNames[i] = header.getField(i);
+                if (!columnIndexes.containsKey(columnNames[i])) {
+                    columnIndexes.put(columnNames[i], i);
+                }
+            }
+            firstRow = end;
+        }
+        LOG.fine("Read header of [" + file + "]: " + Arrays.toString(columnNames));
+    }
+
+    /**
+     * Find the start of content after byte order mark.
+     *
+     * @return the position of first byte after byte order mark.
+     */
+    private int skipBom() {
+        if (buffer.limit() < UTF8_BOM.length) {
+            return 0;
+        }
+        for (int i = 0; i < UTF8_BOM.length; i++) {
+            if ((buffer.get(i) & BYTE_MASK) != UTF8_BOM[i]) {
+                return 0;
+            }
+        }
+        return UTF8_BOM.length;
+    }
+
+    /**
+     * Retrieve the name of every column.
+     *
+     * @return the name of columns, as written in header.
+     */
+    public String[] getColumnNames() {
+        return Arrays.copyOf(columnNames, columnNames.length);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean has(String member) {
+        return rowsMember.equals(member);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object get(String member) throws InvalidPlaceholder {
+        if (!has(member)) {
+            throw new InvalidPlaceholder("Can't find [" + member + "] in data source.");
+        }
+        return rows;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object getSource() {
+        return file;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String[] getMembers() {
+        return new String[] {rowsMember};
+    }
+
+    /**
+     * The rows of CSV file.  Every iterator reads the mapped file independently.
+     */
+    private class Rows implements Iterable<Map<String, Object>> {
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Iterator<Map<String, Object>> iterator() {
+            final Line line = new Line(buffer.duplicate());
+            return new Iterator<Map<String, Object>>() {
+                private int position = firstRow;
+                private int next = -1;
+
+                @Override
+                public boolean hasNext() {
+                    if (next < 0) {
+                        next = line.find(position);
+                    }
+                    return next >= 0;
+                }
+
+                @Override
+                public Map<String, Object> next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    position = next;
+                    next = -1;
+                    return line;
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException("Rows can't be removed.");
+                }
+            };
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            return "Rows of [" + file + "]";
+        }
+
+    }
+
+    /**
+     * A line of CSV file.  A <code>Line</code> is moved to the next line by calling {@link #find(int)}, and is split
+     * into fields when one of its field is read.
+     */
+    private class Line extends AbstractMap<String, Object> {
+
+        private final ByteBuffer content;
+        private int start;
+        private int end;
+        private boolean split;
+        private int fieldCount;
+        private int[] fieldStarts = new int[Math.max(columnNames == null ? 0 : columnNames.length, 1)];
+        private int[] fieldEnds = new int[fieldStarts.length];
+        private byte[] bytes = new byte[0];
+
+        /**
+         * Create a new <code>Line</code>.
+         *
+         * @param content a view of mapped file that will be used by this line only.
+         */
+        Line(ByteBuffer content) {
+            this.content = content;
+        }
+
+        /**
+         * Move this line to the next non-empty line.
+         *
+         * @param position the position where searching starts.
+         * @return the position after the end of line, or <code>-1</code> if there is no more line.
+         */
+        int find(int position) {
+            int limit = content.limit();
+            int current = position;
+            while (current < limit) {
+                byte b = content.get(current);
+                if ((b != CR) && (b != LF)) {
+                    break;
+                }
+                current++;
+            }
+            if (current >= limit) {
+                return -1;
+            }
+            start = current;
+            boolean quoted = false;
+            while (current < limit) {
+                byte b = content.get(current);
+                if (b == QUOTE) {
+                    quoted = !quoted;
+                } else if ((b == LF) && !quoted) {
+                    break;
+                }
+                current++;
+            }
+            end = current;
+            if ((end > start) && (content.get(end - 1) == CR)) {
+                end--;
+            }
+            split = false;
+            return current;
+        }
+
+        /**
+         * Find the start and end of every field in this line.
+         *
+         * @return the number of fields.
+         */
+        int split() {
+            if (split) {
+                return fieldCount;
+            }
+            fieldCount = 0;
+            int fieldStart = start;
+            boolean quoted = false;
+            for (int i = start; i <= end; i++) {
+                if ((i < end) && (content.get(i) == QUOTE)) {
+                    quoted = !quoted;
+                } else if ((i == end) || (!quoted && (content.get(i) == separator))) {
+                    if (fieldCount == fieldStarts.length) {
+                        fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+                        fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+                    }
+                    fieldStarts[fieldCount] = fieldStart;
+                    fieldEnds[fieldCount] = i;
+                    fieldCount++;
+                    fieldStart = i + 1;
+                }
+            }
+            split = true;
+            return fieldCount;
+        }
+
+        /**
+         * Read the value of a field.
+         *
+         * @param index the index of field.
+         * @return the value or an empty <code>String</code> if this line doesn't have the field.
+         */
+        String getField(int index) {
+            if (index >= split()) {
+                return "";
+            }
+            int fieldStart = fieldStarts[index];
+            int fieldEnd = fieldEnds[index];
+            boolean quoted = ((fieldEnd - fieldStart) >= 2) && (content.get(fieldStart) == QUOTE) &&
+                (content.get(fieldEnd - 1) == QUOTE);
+            if (quoted) {
+                fieldStart++;
+                fieldEnd--;
+            }
+            int length = fieldEnd - fieldStart;
+            if (bytes.length < length) {
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+            }
+            content.position(fieldStart);
+            content.get(bytes, 0, length);
+            String result = new String(bytes, 0, length, charset);
+            return quoted ? result.replace("\"\"", "\"") : result;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean containsKey(Object key) {
+            return columnIndexes.containsKey(key);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Object get(Object key) {
+            Integer index = columnIndexes.get(key);
+            return (index == null) ? null : getField(index);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new Iterator<Entry<String, Object>>() {
+                        private int index;
+
+                        @Override
+                        public boolean hasNext() {
+                            return index < columnNames.length;
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            Entry<String, Object> entry = new SimpleImmutableEntry<String, Object>(columnNames[index],
+                                getField(index));
+                            index++;
+                            return entry;
+                        }
+
+                        @Override
+                        public void remove() {
+                            throw new UnsupportedOperationException("Row is read-only.");
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return columnNames.length;
+                }
+            };
+        }
+
+    }
+
+}
@@ -0,0 +1,19 @@
+package simple.escp.data;
+
+/**
+ * A <code>DataSourceFactory</code> creates a <code>DataSource</code> for an object.  It can be registered by using
+ * {@link DataSources#register(Class, DataSourceFactory)} for data sources that can't be created by calling a
+ * constructor.
+ */
+public interface DataSourceFactory {
+
+    /**
+     * Create a new <code>DataSource</code>.
+     *
+     * @param object the object that contains value.  It is never <code>null</code> and always an instance of the
+     *               type that this factory was registered for.
+     * @return a <code>DataSource</code> for <code>object</code>.
+     */
+    public DataSource create(Object object);
+
+}
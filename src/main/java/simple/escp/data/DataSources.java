@@ -6,20 +6,25 @@ import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Logger;
 
 /**
  * A factory class to create <code>DataSource</code>.
+ *
+ * <p>The entry that handles a class is searched only once per class and cached.  The cache is cleared every time
+ * a data source is registered or unregistered.  <code>DATA_SOURCES</code> should not be modified directly,
+ * otherwise the changes might not be visible until the next registration.
  */
-@SuppressWarnings("unchecked")
 public abstract class DataSources {
 
     private static final Logger LOG = Logger.getLogger("simple.escp");
     private static EmptyDataSource emptyDataSource = new EmptyDataSource();
     public static final List<DataSourceEntry> DATA_SOURCES;
+    private static volatile ClassValue<DataSourceEntry> entries = createEntryCache();
 
     static {
-        List<DataSourceEntry> newDataSource = new ArrayList<>();
+        List<DataSourceEntry> newDataSource = new CopyOnWriteArrayList<>();
         newDataSource.add(new DataSourceEntry(Object.class, BeanDataSource.class));
         newDataSource.add(new DataSourceEntry(Map.class, MapDataSource.class));
         newDataSource.add(new DataSourceEntry(String.class, JsonDataSource.class));
@@ -34,8 +39,20 @@ public abstract class DataSources {
      * @param supportedType class of object that can be handled by this data source.
      * @param dataSourceType an implementation of <code>DataSource</code> that will be created by this entry.
      */
-    public static void register(Class supportedType, Class dataSourceType) {
+    public static void register(Class<?> supportedType, Class<?> dataSourceType) {
         DATA_SOURCES.add(new DataSourceEntry(supportedType, dataSourceType));
+        clearCache();
+    }
+
+    /**
+     * Register a factory so that <code>DataSources</code> can build a custom data source from provided value.
+     *
+     * @param supportedType class of object that can be handled by this factory.
+     * @param factory the factory that will create the data source.
+     */
+    public static void register(Class<?> supportedType, DataSourceFactory factory) {
+        DATA_SOURCES.add(new DataSourceEntry(supportedType, factory));
+        clearCache();
     }
 
     /**
@@ -43,12 +60,65 @@ public abstract class DataSources {
      *
      * @param dataSourceType an implementation of <code>DataSource</code> that will be created by this entry.
      */
-    public static void unregister(Class dataSourceType) {
-        for (DataSourceEntry entry : DATA_SOURCES.toArray(new DataSourceEntry[0])) {
-            if (entry.getDataSourceType().equals(dataSourceType)) {
+    public static void unregister(Class<?> dataSourceType) {
+        for (DataSourceEntry entry : DATA_SOURCES) {
+            if (dataSourceType.equals(entry.getDataSourceType())) {
+                DATA_SOURCES.remove(entry);
+            }
+        }
+        clearCache();
+    }
+
+    /**
+     * Unregister a custom data source factory.
+     *
+     * @param factory the factory that was registered by {@link #register(Class, DataSourceFactory)}.
+     */
+    public static void unregister(DataSourceFactory factory) {
+        for (DataSourceEntry entry : DATA_SOURCES) {
+            if (entry.getFactory() == factory) {
                 DATA_SOURCES.remove(entry);
             }
         }
+        clearCache();
+    }
+
+    /**
+     * Remove the cached entry of every class.  This method should be called if <code>DATA_SOURCES</code> was
+     * modified directly.
+     */
+    public static void clearCache() {
+        entries = createEntryCache();
+    }
+
+    /**
+     * Create a cache that stores the entry for every class.
+     *
+     * @return a new empty cache.
+     */
+    private static ClassValue<DataSourceEntry> createEntryCache() {
+        return new ClassValue<DataSourceEntry>() {
+            @Override
+            protected DataSourceEntry computeValue(Class<?> type) {
+                for (int i = DATA_SOURCES.size() - 1; i >= 0; i--) {
+                    DataSourceEntry dataSourceEntry = DATA_SOURCES.get(i);
+                    if (dataSourceEntry.getSupportedType().isAssignableFrom(type)) {
+                        return dataSourceEntry;
+                    }
+                }
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Find the entry that will create <code>DataSource</code> for a class.
+     *
+     * @param type the class of data source value.
+     * @return the entry or <code>null</code> if there is no data source for <code>type</code>.
+     */
+    public static DataSourceEntry findEntry(Class<?> type) {
+        return entries.get(type);
     }
 
     /**
@@ -63,17 +133,31 @@ public abstract class DataSources {
         if (object == null) {
             return emptyDataSource;
         }
-        for (int i = DATA_SOURCES.size() - 1; i >= 0; i--) {
-            DataSourceEntry dataSourceEntry = DATA_SOURCES.get(i);
-            if (dataSourceEntry.support(object)) {
-                return dataSourceEntry.create(object);
-            }
+        DataSourceEntry dataSourceEntry = findEntry(object.getClass());
+        if (dataSourceEntry != null) {
+            return dataSourceEntry.getFactory().create(object);
         }
         LOG.severe("Can't create data source for [" + object + "] class [" + object.getClass() + "]");
         throw new UnsupportedOperationException("No data source available for [" + object + "] class [" +
             object.getClass() + "]");
     }
 
+    /**
+     * Find and read the value of a member from a <code>DataSource</code>.  If the data source is a
+     * {@link LookupDataSource}, the member is only searched once.  Otherwise, this method calls
+     * <code>has()</code> and then <code>get()</code>.
+     *
+     * @param dataSource the data source that will be searched.
+     * @param member the member that will be retrieved.
+     * @return the value of member or {@link LookupDataSource#MISSING} if the data source doesn't have the member.
+     */
+    public static Object lookup(DataSource dataSource, String member) {
+        if (dataSource instanceof LookupDataSource) {
+            return ((LookupDataSource) dataSource).lookup(member);
+        }
+        return dataSource.has(member) ? dataSource.get(member) : LookupDataSource.MISSING;
+    }
+
     /**
      * Create an array of <code>DataSource</code> based on an array of <code>Object</code>.  This method will
      * select the appropriate <code>DataSource</code> based on the class type of <code>Object</code>.
@@ -96,7 +180,7 @@ public abstract class DataSources {
      * @param object the object that contains value.
      * @return an array of implementation of <code>DataSource</code>.
      */
-    public static DataSource[] from(Map map, Object object) {
+    public static DataSource[] from(Map<?, ?> map, Object object) {
         return from(new Object[] {map, object});
     }
 
@@ -105,8 +189,9 @@ public abstract class DataSources {
      */
     public static class DataSourceEntry {
 
-        private Class supportedType;
-        private Class dataSourceType;
+        private Class<?> supportedType;
+        private Class<?> dataSourceType;
+        private DataSourceFactory factory;
 
         /**
          * Create new instance of <code>DataSourceEntry</code>.
@@ -114,9 +199,21 @@ public abstract class DataSources {
          * @param supportedType class of object that can be handled by this data source.
          * @param dataSourceType an implementation of <code>DataSource</code> that will be created by this entry.
          */
-        public DataSourceEntry(Class supportedType, Class dataSourceType) {
+        public DataSourceEntry(Class<?> supportedType, Class<?> dataSourceType) {
             this.supportedType = supportedType;
             this.dataSourceType = dataSourceType;
+            this.factory = new ConstructorFactory(supportedType, dataSourceType);
+        }
+
+        /**
+         * Create new instance of <code>DataSourceEntry</code> that uses a factory.
+         *
+         * @param supportedType class of object that can be handled by this data source.
+         * @param factory the factory that will create <code>DataSource</code> for this entry.
+         */
+        public DataSourceEntry(Class<?> supportedType, DataSourceFactory factory) {
+            this.supportedType = supportedType;
+            this.factory = factory;
         }
 
         /**
@@ -125,19 +222,29 @@ public abstract class DataSources {
          * @return a <code>Class</code> that represent the type of value that can be handled by this
          *         <code>DataSource</code>.
          */
-        public Class getSupportedType() {
+        public Class<?> getSupportedType() {
             return supportedType;
         }
 
         /**
          * Get the <code>DataSource</code> that will be created if a matching value was found.
          *
-         * @return a <code>Class</code> that should be an implementation of <code>DataSource</code>.
+         * @return a <code>Class</code> that should be an implementation of <code>DataSource</code>, or
+         *         <code>null</code> if this entry was registered with a factory.
          */
-        public Class getDataSourceType() {
+        public Class<?> getDataSourceType() {
             return dataSourceType;
         }
 
+        /**
+         * Get the factory that creates <code>DataSource</code> for this entry.
+         *
+         * @return the factory of this entry.
+         */
+        public DataSourceFactory getFactory() {
+            return factory;
+        }
+
         /**
          * Determine if the <code>DataSource</code> can be used for this <code>object</code>.  An <code>object</code>
          * is considered as supported if it is an instance of <code>supportedType</code> or an instance of
@@ -154,19 +261,52 @@ public abstract class DataSources {
          * Create a new instance of <code>DataSource</code> from an <code>object</code>.
          *
          * @param object the object that contains value.
-         * @return an instance of <code>dataSourceType</code> constructed from <code>object</code>.
+         * @return an instance of <code>DataSource</code> created from <code>object</code>.
          */
         public DataSource create(Object object) {
             if (!support(object)) {
                 throw new UnsupportedOperationException("[" + object + "] type [" + object.getClass() +
-                    "] is not supported by [" + dataSourceType + "]");
+                    "] is not supported by [" + (dataSourceType == null ? factory : dataSourceType) + "]");
             }
+            return factory.create(object);
+        }
+
+    }
+
+    /**
+     * A <code>DataSourceFactory</code> that creates data source by calling a constructor that accepts the supported
+     * type.  The constructor is searched only once.
+     */
+    private static class ConstructorFactory implements DataSourceFactory {
+
+        private final Class<?> supportedType;
+        private final Class<?> dataSourceType;
+        private volatile Constructor<?> constructor;
+
+        /**
+         * Create a new <code>ConstructorFactory</code>.
+         *
+         * @param supportedType class of object that will be passed to the constructor.
+         * @param dataSourceType an implementation of <code>DataSource</code> that will be created.
+         */
+        ConstructorFactory(Class<?> supportedType, Class<?> dataSourceType) {
+            this.supportedType = supportedType;
+            this.dataSourceType = dataSourceType;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public DataSource create(Object object) {
             try {
-                Constructor constructor = dataSourceType.getConstructor(supportedType);
+                if (constructor == null) {
+                    constructor = dataSourceType.getConstructor(supportedType);
+                }
                 return (DataSource) constructor.newInstance(object);
             } catch (NoSuchMethodException e) {
-                LOG.severe("Can't find constructor that accept [" + object.getClass().getName() + "] for [" +
-                    dataSourceType.getClass().getName());
+                LOG.severe("Can't find constructor that accept [" + supportedType.getName() + "] for [" +
+                    dataSourceType.getName() + "]");
                 throw new RuntimeException(e);
             } catch (InvocationTargetException | InstantiationException | IllegalAccessException e) {
                 LOG.severe("Can't create data source for [" + object + "] class [" + object.getClass() + "]");
@@ -174,6 +314,14 @@ public abstract class DataSources {
             }
         }
 
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            return dataSourceType.getName();
+        }
+
     }
 
 }
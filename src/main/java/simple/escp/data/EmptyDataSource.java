@@ -5,7 +5,7 @@ import simple.escp.exception.InvalidPlaceholder;
 /**
  * An empty data source that does nothing excepts returning empty string.
  */
-public class EmptyDataSource implements DataSource {
+public class EmptyDataSource implements LookupDataSource {
 
     @Override
     public boolean has(String member) {
@@ -17,6 +17,11 @@ public class EmptyDataSource implements DataSource {
         return "";
     }
 
+    @Override
+    public Object lookup(String member) {
+        return MISSING;
+    }
+
     @Override
     public Object getSource() {
         return null;
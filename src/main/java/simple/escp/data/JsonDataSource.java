@@ -13,8 +13,10 @@ import java.util.logging.Logger;
 
 /**
  * This data source will read data source from JSON.  The JSON can be in form of string or <code>JsonObject</code>.
+ * Nested members and array elements, such as <code>"order.customer.name"</code> or <code>"items[3].sku"</code>, are
+ * read by using a cached {@link PropertyPath}.
  */
-public class JsonDataSource implements DataSource {
+public class JsonDataSource implements LookupDataSource {
 
     private static final Logger LOG = Logger.getLogger("simple.escp");
     private JsonObject source;
@@ -41,12 +43,49 @@ public class JsonDataSource implements DataSource {
 
     @Override
     public boolean has(String member) {
-        return source.containsKey(member);
+        if (source.containsKey(member)) {
+            return true;
+        }
+        return isPath(member) && PropertyPath.of(member).has(source);
     }
 
     @Override
     public Object get(String member) throws InvalidPlaceholder {
+        Object result = lookup(member);
+        if (result == MISSING) {
+            throw new InvalidPlaceholder("Can't find [" + member + "] in data source.");
+        }
+        return result;
+    }
+
+    @Override
+    public Object lookup(String member) {
         JsonValue value = source.get(member);
+        if (value != null) {
+            return toObject(value);
+        }
+        return isPath(member) ? PropertyPath.of(member).find(source) : MISSING;
+    }
+
+    /**
+     * Determine if a member should be read as a nested {@link PropertyPath}.
+     *
+     * @param member the name of member.
+     * @return <code>true</code> if <code>member</code> contains a dot or an index.
+     */
+    private static boolean isPath(String member) {
+        return (member.indexOf('.') > 0) || (member.indexOf('[') > 0);
+    }
+
+    /**
+     * Convert a <code>JsonValue</code> into the value returned by this data source.  Numbers are returned as
+     * <code>BigDecimal</code>, strings as <code>String</code> and booleans as <code>Boolean</code>.  Arrays and
+     * objects are returned as they are.
+     *
+     * @param value the <code>JsonValue</code> to convert.
+     * @return the converted value.
+     */
+    static Object toObject(JsonValue value) {
         if (value.getValueType() == JsonValue.ValueType.ARRAY) {
             return value;  // as List
         } else if (value.getValueType() == JsonValue.ValueType.NUMBER) {
@@ -0,0 +1,27 @@
+package simple.escp.data;
+
+/**
+ * A <code>LookupDataSource</code> is a <code>DataSource</code> that can find and read a member in a single step,
+ * instead of calling {@link #has(String)} and then {@link #get(String)}, which usually searches the same member
+ * twice.
+ *
+ * <p>Callers should use {@link DataSources#lookup(DataSource, String)} so that a <code>DataSource</code> that
+ * doesn't implement this interface can still be used.
+ */
+public interface LookupDataSource extends DataSource {
+
+    /**
+     * The value returned by {@link #lookup(String)} if the member can't be found.
+     */
+    Object MISSING = PropertyPath.MISSING;
+
+    /**
+     * Find and read the value of a member.
+     *
+     * @param member the member that will be retrieved.
+     * @return the value of member, which can be <code>null</code>, or {@link #MISSING} if this
+     *         <code>DataSource</code> doesn't have the member.
+     */
+    Object lookup(String member);
+
+}
@@ -5,9 +5,11 @@ import simple.escp.exception.InvalidPlaceholder;
 import java.util.Map;
 
 /**
- * A <code>MapDataSource</code> is a <code>DataSource</code> that obtains its value from a <code>Map</code>.
+ * A <code>MapDataSource</code> is a <code>DataSource</code> that obtains its value from a <code>Map</code>.  If the
+ * <code>Map</code> doesn't have a key such as <code>"customer.name"</code>, it will be read as a nested
+ * {@link PropertyPath}.
  */
-public class MapDataSource implements DataSource {
+public class MapDataSource implements LookupDataSource {
 
     private Map<String, ?> source;
 
@@ -25,7 +27,10 @@ public class MapDataSource implements DataSource {
      */
     @Override
     public boolean has(String member) {
-        return source.containsKey(member);
+        if (source.containsKey(member)) {
+            return true;
+        }
+        return isPath(member) && PropertyPath.of(member).has(source);
     }
 
     /**
@@ -33,10 +38,33 @@ public class MapDataSource implements DataSource {
      */
     @Override
     public Object get(String member) throws InvalidPlaceholder {
-        if (!has(member)) {
+        Object value = lookup(member);
+        if (value == MISSING) {
             throw new InvalidPlaceholder("Can't find [" + member + "] in data source.");
         }
-        return source.get(member);
+        return value;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object lookup(String member) {
+        Object value = source.get(member);
+        if ((value == null) && !source.containsKey(member)) {
+            return isPath(member) ? PropertyPath.of(member).find(source) : MISSING;
+        }
+        return value;
+    }
+
+    /**
+     * Determine if a member should be read as a nested {@link PropertyPath}.
+     *
+     * @param member the name of member.
+     * @return <code>true</code> if <code>member</code> contains a dot or an index.
+     */
+    private static boolean isPath(String member) {
+        return (member.indexOf('.') > 0) || (member.indexOf('[') > 0);
     }
 
     /**
@@ -0,0 +1,472 @@
+package simple.escp.data;
+
+import simple.escp.exception.InvalidPlaceholder;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonValue;
+import java.lang.reflect.Array;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ *  A <code>PropertyPath</code> is a member name such as <code>"customer.address.city"</code> that has been split
+ *  into its parts once, so it can be evaluated many times without parsing it again.
+ *
+ *  <p>There are two kinds of <code>PropertyPath</code>:
+ *
+ *  <ul>
+ *      <li>A path created by {@link #compile(Class, String)} has been resolved against a class.  Every member of
+ *      the path is a {@link BeanAccessor}, so reading the value doesn't need to search for the member.  An index
+ *      reads an element of the <code>List</code> or array returned by the previous member.  If the type of that
+ *      element can't be determined, the rest of the path is resolved while it is evaluated.</li>
+ *      <li>A path created by {@link #of(String)} is resolved while it is evaluated, based on the type of every
+ *      value.  A part can read an entry of a <code>Map</code>, a member of a <code>JsonObject</code> or a property
+ *      of a Java Bean.  A part that starts with <code>"@"</code> always calls a method of a Java Bean.  A part
+ *      can also be followed by one or more indexes, such as <code>"items[3].sku"</code>, to read an element of a
+ *      <code>List</code>, a <code>JsonArray</code> or an array.  Paths created by {@link #of(String)} are
+ *      cached.</li>
+ *  </ul>
+ *
+ *  <p>If one of the part returns <code>null</code>, the value of the path is <code>null</code>.  Evaluating a path
+ *  doesn't create any object other than the value returned by accessors.
+ */
+public final class PropertyPath {
+
+    private static final Logger LOG = Logger.getLogger("simple.escp");
+    public static final Pattern PATH_PATTERN = Pattern.compile(
+        "@?[A-Za-z_$][\\w$]*(\\[\\d+\\])*(\\.@?[A-Za-z_$][\\w$]*(\\[\\d+\\])*)*");
+    public static final int MAXIMUM_CACHE_SIZE = 10000;
+
+    /**
+     * The value returned by {@link #find(Object)} if the path can't be found.
+     */
+    public static final Object MISSING = new Object() {
+        @Override
+        public String toString() {
+            return "MISSING";
+        }
+    };
+
+    private static final ConcurrentMap<String, PropertyPath> PATHS = new ConcurrentHashMap<>();
+
+    private final String path;
+    private final Class<?> rootType;
+    private final String[] members;
+    private final int[] indexes;
+    private final BeanAccessor[] accessors;
+    private final Class<?> type;
+    private final Type genericType;
+
+    /**
+     * Create a new <code>PropertyPath</code>.
+     *
+     * @param path the text of this path.
+     * @param rootType the class that this path was resolved against, or <code>null</code> if this path is
+     *                 resolved during evaluation.
+     * @param members every part of this path.  A part that reads an element by its index is <code>null</code>.
+     * @param indexes the index for every part of this path that reads an element, or <code>-1</code> for other
+     *                parts.
+     * @param accessors the accessor for every part of this path, or <code>null</code> if this path is resolved
+     *                  during evaluation.  Parts that read an element and parts after an element whose type is
+     *                  unknown don't have accessor.
+     * @param type the declared type of value of this path, or <code>null</code> if this path is not resolved.
+     * @param genericType the declared generic type of value of this path, or <code>null</code> if this path is not
+     *                    resolved.
+     */
+    private PropertyPath(String path, Class<?> rootType, String[] members, int[] indexes,
+                         BeanAccessor[] accessors, Class<?> type, Type genericType) {
+        this.path = path;
+        this.rootType = rootType;
+        this.members = members;
+        this.indexes = indexes;
+        this.accessors = accessors;
+        this.type = type;
+        this.genericType = genericType;
+    }
+
+    /**
+     * Determine if a text is a member name or a path of member names separated by dot.  Every member name can be
+     * followed by indexes, such as <code>"items[3].sku"</code>.
+     *
+     * @param text the text that will be checked.
+     * @return <code>true</code> if <code>text</code> can be compiled by {@link #compile(Class, String)}.
+     */
+    public static boolean isPath(String text) {
+        return (text != null) && PATH_PATTERN.matcher(text).matches();
+    }
+
+    /**
+     * Retrieve a path that is resolved during evaluation.  The path is only split once, subsequent calls with the
+     * same text will return the cached path.
+     *
+     * @param path the path, such as <code>"name"</code>, <code>"customer.name"</code>,
+     *             <code>"customer.@toString"</code> or <code>"items[3].sku"</code>.
+     * @return the path.
+     */
+    public static PropertyPath of(String path) {
+        PropertyPath result = PATHS.get(path);
+        if (result == null) {
+            result = parse(path);
+            if (PATHS.size() < MAXIMUM_CACHE_SIZE) {
+                PATHS.putIfAbsent(path, result);
+            } else {
+                LOG.fine("Property path cache is full, [" + path + "] will not be cached.");
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Split a path into its parts.  A part that has invalid index is treated as a member name.
+     *
+     * @param path the path.
+     * @return a path that is resolved during evaluation.
+     */
+    private static PropertyPath parse(String path) {
+        List<String> members = new ArrayList<>();
+        List<Integer> indexes = new ArrayList<>();
+        for (String part : path.split("\\.", -1)) {
+            int start = part.indexOf('[');
+            List<Integer> partIndexes = (start < 0) ? null : parseIndexes(part.substring(start));
+            if (partIndexes == null) {
+                members.add(part);
+                indexes.add(-1);
+                continue;
+            }
+            if (start > 0) {
+                members.add(part.substring(0, start));
+                indexes.add(-1);
+            }
+            for (Integer index : partIndexes) {
+                members.add(null);
+                indexes.add(index);
+            }
+        }
+        int[] indexArray = new int[indexes.size()];
+        for (int i = 0; i < indexArray.length; i++) {
+            indexArray[i] = indexes.get(i);
+        }
+        return new PropertyPath(path, null, members.toArray(new String[members.size()]), indexArray, null, null,
+            null);
+    }
+
+    /**
+     * Parse indexes such as <code>"[1][2]"</code>.
+     *
+     * @param text the text that contains indexes.
+     * @return the indexes or <code>null</code> if <code>text</code> is not valid.
+     */
+    private static List<Integer> parseIndexes(String text) {
+        List<Integer> result = new ArrayList<>();
+        int start = 0;
+        while (start < text.length()) {
+            int end = text.indexOf(']', start);
+            if ((text.charAt(start) != '[') || (end < 0)) {
+                return null;
+            }
+            try {
+                int index = Integer.parseInt(text.substring(start + 1, end));
+                if (index < 0) {
+                    return null;
+                }
+                result.add(index);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            start = end + 1;
+        }
+        return result;
+    }
+
+    /**
+     * Resolve a path against a class.
+     *
+     * @param rootType the class of the object that will be the source of value.
+     * @param path the path, such as <code>"name"</code>, <code>"customer.name"</code>,
+     *             <code>"customer.@toString"</code> or <code>"items[3].sku"</code>.
+     * @return the compiled path.
+     * @throws InvalidPlaceholder if one of the part of path can't be found.
+     */
+    public static PropertyPath compile(Class<?> rootType, String path) {
+        if (!isPath(path)) {
+            throw new InvalidPlaceholder("[" + path + "] is not a valid property path.");
+        }
+        PropertyPath parsed = parse(path);
+        String[] members = parsed.members;
+        BeanAccessor[] accessors = new BeanAccessor[members.length];
+        Class<?> type = rootType;
+        Type genericType = rootType;
+        for (int i = 0; i < members.length; i++) {
+            if (members[i] == null) {
+                if (!List.class.isAssignableFrom(type) && !type.isArray()) {
+                    throw new InvalidPlaceholder("Can't read element [" + parsed.indexes[i] + "] of [" + path +
+                        "] from [" + type.getName() + "].");
+                }
+                type = getElementType(genericType);
+                if ((type == null) || Object.class.equals(type)) {
+                    LOG.fine("Can't determine element type of [" + genericType + "], the rest of [" + path +
+                        "] will be resolved during evaluation.");
+                    type = Object.class;
+                    genericType = Object.class;
+                    break;
+                }
+                genericType = type;
+            } else {
+                BeanAccessor accessor = type.isPrimitive() ? null : BeanAccessor.find(type, members[i]);
+                if (accessor == null) {
+                    throw new InvalidPlaceholder("Can't find [" + members[i] + "] of [" + path + "] in [" +
+                        type.getName() + "].");
+                }
+                accessors[i] = accessor;
+                type = accessor.getType();
+                genericType = accessor.getGenericType();
+            }
+        }
+        return new PropertyPath(path, rootType, members, parsed.indexes, accessors, type, genericType);
+    }
+
+    /**
+     * Find the type of element of a <code>Collection</code> or an array.
+     *
+     * @param type a generic type, for example <code>List&lt;Item&gt;</code>.
+     * @return the type of element or <code>null</code> if it can't be determined.
+     */
+    public static Class<?> getElementType(Type type) {
+        if (type instanceof Class) {
+            Class<?> typeClass = (Class<?>) type;
+            return typeClass.isArray() ? typeClass.getComponentType() : null;
+        }
+        if (type instanceof ParameterizedType) {
+            ParameterizedType parameterizedType = (ParameterizedType) type;
+            Type rawType = parameterizedType.getRawType();
+            if ((rawType instanceof Class) && Collection.class.isAssignableFrom((Class<?>) rawType) &&
+                    (parameterizedType.getActualTypeArguments().length == 1)) {
+                Type elementType = parameterizedType.getActualTypeArguments()[0];
+                if (elementType instanceof WildcardType) {
+                    elementType = ((WildcardType) elementType).getUpperBounds()[0];
+                }
+                if ((elementType instanceof Class) && !Object.class.equals(elementType)) {
+                    return (Class<?>) elementType;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Remove all cached paths.
+     */
+    public static void clearCache() {
+        PATHS.clear();
+    }
+
+    /**
+     * Retrieve the text of this path.
+     *
+     * @return the text of this path.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Retrieve the class that this path was resolved against.
+     *
+     * @return the class of root object or <code>null</code> if this path is resolved during evaluation.
+     */
+    public Class<?> getRootType() {
+        return rootType;
+    }
+
+    /**
+     * Determine if this path has been resolved against a class.
+     *
+     * @return <code>true</code> if this path was created by {@link #compile(Class, String)}.
+     */
+    public boolean isResolved() {
+        return accessors != null;
+    }
+
+    /**
+     * Retrieve the declared type of value of this path.
+     *
+     * @return the return type of the last member, <code>Object</code> if it is unknown, or <code>null</code> if
+     *         this path is not resolved.
+     */
+    public Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * Retrieve the declared generic type of value of this path.
+     *
+     * @return the generic return type of the last member, <code>Object</code> if it is unknown, or
+     *         <code>null</code> if this path is not resolved.
+     */
+    public Type getGenericType() {
+        return genericType;
+    }
+
+    /**
+     * Read the value of this path from an object.
+     *
+     * @param root the object that contains the first member of this path.
+     * @return the value of this path or <code>null</code> if one of member returns <code>null</code>.
+     * @throws InvalidPlaceholder if the path can't be found or one of member can't be read.
+     */
+    public Object get(Object root) {
+        Object value = find(root);
+        if (value == MISSING) {
+            throw new InvalidPlaceholder("Can't find [" + path + "] in [" + root + "].");
+        }
+        return value;
+    }
+
+    /**
+     * Read the value of this path from an object, or return {@link #MISSING} if it doesn't have the path.
+     *
+     * @param root the object that contains the first member of this path.
+     * @return the value of this path, <code>null</code> if one of member returns <code>null</code>, or
+     *         {@link #MISSING} if the path can't be found.
+     * @throws InvalidPlaceholder if one of member can't be read.
+     */
+    public Object find(Object root) {
+        Object value = root;
+        for (int i = 0; i < members.length; i++) {
+            if (value == null) {
+                return null;
+            }
+            if (isResolved() && (accessors[i] != null)) {
+                value = accessors[i].get(value);
+            } else {
+                value = (members[i] == null) ? read(value, indexes[i]) : read(value, members[i]);
+            }
+            if (value == MISSING) {
+                return MISSING;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Determine if an object has this path.  The last member of the path is not read.
+     *
+     * @param root the object that contains the first member of this path.
+     * @return <code>true</code> if <code>root</code> has this path or if one of member before the last member
+     *         returns <code>null</code>.
+     * @throws InvalidPlaceholder if one of member can't be read.
+     */
+    public boolean has(Object root) {
+        if (isResolved()) {
+            return rootType.isInstance(root);
+        }
+        Object value = root;
+        int last = members.length - 1;
+        for (int i = 0; i < last; i++) {
+            if (value == null) {
+                return true;
+            }
+            value = (members[i] == null) ? read(value, indexes[i]) : read(value, members[i]);
+            if (value == MISSING) {
+                return false;
+            }
+        }
+        if (value == null) {
+            return true;
+        }
+        return (members[last] == null) ? (indexes[last] < size(value)) : contains(value, members[last]);
+    }
+
+    /**
+     * Read a member from a <code>Map</code>, a <code>JsonObject</code> or a Java Bean.
+     *
+     * @param value the object that contains the member.
+     * @param member the name of member.
+     * @return value of the member or {@link #MISSING} if the member can't be found.
+     */
+    private static Object read(Object value, String member) {
+        if (!member.startsWith("@")) {
+            if (value instanceof JsonObject) {
+                JsonValue jsonValue = ((JsonObject) value).get(member);
+                if (jsonValue == null) {
+                    return MISSING;
+                }
+                return (jsonValue.getValueType() == JsonValue.ValueType.NULL) ? null :
+                    JsonDataSource.toObject(jsonValue);
+            }
+            if (value instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) value;
+                Object result = map.get(member);
+                return ((result == null) && !map.containsKey(member)) ? MISSING : result;
+            }
+        }
+        BeanAccessor accessor = BeanMetadata.of(value.getClass()).getAccessor(member);
+        return (accessor == null) ? MISSING : accessor.get(value);
+    }
+
+    /**
+     * Read an element from a <code>List</code>, a <code>JsonArray</code> or an array.
+     *
+     * @param value the object that contains the element.
+     * @param index the index of element.
+     * @return the element or {@link #MISSING} if <code>value</code> doesn't have the element.
+     */
+    private static Object read(Object value, int index) {
+        if (index >= size(value)) {
+            return MISSING;
+        }
+        if (value instanceof JsonArray) {
+            JsonValue jsonValue = ((JsonArray) value).get(index);
+            return (jsonValue.getValueType() == JsonValue.ValueType.NULL) ? null : JsonDataSource.toObject(jsonValue);
+        }
+        if (value instanceof List) {
+            return ((List<?>) value).get(index);
+        }
+        return Array.get(value, index);
+    }
+
+    /**
+     * Retrieve the number of elements in a <code>List</code> or an array.
+     *
+     * @param value a <code>List</code> or an array.
+     * @return the number of elements or <code>0</code> if <code>value</code> is not a <code>List</code> or an array.
+     */
+    private static int size(Object value) {
+        if (value instanceof List) {
+            return ((List<?>) value).size();
+        }
+        return value.getClass().isArray() ? Array.getLength(value) : 0;
+    }
+
+    /**
+     * Determine if an object has a member without reading it.
+     *
+     * @param value the object that contains the member.
+     * @param member the name of member.
+     * @return <code>true</code> if <code>value</code> has the member.
+     */
+    private static boolean contains(Object value, String member) {
+        if (!member.startsWith("@") && (value instanceof Map)) {
+            return ((Map<?, ?>) value).containsKey(member);
+        }
+        return BeanMetadata.of(value.getClass()).getAccessor(member) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return isResolved() ? (rootType.getSimpleName() + "." + path) : path;
+    }
+
+}
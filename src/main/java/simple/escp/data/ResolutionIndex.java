@@ -0,0 +1,90 @@
+package simple.escp.data;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A <code>ResolutionIndex</code> remembers which data source provides the value of a member.  The first time a
+ * member is requested, data sources are searched in order of their priority.  The data source that has the member
+ * is remembered, so later requests for the same member, such as the same placeholder in the header of every page,
+ * read the value directly from that data source.  Members that can't be found in any data source are also
+ * remembered.
+ *
+ * <p>A <code>ResolutionIndex</code> assumes that data sources don't gain or lose members while it is being used, so
+ * it should only be used during a single filling.  It is not thread safe.
+ */
+public class ResolutionIndex {
+
+    private static final Integer NOT_FOUND = -1;
+
+    private final DataSource[] dataSources;
+    private final Map<String, Integer> indexes = new HashMap<>();
+
+    /**
+     * Create a new <code>ResolutionIndex</code>.
+     *
+     * @param dataSources the data sources in order of their priority.  This array should not be modified while
+     *                    this index is being used.
+     */
+    public ResolutionIndex(DataSource[] dataSources) {
+        this.dataSources = dataSources;
+    }
+
+    /**
+     * Retrieve the data sources of this index.
+     *
+     * @return the data sources that were passed when creating this index.
+     */
+    public DataSource[] getDataSources() {
+        return dataSources;
+    }
+
+    /**
+     * Find and read the value of a member from the first data source that has the member.
+     *
+     * @param member the member that will be retrieved.
+     * @return the value of member or {@link LookupDataSource#MISSING} if no data source has the member.
+     */
+    public Object lookup(String member) {
+        Integer index = indexes.get(member);
+        if (index != null) {
+            if (index.equals(NOT_FOUND)) {
+                return LookupDataSource.MISSING;
+            }
+            Object value = DataSources.lookup(dataSources[index], member);
+            if (value != LookupDataSource.MISSING) {
+                return value;
+            }
+        }
+        for (int i = 0; i < dataSources.length; i++) {
+            Object value = DataSources.lookup(dataSources[i], member);
+            if (value != LookupDataSource.MISSING) {
+                indexes.put(member, i);
+                return value;
+            }
+        }
+        indexes.put(member, NOT_FOUND);
+        return LookupDataSource.MISSING;
+    }
+
+    /**
+     * Find the data source that provides the value of a member.
+     *
+     * @param member the member that will be searched.
+     * @return the first data source that has the member or <code>null</code> if no data source has the member.
+     */
+    public DataSource find(String member) {
+        if (lookup(member) == LookupDataSource.MISSING) {
+            return null;
+        }
+        return dataSources[indexes.get(member)];
+    }
+
+    /**
+     * Forget every data source that has been remembered.
+     */
+    public void clear() {
+        indexes.clear();
+    }
+
+}
@@ -0,0 +1,311 @@
+package simple.escp.data;
+
+import simple.escp.exception.InvalidPlaceholder;
+import java.io.Closeable;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+/**
+ * A <code>ResultSetDataSource</code> provides the rows of a JDBC <code>ResultSet</code> as the source of a table or
+ * a list, without copying them into a <code>List</code> first.
+ *
+ * <p>This data source has a single member (<code>"rows"</code> by default) whose value is an <code>Iterable</code>
+ * that moves the cursor of <code>ResultSet</code> while the table is being filled.  Every row is a read-only
+ * <code>Map</code> from column label to value, so columns can be referred by their label, for example
+ * <code>${name}</code> or <code>{{price * qty}}</code>.  Column labels are case insensitive and are resolved into
+ * column indexes only once per <code>ResultSet</code>.  The rows can only be iterated once.
+ *
+ * <p>Example:
+ *
+ * <pre>
+ *     try (ResultSetDataSource ds = new ResultSetDataSource(statement.executeQuery(sql), "items", 500)) {
+ *         String result = new FillJob(template.compile(), ds).fill();
+ *     }
+ * </pre>
+ */
+public class ResultSetDataSource implements DataSource, Closeable {
+
+    private static final Logger LOG = Logger.getLogger("simple.escp");
+    public static final String DEFAULT_ROWS_MEMBER = "rows";
+
+    private final ResultSet resultSet;
+    private final String rowsMember;
+    private final String[] labels;
+    private final Map<String, Integer> columnIndexes = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final Rows rows = new Rows();
+
+    /**
+     * Create a new <code>ResultSetDataSource</code> whose rows are available as <code>"rows"</code>.
+     *
+     * @param resultSet the <code>ResultSet</code> that is positioned before the first row.
+     */
+    public ResultSetDataSource(ResultSet resultSet) {
+        this(resultSet, DEFAULT_ROWS_MEMBER);
+    }
+
+    /**
+     * Create a new <code>ResultSetDataSource</code>.
+     *
+     * @param resultSet the <code>ResultSet</code> that is positioned before the first row.
+     * @param rowsMember the name of member that returns the rows.
+     */
+    public ResultSetDataSource(ResultSet resultSet, String rowsMember) {
+        this(resultSet, rowsMember, 0);
+    }
+
+    /**
+     * Create a new <code>ResultSetDataSource</code>.
+     *
+     * @param resultSet the <code>ResultSet</code> that is positioned before the first row.
+     * @param rowsMember the name of member that returns the rows.
+     * @param fetchSize the number of rows that should be fetched from database when more rows are needed, or
+     *                  <code>0</code> to use the default value of JDBC driver.
+     */
+    public ResultSetDataSource(ResultSet resultSet, String rowsMember, int fetchSize) {
+        this.resultSet = resultSet;
+        this.rowsMember = rowsMember;
+        try {
+            if (fetchSize > 0) {
+                resultSet.setFetchSize(fetchSize);
+            }
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            labels = new String[metaData.getColumnCount()];
+            for (int i = 0; i < labels.length; i++) {
+                labels[i] = metaData.getColumnLabel(i + 1);
+                if (!columnIndexes.containsKey(labels[i])) {
+                    columnIndexes.put(labels[i], i);
+                }
+            }
+        } catch (SQLException e) {
+            LOG.severe("Can't read metadata of [" + resultSet + "]");
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Retrieve the label of every column.
+     *
+     * @return the label of columns, in order of their index.
+     */
+    public String[] getColumnLabels() {
+        return Arrays.copyOf(labels, labels.length);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean has(String member) {
+        return rowsMember.equals(member);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object get(String member) throws InvalidPlaceholder {
+        if (!has(member)) {
+            throw new InvalidPlaceholder("Can't find [" + member + "] in data source.");
+        }
+        return rows;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object getSource() {
+        return resultSet;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String[] getMembers() {
+        return new String[] {rowsMember};
+    }
+
+    /**
+     * Close the <code>ResultSet</code> of this data source.
+     */
+    @Override
+    public void close() {
+        try {
+            resultSet.close();
+        } catch (SQLException e) {
+            LOG.warning("Can't close [" + resultSet + "]: " + e.getMessage());
+        }
+    }
+
+    /**
+     * The rows of <code>ResultSet</code>.
+     */
+    private class Rows implements Iterable<Map<String, Object>> {
+
+        private boolean iterated;
+
+        /**
+         * {@inheritDoc}
+         *
+         * @throws IllegalStateException if rows have been iterated before.
+         */
+        @Override
+        public Iterator<Map<String, Object>> iterator() {
+            if (iterated) {
+                throw new IllegalStateException("Rows of [" + rowsMember + "] can only be iterated once.");
+            }
+            iterated = true;
+            return new RowIterator();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            return "Rows of [" + rowsMember + "]";
+        }
+
+    }
+
+    /**
+     * An <code>Iterator</code> that moves the cursor of <code>ResultSet</code> when the next row is requested.
+     */
+    private class RowIterator implements Iterator<Map<String, Object>> {
+
+        private Boolean hasNext;
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean hasNext() {
+            if (hasNext == null) {
+                try {
+                    hasNext = resultSet.next();
+                } catch (SQLException e) {
+                    LOG.severe("Can't move to the next row of [" + resultSet + "]");
+                    throw new RuntimeException(e);
+                }
+            }
+            return hasNext;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Map<String, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            hasNext = null;
+            Object[] values = new Object[labels.length];
+            try {
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = resultSet.getObject(i + 1);
+                }
+            } catch (SQLException e) {
+                LOG.severe("Can't read row of [" + resultSet + "]");
+                throw new RuntimeException(e);
+            }
+            return new Row(values);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Rows can't be removed.");
+        }
+
+    }
+
+    /**
+     * A read-only <code>Map</code> that contains values of a row.  Column indexes are shared by all rows.
+     */
+    private class Row extends AbstractMap<String, Object> {
+
+        private final Object[] values;
+
+        /**
+         * Create a new <code>Row</code>.
+         *
+         * @param values the value of every column.
+         */
+        Row(Object[] values) {
+            this.values = values;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean containsKey(Object key) {
+            return (key instanceof String) && columnIndexes.containsKey(key);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Object get(Object key) {
+            Integer index = (key instanceof String) ? columnIndexes.get(key) : null;
+            return (index == null) ? null : values[index];
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new Iterator<Entry<String, Object>>() {
+                        private int index;
+
+                        @Override
+                        public boolean hasNext() {
+                            return index < labels.length;
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            Entry<String, Object> entry = new SimpleImmutableEntry<>(labels[index], values[index]);
+                            index++;
+                            return entry;
+                        }
+
+                        @Override
+                        public void remove() {
+                            throw new UnsupportedOperationException("Row is read-only.");
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return labels.length;
+                }
+            };
+        }
+
+    }
+
+}
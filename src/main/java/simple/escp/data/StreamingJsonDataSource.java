@@ -0,0 +1,340 @@
+package simple.escp.data;
+
+import simple.escp.exception.InvalidPlaceholder;
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonValue;
+import javax.json.stream.JsonParser;
+import java.io.Closeable;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.logging.Logger;
+
+/**
+ * A <code>StreamingJsonDataSource</code> reads a JSON object whose member is a very large array of rows, such as
+ * <code>{"date": "...", "items": [{...}, {...}, ...]}</code>, without reading the whole document into memory.
+ *
+ * <p>Members that appear before the array of rows are read when this data source is created.  The array of rows
+ * is returned as an <code>Iterable</code> that parses one row at a time, so it can be used as the source of a
+ * table or a list.  Every row is a <code>JsonObject</code> (or another JSON value if the array doesn't contain
+ * objects).  The rows can only be iterated once.  Members that appear after the array of rows are available
+ * after all rows have been read.
+ *
+ * <p>Example:
+ *
+ * <pre>
+ *     try (StreamingJsonDataSource ds = new StreamingJsonDataSource(new FileReader(file), "items")) {
+ *         String result = new FillJob(template.compile(), ds).fill();
+ *     }
+ * </pre>
+ */
+public class StreamingJsonDataSource implements DataSource, Closeable {
+
+    private static final Logger LOG = Logger.getLogger("simple.escp");
+
+    private final JsonParser parser;
+    private final String rowsMember;
+    private final Rows rows = new Rows();
+    private JsonObjectBuilder builder = Json.createObjectBuilder();
+    private JsonDataSource members;
+
+    /**
+     * Create a new <code>StreamingJsonDataSource</code> from a <code>Reader</code>.
+     *
+     * @param reader the source of JSON document.  It will be closed when this data source is closed.
+     * @param rowsMember the name of member that contains the array of rows.
+     */
+    public StreamingJsonDataSource(Reader reader, String rowsMember) {
+        this(Json.createParser(reader), rowsMember);
+    }
+
+    /**
+     * Create a new <code>StreamingJsonDataSource</code> from an <code>InputStream</code>.  The character encoding
+     * is detected from the content of stream.
+     *
+     * @param inputStream the source of JSON document.  It will be closed when this data source is closed.
+     * @param rowsMember the name of member that contains the array of rows.
+     */
+    public StreamingJsonDataSource(InputStream inputStream, String rowsMember) {
+        this(Json.createParser(inputStream), rowsMember);
+    }
+
+    /**
+     * Create a new <code>StreamingJsonDataSource</code> from a <code>JsonParser</code>.
+     *
+     * @param parser the parser that is positioned before the start of JSON object.
+     * @param rowsMember the name of member that contains the array of rows.
+     */
+    public StreamingJsonDataSource(JsonParser parser, String rowsMember) {
+        this.parser = parser;
+        this.rowsMember = rowsMember;
+        if (!parser.hasNext() || (parser.next() != JsonParser.Event.START_OBJECT)) {
+            throw new IllegalArgumentException("JSON document must be an object.");
+        }
+        readMembers();
+    }
+
+    /**
+     * Read members of the root object until the array of rows or the end of root object is found.
+     */
+    private void readMembers() {
+        JsonParser.Event event;
+        while ((event = parser.next()) != JsonParser.Event.END_OBJECT) {
+            String key = parser.getString();
+            event = parser.next();
+            if (key.equals(rowsMember) && (event == JsonParser.Event.START_ARRAY) && !rows.started) {
+                rows.started = true;
+                break;
+            }
+            addValue(builder, key, event);
+        }
+        members = new JsonDataSource(builder.build());
+        if (event == JsonParser.Event.END_OBJECT) {
+            rows.finished = true;
+            builder = null;
+        } else {
+            // JsonObjectBuilder can't be reused after build(), so copy existing members to a new builder.
+            builder = Json.createObjectBuilder();
+            for (Map.Entry<String, JsonValue> entry : ((JsonObject) members.getSource()).entrySet()) {
+                builder.add(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Read a value that starts with <code>event</code> and add it to an object.
+     *
+     * @param target the destination.
+     * @param key the name of member.
+     * @param event the first event of value.
+     */
+    private void addValue(JsonObjectBuilder target, String key, JsonParser.Event event) {
+        switch (event) {
+            case START_OBJECT:
+                target.add(key, readObject());
+                break;
+            case START_ARRAY:
+                target.add(key, readArray());
+                break;
+            case VALUE_STRING:
+                target.add(key, parser.getString());
+                break;
+            case VALUE_NUMBER:
+                target.add(key, parser.getBigDecimal());
+                break;
+            case VALUE_TRUE:
+                target.add(key, true);
+                break;
+            case VALUE_FALSE:
+                target.add(key, false);
+                break;
+            default:
+                target.addNull(key);
+        }
+    }
+
+    /**
+     * Read a value that starts with <code>event</code> and add it to an array.
+     *
+     * @param target the destination.
+     * @param event the first event of value.
+     */
+    private void addValue(JsonArrayBuilder target, JsonParser.Event event) {
+        switch (event) {
+            case START_OBJECT:
+                target.add(readObject());
+                break;
+            case START_ARRAY:
+                target.add(readArray());
+                break;
+            case VALUE_STRING:
+                target.add(parser.getString());
+                break;
+            case VALUE_NUMBER:
+                target.add(parser.getBigDecimal());
+                break;
+            case VALUE_TRUE:
+                target.add(true);
+                break;
+            case VALUE_FALSE:
+                target.add(false);
+                break;
+            default:
+                target.addNull();
+        }
+    }
+
+    /**
+     * Read an object after its <code>START_OBJECT</code> event.
+     *
+     * @return the object.
+     */
+    private JsonObjectBuilder readObject() {
+        JsonObjectBuilder result = Json.createObjectBuilder();
+        while (parser.next() != JsonParser.Event.END_OBJECT) {
+            String key = parser.getString();
+            addValue(result, key, parser.next());
+        }
+        return result;
+    }
+
+    /**
+     * Read an array after its <code>START_ARRAY</code> event.
+     *
+     * @return the array.
+     */
+    private JsonArrayBuilder readArray() {
+        JsonArrayBuilder result = Json.createArrayBuilder();
+        JsonParser.Event event;
+        while ((event = parser.next()) != JsonParser.Event.END_ARRAY) {
+            addValue(result, event);
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean has(String member) {
+        return (rows.started && rowsMember.equals(member)) || members.has(member);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object get(String member) throws InvalidPlaceholder {
+        if (rows.started && rowsMember.equals(member)) {
+            return rows;
+        }
+        return members.get(member);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return a <code>JsonObject</code> that contains members that have been read, without the array of rows.
+     */
+    @Override
+    public Object getSource() {
+        return members.getSource();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String[] getMembers() {
+        String[] result = members.getMembers();
+        if (!rows.started) {
+            return result;
+        }
+        String[] withRows = Arrays.copyOf(result, result.length + 1);
+        withRows[result.length] = rowsMember;
+        return withRows;
+    }
+
+    /**
+     * Close the parser and its underlying source.
+     */
+    @Override
+    public void close() {
+        parser.close();
+    }
+
+    /**
+     * The array of rows that is parsed during iteration.
+     */
+    private class Rows implements Iterable<Object> {
+
+        private boolean started;
+        private boolean finished;
+        private boolean iterated;
+
+        /**
+         * {@inheritDoc}
+         *
+         * @throws IllegalStateException if rows have been iterated before.
+         */
+        @Override
+        public Iterator<Object> iterator() {
+            if (iterated) {
+                throw new IllegalStateException("Rows of [" + rowsMember + "] can only be iterated once.");
+            }
+            iterated = true;
+            return new RowIterator();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            return "Rows of [" + rowsMember + "]";
+        }
+
+    }
+
+    /**
+     * An <code>Iterator</code> that parses the next row when it is requested.
+     */
+    private class RowIterator implements Iterator<Object> {
+
+        private JsonParser.Event nextEvent;
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean hasNext() {
+            if (rows.finished) {
+                return false;
+            }
+            if (nextEvent == null) {
+                nextEvent = parser.next();
+            }
+            if (nextEvent == JsonParser.Event.END_ARRAY) {
+                LOG.fine("All rows of [" + rowsMember + "] have been read.");
+                readMembers();
+                rows.finished = true;
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Object next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            JsonParser.Event event = nextEvent;
+            nextEvent = null;
+            if (event == JsonParser.Event.START_OBJECT) {
+                return readObject().build();
+            }
+            JsonArrayBuilder row = Json.createArrayBuilder();
+            addValue(row, event);
+            return JsonDataSource.toObject(row.build().get(0));
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Rows can't be removed.");
+        }
+
+    }
+
+}
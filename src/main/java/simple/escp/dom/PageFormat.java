@@ -54,6 +54,25 @@ public class PageFormat {
         }
     }
 
+    /**
+     * Set vertical line spacing.
+     *
+     * @param lineSpacing the new line spacing or <code>null</code> to use printer's setting.
+     */
+    public void setLineSpacing(LINE_SPACING lineSpacing) {
+        this.lineSpacing = lineSpacing;
+    }
+
+    /**
+     * Determine if vertical line spacing has been specified for this page format.
+     *
+     * @return <code>true</code> if line spacing is specified or <code>false</code> if printer's setting will be
+     *         used.
+     */
+    public boolean hasLineSpacing() {
+        return lineSpacing != null;
+    }
+
     /**
      * Get specified vertical line spacing.
      * @return vertical line spacing, by default, it is <code>LINE_SPACING.ONE_PER_SIX_INCH</code>.
@@ -90,6 +109,25 @@ public class PageFormat {
         }
     }
 
+    /**
+     * Set character pitch (cpi).
+     *
+     * @param characterPitch the new character pitch or <code>null</code> to use printer's setting.
+     */
+    public void setCharacterPitch(EscpUtil.CHARACTER_PITCH characterPitch) {
+        this.characterPitch = characterPitch;
+    }
+
+    /**
+     * Determine if character pitch has been specified for this page format.
+     *
+     * @return <code>true</code> if character pitch is specified or <code>false</code> if printer's setting will be
+     *         used.
+     */
+    public boolean hasCharacterPitch() {
+        return characterPitch != null;
+    }
+
     /**
      * Get specified character pitch (in cpi).
      *
@@ -115,6 +153,24 @@ public class PageFormat {
         }
     }
 
+    /**
+     * Set font's type face.
+     *
+     * @param typeface the new type face or <code>null</code> to use printer's setting.
+     */
+    public void setTypeface(EscpUtil.TYPEFACE typeface) {
+        this.typeface = typeface;
+    }
+
+    /**
+     * Get specified font's type face.
+     *
+     * @return type face or <code>null</code> if it is not specified.
+     */
+    public EscpUtil.TYPEFACE getTypeface() {
+        return typeface;
+    }
+
     /**
      * Set page length in number of lines.
      *
@@ -8,14 +8,18 @@ import simple.escp.dom.Line;
 public class TextLine extends Line {
 
     private String text;
+    private TextSegment[] segments;
+    private boolean literal;
+    private boolean function;
 
     /**
-     * Create a new instance of <code>TextLine</code> from a string.
+     * Create a new instance of <code>TextLine</code> from a string.  The string will be splitted into
+     * <code>TextSegment</code>.
      *
      * @param text the string that represent text for this line.
      */
     public TextLine(String text) {
-        this.text = text;
+        setText(text);
     }
 
     /**
@@ -24,7 +28,10 @@ public class TextLine extends Line {
      * @param another the instance to copy.
      */
     public TextLine(TextLine another) {
-        this(another.getText());
+        this.text = another.text;
+        this.segments = another.segments;
+        this.literal = another.literal;
+        this.function = another.function;
         setLineNumber(another.getLineNumber());
         setGlobalLineNumber(another.getGlobalLineNumber());
     }
@@ -45,6 +52,52 @@ public class TextLine extends Line {
      */
     public void setText(String text) {
         this.text = text;
+        this.segments = TextSegment.tokenize(text);
+        this.literal = true;
+        this.function = false;
+        for (TextSegment segment : segments) {
+            if (!segment.isLiteral()) {
+                this.literal = false;
+            }
+            if (segment.getType() == TextSegment.Type.FUNCTION) {
+                this.function = true;
+            }
+            for (TextSegment contentSegment : segment.getContentSegments()) {
+                if (contentSegment.getType() == TextSegment.Type.FUNCTION) {
+                    this.function = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get segments of this line.  Segments are calculated once when the text of this line is set.  The returned
+     * array is shared and should not be modified.
+     *
+     * @return segments of this line.
+     */
+    public TextSegment[] getSegments() {
+        return segments;
+    }
+
+    /**
+     * Determine if this line only contains literal text.  A literal line doesn't have any placeholder or function,
+     * so it will be printed as is.
+     *
+     * @return <code>true</code> if this line doesn't need to be evaluated when filling report.
+     */
+    public boolean isLiteral() {
+        return literal;
+    }
+
+    /**
+     * Determine if this line contains one or more functions in form of <code>%{...}</code>, including functions
+     * inside script placeholders.
+     *
+     * @return <code>true</code> if this line has a segment of type {@link TextSegment.Type#FUNCTION}.
+     */
+    public boolean hasFunction() {
+        return function;
     }
 
     /**
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2014 Jocki Hendry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.escp.dom.line;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <code>TextSegment</code> is an immutable part of the text of a <code>TextLine</code>.  A segment can be a
+ * literal text, a basic placeholder (<code>${...}</code>), a script placeholder (<code>{{...}}</code>) or
+ * a function (<code>%{...}</code>).
+ *
+ * <p>Text of a line is split into segments once by {@link #tokenize(String)}, so filling doesn't need to search
+ * for placeholders again.  Basic placeholders and functions inside a script placeholder, such as
+ * <code>{{ ${qty} * 2 }}</code> or <code>{{ '%{PAGE_NO}' }}</code>, are kept in {@link #getContentSegments()}.
+ * They are replaced by their value before the script is executed.
+ */
+public final class TextSegment {
+
+    /**
+     * Kind of <code>TextSegment</code>.
+     */
+    public enum Type {
+        LITERAL, BASIC_PLACEHOLDER, SCRIPT_PLACEHOLDER, FUNCTION
+    }
+
+    public static final TextSegment[] EMPTY = new TextSegment[0];
+
+    private final Type type;
+    private final String text;
+    private final String content;
+    private final TextSegment[] contentSegments;
+
+    /**
+     * Create a new instance of <code>TextSegment</code>.
+     *
+     * @param type the kind of this segment.
+     * @param text the full text of this segment as it appears in the line, for example <code>"${name}"</code>.
+     * @param content the text between delimiters, for example <code>"name"</code>.  For literal segment, it is the
+     *                same as <code>text</code>.
+     */
+    public TextSegment(Type type, String text, String content) {
+        this.type = type;
+        this.text = text;
+        this.content = content;
+        this.contentSegments = (type == Type.SCRIPT_PLACEHOLDER) ? tokenizeScript(content) : EMPTY;
+    }
+
+    /**
+     * Split the content of a script placeholder if it contains basic placeholders or functions.
+     *
+     * @param content the content of script placeholder.
+     * @return segments of <code>content</code> or an empty array if it doesn't contain basic placeholder or
+     *         function.
+     */
+    private static TextSegment[] tokenizeScript(String content) {
+        if (!content.contains("${") && !content.contains("%{")) {
+            return EMPTY;
+        }
+        TextSegment[] segments = tokenize(content);
+        for (TextSegment segment : segments) {
+            if ((segment.getType() == Type.BASIC_PLACEHOLDER) || (segment.getType() == Type.FUNCTION)) {
+                return segments;
+            }
+        }
+        return EMPTY;
+    }
+
+    /**
+     * Split a text into segments.  The rules for finding placeholders and functions are the same as
+     * {@link simple.escp.fill.FillJob#BASIC_PLACEHOLDER_PATTERN} and
+     * {@link simple.escp.fill.FillJob#SCRIPT_PLACEHOLDER_PATTERN}: the content must have at least one character
+     * and it ends at the first closing delimiter.  Closing delimiters of basic placeholders and functions inside a
+     * script placeholder are skipped.  Unclosed delimiters are treated as literal text.
+     *
+     * @param text the text that will be splitted.
+     * @return segments of <code>text</code> in the order of their appearance.  Consecutive literal texts are stored
+     *         as one segment.
+     */
+    public static TextSegment[] tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return EMPTY;
+        }
+        List<TextSegment> result = new ArrayList<>();
+        int literalStart = 0;
+        int i = 0;
+        while (i < text.length() - 1) {
+            char c = text.charAt(i);
+            char next = text.charAt(i + 1);
+            Type type = null;
+            int contentStart = i + 2;
+            int end = -1;
+            int closingLength = 1;
+            if (c == '$' && next == '{') {
+                type = Type.BASIC_PLACEHOLDER;
+                end = text.indexOf('}', contentStart + 1);
+            } else if (c == '{' && next == '{') {
+                type = Type.SCRIPT_PLACEHOLDER;
+                end = findScriptEnd(text, contentStart);
+                closingLength = 2;
+            } else if (c == '%' && next == '{') {
+                type = Type.FUNCTION;
+                end = text.indexOf('}', contentStart + 1);
+            }
+            if (end < 0) {
+                i++;
+                continue;
+            }
+            if (literalStart < i) {
+                String literal = text.substring(literalStart, i);
+                result.add(new TextSegment(Type.LITERAL, literal, literal));
+            }
+            int segmentEnd = end + closingLength;
+            result.add(new TextSegment(type, text.substring(i, segmentEnd), text.substring(contentStart, end)));
+            i = segmentEnd;
+            literalStart = i;
+        }
+        if (literalStart < text.length()) {
+            String literal = text.substring(literalStart);
+            result.add(new TextSegment(Type.LITERAL, literal, literal));
+        }
+        return result.toArray(new TextSegment[result.size()]);
+    }
+
+    /**
+     * Find the closing delimiter of a script placeholder.  Basic placeholders and functions inside the script are
+     * skipped, so <code>{{${qty}}}</code> ends at the last <code>"}}"</code>.
+     *
+     * @param text the text that is being splitted.
+     * @param start the position of the first character of script.
+     * @return the position of closing delimiter or <code>-1</code> if it can't be found.
+     */
+    private static int findScriptEnd(String text, int start) {
+        int i = start;
+        while (i < text.length() - 1) {
+            if ((text.startsWith("${", i) || text.startsWith("%{", i)) && (text.indexOf('}', i + 2 + 1) >= 0)) {
+                i = text.indexOf('}', i + 2 + 1) + 1;
+            } else if ((i > start) && text.startsWith("}}", i)) {
+                return i;
+            } else {
+                i++;
+            }
+        }
+        return text.indexOf("}}", start + 1);
+    }
+
+    /**
+     * Retrieve the kind of this segment.
+     *
+     * @return the type of this segment.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Retrieve the full text of this segment, including its delimiters.
+     *
+     * @return the text of this segment as it appears in the line.
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Retrieve the text between delimiters of this segment.  For a placeholder, this is the placeholder text that
+     * is used to create a <code>Placeholder</code>.
+     *
+     * @return the content of this segment.
+     */
+    public String getContent() {
+        return content;
+    }
+
+    /**
+     * Retrieve segments of the content of a script placeholder that contains basic placeholders or functions.
+     *
+     * @return segments of the content or an empty array if this segment is not a script placeholder or its content
+     *         doesn't contain basic placeholder or function.
+     */
+    public TextSegment[] getContentSegments() {
+        return contentSegments;
+    }
+
+    /**
+     * Determine if this segment is a literal text that doesn't need to be evaluated.
+     *
+     * @return <code>true</code> if this segment is a literal text.
+     */
+    public boolean isLiteral() {
+        return type == Type.LITERAL;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return text;
+    }
+
+}
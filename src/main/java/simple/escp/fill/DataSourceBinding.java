@@ -2,16 +2,31 @@ package simple.escp.fill;
 
 import simple.escp.data.BeanDataSource;
 import simple.escp.data.DataSource;
+import simple.escp.data.DataSources;
+import simple.escp.data.LookupDataSource;
 import javax.script.SimpleBindings;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  *  This class will provide value from <code>DataSource</code> as global variables that
  *  can be read inside script directly.
+ *
+ *  <p>Values are read from data sources only when a script refers to them.  The first data source that has a
+ *  non-<code>null</code> value for a name will provide the value.  Resolved values are remembered until
+ *  {@link #reset(DataSource[])} is called, so the same binding can be reused for every row of a table or list.
+ *
+ *  <p>Variables that have been set by calling <code>put()</code> always take precedence over values from data
+ *  sources.  <code>keySet()</code>, <code>entrySet()</code>, <code>values()</code> and <code>size()</code> only
+ *  return those variables.
  */
 public class DataSourceBinding extends SimpleBindings {
 
+    private static final Object MISSING = new Object();
+
     private DataSource[] dataSources;
+    private final Map<String, Object> resolved = new HashMap<>();
 
     /**
      * Create a new instance of <code>DataSourceBinding</code>.
@@ -20,26 +35,82 @@ public class DataSourceBinding extends SimpleBindings {
      */
     public DataSourceBinding(DataSource[] dataSources) {
         this.dataSources = Arrays.copyOf(dataSources, dataSources.length);
-        init();
     }
 
     /**
-     * Create the binding.
+     * Replace the data sources of this binding and forget all values that have been read from the previous data
+     * sources.  Variables that have been set by calling <code>put()</code> are kept.
+     *
+     * @param dataSources the new data sources.
      */
-    private void init() {
-        put("dataSources", dataSources);
+    public void reset(DataSource[] dataSources) {
+        this.dataSources = Arrays.copyOf(dataSources, dataSources.length);
+        resolved.clear();
+    }
 
-        for (DataSource dataSource : dataSources) {
-            // register the first JavaBean as global variable 'bean'
-            if ((dataSource instanceof BeanDataSource) && (get("bean") == null)) {
-                put("bean", dataSource.getSource());
-            }
-            for (String key : dataSource.getMembers()) {
-                if (get(key) == null) {
-                    put(key, dataSource.get(key));
+    /**
+     * Find the value of a variable from data sources.
+     *
+     * @param name the name of variable.
+     * @return the value or <code>MISSING</code> if no data source has the variable.
+     */
+    private Object resolve(String name) {
+        Object value = resolved.get(name);
+        if ((value == null) && !resolved.containsKey(name)) {
+            value = read(name);
+            resolved.put(name, value);
+        }
+        return value;
+    }
+
+    /**
+     * Read the value of a variable from data sources.
+     *
+     * @param name the name of variable.
+     * @return the value or <code>MISSING</code> if no data source has the variable.
+     */
+    private Object read(String name) {
+        if ("dataSources".equals(name)) {
+            return dataSources;
+        }
+        if ("bean".equals(name)) {
+            // the first JavaBean is available as global variable 'bean'
+            for (DataSource dataSource : dataSources) {
+                if (dataSource instanceof BeanDataSource) {
+                    return dataSource.getSource();
                 }
             }
         }
+        Object result = MISSING;
+        for (DataSource dataSource : dataSources) {
+            Object value = DataSources.lookup(dataSource, name);
+            if (value == null) {
+                result = null;
+            } else if (value != LookupDataSource.MISSING) {
+                return value;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean containsKey(Object key) {
+        return super.containsKey(key) || (resolve((String) key) != MISSING);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object get(Object key) {
+        if (super.containsKey(key)) {
+            return super.get(key);
+        }
+        Object value = resolve((String) key);
+        return (value == MISSING) ? null : value;
     }
 
 }
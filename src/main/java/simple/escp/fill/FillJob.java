@@ -16,14 +16,21 @@
 
 package simple.escp.fill;
 
+import simple.escp.CompiledTemplate;
+import simple.escp.dom.Line;
 import simple.escp.dom.Page;
 import simple.escp.dom.Report;
+import simple.escp.dom.line.TextLine;
+import simple.escp.dom.line.TextSegment;
 import simple.escp.data.DataSource;
+import simple.escp.data.ResolutionIndex;
+import simple.escp.exception.InvalidPlaceholder;
 import simple.escp.fill.function.AsciiFunction;
 import simple.escp.fill.function.AutoIncrementFunction;
 import simple.escp.fill.function.BoldFunction;
 import simple.escp.fill.function.DoubleStrikeFunction;
 import simple.escp.fill.function.Function;
+import simple.escp.fill.function.FunctionDispatcher;
 import simple.escp.fill.function.GlobalLineNoFunction;
 import simple.escp.fill.function.ItalicFunction;
 import simple.escp.fill.function.LineNoFunction;
@@ -37,14 +44,15 @@ import simple.escp.placeholder.ScriptPlaceholder;
 import simple.escp.util.EscpUtil;
 import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
@@ -63,6 +71,18 @@ public class FillJob {
     public static final Pattern SCRIPT_PLACEHOLDER_PATTERN = Pattern.compile("\\{\\{(.+?)\\}\\}");
     public static final List<Function> FUNCTIONS;
 
+    /**
+     * Functions that are evaluated as function tokens.  Other functions in {@link #FUNCTIONS} are matched against
+     * the text of every line.
+     */
+    private static final List<Function> BUILT_IN_FUNCTIONS;
+
+    /**
+     * <code>iterator()</code> of <code>java.util.stream.BaseStream</code>, or <code>null</code> if this JDK doesn't
+     * support stream.
+     */
+    private static final Method STREAM_ITERATOR;
+
     static {
         FUNCTIONS = new ArrayList<>();
         FUNCTIONS.add(new BoldFunction());
@@ -76,12 +96,25 @@ public class FillJob {
         FUNCTIONS.add(new AutoIncrementFunction());
         FUNCTIONS.add(new GlobalLineNoFunction());
         FUNCTIONS.add(new LineNoFunction());
+        BUILT_IN_FUNCTIONS = new ArrayList<>(FUNCTIONS);
+
+        Method streamIterator = null;
+        try {
+            streamIterator = Class.forName("java.util.stream.BaseStream").getMethod("iterator");
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            LOG.fine("Stream is not available, it can't be used as source of table or list.");
+        }
+        STREAM_ITERATOR = streamIterator;
     }
 
+    private static volatile ScriptEnginePool scriptEnginePool = new ScriptEnginePool();
+
     protected Report report;
     protected DataSource[] dataSources;
     protected Map<String, Placeholder> placeholders = new HashMap<>();
     protected ScriptEngine scriptEngine;
+    protected CompiledTemplate compiledTemplate;
+    private final ResolutionIndex resolutionIndex;
 
     /**
      * Create a new <code>FillJob</code> with empty data source.
@@ -109,17 +142,46 @@ public class FillJob {
      * @param dataSources array that contains <code>DataSource</code> as the source values for filling.
      */
     public FillJob(Report report, DataSource[] dataSources) {
+        this(report, dataSources, null);
+    }
+
+    /**
+     * Create a new <code>FillJob</code> for a <code>CompiledTemplate</code> with single <code>DataSource</code>.
+     *
+     * @param compiledTemplate the <code>CompiledTemplate</code> that will be filled.
+     * @param dataSource the <code>DataSource</code> that contains values for filling.
+     */
+    public FillJob(CompiledTemplate compiledTemplate, DataSource dataSource) {
+        this(compiledTemplate, new DataSource[] {dataSource});
+    }
+
+    /**
+     * Create a new <code>FillJob</code> for a <code>CompiledTemplate</code> with multiple <code>DataSource</code>.
+     * Placeholders that were parsed when compiling the template will be reused by this <code>FillJob</code>.
+     *
+     * @param compiledTemplate the <code>CompiledTemplate</code> that will be filled.
+     * @param dataSources array that contains <code>DataSource</code> as the source values for filling.
+     */
+    public FillJob(CompiledTemplate compiledTemplate, DataSource[] dataSources) {
+        this(compiledTemplate.getReport(), dataSources, compiledTemplate);
+    }
+
+    /**
+     * Create a new <code>FillJob</code>.
+     *
+     * @param report the <code>Report</code> that will be filled.
+     * @param dataSources array that contains <code>DataSource</code> as the source values for filling.
+     * @param compiledTemplate the <code>CompiledTemplate</code> that provides pre-parsed placeholders, or
+     *                         <code>null</code> if placeholders should be parsed during filling.
+     */
+    protected FillJob(Report report, DataSource[] dataSources, CompiledTemplate compiledTemplate) {
         this.report = report;
+        this.compiledTemplate = compiledTemplate;
         this.dataSources = Arrays.copyOf(dataSources, dataSources.length);
+        this.resolutionIndex = new ResolutionIndex(this.dataSources);
 
-        // Create script engine for ScriptPlaceholder
-        ScriptEngineManager scriptEngineManager = new ScriptEngineManager();
-        scriptEngineManager.setBindings(new DataSourceBinding(this.dataSources));
-        this.scriptEngine = scriptEngineManager.getEngineByName("groovy");
-        if (this.scriptEngine == null) {
-            LOG.fine("Can't find Groovy script engine, will use JavaScript script engine.");
-            this.scriptEngine = scriptEngineManager.getEngineByName("JavaScript");
-        }
+        // Script engine for ScriptPlaceholder is borrowed from pool when a script is executed
+        this.scriptEngine = new PooledScriptEngine(scriptEnginePool, new DataSourceBinding(this.dataSources));
 
         // Reset functions
         for (Function function : FUNCTIONS) {
@@ -129,6 +191,9 @@ public class FillJob {
 
     /**
      * Register a new global function.  This function will have a lower priority compared to built-in function.
+     * Unlike built-in functions, which are only evaluated for <code>%{...}</code> tokens, the pattern of this
+     * function is searched in the whole text of every line, so it doesn't need to match a <code>%{...}</code>
+     * token.
      *
      * @param function a new function that will be available for current and subsequent executions.
      */
@@ -138,6 +203,28 @@ public class FillJob {
         }
     }
 
+    /**
+     * Retrieve the pool that provides script engines for all <code>FillJob</code>.
+     *
+     * @return the current <code>ScriptEnginePool</code>.
+     */
+    public static ScriptEnginePool getScriptEnginePool() {
+        return scriptEnginePool;
+    }
+
+    /**
+     * Replace the pool that provides script engines.  This can be used to select a different script engine.  The
+     * new pool will only be used by <code>FillJob</code> that are created after calling this method.
+     *
+     * @param scriptEnginePool the new <code>ScriptEnginePool</code>.
+     */
+    public static void setScriptEnginePool(ScriptEnginePool scriptEnginePool) {
+        if (scriptEnginePool == null) {
+            throw new IllegalArgumentException("Script engine pool can't be null.");
+        }
+        FillJob.scriptEnginePool = scriptEnginePool;
+    }
+
     /**
      * Remove a registered global function.
      *
@@ -205,6 +292,83 @@ public class FillJob {
         return placeholders.get(text);
     }
 
+    /**
+     * Create a new <code>BasicPlaceholder</code>.  If this <code>FillJob</code> is filling a
+     * <code>CompiledTemplate</code>, the pre-parsed placeholder will be used.
+     *
+     * @param text the placeholder's text.
+     * @return a new <code>Placeholder</code>.
+     */
+    protected Placeholder createBasicPlaceholder(String text) {
+        Placeholder placeholder = null;
+        if (compiledTemplate != null) {
+            placeholder = compiledTemplate.createBasicPlaceholder(text);
+        }
+        return (placeholder == null) ? new BasicPlaceholder(text) : placeholder;
+    }
+
+    /**
+     * Create a new <code>ScriptPlaceholder</code> that will be executed by script engine of this
+     * <code>FillJob</code>.  If this <code>FillJob</code> is filling a <code>CompiledTemplate</code>, the pre-parsed
+     * placeholder will be used.
+     *
+     * @param text the placeholder's text.
+     * @return a new <code>Placeholder</code>.
+     */
+    protected Placeholder createScriptPlaceholder(String text) {
+        Placeholder placeholder = null;
+        if (compiledTemplate != null) {
+            placeholder = compiledTemplate.createScriptPlaceholder(text, scriptEngine);
+        }
+        return (placeholder == null) ? new ScriptPlaceholder(text, scriptEngine) : placeholder;
+    }
+
+    /**
+     * Convert the source of a table or a list into an <code>Iterable</code>.  The source can be an
+     * <code>Iterable</code> (including <code>Collection</code>), an array of objects, an <code>Iterator</code> or a
+     * <code>java.util.stream.Stream</code>.  An <code>Iterator</code> or a <code>Stream</code> can only be iterated
+     * once.
+     *
+     * @param source the value of source of a table or a list.
+     * @return an <code>Iterable</code> or <code>null</code> if <code>source</code> can't be iterated.
+     * @throws InvalidPlaceholder if <code>source</code> is a <code>Stream</code> that can't be iterated.
+     */
+    protected static Iterable<?> toIterable(Object source) {
+        if (source instanceof Iterable) {
+            return (Iterable<?>) source;
+        }
+        if (source instanceof Object[]) {
+            return Arrays.asList((Object[]) source);
+        }
+        Iterator<?> iterator = null;
+        if (source instanceof Iterator) {
+            iterator = (Iterator<?>) source;
+        } else if ((STREAM_ITERATOR != null) && STREAM_ITERATOR.getDeclaringClass().isInstance(source)) {
+            try {
+                iterator = (Iterator<?>) STREAM_ITERATOR.invoke(source);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new InvalidPlaceholder("Can't iterate [" + source + "].", e);
+            }
+        }
+        if (iterator == null) {
+            return null;
+        }
+        final Iterator<?> singleUseIterator = iterator;
+        return new Iterable<Object>() {
+            private boolean used;
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public Iterator<Object> iterator() {
+                if (used) {
+                    throw new IllegalStateException("[" + singleUseIterator + "] can only be iterated once.");
+                }
+                used = true;
+                return (Iterator<Object>) singleUseIterator;
+            }
+        };
+    }
+
     /**
      * This method will fill placeholders with value from both supplied <code>Map</code> and Java Bean object.
      *
@@ -212,19 +376,8 @@ public class FillJob {
      * @return source with placeholders replaced by actual value.
      */
     protected String fillBasicPlaceholder(String text) {
-        StringBuffer result = new StringBuffer();
-        Matcher matcher = BASIC_PLACEHOLDER_PATTERN.matcher(text);
-        while (matcher.find()) {
-            String placeholderText = matcher.group(1);
-            LOG.fine("Found basic placeholder text [" + placeholderText + "]");
-            Placeholder placeholder = placeholders.get(placeholderText);
-            if (placeholder == null) {
-                placeholder = new BasicPlaceholder(placeholderText);
-                placeholders.put(placeholderText, placeholder);
-            }
-            matcher.appendReplacement(result, placeholder.getValueAsString(dataSources));
-        }
-        matcher.appendTail(result);
+        StringBuilder result = new StringBuilder();
+        fillSegments(TextSegment.tokenize(text), true, false, result);
         return result.toString();
     }
 
@@ -235,21 +388,168 @@ public class FillJob {
      * @return source with placeholders replaced by actual value.
      */
     protected String fillScriptPlaceholder(String text) {
-        StringBuffer result = new StringBuffer();
-        Matcher matcher = SCRIPT_PLACEHOLDER_PATTERN.matcher(text);
-        while (matcher.find()) {
-            String placeholderText = matcher.group(1);
-            LOG.fine("Found script placeholder text [" + placeholderText + "]");
-            Placeholder placeholder = placeholders.get(placeholderText);
-            if (placeholder == null) {
-                placeholder = new ScriptPlaceholder(placeholderText, scriptEngine);
-                placeholders.put(placeholderText, placeholder);
+        StringBuilder result = new StringBuilder();
+        fillSegments(TextSegment.tokenize(text), false, true, result);
+        return result.toString();
+    }
+
+    /**
+     * Fill both basic and script placeholders in segments of a line.
+     *
+     * @param segments the segments that will be filled.
+     * @return the result of concatenating segments with placeholders replaced by actual value.
+     */
+    protected String fillPlaceholders(TextSegment[] segments) {
+        StringBuilder result = new StringBuilder();
+        fillSegments(segments, true, true, result);
+        return result.toString();
+    }
+
+    /**
+     * Concatenate segments into <code>result</code>.  Segments that are not filled are appended as is.
+     *
+     * @param segments the segments that will be filled.
+     * @param fillBasic set <code>true</code> to replace basic placeholders with their value.
+     * @param fillScript set <code>true</code> to replace script placeholders with their value.
+     * @param result the destination of concatenation.
+     */
+    private void fillSegments(TextSegment[] segments, boolean fillBasic, boolean fillScript, StringBuilder result) {
+        for (TextSegment segment : segments) {
+            if (fillBasic && segment.getType() == TextSegment.Type.BASIC_PLACEHOLDER) {
+                result.append(getValueAsString(findPlaceholder(segment)));
+            } else if (fillScript && segment.getType() == TextSegment.Type.SCRIPT_PLACEHOLDER) {
+                result.append(getValueAsString(findPlaceholder(segment)));
+            } else if (fillBasic && segment.getContentSegments().length > 0) {
+                result.append("{{").append(fillContent(segment)).append("}}");
+            } else {
+                result.append(segment.getText());
             }
-            matcher.appendReplacement(result, placeholder.getValueAsString(dataSources));
         }
-        matcher.appendTail(result);
+    }
+
+    /**
+     * Evaluate functions that are searched in the whole text of a line, such as functions that are registered by
+     * {@link #addFunction(Function)}.
+     *
+     * @param line the line that will be filled.
+     * @param report current report that is being filled.
+     * @param page current page that is being filled.
+     * @param lineNumber the line number of <code>line</code> in <code>page</code>.
+     * @param globalLineNumber the line number of <code>line</code> in <code>report</code>.
+     * @param functionDispatcher the dispatcher that evaluates functions.
+     * @return a new line that contains the result of functions, or <code>line</code> if no function was found.
+     */
+    private TextLine fillTextFunctions(TextLine line, Report report, Page page, int lineNumber, int globalLineNumber,
+                                       FunctionDispatcher functionDispatcher) {
+        // Lines may be shared with other reports, so line numbers are stored in a copy.
+        TextLine currentLine = new TextLine(line);
+        currentLine.setLineNumber(lineNumber);
+        currentLine.setGlobalLineNumber(globalLineNumber);
+        String text = functionDispatcher.processText(currentLine.getText(), report, page, currentLine);
+        return (text == null) ? line : new TextLine(text);
+    }
+
+    /**
+     * Concatenate segments of a line that contains functions into <code>result</code>.  Functions and placeholders
+     * are evaluated in the order of their appearance.  Functions inside a script placeholder are evaluated before
+     * the script.  Functions that can't be found are appended as is.
+     *
+     * @param segments the segments that will be filled.
+     * @param report current report that is being filled.
+     * @param page current page that is being filled.
+     * @param line current line that is being filled.
+     * @param functionDispatcher the dispatcher that evaluates function segments.
+     * @param result the destination of concatenation.
+     */
+    private void fillSegments(TextSegment[] segments, Report report, Page page, Line line,
+                              FunctionDispatcher functionDispatcher, StringBuilder result) {
+        for (TextSegment segment : segments) {
+            if (segment.getType() == TextSegment.Type.FUNCTION) {
+                String value = functionDispatcher.process(segment, report, page, line);
+                result.append((value == null) ? segment.getText() : value);
+            } else if (segment.isLiteral()) {
+                result.append(segment.getText());
+            } else if (segment.getContentSegments().length > 0) {
+                StringBuilder script = new StringBuilder();
+                fillSegments(segment.getContentSegments(), report, page, line, functionDispatcher, script);
+                result.append(getValueAsString(findPlaceholder(segment, script.toString())));
+            } else {
+                result.append(getValueAsString(findPlaceholder(segment)));
+            }
+        }
+    }
+
+    /**
+     * Retrieve the value of a placeholder in form of <code>String</code>.  The data source that provides the
+     * value of a basic placeholder is remembered for the rest of this filling, unless <code>dataSources</code>
+     * has been replaced, for example by every entry of a list.
+     *
+     * @param placeholder the placeholder whose value will be retrieved.
+     * @return the value of <code>placeholder</code> in form of <code>String</code>.
+     */
+    private String getValueAsString(Placeholder placeholder) {
+        if (resolutionIndex.getDataSources() == dataSources) {
+            return placeholder.getIndexedValueAsString(resolutionIndex);
+        }
+        return placeholder.getValueAsString(dataSources);
+    }
+
+    /**
+     * Replace basic placeholders inside a script placeholder with their value, so that the script can use them,
+     * for example <code>{{ ${qty} * 2 }}</code>.  Functions are kept as is.  They are only evaluated when the line
+     * is filled by {@link #fillSegments(TextSegment[], Report, Page, Line, FunctionDispatcher, StringBuilder)}.
+     *
+     * @param segment a script placeholder that contains basic placeholders or functions.
+     * @return the content of <code>segment</code> with basic placeholders replaced by actual value.
+     */
+    private String fillContent(TextSegment segment) {
+        StringBuilder result = new StringBuilder();
+        fillSegments(segment.getContentSegments(), true, false, result);
         return result.toString();
+    }
 
+    /**
+     * Retrieve the <code>Placeholder</code> for a segment.  The <code>Placeholder</code> will be created if this
+     * is the first time it is used by this <code>FillJob</code>.
+     *
+     * @param segment a segment that represents basic placeholder or script placeholder.
+     * @return the <code>Placeholder</code> for <code>segment</code>.
+     */
+    private Placeholder findPlaceholder(TextSegment segment) {
+        return findPlaceholder(segment, (segment.getContentSegments().length > 0) ? fillContent(segment) :
+            segment.getContent());
+    }
+
+    /**
+     * Retrieve the <code>Placeholder</code> for a segment whose text has been filled.  The
+     * <code>Placeholder</code> will be created if this is the first time it is used by this <code>FillJob</code>.
+     *
+     * @param segment a segment that represents basic placeholder or script placeholder.
+     * @param placeholderText the text of placeholder.
+     * @return the <code>Placeholder</code> for <code>placeholderText</code>.
+     */
+    private Placeholder findPlaceholder(TextSegment segment, String placeholderText) {
+        Placeholder placeholder = placeholders.get(placeholderText);
+        if (placeholder == null) {
+            LOG.fine("Found placeholder text [" + placeholderText + "]");
+            if (segment.getType() == TextSegment.Type.BASIC_PLACEHOLDER) {
+                placeholder = createBasicPlaceholder(placeholderText);
+            } else {
+                placeholder = createScriptPlaceholder(placeholderText);
+            }
+            placeholders.put(placeholderText, placeholder);
+        }
+        return placeholder;
+    }
+
+    /**
+     * Return the script engine that is borrowed by this <code>FillJob</code> to the pool.  The script engine will
+     * be borrowed again if another script is executed.
+     */
+    protected void releaseScriptEngine() {
+        if (scriptEngine instanceof PooledScriptEngine) {
+            ((PooledScriptEngine) scriptEngine).release();
+        }
     }
 
     /**
@@ -259,13 +559,29 @@ public class FillJob {
      * @return a <code>String</code> that may contains ESC/P commands and can be printed.
      */
     public String fill() {
+        try {
+            return fillReport();
+        } finally {
+            releaseScriptEngine();
+        }
+    }
+
+    /**
+     * Fill the report and return the result.
+     *
+     * @return a <code>String</code> that may contains ESC/P commands and can be printed.
+     */
+    private String fillReport() {
         Report parsedReport = new Report(report);
+        resolutionIndex.clear();
 
         // Second phase: fill dynamic line, change last page footer, etc.
-        if (parsedReport.hasDynamicLine()) {
+        boolean hasDynamicLine = (compiledTemplate != null) ? compiledTemplate.hasDynamicLine() :
+            parsedReport.hasDynamicLine();
+        if (hasDynamicLine) {
             LOG.fine("This report has dynamic line.");
-            TableFillJob tableFillJob = new TableFillJob(parsedReport, dataSources);
-            ListFillJob listFillJob = new ListFillJob(parsedReport, dataSources);
+            TableFillJob tableFillJob = new TableFillJob(parsedReport, dataSources, compiledTemplate);
+            ListFillJob listFillJob = new ListFillJob(parsedReport, dataSources, compiledTemplate);
             tableFillJob.fill();
             listFillJob.fill();
         }
@@ -282,27 +598,61 @@ public class FillJob {
         StringBuilder result = new StringBuilder();
         boolean isAutoLineFeed = parsedReport.getPageFormat().isAutoLineFeed();
         boolean isAutoFormFeed = parsedReport.getPageFormat().isAutoFormFeed();
-        result.append(parsedReport.getPageFormat().build());
+        result.append((compiledTemplate != null) ? compiledTemplate.getPageFormatPrefix() :
+            parsedReport.getPageFormat().build());
 
-        // process functions
+        // process functions and placeholders
+        List<Function> tokenFunctions = new ArrayList<>();
+        List<Function> textFunctions = new ArrayList<>();
         for (Function function : FUNCTIONS) {
-            LOG.fine("Executing function [" + function + "]");
-            function.process(parsedReport);
+            if (BUILT_IN_FUNCTIONS.contains(function)) {
+                tokenFunctions.add(function);
+            } else {
+                textFunctions.add(function);
+            }
         }
-
-        // process placeholders
+        FunctionDispatcher functionDispatcher = new FunctionDispatcher(tokenFunctions, textFunctions);
+        String lineSeparator = isAutoLineFeed ? EscpUtil.CR : EscpUtil.CRLF;
+        int globalLineNumber = 1;
         for (Page page : parsedReport) {
-            String pageText = page.convertToString(isAutoLineFeed, isAutoFormFeed);
-            pageText = fillBasicPlaceholder(pageText);
-            pageText = fillScriptPlaceholder(pageText);
-            result.append(pageText);
+            Line[] lines = page.getLines();
+            for (int i = 0; i < lines.length; i++) {
+                if (lines[i] == null) {
+                    continue;
+                }
+                if (lines[i] instanceof TextLine) {
+                    TextLine textLine = (TextLine) lines[i];
+                    if (functionDispatcher.hasTextFunctions()) {
+                        textLine = fillTextFunctions(textLine, parsedReport, page, i + 1, globalLineNumber,
+                            functionDispatcher);
+                    }
+                    if (textLine.isLiteral()) {
+                        result.append(textLine.getText());
+                    } else if (textLine.hasFunction()) {
+                        // Lines may be shared with other reports, so line numbers are stored in a copy.
+                        TextLine currentLine = new TextLine(textLine);
+                        currentLine.setLineNumber(i + 1);
+                        currentLine.setGlobalLineNumber(globalLineNumber);
+                        fillSegments(currentLine.getSegments(), parsedReport, page, currentLine, functionDispatcher,
+                            result);
+                    } else {
+                        fillSegments(textLine.getSegments(), true, true, result);
+                    }
+                    result.append(lineSeparator);
+                }
+                globalLineNumber++;
+            }
+            if (isAutoFormFeed) {
+                result.append(EscpUtil.CRFF);
+            }
         }
 
-        if (isAutoFormFeed && !result.toString().endsWith(EscpUtil.CRFF)) {
+        int tail = Math.max(0, result.length() - EscpUtil.CRFF.length());
+        if (isAutoFormFeed && !EscpUtil.CRFF.equals(result.substring(tail))) {
             result.append(EscpUtil.CRFF);
         }
         result.append(EscpUtil.escInitalize());
         return result.toString();
     }
-    
+
 }
@@ -1,5 +1,6 @@
 package simple.escp.fill;
 
+import simple.escp.CompiledTemplate;
 import simple.escp.data.DataSource;
 import simple.escp.data.DataSources;
 import simple.escp.dom.Line;
@@ -7,18 +8,19 @@ import simple.escp.dom.Page;
 import simple.escp.dom.Report;
 import simple.escp.dom.line.ListLine;
 import simple.escp.dom.line.TextLine;
+import simple.escp.dom.line.TextSegment;
 import simple.escp.exception.InvalidPlaceholder;
-import simple.escp.placeholder.ScriptPlaceholder;
 import javax.script.ScriptContext;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * <code>ListFillJob</code> represent the process of filling a <code>ListLine</code> with its source in form of
- * a <code>Collection</code>.
+ * a <code>Collection</code>, another <code>Iterable</code>, an array, an <code>Iterator</code> or a
+ * <code>Stream</code> (see {@link #toIterable(Object)}).  The source is only iterated once.
  */
 public class ListFillJob extends FillJob {
 
@@ -35,6 +37,19 @@ public class ListFillJob extends FillJob {
         super(report, dataSources);
     }
 
+    /**
+     * Create a new instance of <code>ListFillJob</code> that reuses pre-parsed placeholders.
+     *
+     * @param report the target destination of this <code>FillJob</code>.  This <code>FillJob</code> will not
+     *               return any value but directly modify destination <code>report</code>.
+     * @param dataSources  global data source for this <code>FillJob</code>.
+     * @param compiledTemplate the <code>CompiledTemplate</code> that provides pre-parsed placeholders, or
+     *                         <code>null</code> if placeholders should be parsed during filling.
+     */
+    public ListFillJob(Report report, DataSource[] dataSources, CompiledTemplate compiledTemplate) {
+        super(report, dataSources, compiledTemplate);
+    }
+
     /**
      * Fill <code>ListLine</code>.
      *
@@ -42,7 +57,7 @@ public class ListFillJob extends FillJob {
      * @param source data source for this <code>ListLine</code>.
      * @return result in form of <code>List</code> of <code>Line</code>.
      */
-    private List<Line> fillListLine(ListLine listLine, Collection source) {
+    private List<Line> fillListLine(ListLine listLine, Iterable<?> source) {
         Report subreport = new Report(report.getContentLinesPerPage(), listLine.getHeader(), listLine.getFooter());
         int listLineNumber = listLine.getLineNumber() == null ? 1 : listLine.getLineNumber();
         int startLines = listLine.getHeader().length + listLineNumber - report.getHeader().length;
@@ -54,13 +69,16 @@ public class ListFillJob extends FillJob {
         LOG.fine("List start at line [" + startLines + "]");
         subreport.newPage(false, startLines);
 
+        TextSegment[] segments = TextSegment.tokenize(listLine.getLineSource());
+        DataSourceBinding lineContext = new DataSourceBinding(new DataSource[0]);
         for (Object entry: source) {
             dataSources = new DataSource[] {DataSources.from(entry)};
-            DataSourceBinding lineContext = new DataSourceBinding(dataSources);
+            lineContext.reset(dataSources);
             scriptEngine.setBindings(lineContext, ScriptContext.ENGINE_SCOPE);
-            String result = fillBasicPlaceholder(listLine.getLineSource());
-            result = fillScriptPlaceholder(result);
-            LOG.fine("Add new line [" + result + "] from source [" + entry + "]");
+            String result = fillPlaceholders(segments);
+            if (LOG.isLoggable(Level.FINE)) {
+                LOG.fine("Add new line [" + result + "] from source [" + entry + "]");
+            }
             subreport.append(new TextLine(result), false);
         }
 
@@ -77,23 +95,28 @@ public class ListFillJob extends FillJob {
     public String fill() {
         Page page;
         DataSource[] globalDataSources = Arrays.copyOf(dataSources, dataSources.length);
-        while ((page = report.getFirstPageWithListLines()) != null) {
-            ListLine listLine = page.getListLines().get(0);
-            page.removeLine(listLine);
-            Object dataSource = (new ScriptPlaceholder(listLine.getSource(), scriptEngine)).getValue(globalDataSources);
-            if (dataSource instanceof Collection) {
-                List<Line> results = fillListLine(listLine, (Collection) dataSource);
-                Collections.reverse(results);
-                for (Line result : results) {
-                    LOG.fine("Add new line [" + result.toString() + "]");
-                    report.insert(result, page.getPageNumber(), listLine.getLineNumber());
+        try {
+            while ((page = report.getFirstPageWithListLines()) != null) {
+                ListLine listLine = page.getListLines().get(0);
+                page.removeLine(listLine);
+                Object dataSource = createScriptPlaceholder(listLine.getSource()).getValue(globalDataSources);
+                Iterable<?> rows = toIterable(dataSource);
+                if (rows != null) {
+                    List<Line> results = fillListLine(listLine, rows);
+                    Collections.reverse(results);
+                    for (Line result : results) {
+                        LOG.fine("Add new line [" + result.toString() + "]");
+                        report.insert(result, page.getPageNumber(), listLine.getLineNumber());
+                    }
+                } else if (dataSource == null) {
+                    LOG.warning("List was skipped because data source was null.");
+                } else {
+                    throw new InvalidPlaceholder("Data source must be an Iterable, an array, an Iterator or a Stream " +
+                            "but found [" + dataSource + "] as a [" + dataSource.getClass() + "].");
                 }
-            } else if (dataSource == null) {
-                LOG.warning("List was skipped because data source was null.");
-            } else {
-                throw new InvalidPlaceholder("Data source must be a Collection but found [" + dataSource +
-                        "] as a [" + dataSource.getClass() + "].");
             }
+        } finally {
+            releaseScriptEngine();
         }
         return null;
     }
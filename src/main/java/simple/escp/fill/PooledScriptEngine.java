@@ -0,0 +1,126 @@
+/*
+ * Copyright 2014 Jocki Hendry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.escp.fill;
+
+import javax.script.AbstractScriptEngine;
+import javax.script.Bindings;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+import javax.script.ScriptException;
+import javax.script.SimpleBindings;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A <code>ScriptEngine</code> that is used by a single <code>FillJob</code>.  It has its own
+ * <code>ScriptContext</code>, but scripts are executed by an engine that is borrowed from a
+ * {@link ScriptEnginePool}.  The engine is only borrowed when a script is executed and is returned by calling
+ * {@link #release()}.
+ *
+ * <p>Scripts are compiled by using {@link ScriptEnginePool#compile(ScriptEngine, String)} if the engine supports
+ * it.  Compiled scripts are also remembered by this <code>PooledScriptEngine</code> until the engine is returned,
+ * so evaluating the same script for every row doesn't need to search the cache of pool.
+ */
+class PooledScriptEngine extends AbstractScriptEngine {
+
+    private final ScriptEnginePool pool;
+    private ScriptEngine engine;
+    private final Map<String, CompiledScript> compiledScripts = new HashMap<>();
+
+    /**
+     * Create a new <code>PooledScriptEngine</code>.
+     *
+     * @param pool the pool that provides script engines.
+     * @param globalBindings the bindings for global scope.
+     */
+    PooledScriptEngine(ScriptEnginePool pool, Bindings globalBindings) {
+        this.pool = pool;
+        getContext().setBindings(globalBindings, ScriptContext.GLOBAL_SCOPE);
+    }
+
+    /**
+     * Borrow an engine from pool if this <code>PooledScriptEngine</code> doesn't have one.
+     *
+     * @return the borrowed engine.
+     * @throws ScriptException if no script engine is available.
+     */
+    private ScriptEngine getEngine() throws ScriptException {
+        if (engine == null) {
+            engine = pool.acquire();
+            if (engine == null) {
+                throw new ScriptException("No script engine is available.");
+            }
+        }
+        return engine;
+    }
+
+    /**
+     * Return the borrowed engine to pool.  A new engine will be borrowed if another script is executed.
+     */
+    void release() {
+        if (engine != null) {
+            pool.release(engine);
+            engine = null;
+            compiledScripts.clear();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object eval(String script, ScriptContext context) throws ScriptException {
+        ScriptEngine current = getEngine();
+        CompiledScript compiledScript = compiledScripts.get(script);
+        if (compiledScript == null) {
+            compiledScript = pool.compile(current, script);
+            if (compiledScript == null) {
+                return current.eval(script, context);
+            }
+            compiledScripts.put(script, compiledScript);
+        }
+        return compiledScript.eval(context);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object eval(Reader reader, ScriptContext context) throws ScriptException {
+        return getEngine().eval(reader, context);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Bindings createBindings() {
+        return new SimpleBindings();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ScriptEngineFactory getFactory() {
+        return pool.getFactory();
+    }
+
+}
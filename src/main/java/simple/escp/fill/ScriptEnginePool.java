@@ -0,0 +1,353 @@
+/*
+ * Copyright 2014 Jocki Hendry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.escp.fill;
+
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * A <code>ScriptEnginePool</code> provides script engines that are shared by all <code>FillJob</code>.  Script
+ * engines are expensive to create, so they are created once and reused by the next filling.  Every
+ * <code>FillJob</code> evaluates scripts with its own <code>ScriptContext</code>, so variables are never shared
+ * between fillings.
+ *
+ * <p>The first engine name that is available will be used.  If the engine declares that it can be used by multiple
+ * threads, such as Groovy, a single engine is shared by all fillings.  Otherwise, an engine is only used by one
+ * filling at a time.  A new engine is created if all engines are in use, and at most <code>maximumIdle</code>
+ * engines are kept when they are released.
+ *
+ * <p>If the engine implements <code>Compilable</code>, every script is compiled once per engine and the
+ * <code>CompiledScript</code> is shared by all fillings, so the same script in every row of a table doesn't need to
+ * be parsed again.  Number of compiled scripts is limited.  If the limit is reached, the least recently used
+ * script will be removed.  Scripts compiled by an engine are also removed when the engine is discarded because
+ * there are already <code>maximumIdle</code> idle engines.
+ *
+ * <p>The pool used by <code>FillJob</code> can be replaced by calling
+ * {@link FillJob#setScriptEnginePool(ScriptEnginePool)}.  Calling {@link #warmUp(int)} when application starts
+ * will avoid creating engines when printing the first report.
+ */
+public class ScriptEnginePool {
+
+    private static final Logger LOG = Logger.getLogger("simple.escp");
+    public static final String[] DEFAULT_ENGINE_NAMES = {"groovy", "JavaScript"};
+    public static final int DEFAULT_MAXIMUM_IDLE = 4;
+    public static final int DEFAULT_MAXIMUM_COMPILED_SCRIPTS = 1000;
+    public static final String WARM_UP_SCRIPT = "1 + 1";
+    private static final int INITIAL_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final String[] engineNames;
+    private final int maximumIdle;
+    private final int maximumCompiledScripts;
+    private final Map<ScriptKey, CompiledScript> compiledScripts;
+    private final Deque<ScriptEngine> idleEngines = new ArrayDeque<>();
+    private boolean resolved;
+    private ScriptEngineFactory factory;
+    private ScriptEngine sharedEngine;
+
+    /**
+     * Create a new <code>ScriptEnginePool</code> that prefers Groovy and will use JavaScript if Groovy is not
+     * available.
+     */
+    public ScriptEnginePool() {
+        this(DEFAULT_MAXIMUM_IDLE, DEFAULT_MAXIMUM_COMPILED_SCRIPTS, DEFAULT_ENGINE_NAMES);
+    }
+
+    /**
+     * Create a new <code>ScriptEnginePool</code>.
+     *
+     * @param maximumIdle the maximum number of engines that are kept when they are not used.
+     * @param engineNames the name of script engines in order of preference, such as <code>"groovy"</code> or
+     *                    <code>"JavaScript"</code>.
+     */
+    public ScriptEnginePool(int maximumIdle, String... engineNames) {
+        this(maximumIdle, DEFAULT_MAXIMUM_COMPILED_SCRIPTS, engineNames);
+    }
+
+    /**
+     * Create a new <code>ScriptEnginePool</code>.
+     *
+     * @param maximumIdle the maximum number of engines that are kept when they are not used.
+     * @param maximumCompiledScripts the maximum number of compiled scripts that are kept, or <code>0</code> to
+     *                               always evaluate scripts without compiling them.
+     * @param engineNames the name of script engines in order of preference, such as <code>"groovy"</code> or
+     *                    <code>"JavaScript"</code>.
+     */
+    public ScriptEnginePool(int maximumIdle, final int maximumCompiledScripts, String... engineNames) {
+        if (maximumCompiledScripts < 0) {
+            throw new IllegalArgumentException("Maximum number of compiled scripts can't be negative: " +
+                maximumCompiledScripts);
+        }
+        if (maximumIdle < 0) {
+            throw new IllegalArgumentException("Maximum number of idle engines can't be negative: " + maximumIdle);
+        }
+        if (engineNames.length == 0) {
+            throw new IllegalArgumentException("At least one engine name is required.");
+        }
+        this.maximumIdle = maximumIdle;
+        this.maximumCompiledScripts = maximumCompiledScripts;
+        this.engineNames = Arrays.copyOf(engineNames, engineNames.length);
+        this.compiledScripts = new LinkedHashMap<ScriptKey, CompiledScript>(INITIAL_CAPACITY, LOAD_FACTOR, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ScriptKey, CompiledScript> eldest) {
+                return size() > maximumCompiledScripts;
+            }
+        };
+    }
+
+    /**
+     * Search for the first available script engine.  This is only performed once.
+     */
+    private void resolve() {
+        if (resolved) {
+            return;
+        }
+        resolved = true;
+        ScriptEngineManager manager = new ScriptEngineManager();
+        for (String engineName : engineNames) {
+            ScriptEngine engine = manager.getEngineByName(engineName);
+            if (engine != null) {
+                LOG.fine("Use [" + engineName + "] script engine.");
+                factory = engine.getFactory();
+                if (factory.getParameter("THREADING") != null) {
+                    sharedEngine = engine;
+                } else {
+                    idleEngines.push(engine);
+                }
+                return;
+            }
+            LOG.fine("Can't find [" + engineName + "] script engine.");
+        }
+        LOG.warning("Can't find script engine " + Arrays.toString(engineNames) + ", scripts can't be executed.");
+    }
+
+    /**
+     * Retrieve the factory of script engines in this pool.
+     *
+     * @return the factory or <code>null</code> if no engine is available.
+     */
+    public synchronized ScriptEngineFactory getFactory() {
+        resolve();
+        return factory;
+    }
+
+    /**
+     * Determine if a single engine is shared by all fillings.
+     *
+     * @return <code>true</code> if the engine can be used by multiple threads.
+     */
+    public synchronized boolean isShared() {
+        resolve();
+        return sharedEngine != null;
+    }
+
+    /**
+     * Retrieve the number of engines that are not being used.
+     *
+     * @return the number of idle engines.
+     */
+    public synchronized int getIdleCount() {
+        return idleEngines.size();
+    }
+
+    /**
+     * Retrieve an engine from this pool.  The engine should be returned by calling
+     * {@link #release(ScriptEngine)} after it is no longer used.
+     *
+     * @return a script engine or <code>null</code> if no engine is available.
+     */
+    public synchronized ScriptEngine acquire() {
+        resolve();
+        if (sharedEngine != null) {
+            return sharedEngine;
+        }
+        if (!idleEngines.isEmpty()) {
+            return idleEngines.pop();
+        }
+        if (factory == null) {
+            return null;
+        }
+        LOG.fine("Create a new script engine.");
+        return factory.getScriptEngine();
+    }
+
+    /**
+     * Return an engine to this pool.
+     *
+     * @param engine the engine that was retrieved by calling {@link #acquire()}.
+     */
+    public synchronized void release(ScriptEngine engine) {
+        if ((engine == null) || (engine == sharedEngine)) {
+            return;
+        }
+        if (idleEngines.size() < maximumIdle) {
+            idleEngines.push(engine);
+        } else {
+            removeCompiledScripts(engine);
+        }
+    }
+
+    /**
+     * Remove all scripts that were compiled by an engine, so that the engine can be garbage collected after it is
+     * discarded by this pool.
+     *
+     * @param engine the engine that is no longer kept by this pool.
+     */
+    private void removeCompiledScripts(ScriptEngine engine) {
+        synchronized (compiledScripts) {
+            Iterator<ScriptKey> keys = compiledScripts.keySet().iterator();
+            while (keys.hasNext()) {
+                if (keys.next().engine == engine) {
+                    keys.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Retrieve the compiled form of a script.  The script is only compiled if it hasn't been compiled by the same
+     * engine before.  The engine should not be used by other thread unless it is shared.
+     *
+     * @param engine the engine that was retrieved by calling {@link #acquire()}.
+     * @param script the script that will be compiled.
+     * @return the compiled script or <code>null</code> if the engine doesn't implement <code>Compilable</code>.
+     * @throws ScriptException if the script can't be compiled.
+     */
+    public CompiledScript compile(ScriptEngine engine, String script) throws ScriptException {
+        if (!(engine instanceof Compilable) || (maximumCompiledScripts == 0)) {
+            return null;
+        }
+        ScriptKey key = new ScriptKey(engine, script);
+        CompiledScript result;
+        synchronized (compiledScripts) {
+            result = compiledScripts.get(key);
+        }
+        if (result == null) {
+            LOG.fine("Compile script [" + script + "]");
+            result = ((Compilable) engine).compile(script);
+            synchronized (compiledScripts) {
+                compiledScripts.put(key, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Retrieve the number of compiled scripts in this pool.
+     *
+     * @return the number of compiled scripts.
+     */
+    public int getCompiledScriptCount() {
+        synchronized (compiledScripts) {
+            return compiledScripts.size();
+        }
+    }
+
+    /**
+     * Remove all compiled scripts from this pool.
+     */
+    public void clearCompiledScripts() {
+        synchronized (compiledScripts) {
+            compiledScripts.clear();
+        }
+    }
+
+    /**
+     * Create engines and execute a simple script in them, so that engines are ready before the first report is
+     * filled.
+     *
+     * @param count the number of engines that will be prepared.  This number should not be bigger than
+     *              <code>maximumIdle</code>.
+     */
+    public void warmUp(int count) {
+        List<ScriptEngine> engines = new ArrayList<>();
+        try {
+            for (int i = 0; i < count; i++) {
+                ScriptEngine engine = acquire();
+                if (engine == null) {
+                    return;
+                }
+                engines.add(engine);
+                engine.eval(WARM_UP_SCRIPT);
+                if (engine == sharedEngine) {
+                    return;
+                }
+            }
+        } catch (ScriptException e) {
+            LOG.warning("Can't warm up script engine: " + e.getMessage());
+        } finally {
+            for (ScriptEngine engine : engines) {
+                release(engine);
+            }
+        }
+    }
+
+    /**
+     * The key of a compiled script.  Engines are compared by their identity.
+     */
+    private static final class ScriptKey {
+
+        private final ScriptEngine engine;
+        private final String script;
+
+        /**
+         * Create a new <code>ScriptKey</code>.
+         *
+         * @param engine the engine that compiles the script.
+         * @param script the source of script.
+         */
+        ScriptKey(ScriptEngine engine, String script) {
+            this.engine = engine;
+            this.script = script;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof ScriptKey)) {
+                return false;
+            }
+            ScriptKey other = (ScriptKey) o;
+            return (engine == other.engine) && script.equals(other.script);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(engine) ^ script.hashCode();
+        }
+
+    }
+
+}
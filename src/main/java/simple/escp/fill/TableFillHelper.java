@@ -16,21 +16,26 @@
 
 package simple.escp.fill;
 
+import simple.escp.CompiledTemplate;
+import simple.escp.data.ColumnarTable;
 import simple.escp.data.DataSource;
 import simple.escp.data.DataSources;
+import simple.escp.data.MapDataSource;
 import simple.escp.dom.Line;
 import simple.escp.dom.Report;
 import simple.escp.dom.TableColumn;
 import simple.escp.dom.line.TableLine;
 import simple.escp.dom.line.TextLine;
 import simple.escp.placeholder.Placeholder;
+import simple.escp.placeholder.PlaceholderSpec;
 import simple.escp.placeholder.ScriptPlaceholder;
 import simple.escp.util.EscpUtil;
 import simple.escp.util.StringUtil;
 import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
-import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -42,10 +47,12 @@ public class TableFillHelper {
 
     private Report report;
     private TableLine tableLine;
-    private Collection source;
+    private Iterable<?> source;
     private ScriptEngine scriptEngine;
     private WrappedBuffer wrappedBuffer;
     private Placeholder[] placeholders;
+    private CompiledTemplate compiledTemplate;
+    private int[] columnIndexes;
 
     /**
      * Create a new instance of this helper class.
@@ -55,8 +62,24 @@ public class TableFillHelper {
      * @param tableLine the <code>TableLine</code> to be filled.
      * @param source source for <code>tableLine</code>.
      */
-    public TableFillHelper(Report report, ScriptEngine scriptEngine, TableLine tableLine, Collection source) {
+    public TableFillHelper(Report report, ScriptEngine scriptEngine, TableLine tableLine, Iterable<?> source) {
+        this(report, scriptEngine, tableLine, source, null);
+    }
+
+    /**
+     * Create a new instance of this helper class that reuses pre-parsed placeholders.
+     *
+     * @param report <code>flush()</code> method will add new <code>TextLine</code> to this <code>Report</code>.
+     * @param scriptEngine the <code>ScriptEngine</code> for evaluating placeholders.
+     * @param tableLine the <code>TableLine</code> to be filled.
+     * @param source source for <code>tableLine</code>.
+     * @param compiledTemplate the <code>CompiledTemplate</code> that provides pre-parsed placeholders, or
+     *                         <code>null</code> if placeholders should be parsed by this helper.
+     */
+    public TableFillHelper(Report report, ScriptEngine scriptEngine, TableLine tableLine, Iterable<?> source,
+                           CompiledTemplate compiledTemplate) {
         this.report = report;
+        this.compiledTemplate = compiledTemplate;
         this.scriptEngine = scriptEngine;
         this.tableLine = tableLine;
         this.source = source;
@@ -69,15 +92,47 @@ public class TableFillHelper {
      * for every columns.
      */
     private void preparePlaceholders() {
-        placeholders = new ScriptPlaceholder[tableLine.getNumberOfColumns()];
+        placeholders = new Placeholder[tableLine.getNumberOfColumns()];
         LOG.fine("Preparing " + placeholders.length + " placeholders");
         for (int i = 0; i < tableLine.getNumberOfColumns(); i++) {
             TableColumn column = tableLine.getColumnAt(i + 1);
-            placeholders[i] = new ScriptPlaceholder(column.getText(), scriptEngine);
+            if (compiledTemplate != null) {
+                placeholders[i] = compiledTemplate.createColumnPlaceholder(column.getText(), scriptEngine);
+            }
+            if (placeholders[i] == null) {
+                placeholders[i] = new ScriptPlaceholder(column.getText(), scriptEngine);
+            }
             if (!column.isWrap()) {
                 placeholders[i].setWidth(column.getWidth() - (tableLine.isDrawBorder() ? 1 : 0));
             }
         }
+        if (source instanceof ColumnarTable) {
+            ColumnarTable table = (ColumnarTable) source;
+            columnIndexes = new int[placeholders.length];
+            for (int i = 0; i < placeholders.length; i++) {
+                columnIndexes[i] = table.getColumnIndex(PlaceholderSpec.forScript(
+                    tableLine.getColumnAt(i + 1).getText()).getName());
+            }
+        }
+    }
+
+    /**
+     * Read and format the value of a column directly from a <code>ColumnarTable</code>.
+     *
+     * @param index the index of table column.
+     * @param cursor the cursor of current row.
+     * @return the formatted value.
+     */
+    private String getColumnarValue(int index, ColumnarTable.Cursor cursor) {
+        ColumnarTable table = cursor.getTable();
+        int column = columnIndexes[index];
+        Class<?> type = table.getColumnType(column);
+        if (type == long.class) {
+            return placeholders[index].getFormattedLong(table.getLong(column, cursor.getRow())).toString();
+        } else if (type == double.class) {
+            return placeholders[index].getFormattedDouble(table.getDouble(column, cursor.getRow())).toString();
+        }
+        return placeholders[index].getFormatted(table.getObject(column, cursor.getRow())).toString();
     }
 
     /**
@@ -131,11 +186,28 @@ public class TableFillHelper {
      */
     public List<Line> process() {
         int rowNumber = 1;
-        for (Object entry: source) {
-            LOG.fine("Row number [" + rowNumber + "] Source [" + entry + "]");
+        DataSourceBinding lineContext = new DataSourceBinding(new DataSource[0]);
+        DataSource[] cursorDataSources = null;
+        Iterator<?> iterator = source.iterator();
+        while (iterator.hasNext()) {
+            Object entry = iterator.next();
+            if (LOG.isLoggable(Level.FINE)) {
+                // Printing a cursor would read and box every column of the row.
+                LOG.fine("Row number [" + rowNumber + "] Source [" + ((columnIndexes != null) ?
+                    "ColumnarTable row " + ((ColumnarTable.Cursor) entry).getRow() : entry) + "]");
+            }
             StringBuilder text = new StringBuilder();
-            DataSource[] entryDataSources = DataSources.from(new Object[]{entry});
-            DataSourceBinding lineContext = new DataSourceBinding(entryDataSources);
+            DataSource[] entryDataSources;
+            if (columnIndexes != null) {
+                // The cursor of ColumnarTable is the same object for every row.
+                if (cursorDataSources == null) {
+                    cursorDataSources = new DataSource[] {new MapDataSource((ColumnarTable.Cursor) entry)};
+                }
+                entryDataSources = cursorDataSources;
+            } else {
+                entryDataSources = DataSources.from(new Object[]{entry});
+            }
+            lineContext.reset(entryDataSources);
             lineContext.put("row", rowNumber);
             scriptEngine.setBindings(lineContext, ScriptContext.ENGINE_SCOPE);
 
@@ -144,7 +216,9 @@ public class TableFillHelper {
             for (int i = 0; i < tableLine.getNumberOfColumns(); i++) {
                 lineContext.put("col", i + 1);
                 TableColumn column = tableLine.getColumnAt(i + 1);
-                String value = placeholders[i].getValueAsString(entryDataSources);
+                String value = ((columnIndexes != null) && (columnIndexes[i] >= 0)) ?
+                    getColumnarValue(i, (ColumnarTable.Cursor) entry) :
+                    placeholders[i].getValueAsString(entryDataSources);
                 if (column.isWrap()) {
                     values[i] = wrappedBuffer.add(i, value);
                 } else {
@@ -163,7 +237,7 @@ public class TableFillHelper {
             }
             report.append(new TextLine(text.toString()), false);
             wrappedBuffer.flush();
-            if (rowNumber < source.size() && tableLine.isDrawLineSeparator()) {
+            if (iterator.hasNext() && tableLine.isDrawLineSeparator()) {
                 report.append(new TextLine(lineSeparator()), false);
             }
             rowNumber++;
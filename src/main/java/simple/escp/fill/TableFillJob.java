@@ -1,20 +1,21 @@
 package simple.escp.fill;
 
+import simple.escp.CompiledTemplate;
 import simple.escp.data.DataSource;
 import simple.escp.dom.Line;
 import simple.escp.dom.Page;
 import simple.escp.dom.Report;
 import simple.escp.dom.line.TableLine;
 import simple.escp.exception.InvalidPlaceholder;
-import simple.escp.placeholder.ScriptPlaceholder;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.logging.Logger;
 
 /**
  * <code>TableFillJob</code> represent the process of filling a <code>TableLine</code> with its source in form
- * of a <code>Collection</code>.
+ * of a <code>Collection</code>, another <code>Iterable</code>, an array, an <code>Iterator</code> or a
+ * <code>Stream</code> (see {@link #toIterable(Object)}).  The source is only iterated once, so it can read its
+ * elements while the table is being filled.
  */
 public class TableFillJob extends FillJob {
 
@@ -31,6 +32,19 @@ public class TableFillJob extends FillJob {
         super(report, dataSources);
     }
 
+    /**
+     * Create a new instance of <code>TableFillJob</code> that reuses pre-parsed placeholders.
+     *
+     * @param report the target destination of this <code>FillJob</code>.  This <code>FillJob</code> will not
+     *               return any value but directly modify destination <code>report</code>.
+     * @param dataSources  global data source for this <code>FillJob</code>.
+     * @param compiledTemplate the <code>CompiledTemplate</code> that provides pre-parsed placeholders, or
+     *                         <code>null</code> if placeholders should be parsed during filling.
+     */
+    public TableFillJob(Report report, DataSource[] dataSources, CompiledTemplate compiledTemplate) {
+        super(report, dataSources, compiledTemplate);
+    }
+
     /**
      * Fill <code>TableLine</code>.
      *
@@ -38,7 +52,7 @@ public class TableFillJob extends FillJob {
      * @param source data source for this <code>TableLine</code>.
      * @return result in form of <code>List</code> of <code>Line</code>.
      */
-    private List<Line> fillTableLine(TableLine tableLine, Collection source) {
+    private List<Line> fillTableLine(TableLine tableLine, Iterable<?> source) {
         if (source == null) {
             throw new InvalidPlaceholder("Source for table can't be null.");
         }
@@ -52,7 +66,8 @@ public class TableFillJob extends FillJob {
         }
         LOG.fine("Table start at line [" + startLines + "]");
         subreport.newPage(false, startLines);
-        TableFillHelper helper = new TableFillHelper(subreport, scriptEngine, tableLine, source);
+        TableFillHelper helper = new TableFillHelper(subreport, scriptEngine, tableLine, source,
+            compiledTemplate);
         return helper.process();
     }
 
@@ -65,24 +80,29 @@ public class TableFillJob extends FillJob {
     @Override
     public String fill() {
         Page page;
-        while ((page = report.getFirstPageWithTableLines()) != null) {
-            TableLine tableLine = page.getTableLines().get(0);
-            page.removeLine(tableLine);
-            Object dataSource = (new ScriptPlaceholder(tableLine.getSource(), scriptEngine)).getValue(dataSources);
-            if (dataSource instanceof Collection) {
-                LOG.fine("Datasource is [" + dataSource + "]");
-                List<Line> results = fillTableLine(tableLine, (Collection) dataSource);
-                Collections.reverse(results);
-                for (Line result : results) {
-                    LOG.fine("Add new line [" + result.toString() + "]");
-                    report.insert(result, page.getPageNumber(), tableLine.getLineNumber());
+        try {
+            while ((page = report.getFirstPageWithTableLines()) != null) {
+                TableLine tableLine = page.getTableLines().get(0);
+                page.removeLine(tableLine);
+                Object dataSource = createScriptPlaceholder(tableLine.getSource()).getValue(dataSources);
+                Iterable<?> rows = toIterable(dataSource);
+                if (rows != null) {
+                    LOG.fine("Datasource is [" + dataSource + "]");
+                    List<Line> results = fillTableLine(tableLine, rows);
+                    Collections.reverse(results);
+                    for (Line result : results) {
+                        LOG.fine("Add new line [" + result.toString() + "]");
+                        report.insert(result, page.getPageNumber(), tableLine.getLineNumber());
+                    }
+                } else if (dataSource == null) {
+                    LOG.warning("Table was skipped because data source was null.");
+                } else {
+                    throw new InvalidPlaceholder("Data source must be an Iterable, an array, an Iterator or a Stream " +
+                            "but found [" + dataSource + "] as a [" + dataSource.getClass() + "]");
                 }
-            } else if (dataSource == null) {
-                LOG.warning("Table was skipped because data source was null.");
-            } else {
-                throw new InvalidPlaceholder("Data source must be a Collection but found [" + dataSource +
-                        "] as a [" + dataSource.getClass() + "]");
             }
+        } finally {
+            releaseScriptEngine();
         }
         return null;
     }
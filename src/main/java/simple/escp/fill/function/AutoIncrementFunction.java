@@ -30,7 +30,7 @@ public class AutoIncrementFunction extends Function {
      * Create a new instance of this function.
      */
     public AutoIncrementFunction() {
-        super("%\\{\\s*INC\\s*(\\w+)\\s*\\}");
+        super("%\\{\\s*INC\\s*(\\w+)\\s*\\}", "INC");
         variables = new HashMap<>();
     }
 
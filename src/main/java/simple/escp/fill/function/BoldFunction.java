@@ -20,7 +20,7 @@ public class BoldFunction extends Function {
      * Create new instance of this function.
      */
     public BoldFunction() {
-        super("%\\{\\s*(BOLD)\\s*\\}");
+        super("%\\{\\s*(BOLD)\\s*\\}", "BOLD");
         bold = false;
     }
 
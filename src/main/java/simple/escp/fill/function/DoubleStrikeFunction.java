@@ -20,7 +20,7 @@ public class DoubleStrikeFunction extends Function {
      * Create new instance of this function.
      */
     public DoubleStrikeFunction() {
-        super("%\\{\\s*(DOUBLE)\\s*\\}");
+        super("%\\{\\s*(DOUBLE)\\s*\\}", "DOUBLE");
         doubleStrike = false;
     }
 
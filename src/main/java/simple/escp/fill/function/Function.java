@@ -4,23 +4,53 @@ import simple.escp.dom.Line;
 import simple.escp.dom.Page;
 import simple.escp.dom.Report;
 import simple.escp.dom.line.TextLine;
+import simple.escp.dom.line.TextSegment;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * This class represents a function that can be called in JSON template by using expression in <code>%{...}</code>
  * format.
+ *
+ * <p>Built-in functions are only matched against whole <code>%{...}</code> tokens.  Functions that are registered by
+ * <code>FillJob.addFunction()</code> are searched in the whole text of every line, so their pattern may match any
+ * text.
  */
 public abstract class Function {
 
     private Pattern pattern;
+    private String name;
 
     /**
-     * Create a new function with the specified regex pattern.
+     * Create a new function with the specified regex pattern.  A function without name will be tried by matching
+     * its pattern against every function token that is not claimed by a named function.
+     *
      * @param pattern a regex pattern to identify this function.
      */
     public Function(String pattern) {
+        this(pattern, null);
+    }
+
+    /**
+     * Create a new function with the specified regex pattern and name.  The name is the first word inside
+     * <code>%{...}</code>, for example <code>INC</code> for <code>%{INC A}</code>.  It is used to find this
+     * function without matching the pattern of other functions.
+     *
+     * @param pattern a regex pattern to identify this function.
+     * @param name the name of this function or <code>null</code> if this function doesn't have a fixed name.
+     */
+    public Function(String pattern, String name) {
         this.pattern = Pattern.compile(pattern);
+        this.name = name;
+    }
+
+    /**
+     * Retrieve the name of this function.
+     *
+     * @return the name of this function or <code>null</code> if this function doesn't have a fixed name.
+     */
+    public String getName() {
+        return name;
     }
 
     /**
@@ -61,9 +91,27 @@ public abstract class Function {
      */
     public abstract void reset();
 
+    /**
+     * Evaluate a function token.
+     *
+     * @param segment a segment of type {@link TextSegment.Type#FUNCTION}.
+     * @param report current report that is being evaluated.
+     * @param page current page that is being evaluated.
+     * @param line current line that is being evaluated.
+     * @return result of this function or <code>null</code> if <code>segment</code> doesn't match this function.
+     */
+    public String process(TextSegment segment, Report report, Page page, Line line) {
+        Matcher matcher = pattern.matcher(segment.getText());
+        return matcher.matches() ? process(matcher, report, page, line) : null;
+    }
+
     /**
      * Find this function in <code>report</code> and translates them into actual value.  This method will
-     * process all lines in all pages of <code>report</code>.
+     * process all lines in all pages of <code>report</code>.  Lines that don't contain function will not be
+     * modified.
+     *
+     * <p><code>FillJob</code> doesn't use this method.  It evaluates all functions while filling placeholders
+     * by using {@link FunctionDispatcher}.
      *
      * @param report process this report.
      */
@@ -71,15 +119,20 @@ public abstract class Function {
         for (Page page : report) {
             for (int i = 1; i <= page.getNumberOfLines(); i++) {
                 Line line = page.getLine(i);
-                if (line instanceof TextLine) {
+                if ((line instanceof TextLine) && ((TextLine) line).hasFunction()) {
                     String text = ((TextLine) line).getText();
-                    StringBuffer result = new StringBuffer();
+                    StringBuilder result = new StringBuilder();
                     Matcher matcher = pattern.matcher(text);
+                    int start = 0;
                     while (matcher.find()) {
-                        matcher.appendReplacement(result, process(matcher, report, page, line));
+                        result.append(text, start, matcher.start());
+                        result.append(process(matcher, report, page, line));
+                        start = matcher.end();
+                    }
+                    if (start > 0) {
+                        result.append(text, start, text.length());
+                        page.setLine(i, new TextLine(result.toString()));
                     }
-                    matcher.appendTail(result);
-                    page.setLine(i, new TextLine(result.toString()));
                 }
             }
         }
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2014 Jocki Hendry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.escp.fill.function;
+
+import simple.escp.dom.Line;
+import simple.escp.dom.Page;
+import simple.escp.dom.Report;
+import simple.escp.dom.line.TextSegment;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+
+/**
+ * <code>FunctionDispatcher</code> evaluates function tokens (<code>%{...}</code>) that were found when a
+ * <code>TextLine</code> is splitted into <code>TextSegment</code>.  A token is dispatched to the function whose
+ * name is the same as the first word of the token, so only the pattern of that function is matched.  If no named
+ * function accepts the token, all functions are tried in order of their registration.
+ *
+ * <p>Text functions are not limited to function tokens.  Their pattern is searched in the whole text of a line, so
+ * they may match any text, for example a pattern that doesn't start with <code>%{</code>.
+ */
+public class FunctionDispatcher {
+
+    private final Map<String, Function> namedFunctions = new HashMap<>();
+    private final List<Function> functions;
+    private final List<Function> textFunctions;
+
+    /**
+     * Create a new instance of <code>FunctionDispatcher</code> without text functions.
+     *
+     * @param functions the available functions.  If more than one function have the same name, the first one
+     *                  will be used.
+     */
+    public FunctionDispatcher(List<Function> functions) {
+        this(functions, Collections.<Function>emptyList());
+    }
+
+    /**
+     * Create a new instance of <code>FunctionDispatcher</code>.
+     *
+     * @param functions the functions that are evaluated for function tokens.  If more than one function have the
+     *                  same name, the first one will be used.
+     * @param textFunctions the functions whose pattern is searched in the whole text of a line.
+     */
+    public FunctionDispatcher(List<Function> functions, List<Function> textFunctions) {
+        this.functions = new ArrayList<>(functions);
+        this.textFunctions = new ArrayList<>(textFunctions);
+        for (Function function : this.functions) {
+            String name = function.getName();
+            if ((name != null) && !namedFunctions.containsKey(name)) {
+                namedFunctions.put(name, function);
+            }
+        }
+    }
+
+    /**
+     * Retrieve the name of a function token, which is the first word inside <code>%{...}</code>.
+     *
+     * @param segment a segment of type {@link TextSegment.Type#FUNCTION}.
+     * @return the name of function.
+     */
+    public static String getName(TextSegment segment) {
+        String content = segment.getContent().trim();
+        for (int i = 0; i < content.length(); i++) {
+            if (Character.isWhitespace(content.charAt(i))) {
+                return content.substring(0, i);
+            }
+        }
+        return content;
+    }
+
+    /**
+     * Evaluate a function token.
+     *
+     * @param segment a segment of type {@link TextSegment.Type#FUNCTION}.
+     * @param report current report that is being evaluated.
+     * @param page current page that is being evaluated.
+     * @param line current line that is being evaluated.
+     * @return result of function or <code>null</code> if no function matches <code>segment</code>.
+     */
+    public String process(TextSegment segment, Report report, Page page, Line line) {
+        Function namedFunction = namedFunctions.get(getName(segment));
+        if (namedFunction != null) {
+            String result = namedFunction.process(segment, report, page, line);
+            if (result != null) {
+                return result;
+            }
+        }
+        for (Function function : functions) {
+            if (function != namedFunction) {
+                String result = function.process(segment, report, page, line);
+                if (result != null) {
+                    return result;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Determine if there are functions whose pattern is searched in the whole text of a line.
+     *
+     * @return <code>true</code> if {@link #processText(String, Report, Page, Line)} should be called for every line.
+     */
+    public boolean hasTextFunctions() {
+        return !textFunctions.isEmpty();
+    }
+
+    /**
+     * Evaluate text functions by searching their pattern in the text of a line.  Every match is replaced by the
+     * result of function.  A match that is a function token accepted by other function is left as is, because
+     * text functions have a lower priority.
+     *
+     * @param text the text of line.
+     * @param report current report that is being evaluated.
+     * @param page current page that is being evaluated.
+     * @param line current line that is being evaluated.
+     * @return the text after evaluating text functions or <code>null</code> if no text function matches
+     *         <code>text</code>.
+     */
+    public String processText(String text, Report report, Page page, Line line) {
+        String result = null;
+        for (Function function : textFunctions) {
+            String current = (result == null) ? text : result;
+            Matcher matcher = function.getPattern().matcher(current);
+            StringBuilder replaced = null;
+            int start = 0;
+            while (matcher.find()) {
+                if (isClaimed(matcher.group())) {
+                    continue;
+                }
+                if (replaced == null) {
+                    replaced = new StringBuilder();
+                }
+                replaced.append(current, start, matcher.start());
+                replaced.append(function.process(matcher, report, page, line));
+                start = matcher.end();
+            }
+            if (replaced != null) {
+                replaced.append(current, start, current.length());
+                result = replaced.toString();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Determine if a text is a function token that is accepted by a function that is evaluated for function tokens.
+     *
+     * @param text the matched text.
+     * @return <code>true</code> if <code>text</code> will be evaluated by other function.
+     */
+    private boolean isClaimed(String text) {
+        if (!text.startsWith("%{") || !text.endsWith("}")) {
+            return false;
+        }
+        for (Function function : functions) {
+            if (function.getPattern().matcher(text).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -16,7 +16,7 @@ public class GlobalLineNoFunction extends Function {
      * Create a new instance of this function.
      */
     public GlobalLineNoFunction() {
-        super("%\\{\\s*(GLOBAL_LINE_NO)\\s*\\}");
+        super("%\\{\\s*(GLOBAL_LINE_NO)\\s*\\}", "GLOBAL_LINE_NO");
     }
 
     @Override
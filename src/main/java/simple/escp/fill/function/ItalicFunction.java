@@ -20,7 +20,7 @@ public class ItalicFunction extends Function {
      * Create new instance of this function.
      */
     public ItalicFunction() {
-        super("%\\{\\s*(ITALIC)\\s*\\}");
+        super("%\\{\\s*(ITALIC)\\s*\\}", "ITALIC");
         italic = false;
     }
 
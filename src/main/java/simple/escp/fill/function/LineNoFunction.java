@@ -15,7 +15,7 @@ public class LineNoFunction extends Function {
      * Create a new instance of this function.
      */
     public LineNoFunction() {
-        super("%\\{\\s*(LINE_NO)\\s*\\}");
+        super("%\\{\\s*(LINE_NO)\\s*\\}", "LINE_NO");
     }
 
     @Override
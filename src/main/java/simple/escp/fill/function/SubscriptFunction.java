@@ -20,7 +20,7 @@ public class SubscriptFunction extends Function {
      * Create new instance of this function.
      */
     public SubscriptFunction() {
-        super("%\\{\\s*(SUB)\\s*\\}");
+        super("%\\{\\s*(SUB)\\s*\\}", "SUB");
         subscript = false;
     }
 
@@ -20,7 +20,7 @@ public class SuperscriptFunction extends Function {
      * Create new instance of this function.
      */
     public SuperscriptFunction() {
-        super("%\\{\\s*(SUPER)\\s*\\}");
+        super("%\\{\\s*(SUPER)\\s*\\}", "SUPER");
         superscript = false;
     }
 
@@ -20,7 +20,7 @@ public class UnderlineFunction extends Function {
      * Create new instance of this function.
      */
     public UnderlineFunction() {
-        super("%\\{\\s*(UNDERLINE)\\s*\\}");
+        super("%\\{\\s*(UNDERLINE)\\s*\\}", "UNDERLINE");
         underline = false;
     }
 
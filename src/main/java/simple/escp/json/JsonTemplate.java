@@ -19,17 +19,16 @@ package simple.escp.json;
 import simple.escp.dom.Report;
 import simple.escp.Template;
 import javax.json.Json;
-import javax.json.JsonNumber;
 import javax.json.JsonObject;
-import javax.json.JsonReader;
-import javax.json.JsonString;
 import javax.json.JsonValue;
+import javax.json.stream.JsonParser;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.io.StringReader;
-import java.io.StringWriter;
 import java.net.URI;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
@@ -106,6 +105,8 @@ public class JsonTemplate extends Template {
 
     private static final Logger LOG = Logger.getLogger("simple.escp");
 
+    private static final int BUFFER_SIZE = 8192;
+
     private String originalText;
 
     /**
@@ -168,100 +169,21 @@ public class JsonTemplate extends Template {
      * @throws IOException if error occured when reading the input stream.
      */
     public JsonTemplate(InputStream inputStream, Charset charset) throws IOException {
-        InputStreamReader isr = new InputStreamReader(inputStream, charset);
-        StringWriter sw = new StringWriter();
-        int c;
-        while ((c = isr.read()) != -1) {
-            sw.write(c);
+        Reader reader = new BufferedReader(new InputStreamReader(inputStream, charset));
+        StringBuilder result = new StringBuilder();
+        char[] buffer = new char[BUFFER_SIZE];
+        int length;
+        while ((length = reader.read(buffer)) != -1) {
+            result.append(buffer, 0, length);
         }
-        this.originalText = sw.getBuffer().toString();
+        this.originalText = result.toString();
         LOG.fine("JSON content: " + this.originalText);
     }
 
     /**
-     * Get number from JSON number or JSON string.
+     * Parse <code>"template"</code> section from this JSON template.  {@link #parse()} doesn't use this method
+     * because it reads the template as a stream without creating <code>JsonObject</code>.
      *
-     * @param jsonValue <code>JsonValue</code> that will be parsed.
-     * @return a number represented by <code>jsonValue</code>.
-     */
-    private Integer parseJsonNumber(JsonValue jsonValue) {
-        if (jsonValue.getValueType() == JsonValue.ValueType.NUMBER) {
-            return ((JsonNumber) jsonValue).intValue();
-        } else if (jsonValue.getValueType() == JsonValue.ValueType.STRING) {
-            return Integer.valueOf(((JsonString) jsonValue).getString());
-        }
-        LOG.warning("Can't convert " + jsonValue.toString() + " to number.");
-        throw new IllegalArgumentException("Can't convert " + jsonValue.toString() + " to number.");
-    }
-
-    /**
-     * Parse <code>"pageFormat"</code> section from this JSON template.
-     *
-     * @param json the root JSON of this template.
-     */
-    private void parsePageFormat(JsonObject json) {
-        JsonObject parsedPageFormat = json.getJsonObject("pageFormat");
-        if (parsedPageFormat != null) {
-
-            // Line spacing
-            if (parsedPageFormat.containsKey("lineSpacing")) {
-                pageFormat.setLineSpacing(parsedPageFormat.getString("lineSpacing"));
-            }
-
-            // Character pitch
-            if (parsedPageFormat.containsKey("characterPitch")) {
-                pageFormat.setCharacterPitch(parsedPageFormat.getString("characterPitch"));
-            }
-
-            // Page length
-            if (parsedPageFormat.containsKey("pageLength")) {
-                pageFormat.setPageLength(parseJsonNumber(parsedPageFormat.get("pageLength")));
-            }
-
-            // Page width
-            if (parsedPageFormat.containsKey("pageWidth")) {
-                pageFormat.setPageWidth(parseJsonNumber(parsedPageFormat.get("pageWidth")));
-            }
-
-            // Left margin
-            if (parsedPageFormat.containsKey("leftMargin")) {
-                pageFormat.setLeftMargin(parseJsonNumber(parsedPageFormat.get("leftMargin")));
-            }
-
-            // Right margin
-            if (parsedPageFormat.containsKey("rightMargin")) {
-                pageFormat.setRightMargin(parseJsonNumber(parsedPageFormat.get("rightMargin")));
-            }
-
-            // Bottom margin
-            if (parsedPageFormat.containsKey("bottomMargin")) {
-                pageFormat.setBottomMargin(parseJsonNumber(parsedPageFormat.get("bottomMargin")));
-            }
-
-            // Type face
-            if (parsedPageFormat.containsKey("typeface")) {
-                pageFormat.setTypeface(parsedPageFormat.getString("typeface"));
-            }
-
-            // Auto line-feed
-            if (parsedPageFormat.containsKey("autoLineFeed")) {
-                pageFormat.setAutoLineFeed(parsedPageFormat.getBoolean("autoLineFeed"));
-            }
-
-            // Auto form-feed
-            if (parsedPageFormat.containsKey("autoFormFeed")) {
-                pageFormat.setAutoFormFeed(parsedPageFormat.getBoolean("autoFormFeed"));
-            }
-
-            // Use page length from printer
-            if (parsedPageFormat.containsKey("usePageLengthFromPrinter")) {
-                pageFormat.setUsePrinterPageLength(parsedPageFormat.getBoolean("usePageLengthFromPrinter"));
-            }
-        }
-    }
-
-    /**
-     * Parse <code>"template"</code> section from this JSON template.
      * @param json the root JSON of this template.
      * @return result in <code>Pages</code>.
      */
@@ -312,15 +234,13 @@ public class JsonTemplate extends Template {
 
     /**
      * {@inheritDoc}
+     *
+     * <p>This method is thread-safe.  The template will only be parsed once.
      */
-    public Report parse() {
+    public synchronized Report parse() {
         if (report == null) {
-            try (JsonReader reader = Json.createReader(new StringReader(originalText))) {
-                JsonObject json = reader.readObject();
-                LOG.fine("Parse pageFormat for [" + json + "]");
-                parsePageFormat(json);
-                LOG.fine("Parse template for [" + json + "]");
-                parseTemplateText(json);
+            try (JsonParser parser = Json.createParser(new StringReader(originalText))) {
+                report = new StreamParser(parser, getPageFormat()).parse();
             }
         }
         return report;
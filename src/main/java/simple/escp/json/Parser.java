@@ -25,6 +25,7 @@ import simple.escp.dom.line.TableLine;
 import simple.escp.dom.line.TextLine;
 import javax.json.JsonArray;
 import javax.json.JsonObject;
+import javax.json.JsonString;
 import javax.json.JsonValue;
 import java.util.logging.Logger;
 
@@ -140,7 +141,8 @@ public class Parser {
 
     /**
      * Convert <code>JsonArray</code> into <code>TextLine[]</code>.  This method will <strong>ignore</strong>
-     * non-text line or dynamic line such as <code>TableLine</code>.
+     * non-text line or dynamic line such as <code>TableLine</code>.  Their slots in the result are
+     * <code>null</code>.
      *
      * <p>See also {@link #jsonToLine(javax.json.JsonArray)} for converting to generic <code>Line[]</code>.
      *
@@ -148,7 +150,7 @@ public class Parser {
      * @return result in <code>TextLine[]</code>.
      */
 
-    private TextLine[] jsonToTextLine(JsonArray text) {
+    static TextLine[] jsonToTextLine(JsonArray text) {
         LOG.fine("Converting [" + text + "] into TextLine.");
         int size = (text == null ? 0 : text.size());
         TextLine[] result = new TextLine[size];
@@ -170,7 +172,7 @@ public class Parser {
      * @return result in <code>TableLine</code>.
      */
 
-    private TableLine jsonToTableLine(JsonObject table) {
+    private static TableLine jsonToTableLine(JsonObject table) {
         LOG.fine("Converting [" + table + "] into TableLine.");
         TableLine tableLine = new TableLine(table.getString("table"));
         if (table.containsKey("border")) {
@@ -212,7 +214,7 @@ public class Parser {
      * @param list is the JSON object to convert.
      * @return result in <code>ListLine</code>.
      */
-    private ListLine jsonToListLine(JsonObject list) {
+    private static ListLine jsonToListLine(JsonObject list) {
         LOG.fine("Converting [" + list + "] into ListLine.");
         String source = list.getString("list");
         if (!list.containsKey("line")) {
@@ -240,24 +242,35 @@ public class Parser {
         int size = (text == null ? 0 : text.size());
         Line[] result = new Line[size];
         for (int i = 0; i < size; i++) {
-            JsonValue value = text.get(i);
-            if (value.getValueType() == JsonValue.ValueType.STRING) {
-                result[i] = new TextLine(text.getString(i));
-            } else if (value.getValueType() == JsonValue.ValueType.OBJECT) {
-                JsonObject object = text.getJsonObject(i);
-                if (object.containsKey("table")) {
-                    result[i] = jsonToTableLine(object);
-                } else if (object.containsKey("list")) {
-                    result[i] = jsonToListLine(object);
-                } else {
-                    LOG.warning("Found unsupported object [" + object + "]");
-                    throw new IllegalArgumentException("Unsupported object: " + object);
-                }
-            }
+            result[i] = jsonToLine(text.get(i));
         }
         return result;
     }
 
+    /**
+     * Convert a value of line array into <code>Line</code>.  A string becomes <code>TextLine</code> and an object
+     * becomes <code>TableLine</code> or <code>ListLine</code>.
+     *
+     * @param value is the JSON value to convert.
+     * @return result in <code>Line</code> or <code>null</code> if the value is not a string or an object.
+     */
+    static Line jsonToLine(JsonValue value) {
+        if (value.getValueType() == JsonValue.ValueType.STRING) {
+            return new TextLine(((JsonString) value).getString());
+        } else if (value.getValueType() == JsonValue.ValueType.OBJECT) {
+            JsonObject object = (JsonObject) value;
+            if (object.containsKey("table")) {
+                return jsonToTableLine(object);
+            } else if (object.containsKey("list")) {
+                return jsonToListLine(object);
+            } else {
+                LOG.warning("Found unsupported object [" + object + "]");
+                throw new IllegalArgumentException("Unsupported object: " + object);
+            }
+        }
+        return null;
+    }
+
     /**
      * Before calling this method, don't forget to call setters such as <code>setFirstPage()</code>,
      * <code>setLastPage()</code>, <code>setDetail()</code>, etc.  The parse result from this method
@@ -266,24 +279,43 @@ public class Parser {
      * @return result of parsing in <code>Pages</code>.
      */
     public Report parse() {
-        result = new Report(pageFormat, jsonToTextLine(header), jsonToTextLine(footer), jsonToTextLine(lastPageFooter));
-        if (firstPage != null) {
+        return parse((firstPage == null) ? null : jsonToLine(firstPage), jsonToTextLine(header),
+            jsonToTextLine(footer), jsonToTextLine(lastPageFooter), (detail == null) ? null : jsonToLine(detail),
+            (lastPage == null) ? null : jsonToLine(lastPage));
+    }
+
+    /**
+     * Create the <code>Report</code> from sections that have already been converted into lines.  This method
+     * doesn't use sections that were set by setters.
+     *
+     * @param firstPageLines lines of "firstPage" section or <code>null</code> if it is not available.
+     * @param headerLines lines of "header" section.
+     * @param footerLines lines of "footer" section.
+     * @param lastPageFooterLines lines of "lastPageFooter" section.
+     * @param detailLines lines of "detail" section or <code>null</code> if it is not available.
+     * @param lastPageLines lines of "lastPage" section or <code>null</code> if it is not available.
+     * @return result of parsing in <code>Pages</code>.
+     */
+    public Report parse(Line[] firstPageLines, TextLine[] headerLines, TextLine[] footerLines,
+                        TextLine[] lastPageFooterLines, Line[] detailLines, Line[] lastPageLines) {
+        result = new Report(pageFormat, headerLines, footerLines, lastPageFooterLines);
+        if (firstPageLines != null) {
             LOG.fine("Parsing firstPage section");
-            result.appendSinglePage(jsonToLine(firstPage), true);
+            result.appendSinglePage(firstPageLines, true);
             result.lineBreak();
         }
-        if (detail != null) {
+        if (detailLines != null) {
             LOG.fine("Parsing detail section");
-            for (Line line: jsonToLine(detail)) {
+            for (Line line: detailLines) {
                 result.append(line, false);
             }
         }
-        if (lastPage != null) {
+        if (lastPageLines != null) {
             LOG.fine("Parsing lastPage section");
             result.lineBreak();
-            result.appendSinglePage(jsonToLine(lastPage), true);
+            result.appendSinglePage(lastPageLines, true);
         }
-        return getResult();
+        return result;
     }
 
     /**
@@ -0,0 +1,390 @@
+/*
+ * Copyright 2014 Jocki Hendry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.escp.json;
+
+import simple.escp.dom.Line;
+import simple.escp.dom.PageFormat;
+import simple.escp.dom.Report;
+import simple.escp.dom.line.TextLine;
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.stream.JsonParser;
+import javax.json.stream.JsonParser.Event;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * A helper class for parsing JSON template from a <code>JsonParser</code>.  Unlike {@link Parser}, this class
+ * doesn't need the whole JSON template as a <code>JsonObject</code>.  Page format and lines are created directly
+ * from parser's events.  Tables and lists are converted by {@link Parser}.
+ */
+public class StreamParser {
+
+    private static final Logger LOG = Logger.getLogger("simple.escp");
+
+    private final JsonParser parser;
+    private final PageFormat pageFormat;
+    private boolean hasTemplate;
+    private boolean templateObject;
+    private Line[] firstPage;
+    private Line[] lastPage;
+    private Line[] detail;
+    private TextLine[] header;
+    private TextLine[] footer;
+    private TextLine[] lastPageFooter;
+
+    /**
+     * Create a new instance of this class.
+     *
+     * @param parser the <code>JsonParser</code> positioned before the root object of template.
+     * @param pageFormat the <code>PageFormat</code> that will be configured by <code>"pageFormat"</code>.
+     */
+    public StreamParser(JsonParser parser, PageFormat pageFormat) {
+        this.parser = parser;
+        this.pageFormat = pageFormat;
+    }
+
+    /**
+     * Read the whole template and create a <code>Report</code>.  The <code>PageFormat</code> of this parser will
+     * be updated based on <code>"pageFormat"</code> of template.
+     *
+     * @return result of parsing.
+     */
+    public Report parse() {
+        if (parser.next() != Event.START_OBJECT) {
+            throw new IllegalArgumentException("JSON Template must be an object.");
+        }
+        Event event;
+        while ((event = parser.next()) != Event.END_OBJECT) {
+            String key = parser.getString();
+            if ("pageFormat".equals(key)) {
+                LOG.fine("Parse pageFormat");
+                parsePageFormat();
+            } else if ("template".equals(key)) {
+                LOG.fine("Parse template");
+                parseTemplate();
+            } else {
+                skipValue(parser.next());
+            }
+        }
+        if (!hasTemplate) {
+            throw new IllegalArgumentException("JSON Template must contains 'template'.");
+        }
+        if (pageFormat.getPageLength() == null) {
+            if (templateObject) {
+                throw new IllegalArgumentException("Using object on 'template' require 'pageLength' " +
+                    "to be defined in 'pageFormat'.");
+            }
+        }
+        return new Parser(pageFormat).parse(firstPage, header, footer, lastPageFooter, detail, lastPage);
+    }
+
+    /**
+     * Parse the value of <code>"pageFormat"</code>.
+     */
+    private void parsePageFormat() {
+        if (parser.next() != Event.START_OBJECT) {
+            throw new IllegalArgumentException("Invalid value for 'pageFormat'.");
+        }
+        while (parser.next() != Event.END_OBJECT) {
+            String key = parser.getString();
+            switch (key) {
+                case "lineSpacing":
+                    pageFormat.setLineSpacing(readString(key));
+                    break;
+                case "characterPitch":
+                    pageFormat.setCharacterPitch(readString(key));
+                    break;
+                case "pageLength":
+                    pageFormat.setPageLength(readNumber());
+                    break;
+                case "pageWidth":
+                    pageFormat.setPageWidth(readNumber());
+                    break;
+                case "leftMargin":
+                    pageFormat.setLeftMargin(readNumber());
+                    break;
+                case "rightMargin":
+                    pageFormat.setRightMargin(readNumber());
+                    break;
+                case "bottomMargin":
+                    pageFormat.setBottomMargin(readNumber());
+                    break;
+                case "typeface":
+                    pageFormat.setTypeface(readString(key));
+                    break;
+                case "autoLineFeed":
+                    pageFormat.setAutoLineFeed(readBoolean(key));
+                    break;
+                case "autoFormFeed":
+                    pageFormat.setAutoFormFeed(readBoolean(key));
+                    break;
+                case "usePageLengthFromPrinter":
+                    pageFormat.setUsePrinterPageLength(readBoolean(key));
+                    break;
+                default:
+                    skipValue(parser.next());
+            }
+        }
+    }
+
+    /**
+     * Parse the value of <code>"template"</code>.
+     */
+    private void parseTemplate() {
+        hasTemplate = true;
+        Event event = parser.next();
+        if (event == Event.START_ARRAY) {
+            detail = readLines();
+        } else if (event == Event.START_OBJECT) {
+            templateObject = true;
+            while (parser.next() != Event.END_OBJECT) {
+                String key = parser.getString();
+                switch (key) {
+                    case "firstPage":
+                        expectArray(key);
+                        firstPage = readLines();
+                        break;
+                    case "header":
+                        expectArray(key);
+                        header = Parser.jsonToTextLine(readArray());
+                        break;
+                    case "footer":
+                        expectArray(key);
+                        footer = Parser.jsonToTextLine(readArray());
+                        break;
+                    case "lastPageFooter":
+                        expectArray(key);
+                        lastPageFooter = Parser.jsonToTextLine(readArray());
+                        break;
+                    case "lastPage":
+                        expectArray(key);
+                        lastPage = readLines();
+                        break;
+                    case "detail":
+                        expectArray(key);
+                        appendDetail(readLines());
+                        break;
+                    default:
+                        skipValue(parser.next());
+                }
+            }
+        } else {
+            throw new IllegalArgumentException("Invalid value for 'template'.");
+        }
+    }
+
+    /**
+     * Read the rest of an array that contains text lines, tables or lists.  Text lines are created directly from
+     * parser's events.  Other values are read as <code>JsonValue</code> and converted by {@link Parser}, so both
+     * parsers create the same lines.
+     *
+     * @return result in <code>Line[]</code>.
+     */
+    private Line[] readLines() {
+        List<Line> result = new ArrayList<>();
+        Event event;
+        while ((event = parser.next()) != Event.END_ARRAY) {
+            if (event == Event.VALUE_STRING) {
+                result.add(new TextLine(parser.getString()));
+            } else {
+                JsonArrayBuilder value = Json.createArrayBuilder();
+                addValue(value, event);
+                result.add(Parser.jsonToLine(value.build().get(0)));
+            }
+        }
+        return result.toArray(new Line[result.size()]);
+    }
+
+    /**
+     * Append lines to the previous <code>"detail"</code> section, the same as {@link Parser#setDetail}.
+     *
+     * @param lines the lines that will be appended.
+     */
+    private void appendDetail(Line[] lines) {
+        if (detail == null) {
+            detail = lines;
+        } else {
+            Line[] result = Arrays.copyOf(detail, detail.length + lines.length);
+            System.arraycopy(lines, 0, result, detail.length, lines.length);
+            detail = result;
+        }
+    }
+
+    /**
+     * Read the rest of an object as <code>JsonObject</code>.
+     *
+     * @return the object.
+     */
+    private JsonObject readObject() {
+        JsonObjectBuilder builder = Json.createObjectBuilder();
+        while (parser.next() != Event.END_OBJECT) {
+            String key = parser.getString();
+            Event event = parser.next();
+            switch (event) {
+                case START_OBJECT:
+                    builder.add(key, readObject());
+                    break;
+                case START_ARRAY:
+                    builder.add(key, readArray());
+                    break;
+                case VALUE_STRING:
+                    builder.add(key, parser.getString());
+                    break;
+                case VALUE_NUMBER:
+                    builder.add(key, parser.getBigDecimal());
+                    break;
+                case VALUE_TRUE:
+                    builder.add(key, true);
+                    break;
+                case VALUE_FALSE:
+                    builder.add(key, false);
+                    break;
+                default:
+                    builder.addNull(key);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Read the rest of an array as <code>JsonArray</code>.
+     *
+     * @return the array.
+     */
+    private JsonArray readArray() {
+        JsonArrayBuilder builder = Json.createArrayBuilder();
+        Event event;
+        while ((event = parser.next()) != Event.END_ARRAY) {
+            addValue(builder, event);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Read a value and add it to an array.
+     *
+     * @param builder the array that will contain the value.
+     * @param event the first event of the value.
+     */
+    private void addValue(JsonArrayBuilder builder, Event event) {
+        switch (event) {
+            case START_OBJECT:
+                builder.add(readObject());
+                break;
+            case START_ARRAY:
+                builder.add(readArray());
+                break;
+            case VALUE_STRING:
+                builder.add(parser.getString());
+                break;
+            case VALUE_NUMBER:
+                builder.add(parser.getBigDecimal());
+                break;
+            case VALUE_TRUE:
+                builder.add(true);
+                break;
+            case VALUE_FALSE:
+                builder.add(false);
+                break;
+            default:
+                builder.addNull();
+        }
+    }
+
+    /**
+     * Make sure the next value is an array.
+     *
+     * @param key the key of the value.
+     */
+    private void expectArray(String key) {
+        if (parser.next() != Event.START_ARRAY) {
+            throw new IllegalArgumentException("Value for '" + key + "' must be an array.");
+        }
+    }
+
+    /**
+     * Read the next value as a string.
+     *
+     * @param key the key of the value.
+     * @return the string value.
+     */
+    private String readString(String key) {
+        if (parser.next() != Event.VALUE_STRING) {
+            throw new IllegalArgumentException("Value for '" + key + "' must be a string.");
+        }
+        return parser.getString();
+    }
+
+    /**
+     * Read the next value as a number.  The value can be a JSON number or a JSON string.
+     *
+     * @return a number represented by the value.
+     */
+    private Integer readNumber() {
+        Event event = parser.next();
+        if (event == Event.VALUE_NUMBER) {
+            return parser.getInt();
+        } else if (event == Event.VALUE_STRING) {
+            return Integer.valueOf(parser.getString());
+        }
+        LOG.warning("Can't convert " + event + " to number.");
+        throw new IllegalArgumentException("Can't convert " + event + " to number.");
+    }
+
+    /**
+     * Read the next value as a boolean.
+     *
+     * @param key the key of the value.
+     * @return the boolean value.
+     */
+    private boolean readBoolean(String key) {
+        Event event = parser.next();
+        if (event == Event.VALUE_TRUE) {
+            return true;
+        } else if (event == Event.VALUE_FALSE) {
+            return false;
+        }
+        throw new IllegalArgumentException("Value for '" + key + "' must be a boolean.");
+    }
+
+    /**
+     * Skip a value, including all nested values if it is an object or an array.
+     *
+     * @param event the first event of the value.
+     */
+    private void skipValue(Event event) {
+        if (event != Event.START_OBJECT && event != Event.START_ARRAY) {
+            return;
+        }
+        int depth = 1;
+        while (depth > 0) {
+            Event next = parser.next();
+            if (next == Event.START_OBJECT || next == Event.START_ARRAY) {
+                depth++;
+            } else if (next == Event.END_OBJECT || next == Event.END_ARRAY) {
+                depth--;
+            }
+        }
+    }
+
+}
@@ -17,6 +17,9 @@
 package simple.escp.placeholder;
 
 import simple.escp.data.DataSource;
+import simple.escp.data.DataSources;
+import simple.escp.data.LookupDataSource;
+import simple.escp.data.ResolutionIndex;
 import simple.escp.exception.InvalidPlaceholder;
 import java.util.logging.Logger;
 
@@ -31,29 +34,33 @@ public class BasicPlaceholder extends Placeholder {
     private String name;
 
     /**
-     * Create a new instance of basic placeholder.
+     * Create a new instance of basic placeholder.  The text will only be parsed if it is not in the cache of
+     * {@link PlaceholderSpec}.
      *
      * @param text a string that defines this placeholder.
      */
     public BasicPlaceholder(String text) {
-        super(text);
-        parseText(getText());
+        this(PlaceholderSpec.forBasic(text));
     }
 
     /**
-     * Parse placeholder text.
+     * Create a new instance of basic placeholder from a parsed specification.
      *
-     * @param text full text that represent this placeholder.
+     * @param spec the specification of this placeholder.
      */
-    private void parseText(String text) {
-        LOG.fine("Parsing [" + text + "]");
-        if (text.contains(SEPARATOR)) {
-            String[] parts = text.split(SEPARATOR, 2);
-            this.name = parts[0].trim();
-            parseText(parts[1].split(SEPARATOR));
-        } else {
-            this.name = text;
-        }
+    public BasicPlaceholder(PlaceholderSpec spec) {
+        super(spec);
+        this.name = spec.getName();
+    }
+
+    /**
+     * Create a new instance of basic placeholder as a copy of another basic placeholder.
+     *
+     * @param another the placeholder to copy.
+     */
+    public BasicPlaceholder(BasicPlaceholder another) {
+        super(another);
+        this.name = another.name;
     }
 
     /**
@@ -80,13 +87,27 @@ public class BasicPlaceholder extends Placeholder {
     @Override
     public Object getValue(DataSource[] dataSources) {
         for (DataSource dataSource: dataSources) {
-            if (dataSource.has(name)) {
+            Object value = DataSources.lookup(dataSource, name);
+            if (value != LookupDataSource.MISSING) {
                 LOG.fine("Use the following datasource: [" + dataSource + "]");
-                return dataSource.get(name);
+                return value;
             }
         }
         LOG.warning("Can't find datasource that has member [" + name + "]");
         return "";
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object getIndexedValue(ResolutionIndex index) {
+        Object value = index.lookup(name);
+        if (value == LookupDataSource.MISSING) {
+            LOG.warning("Can't find datasource that has member [" + name + "]");
+            return "";
+        }
+        return value;
+    }
+
 }
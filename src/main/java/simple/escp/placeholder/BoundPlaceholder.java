@@ -0,0 +1,107 @@
+/*
+ * Copyright 2014 Jocki Hendry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.escp.placeholder;
+
+import simple.escp.data.DataSource;
+import simple.escp.data.PropertyPath;
+import simple.escp.data.ResolutionIndex;
+import java.util.Arrays;
+
+/**
+ *  A <code>BoundPlaceholder</code> is a <code>BasicPlaceholder</code> whose name has been resolved against one or
+ *  more classes by {@link simple.escp.Template#bind(Class)}.  If the source of a data source is an instance of one
+ *  of those classes, the value is read by using the pre-resolved {@link PropertyPath} without searching members by
+ *  their name.  Otherwise, it behaves like a <code>BasicPlaceholder</code>.
+ */
+public class BoundPlaceholder extends BasicPlaceholder {
+
+    private final PropertyPath[] paths;
+
+    /**
+     * Create a new instance of bound placeholder.
+     *
+     * @param spec the specification of this placeholder.
+     * @param paths the name of this placeholder resolved against every class that can be its source.
+     */
+    public BoundPlaceholder(PlaceholderSpec spec, PropertyPath[] paths) {
+        super(spec);
+        this.paths = Arrays.copyOf(paths, paths.length);
+    }
+
+    /**
+     * Create a new instance of bound placeholder as a copy of another bound placeholder.
+     *
+     * @param another the placeholder to copy.
+     */
+    public BoundPlaceholder(BoundPlaceholder another) {
+        super(another);
+        this.paths = another.paths;
+    }
+
+    /**
+     * Retrieve the resolved paths of this placeholder.
+     *
+     * @return the resolved paths.
+     */
+    public PropertyPath[] getPaths() {
+        return Arrays.copyOf(paths, paths.length);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object getValue(DataSource[] dataSources) {
+        Object value = getBoundValue(dataSources);
+        if (value != PropertyPath.MISSING) {
+            return value;
+        }
+        return super.getValue(dataSources);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object getIndexedValue(ResolutionIndex index) {
+        Object value = getBoundValue(index.getDataSources());
+        if (value != PropertyPath.MISSING) {
+            return value;
+        }
+        return super.getIndexedValue(index);
+    }
+
+    /**
+     * Read the value by using a resolved path whose root type matches the source of a data source.
+     *
+     * @param dataSources the data sources from where this placeholder retrieves its value.
+     * @return the value or {@link PropertyPath#MISSING} if no data source matches the resolved paths or if the
+     *         value can't be found, for example because an index is out of range.
+     */
+    private Object getBoundValue(DataSource[] dataSources) {
+        for (DataSource dataSource : dataSources) {
+            Object source = dataSource.getSource();
+            for (PropertyPath path : paths) {
+                if (path.getRootType().isInstance(source)) {
+                    return path.find(source);
+                }
+            }
+        }
+        return PropertyPath.MISSING;
+    }
+
+}
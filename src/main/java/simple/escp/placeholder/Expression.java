@@ -0,0 +1,1206 @@
+/*
+ * Copyright 2014 Jocki Hendry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.escp.placeholder;
+
+import simple.escp.data.DataSource;
+import simple.escp.data.DataSources;
+import simple.escp.data.PropertyPath;
+import simple.escp.exception.InvalidPlaceholder;
+import javax.json.JsonValue;
+import javax.script.Bindings;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngineFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Logger;
+
+/**
+ * An <code>Expression</code> is a simple script that can be evaluated without a JSR 223 script engine.  The script
+ * is parsed once into a tree of nodes, so evaluating it for every row of a table doesn't need to parse it again.
+ *
+ * <p>An expression can contain:
+ *
+ * <ul>
+ *     <li>Numbers such as <code>10</code> or <code>2.5</code>, strings such as <code>'Total'</code> or
+ *     <code>"Total"</code>, <code>true</code>, <code>false</code> and <code>null</code>.</li>
+ *     <li>Variables such as <code>row</code>, <code>col</code> or the member of data sources, and property
+ *     access such as <code>customer.name</code>.</li>
+ *     <li>Method calls such as <code>name.toUpperCase()</code> or <code>name.substring(0, 3)</code>.</li>
+ *     <li>Operators <code>+ - * / %</code>, <code>== != &lt; &lt;= &gt; &gt;=</code>, <code>&amp;&amp; || !</code>,
+ *     <code>?:</code> and parentheses.</li>
+ * </ul>
+ *
+ * <p>An expression is evaluated by following the rules of the language that would otherwise execute it (see
+ * {@link Dialect}), so the result has the same value and the same type as the result returned by the script
+ * engine.  For example, <code>price * 2</code> returns a <code>Double</code> in JavaScript but a
+ * <code>BigDecimal</code> in Groovy.
+ *
+ * <p>Anything else, such as a variable that can't be found or an operation whose result is not known to be the
+ * same as the script engine's result, is not supported.  {@link #parse(String)} returns <code>null</code> for a
+ * script that can't be parsed and {@link #evaluate(ScriptContext, Dialect)} returns {@link #UNSUPPORTED} for a
+ * value that can't be calculated, so the script can be executed by a script engine instead.
+ */
+public final class Expression {
+
+    private static final Logger LOG = Logger.getLogger("simple.escp");
+    public static final int MAXIMUM_CACHE_SIZE = 10000;
+    private static final int GROOVY_DIVISION_SCALE = 10;
+    private static final double JAVASCRIPT_EXPONENTIAL_MAXIMUM = 1e21;
+    private static final double JAVASCRIPT_EXPONENTIAL_MINIMUM = 1e-6;
+
+    /**
+     * The value returned by {@link #evaluate(ScriptContext, Dialect)} if the expression can't be evaluated without
+     * a script engine.
+     */
+    public static final Object UNSUPPORTED = new Object() {
+        @Override
+        public String toString() {
+            return "UNSUPPORTED";
+        }
+    };
+
+    private static final Expression NOT_PARSED = new Expression(null, null);
+    private static final ConcurrentMap<String, Expression> EXPRESSIONS = new ConcurrentHashMap<>();
+
+    private final String source;
+    private final Node root;
+
+    /**
+     * Create a new <code>Expression</code>.
+     *
+     * @param source the text of this expression.
+     * @param root the root node of this expression.
+     */
+    private Expression(String source, Node root) {
+        this.source = source;
+        this.root = root;
+    }
+
+    /**
+     * Parse a script into an expression.  The script is only parsed once, subsequent calls with the same script
+     * will return the cached expression.
+     *
+     * @param source the script.
+     * @return the expression or <code>null</code> if the script can't be evaluated without a script engine.
+     */
+    public static Expression parse(String source) {
+        if (source == null) {
+            return null;
+        }
+        Expression result = EXPRESSIONS.get(source);
+        if (result == null) {
+            try {
+                result = new Expression(source, new ExpressionParser(source).parse());
+            } catch (IllegalArgumentException e) {
+                LOG.fine("Script [" + source + "] requires a script engine: " + e.getMessage());
+                result = NOT_PARSED;
+            }
+            if (EXPRESSIONS.size() < MAXIMUM_CACHE_SIZE) {
+                EXPRESSIONS.putIfAbsent(source, result);
+            } else {
+                LOG.fine("Expression cache is full, [" + source + "] will not be cached.");
+            }
+        }
+        return (result == NOT_PARSED) ? null : result;
+    }
+
+    /**
+     * Remove all cached expressions.
+     */
+    public static void clearCache() {
+        EXPRESSIONS.clear();
+    }
+
+    /**
+     * Retrieve the text of this expression.
+     *
+     * @return the script that was parsed.
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Evaluate this expression.  Variables are read from the bindings of a <code>ScriptContext</code>, so they are
+     * the same variables that are seen by a script engine that uses the context.
+     *
+     * @param context the context that contains variables, such as <code>row</code> and <code>col</code>.
+     * @param dialect the language whose rules are followed.
+     * @return the result or {@link #UNSUPPORTED} if this expression can't be evaluated without a script engine.
+     */
+    public Object evaluate(final ScriptContext context, Dialect dialect) {
+        return evaluate(new Scope() {
+            @Override
+            public Object get(String name) {
+                int scope = context.getAttributesScope(name);
+                return (scope == -1) ? PropertyPath.MISSING : context.getAttribute(name, scope);
+            }
+        }, dialect);
+    }
+
+    /**
+     * Evaluate this expression.  Variables are read from the first data source that has them.
+     *
+     * @param dataSources the data sources in order of their priority.  It can be <code>null</code>.
+     * @param dialect the language whose rules are followed.
+     * @return the result or {@link #UNSUPPORTED} if this expression can't be evaluated without a script engine.
+     */
+    public Object evaluate(final DataSource[] dataSources, Dialect dialect) {
+        return evaluate(new Scope() {
+            @Override
+            public Object get(String name) {
+                if (dataSources != null) {
+                    for (DataSource dataSource : dataSources) {
+                        Object value = DataSources.lookup(dataSource, name);
+                        if (value != PropertyPath.MISSING) {
+                            return value;
+                        }
+                    }
+                }
+                return PropertyPath.MISSING;
+            }
+        }, dialect);
+    }
+
+    /**
+     * Evaluate the root node of this expression.
+     *
+     * @param scope the scope that provides variables.
+     * @param dialect the language whose rules are followed.
+     * @return the result or {@link #UNSUPPORTED} if this expression can't be evaluated without a script engine.
+     */
+    private Object evaluate(Scope scope, Dialect dialect) {
+        try {
+            return root.evaluate(scope, dialect);
+        } catch (Unsupported | InvalidPlaceholder e) {
+            LOG.fine("Script [" + source + "] requires a script engine: " + e.getMessage());
+            return UNSUPPORTED;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    /**
+     * The language whose rules are followed when evaluating an expression.  Both languages agree on the syntax of
+     * expression, but not on its result:
+     *
+     * <ul>
+     *     <li>In Groovy, arithmetic on <code>Integer</code> and <code>Long</code> overflows like Java,
+     *     division returns a <code>BigDecimal</code> and numbers with decimal point are
+     *     <code>BigDecimal</code>.</li>
+     *     <li>In JavaScript, every number is a <code>double</code>.  Calculation on numbers written in the script
+     *     returns an <code>Integer</code> if the result is a whole number, while calculation on variables always
+     *     returns a <code>Double</code>.</li>
+     * </ul>
+     */
+    public enum Dialect {
+
+        /**
+         * The rules of Groovy.
+         */
+        GROOVY,
+
+        /**
+         * The rules of JavaScript, as implemented by Nashorn.
+         */
+        JAVASCRIPT;
+
+        /**
+         * Find the dialect of a script engine.
+         *
+         * @param factory the factory of script engine.
+         * @return the dialect or <code>null</code> if the language of script engine is not known.
+         */
+        public static Dialect of(ScriptEngineFactory factory) {
+            String language = (factory == null) ? null : factory.getLanguageName();
+            if ("Groovy".equalsIgnoreCase(language)) {
+                return GROOVY;
+            }
+            if ("ECMAScript".equalsIgnoreCase(language) || "JavaScript".equalsIgnoreCase(language)) {
+                return JAVASCRIPT;
+            }
+            return null;
+        }
+
+    }
+
+    /**
+     * Provides the value of variables.
+     */
+    interface Scope {
+
+        /**
+         * Retrieve the value of a variable.
+         *
+         * @param name the name of variable.
+         * @return the value or {@link PropertyPath#MISSING} if the variable can't be found.
+         */
+        Object get(String name);
+
+    }
+
+    /**
+     * Thrown when a node can't be evaluated without a script engine.
+     */
+    static final class Unsupported extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Create a new <code>Unsupported</code>.  Stack trace is not filled because this exception is only used to
+         * stop the evaluation.
+         *
+         * @param message the reason.
+         */
+        Unsupported(String message) {
+            super(message, null, false, false);
+        }
+
+    }
+
+    /**
+     * Operators of expression.
+     */
+    enum Operator {
+        ADD, SUBTRACT, MULTIPLY, DIVIDE, REMAINDER, EQUAL, NOT_EQUAL, LESS, LESS_OR_EQUAL, GREATER,
+        GREATER_OR_EQUAL, AND, OR, NOT, NEGATE
+    }
+
+    /**
+     * Kinds of number in Groovy, in order of how they are promoted.
+     */
+    private enum NumberKind {
+        INTEGER, LONG, DECIMAL, FLOATING
+    }
+
+    /**
+     * A part of expression.
+     */
+    abstract static class Node {
+
+        /**
+         * Calculate the value of this node.
+         *
+         * @param scope the scope that provides variables.
+         * @param dialect the language whose rules are followed.
+         * @return the value of this node.
+         * @throws Unsupported if this node can't be evaluated without a script engine.
+         */
+        abstract Object evaluate(Scope scope, Dialect dialect);
+
+        /**
+         * Determine if this node only contains literals.
+         *
+         * @return <code>true</code> if the value of this node doesn't depend on variables.
+         */
+        boolean isConstant() {
+            return false;
+        }
+
+    }
+
+    /**
+     * A number, a string, a boolean or <code>null</code>.
+     */
+    static final class Literal extends Node {
+
+        private final Object value;
+        private final Object javaScriptValue;
+
+        /**
+         * Create a new <code>Literal</code>.
+         *
+         * @param value the value of literal.
+         */
+        Literal(Object value) {
+            this.value = value;
+            this.javaScriptValue = ((value instanceof Long) || (value instanceof BigDecimal)) ?
+                ((Number) value).doubleValue() : value;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        Object evaluate(Scope scope, Dialect dialect) {
+            return (dialect == Dialect.JAVASCRIPT) ? javaScriptValue : value;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        boolean isConstant() {
+            return true;
+        }
+
+    }
+
+    /**
+     * A variable, such as <code>row</code> or the member of a data source.
+     */
+    static final class Variable extends Node {
+
+        private final String name;
+
+        /**
+         * Create a new <code>Variable</code>.
+         *
+         * @param name the name of variable.
+         */
+        Variable(String name) {
+            this.name = name;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        Object evaluate(Scope scope, Dialect dialect) {
+            Object value = scope.get(name);
+            if (value == PropertyPath.MISSING) {
+                throw new Unsupported("Can't find variable [" + name + "].");
+            }
+            if (value instanceof Bindings) {
+                throw new Unsupported("Variable [" + name + "] is a script object.");
+            }
+            return value;
+        }
+
+    }
+
+    /**
+     * Read a member of a <code>Map</code> or a Java Bean.
+     */
+    static final class Member extends Node {
+
+        private final Node target;
+        private final PropertyPath path;
+
+        /**
+         * Create a new <code>Member</code>.
+         *
+         * @param target the node that returns the object.
+         * @param name the name of member.
+         */
+        Member(Node target, String name) {
+            this.target = target;
+            this.path = PropertyPath.of(name);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        Object evaluate(Scope scope, Dialect dialect) {
+            Object value = target.evaluate(scope, dialect);
+            if (value == null) {
+                throw new Unsupported("Can't read [" + path + "] of null.");
+            }
+            if (value instanceof JsonValue) {
+                throw new Unsupported("Script engine has its own rules for [" + path + "] of JSON value.");
+            }
+            Object result = path.find(value);
+            if (result == PropertyPath.MISSING) {
+                throw new Unsupported("Can't find [" + path + "] in [" + value + "].");
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * Call a public method of an object.
+     */
+    static final class Call extends Node {
+
+        private static final Map<Class<?>, List<Class<?>>> PRIMITIVES = new HashMap<>();
+
+        /**
+         * Methods of JavaScript string.  Nashorn calls them instead of the methods of <code>String</code>.
+         */
+        private static final Set<String> JAVASCRIPT_STRING_METHODS = new HashSet<>(Arrays.asList("charAt",
+            "charCodeAt", "codePointAt", "concat", "endsWith", "includes", "indexOf", "lastIndexOf", "localeCompare",
+            "match", "normalize", "repeat", "replace", "search", "slice", "split", "startsWith", "substr",
+            "substring", "toLocaleLowerCase", "toLocaleUpperCase", "toLowerCase", "toString", "toUpperCase", "trim",
+            "trimLeft", "trimRight", "valueOf"));
+
+        static {
+            PRIMITIVES.put(boolean.class, Arrays.<Class<?>>asList(Boolean.class));
+            PRIMITIVES.put(char.class, Arrays.<Class<?>>asList(Character.class));
+            PRIMITIVES.put(byte.class, Arrays.<Class<?>>asList(Byte.class));
+            PRIMITIVES.put(short.class, Arrays.<Class<?>>asList(Short.class, Byte.class));
+            PRIMITIVES.put(int.class, Arrays.<Class<?>>asList(Integer.class, Short.class, Byte.class,
+                Character.class));
+            PRIMITIVES.put(long.class, Arrays.<Class<?>>asList(Long.class, Integer.class, Short.class, Byte.class,
+                Character.class));
+            PRIMITIVES.put(float.class, Arrays.<Class<?>>asList(Float.class, Long.class, Integer.class,
+                Short.class, Byte.class, Character.class));
+            PRIMITIVES.put(double.class, Arrays.<Class<?>>asList(Double.class, Float.class, Long.class,
+                Integer.class, Short.class, Byte.class, Character.class));
+        }
+
+        private final Node target;
+        private final String name;
+        private final Node[] arguments;
+        private volatile CallSite callSite;
+
+        /**
+         * Create a new <code>Call</code>.
+         *
+         * @param target the node that returns the object.
+         * @param name the name of method.
+         * @param arguments the arguments of method.
+         */
+        Call(Node target, String name, Node[] arguments) {
+            this.target = target;
+            this.name = name;
+            this.arguments = arguments;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        Object evaluate(Scope scope, Dialect dialect) {
+            Object value = target.evaluate(scope, dialect);
+            if (value == null) {
+                throw new Unsupported("Can't call [" + name + "] of null.");
+            }
+            Object[] values = new Object[arguments.length];
+            Class<?>[] types = new Class<?>[arguments.length];
+            for (int i = 0; i < arguments.length; i++) {
+                values[i] = arguments[i].evaluate(scope, dialect);
+                types[i] = (values[i] == null) ? null : values[i].getClass();
+            }
+            if ((dialect == Dialect.JAVASCRIPT) && (value instanceof String) &&
+                    JAVASCRIPT_STRING_METHODS.contains(name)) {
+                if (!isSameAsJavaScript(values)) {
+                    throw new Unsupported("[" + name + "] of JavaScript string is not the same as Java.");
+                }
+                if ("toUpperCase".equals(name)) {
+                    return ((String) value).toUpperCase(Locale.ROOT);
+                }
+                if ("toLowerCase".equals(name)) {
+                    return ((String) value).toLowerCase(Locale.ROOT);
+                }
+            }
+            CallSite current = callSite;
+            if ((current == null) || !current.matches(value.getClass(), types)) {
+                current = new CallSite(value.getClass(), types, findMethod(value.getClass(), values));
+                callSite = current;
+            }
+            Object result;
+            try {
+                result = current.method.invoke(value, values);
+            } catch (IllegalAccessException | InvocationTargetException | IllegalArgumentException e) {
+                throw new Unsupported("Can't call [" + name + "] of [" + value + "]: " + e);
+            }
+            if ((dialect == Dialect.JAVASCRIPT) && (result instanceof Character)) {
+                throw new Unsupported("Script engine has its own rules for [" + name + "] that returns char.");
+            }
+            return result;
+        }
+
+        /**
+         * Determine if a method of JavaScript string returns the same result as the method of <code>String</code>
+         * that has the same name.  Case conversion is the same if it doesn't depend on locale, and methods such as
+         * <code>substring</code> are the same if Java doesn't reject their arguments.
+         *
+         * @param values the arguments.
+         * @return <code>true</code> if the method can be called as a method of <code>String</code>.
+         */
+        private boolean isSameAsJavaScript(Object[] values) {
+            switch (name) {
+                case "toUpperCase":
+                case "toLowerCase":
+                    return values.length == 0;
+                case "substring":
+                    return ((values.length == 1) || (values.length == 2)) && (values[0] instanceof Integer) &&
+                        (values[values.length - 1] instanceof Integer);
+                case "indexOf":
+                    return ((values.length == 1) || (values.length == 2)) && (values[0] instanceof String) &&
+                        ((values.length == 1) || (values[1] instanceof Integer));
+                case "lastIndexOf":
+                case "startsWith":
+                case "endsWith":
+                    return (values.length == 1) && (values[0] instanceof String);
+                default:
+                    return false;
+            }
+        }
+
+        /**
+         * Find the only public method that accepts the arguments.
+         *
+         * @param type the class of object.
+         * @param values the arguments.
+         * @return the method.
+         * @throws Unsupported if there is no method or more than one method that accepts the arguments.
+         */
+        private Method findMethod(Class<?> type, Object[] values) {
+            Method result = null;
+            for (Method method : type.getMethods()) {
+                if (!method.getName().equals(name) || method.isBridge() || Modifier.isStatic(method.getModifiers())
+                        || !isApplicable(method.getParameterTypes(), values)) {
+                    continue;
+                }
+                if (result != null) {
+                    throw new Unsupported("More than one method [" + name + "] in [" + type.getName() + "].");
+                }
+                result = method;
+            }
+            if (result == null) {
+                throw new Unsupported("Can't find method [" + name + "] in [" + type.getName() + "].");
+            }
+            return findAccessible(type, result);
+        }
+
+        /**
+         * Determine if a method can be called with the arguments.
+         *
+         * @param parameterTypes the parameter types of method.
+         * @param values the arguments.
+         * @return <code>true</code> if every argument can be passed to the parameter.
+         */
+        private static boolean isApplicable(Class<?>[] parameterTypes, Object[] values) {
+            if (parameterTypes.length != values.length) {
+                return false;
+            }
+            for (int i = 0; i < values.length; i++) {
+                Class<?> parameterType = parameterTypes[i];
+                if (parameterType.isPrimitive()) {
+                    if ((values[i] == null) || !PRIMITIVES.get(parameterType).contains(values[i].getClass())) {
+                        return false;
+                    }
+                } else if ((values[i] != null) && !parameterType.isInstance(values[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Find the same method that is declared by a public class or interface, so that it can be called even if
+         * the class of object is not public.
+         *
+         * @param type the class of object.
+         * @param method the method.
+         * @return the method that can be called.
+         */
+        private static Method findAccessible(Class<?> type, Method method) {
+            if (Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+                return method;
+            }
+            Deque<Class<?>> types = new ArrayDeque<>();
+            types.add(type);
+            while (!types.isEmpty()) {
+                Class<?> current = types.poll();
+                if (Modifier.isPublic(current.getModifiers())) {
+                    try {
+                        return current.getMethod(method.getName(), method.getParameterTypes());
+                    } catch (NoSuchMethodException e) {
+                        continue;
+                    }
+                }
+                if (current.getSuperclass() != null) {
+                    types.add(current.getSuperclass());
+                }
+                types.addAll(Arrays.asList(current.getInterfaces()));
+            }
+            return method;
+        }
+
+    }
+
+    /**
+     * The method that was found by the last call.
+     */
+    private static final class CallSite {
+
+        private final Class<?> type;
+        private final Class<?>[] argumentTypes;
+        private final Method method;
+
+        /**
+         * Create a new <code>CallSite</code>.
+         *
+         * @param type the class of object.
+         * @param argumentTypes the class of arguments, or <code>null</code> for argument that is <code>null</code>.
+         * @param method the method that was found.
+         */
+        CallSite(Class<?> type, Class<?>[] argumentTypes, Method method) {
+            this.type = type;
+            this.argumentTypes = argumentTypes;
+            this.method = method;
+        }
+
+        /**
+         * Determine if this method can be reused.
+         *
+         * @param type the class of object.
+         * @param argumentTypes the class of arguments.
+         * @return <code>true</code> if the classes are the same as the classes of the last call.
+         */
+        boolean matches(Class<?> type, Class<?>[] argumentTypes) {
+            return (this.type == type) && Arrays.equals(this.argumentTypes, argumentTypes);
+        }
+
+    }
+
+    /**
+     * An operator that has one operand.
+     */
+    static final class Unary extends Node {
+
+        private final Operator operator;
+        private final Node operand;
+
+        /**
+         * Create a new <code>Unary</code>.
+         *
+         * @param operator either {@link Operator#NOT} or {@link Operator#NEGATE}.
+         * @param operand the operand.
+         */
+        Unary(Operator operator, Node operand) {
+            this.operator = operator;
+            this.operand = operand;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        Object evaluate(Scope scope, Dialect dialect) {
+            Object value = operand.evaluate(scope, dialect);
+            if (operator == Operator.NOT) {
+                return !toBoolean(value);
+            }
+            Number number = toNumber(value);
+            if (dialect == Dialect.JAVASCRIPT) {
+                return javaScriptNumber(-number.doubleValue(), isConstant() && (number instanceof Integer));
+            }
+            if ((number instanceof Long) && (number.longValue() == -(long) Integer.MIN_VALUE) && isConstant()) {
+                // Groovy reads -2147483648 as an int literal.
+                return Integer.MIN_VALUE;
+            }
+            return groovyNegate(number);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        boolean isConstant() {
+            return operand.isConstant();
+        }
+
+    }
+
+    /**
+     * An operator that has two operands.
+     */
+    static final class Binary extends Node {
+
+        private final Operator operator;
+        private final Node left;
+        private final Node right;
+
+        /**
+         * Create a new <code>Binary</code>.
+         *
+         * @param operator the operator.
+         * @param left the left operand.
+         * @param right the right operand.
+         */
+        Binary(Operator operator, Node left, Node right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        Object evaluate(Scope scope, Dialect dialect) {
+            Object a = left.evaluate(scope, dialect);
+            if (operator == Operator.AND) {
+                return toBoolean(a) && toBoolean(right.evaluate(scope, dialect));
+            }
+            if (operator == Operator.OR) {
+                return toBoolean(a) || toBoolean(right.evaluate(scope, dialect));
+            }
+            Object b = right.evaluate(scope, dialect);
+            switch (operator) {
+                case EQUAL:
+                    return isEqual(a, b, dialect);
+                case NOT_EQUAL:
+                    return !isEqual(a, b, dialect);
+                case LESS:
+                    return compare(a, b, dialect) < 0;
+                case LESS_OR_EQUAL:
+                    return compare(a, b, dialect) <= 0;
+                case GREATER:
+                    return compare(a, b, dialect) > 0;
+                case GREATER_OR_EQUAL:
+                    return compare(a, b, dialect) >= 0;
+                default:
+                    if ((operator == Operator.ADD) && ((a instanceof String) || (b instanceof String))) {
+                        return concatenate(a, b, dialect);
+                    }
+                    Number x = toNumber(a);
+                    Number y = toNumber(b);
+                    if (dialect == Dialect.JAVASCRIPT) {
+                        return javaScriptNumber(floatingArithmetic(operator, x.doubleValue(), y.doubleValue()),
+                            isConstant() && (x instanceof Integer) && (y instanceof Integer));
+                    }
+                    return groovyArithmetic(operator, x, y);
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        boolean isConstant() {
+            return left.isConstant() && right.isConstant();
+        }
+
+    }
+
+    /**
+     * The conditional operator <code>?:</code>.
+     */
+    static final class Conditional extends Node {
+
+        private final Node condition;
+        private final Node whenTrue;
+        private final Node whenFalse;
+
+        /**
+         * Create a new <code>Conditional</code>.
+         *
+         * @param condition the condition.
+         * @param whenTrue the node that is evaluated if the condition is <code>true</code>.
+         * @param whenFalse the node that is evaluated if the condition is <code>false</code>.
+         */
+        Conditional(Node condition, Node whenTrue, Node whenFalse) {
+            this.condition = condition;
+            this.whenTrue = whenTrue;
+            this.whenFalse = whenFalse;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        Object evaluate(Scope scope, Dialect dialect) {
+            return toBoolean(condition.evaluate(scope, dialect)) ? whenTrue.evaluate(scope, dialect) :
+                whenFalse.evaluate(scope, dialect);
+        }
+
+    }
+
+    /**
+     * Use a value as a condition.  Only <code>Boolean</code> is accepted because JavaScript and Groovy have
+     * different rules for other values.
+     *
+     * @param value the value.
+     * @return the value as <code>boolean</code>.
+     * @throws Unsupported if the value is not a <code>Boolean</code>.
+     */
+    private static boolean toBoolean(Object value) {
+        if (!(value instanceof Boolean)) {
+            throw new Unsupported("[" + value + "] is not a boolean.");
+        }
+        return (Boolean) value;
+    }
+
+    /**
+     * Use a value as an operand of arithmetic operator.
+     *
+     * @param value the value.
+     * @return the value as <code>Number</code>.
+     * @throws Unsupported if the value is not a standard Java number.
+     */
+    private static Number toNumber(Object value) {
+        if ((value instanceof Integer) || (value instanceof Long) || (value instanceof Short) ||
+                (value instanceof Byte) || (value instanceof BigDecimal) || (value instanceof BigInteger) ||
+                (value instanceof Double) || (value instanceof Float)) {
+            return (Number) value;
+        }
+        throw new Unsupported("[" + value + "] is not a number.");
+    }
+
+    /**
+     * Convert the result of JavaScript arithmetic to the value returned by Nashorn.  Nashorn returns an
+     * <code>Integer</code> if both operands were <code>Integer</code> written in the script and the result is a
+     * whole number, otherwise it returns a <code>Double</code>.
+     *
+     * @param value the result.
+     * @param whole <code>true</code> if both operands were <code>Integer</code> literals.
+     * @return the result as <code>Integer</code> or <code>Double</code>.
+     */
+    private static Object javaScriptNumber(double value, boolean whole) {
+        if (whole && (value == Math.rint(value)) && (value >= Integer.MIN_VALUE) && (value <= Integer.MAX_VALUE) &&
+                !((value == 0) && (Double.doubleToRawLongBits(value) != 0))) {
+            return (int) value;
+        }
+        return value;
+    }
+
+    /**
+     * Negate a number by following the rules of Groovy.
+     *
+     * @param number the number.
+     * @return the negated number, which has the same type as <code>number</code>.
+     */
+    private static Object groovyNegate(Number number) {
+        if (number instanceof Integer) {
+            return -number.intValue();
+        }
+        if (number instanceof Long) {
+            return -number.longValue();
+        }
+        if (number instanceof Short) {
+            return (short) -number.shortValue();
+        }
+        if (number instanceof Byte) {
+            return (byte) -number.byteValue();
+        }
+        if (number instanceof BigDecimal) {
+            return ((BigDecimal) number).negate();
+        }
+        if (number instanceof BigInteger) {
+            return ((BigInteger) number).negate();
+        }
+        if (number instanceof Float) {
+            return -number.floatValue();
+        }
+        return -number.doubleValue();
+    }
+
+    /**
+     * Determine the kind of number that is used by Groovy to calculate two numbers.
+     *
+     * @param a the first number.
+     * @param b the second number.
+     * @return the kind of number.
+     * @throws Unsupported if one of the numbers is a <code>BigInteger</code> and the other is a whole number.
+     */
+    private static NumberKind kindOf(Number a, Number b) {
+        if ((a instanceof Double) || (a instanceof Float) || (b instanceof Double) || (b instanceof Float)) {
+            return NumberKind.FLOATING;
+        }
+        if ((a instanceof BigDecimal) || (b instanceof BigDecimal)) {
+            return NumberKind.DECIMAL;
+        }
+        if ((a instanceof BigInteger) || (b instanceof BigInteger)) {
+            throw new Unsupported("Script engine has its own rules for BigInteger.");
+        }
+        if ((a instanceof Long) || (b instanceof Long)) {
+            return NumberKind.LONG;
+        }
+        return NumberKind.INTEGER;
+    }
+
+    /**
+     * Convert a number to <code>BigDecimal</code>.
+     *
+     * @param number a number that is not a <code>Double</code> or a <code>Float</code>.
+     * @return the number as <code>BigDecimal</code>.
+     */
+    private static BigDecimal toBigDecimal(Number number) {
+        if (number instanceof BigDecimal) {
+            return (BigDecimal) number;
+        }
+        if (number instanceof BigInteger) {
+            return new BigDecimal((BigInteger) number);
+        }
+        return BigDecimal.valueOf(number.longValue());
+    }
+
+    /**
+     * Perform an arithmetic operation by following the rules of Groovy.  Division always returns a
+     * <code>BigDecimal</code> unless one of the operands is a <code>Double</code> or a <code>Float</code>.
+     *
+     * @param operator the operator.
+     * @param a the first operand.
+     * @param b the second operand.
+     * @return the result.
+     * @throws Unsupported if dividing by zero.
+     */
+    private static Object groovyArithmetic(Operator operator, Number a, Number b) {
+        NumberKind kind = kindOf(a, b);
+        if (kind == NumberKind.FLOATING) {
+            return floatingArithmetic(operator, a.doubleValue(), b.doubleValue());
+        }
+        if ((operator == Operator.DIVIDE) || (kind == NumberKind.DECIMAL)) {
+            return decimalArithmetic(operator, toBigDecimal(a), toBigDecimal(b));
+        }
+        long x = a.longValue();
+        long y = b.longValue();
+        long result;
+        switch (operator) {
+            case ADD:
+                result = x + y;
+                break;
+            case SUBTRACT:
+                result = x - y;
+                break;
+            case MULTIPLY:
+                result = x * y;
+                break;
+            default:
+                if (y == 0) {
+                    throw new Unsupported("Can't divide [" + x + "] by zero.");
+                }
+                result = x % y;
+        }
+        if (kind == NumberKind.INTEGER) {
+            return (int) result;
+        }
+        return result;
+    }
+
+    /**
+     * Perform an arithmetic operation on <code>BigDecimal</code> by following the rules of Groovy.  Division that
+     * is not exact is rounded to at most 10 digits after decimal point.
+     *
+     * @param operator the operator.
+     * @param a the first operand.
+     * @param b the second operand.
+     * @return the result.
+     * @throws Unsupported if dividing by zero or calculating remainder.
+     */
+    private static Object decimalArithmetic(Operator operator, BigDecimal a, BigDecimal b) {
+        switch (operator) {
+            case ADD:
+                return a.add(b);
+            case SUBTRACT:
+                return a.subtract(b);
+            case MULTIPLY:
+                return a.multiply(b);
+            default:
+                if (b.signum() == 0) {
+                    throw new Unsupported("Can't divide [" + a + "] by zero.");
+                }
+                if (operator == Operator.REMAINDER) {
+                    throw new Unsupported("Remainder of BigDecimal depends on the version of Groovy.");
+                }
+                try {
+                    return a.divide(b);
+                } catch (ArithmeticException e) {
+                    BigDecimal result = a.divide(b, new MathContext(Math.max(a.precision(), b.precision()) +
+                        GROOVY_DIVISION_SCALE));
+                    int scale = Math.max(Math.max(result.scale(), a.scale()), b.scale());
+                    return result.setScale(Math.min(scale, GROOVY_DIVISION_SCALE), RoundingMode.HALF_UP);
+                }
+        }
+    }
+
+    /**
+     * Perform an arithmetic operation on <code>double</code>.
+     *
+     * @param operator the operator.
+     * @param a the first operand.
+     * @param b the second operand.
+     * @return the result.
+     */
+    private static double floatingArithmetic(Operator operator, double a, double b) {
+        switch (operator) {
+            case ADD:
+                return a + b;
+            case SUBTRACT:
+                return a - b;
+            case MULTIPLY:
+                return a * b;
+            case DIVIDE:
+                return a / b;
+            default:
+                return a % b;
+        }
+    }
+
+    /**
+     * Concatenate two values.  In JavaScript, a string can be added to any value.  In Groovy, a string can be added
+     * to a number or <code>null</code>, and any value can be added to a string.
+     *
+     * @param a the first value.
+     * @param b the second value.
+     * @param dialect the language whose rules are followed.
+     * @return the concatenated string.
+     * @throws Unsupported if the values can't be converted to string.
+     */
+    private static String concatenate(Object a, Object b, Dialect dialect) {
+        if ((dialect == Dialect.GROOVY) && !(a instanceof String) && (a != null) && !(a instanceof Number)) {
+            throw new Unsupported("Can't add [" + b + "] to [" + a + "].");
+        }
+        return toText(a, dialect) + toText(b, dialect);
+    }
+
+    /**
+     * Convert a value to string as part of concatenation.
+     *
+     * @param value the value.
+     * @param dialect the language whose rules are followed.
+     * @return the string representation of value.
+     * @throws Unsupported if the value is not a string, a number, a boolean, a character or <code>null</code>.
+     */
+    private static String toText(Object value, Dialect dialect) {
+        if ((value == null) || (value instanceof String) || (value instanceof Boolean) ||
+                (value instanceof Character)) {
+            return String.valueOf(value);
+        }
+        if ((dialect == Dialect.JAVASCRIPT) && (value instanceof Double)) {
+            return javaScriptToString((Double) value);
+        }
+        if ((dialect == Dialect.JAVASCRIPT) && (value instanceof Float)) {
+            throw new Unsupported("Script engine has its own rules for float [" + value + "].");
+        }
+        return toNumber(value).toString();
+    }
+
+    /**
+     * Convert a number to string by following the rules of JavaScript, such as <code>2</code> instead of
+     * <code>2.0</code> and <code>1e-7</code> instead of <code>1.0E-7</code>.
+     *
+     * @param value the number.
+     * @return the string representation of number.
+     */
+    private static String javaScriptToString(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return (value > 0) ? "Infinity" : "-Infinity";
+        }
+        if (value == 0) {
+            return "0";
+        }
+        BigDecimal number = new BigDecimal(Double.toString(value)).stripTrailingZeros();
+        double magnitude = Math.abs(value);
+        if ((magnitude >= JAVASCRIPT_EXPONENTIAL_MINIMUM) && (magnitude < JAVASCRIPT_EXPONENTIAL_MAXIMUM)) {
+            return number.toPlainString();
+        }
+        String digits = number.unscaledValue().abs().toString();
+        int exponent = number.precision() - number.scale() - 1;
+        StringBuilder result = new StringBuilder();
+        if (value < 0) {
+            result.append('-');
+        }
+        result.append(digits.charAt(0));
+        if (digits.length() > 1) {
+            result.append('.').append(digits, 1, digits.length());
+        }
+        return result.append('e').append((exponent < 0) ? '-' : '+').append(Math.abs(exponent)).toString();
+    }
+
+    /**
+     * Compare two numbers or two strings.
+     *
+     * @param a the first value.
+     * @param b the second value.
+     * @param dialect the language whose rules are followed.
+     * @return a negative number, zero or a positive number if <code>a</code> is less than, equal to or greater
+     *         than <code>b</code>.
+     * @throws Unsupported if the values can't be compared.
+     */
+    private static int compare(Object a, Object b, Dialect dialect) {
+        if ((a instanceof String) && (b instanceof String)) {
+            return ((String) a).compareTo((String) b);
+        }
+        Number x = toNumber(a);
+        Number y = toNumber(b);
+        NumberKind kind = (dialect == Dialect.JAVASCRIPT) ? NumberKind.FLOATING : kindOf(x, y);
+        switch (kind) {
+            case INTEGER:
+            case LONG:
+                return Long.compare(x.longValue(), y.longValue());
+            case DECIMAL:
+                return toBigDecimal(x).compareTo(toBigDecimal(y));
+            default:
+                double first = x.doubleValue();
+                double second = y.doubleValue();
+                if (Double.isNaN(first) || Double.isNaN(second)) {
+                    throw new Unsupported("Can't compare NaN.");
+                }
+                return (first < second) ? -1 : ((first > second) ? 1 : 0);
+        }
+    }
+
+    /**
+     * Determine if two values are equal.  In JavaScript, numbers are only compared by their value if one of them
+     * is an <code>Integer</code> or a <code>Double</code>, because Nashorn compares other numbers by identity.
+     *
+     * @param a the first value.
+     * @param b the second value.
+     * @param dialect the language whose rules are followed.
+     * @return <code>true</code> if both values are <code>null</code>, or both are numbers, strings or booleans
+     *         that are equal.
+     * @throws Unsupported if the values have other types.
+     */
+    private static boolean isEqual(Object a, Object b, Dialect dialect) {
+        if ((a == null) || (b == null)) {
+            return a == b;
+        }
+        if ((a instanceof Number) && (b instanceof Number)) {
+            if ((dialect == Dialect.JAVASCRIPT) && !isJavaScriptNumber(a) && !isJavaScriptNumber(b)) {
+                throw new Unsupported("Script engine compares [" + a + "] and [" + b + "] by identity.");
+            }
+            return compare(a, b, dialect) == 0;
+        }
+        if (((a instanceof String) && (b instanceof String)) || ((a instanceof Boolean) && (b instanceof Boolean))) {
+            return a.equals(b);
+        }
+        throw new Unsupported("Can't compare [" + a + "] with [" + b + "].");
+    }
+
+    /**
+     * Determine if a value is a primitive number in Nashorn.
+     *
+     * @param value the value.
+     * @return <code>true</code> if the value is an <code>Integer</code> or a <code>Double</code>.
+     */
+    private static boolean isJavaScriptNumber(Object value) {
+        return (value instanceof Integer) || (value instanceof Double);
+    }
+
+}
@@ -0,0 +1,482 @@
+/*
+ * Copyright 2014 Jocki Hendry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.escp.placeholder;
+
+import simple.escp.placeholder.Expression.Operator;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A recursive descent parser for {@link Expression}.  It only accepts syntax that means the same in JavaScript and
+ * Groovy.  Anything else, such as assignment, function call or keyword, is rejected so the script will be executed
+ * by a script engine.
+ */
+final class ExpressionParser {
+
+    private static final int HEX_RADIX = 16;
+    private static final int UNICODE_ESCAPE_LENGTH = 4;
+    private static final String[] SYMBOLS = {"==", "!=", "<=", ">=", "&&", "||", "+", "-", "*", "/", "%", "<", ">",
+        "!", "?", ":", "(", ")", ",", "."};
+    private static final Set<String> RESERVED_WORDS = new HashSet<>(Arrays.asList("as", "assert", "break", "case",
+        "catch", "class", "const", "continue", "def", "default", "delete", "do", "else", "enum", "export", "extends",
+        "finally", "for", "function", "goto", "if", "implements", "import", "in", "instanceof", "interface", "let",
+        "new", "package", "return", "super", "switch", "this", "throw", "trait", "try", "typeof", "var", "void",
+        "while", "with", "yield", "undefined", "NaN", "Infinity", "arguments"));
+
+    /**
+     * Types of token.
+     */
+    private enum TokenType {
+        LITERAL, IDENTIFIER, SYMBOL, END
+    }
+
+    private final String source;
+    private int position;
+    private TokenType type;
+    private String token;
+    private Object literal;
+
+    /**
+     * Create a new <code>ExpressionParser</code>.
+     *
+     * @param source the script that will be parsed.
+     */
+    ExpressionParser(String source) {
+        this.source = source;
+    }
+
+    /**
+     * Parse the script.
+     *
+     * @return the root node.
+     * @throws IllegalArgumentException if the script is not a supported expression.
+     */
+    Expression.Node parse() {
+        next();
+        Expression.Node result = conditional();
+        if (type != TokenType.END) {
+            throw unexpected();
+        }
+        return result;
+    }
+
+    /**
+     * Parse <code>condition ? whenTrue : whenFalse</code>.
+     *
+     * @return the node.
+     */
+    private Expression.Node conditional() {
+        Expression.Node condition = or();
+        if (!accept("?")) {
+            return condition;
+        }
+        Expression.Node whenTrue = conditional();
+        expect(":");
+        return new Expression.Conditional(condition, whenTrue, conditional());
+    }
+
+    /**
+     * Parse <code>||</code>.
+     *
+     * @return the node.
+     */
+    private Expression.Node or() {
+        Expression.Node result = and();
+        while (accept("||")) {
+            result = new Expression.Binary(Operator.OR, result, and());
+        }
+        return result;
+    }
+
+    /**
+     * Parse <code>&amp;&amp;</code>.
+     *
+     * @return the node.
+     */
+    private Expression.Node and() {
+        Expression.Node result = equality();
+        while (accept("&&")) {
+            result = new Expression.Binary(Operator.AND, result, equality());
+        }
+        return result;
+    }
+
+    /**
+     * Parse <code>==</code> and <code>!=</code>.
+     *
+     * @return the node.
+     */
+    private Expression.Node equality() {
+        Expression.Node result = relational();
+        while (true) {
+            if (accept("==")) {
+                result = new Expression.Binary(Operator.EQUAL, result, relational());
+            } else if (accept("!=")) {
+                result = new Expression.Binary(Operator.NOT_EQUAL, result, relational());
+            } else {
+                return result;
+            }
+        }
+    }
+
+    /**
+     * Parse <code>&lt;</code>, <code>&lt;=</code>, <code>&gt;</code> and <code>&gt;=</code>.
+     *
+     * @return the node.
+     */
+    private Expression.Node relational() {
+        Expression.Node result = additive();
+        while (true) {
+            if (accept("<")) {
+                result = new Expression.Binary(Operator.LESS, result, additive());
+            } else if (accept("<=")) {
+                result = new Expression.Binary(Operator.LESS_OR_EQUAL, result, additive());
+            } else if (accept(">")) {
+                result = new Expression.Binary(Operator.GREATER, result, additive());
+            } else if (accept(">=")) {
+                result = new Expression.Binary(Operator.GREATER_OR_EQUAL, result, additive());
+            } else {
+                return result;
+            }
+        }
+    }
+
+    /**
+     * Parse <code>+</code> and <code>-</code>.
+     *
+     * @return the node.
+     */
+    private Expression.Node additive() {
+        Expression.Node result = multiplicative();
+        while (true) {
+            if (accept("+")) {
+                result = new Expression.Binary(Operator.ADD, result, multiplicative());
+            } else if (accept("-")) {
+                result = new Expression.Binary(Operator.SUBTRACT, result, multiplicative());
+            } else {
+                return result;
+            }
+        }
+    }
+
+    /**
+     * Parse <code>*</code>, <code>/</code> and <code>%</code>.
+     *
+     * @return the node.
+     */
+    private Expression.Node multiplicative() {
+        Expression.Node result = unary();
+        while (true) {
+            if (accept("*")) {
+                result = new Expression.Binary(Operator.MULTIPLY, result, unary());
+            } else if (accept("/")) {
+                result = new Expression.Binary(Operator.DIVIDE, result, unary());
+            } else if (accept("%")) {
+                result = new Expression.Binary(Operator.REMAINDER, result, unary());
+            } else {
+                return result;
+            }
+        }
+    }
+
+    /**
+     * Parse <code>!</code> and unary <code>-</code>.
+     *
+     * @return the node.
+     */
+    private Expression.Node unary() {
+        if (accept("!")) {
+            return new Expression.Unary(Operator.NOT, unary());
+        }
+        if (accept("-")) {
+            return new Expression.Unary(Operator.NEGATE, unary());
+        }
+        return postfix();
+    }
+
+    /**
+     * Parse member access and method call, such as <code>customer.name</code> or
+     * <code>name.substring(0, 3)</code>.
+     *
+     * @return the node.
+     */
+    private Expression.Node postfix() {
+        Expression.Node result = primary();
+        while (accept(".")) {
+            String name = identifier();
+            if (accept("(")) {
+                List<Expression.Node> arguments = new ArrayList<>();
+                if (!accept(")")) {
+                    do {
+                        arguments.add(conditional());
+                    } while (accept(","));
+                    expect(")");
+                }
+                result = new Expression.Call(result, name, arguments.toArray(new Expression.Node[0]));
+            } else {
+                result = new Expression.Member(result, name);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Parse a literal, a variable or an expression in parentheses.
+     *
+     * @return the node.
+     */
+    private Expression.Node primary() {
+        if (type == TokenType.LITERAL) {
+            Expression.Node result = new Expression.Literal(literal);
+            next();
+            return result;
+        }
+        if (type == TokenType.IDENTIFIER) {
+            String name = identifier();
+            if ("(".equals(token) && (type == TokenType.SYMBOL)) {
+                throw unexpected();
+            }
+            return new Expression.Variable(name);
+        }
+        if (accept("(")) {
+            Expression.Node result = conditional();
+            expect(")");
+            return result;
+        }
+        throw unexpected();
+    }
+
+    /**
+     * Consume an identifier.
+     *
+     * @return the identifier.
+     */
+    private String identifier() {
+        if (type != TokenType.IDENTIFIER) {
+            throw unexpected();
+        }
+        String result = token;
+        next();
+        return result;
+    }
+
+    /**
+     * Consume a symbol if it is the current token.
+     *
+     * @param symbol the symbol.
+     * @return <code>true</code> if the symbol was consumed.
+     */
+    private boolean accept(String symbol) {
+        if ((type == TokenType.SYMBOL) && token.equals(symbol)) {
+            next();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Consume a symbol that must be the current token.
+     *
+     * @param symbol the symbol.
+     */
+    private void expect(String symbol) {
+        if (!accept(symbol)) {
+            throw unexpected();
+        }
+    }
+
+    /**
+     * Create an exception for the current token.
+     *
+     * @return the exception.
+     */
+    private IllegalArgumentException unexpected() {
+        String text = (type == TokenType.END) ? "end of script" : ("[" + token + "]");
+        return new IllegalArgumentException("Unexpected " + text + " at position " + position + ".");
+    }
+
+    /**
+     * Read the next token.
+     */
+    private void next() {
+        while ((position < source.length()) && Character.isWhitespace(source.charAt(position))) {
+            position++;
+        }
+        literal = null;
+        if (position >= source.length()) {
+            type = TokenType.END;
+            token = null;
+            return;
+        }
+        char c = source.charAt(position);
+        if (Character.isDigit(c)) {
+            readNumber();
+        } else if ((c == '\'') || (c == '"')) {
+            readString(c);
+        } else if (Character.isJavaIdentifierStart(c)) {
+            readIdentifier();
+        } else {
+            for (String symbol : SYMBOLS) {
+                if (source.startsWith(symbol, position)) {
+                    type = TokenType.SYMBOL;
+                    token = symbol;
+                    position += symbol.length();
+                    return;
+                }
+            }
+            throw new IllegalArgumentException("Unexpected [" + c + "] at position " + position + ".");
+        }
+    }
+
+    /**
+     * Read a number such as <code>10</code> or <code>2.5</code>.  Whole numbers become <code>Integer</code> or
+     * <code>Long</code> and numbers with decimal point become <code>BigDecimal</code>.
+     */
+    private void readNumber() {
+        int start = position;
+        boolean decimal = false;
+        while ((position < source.length()) && Character.isDigit(source.charAt(position))) {
+            position++;
+        }
+        if ((position + 1 < source.length()) && (source.charAt(position) == '.') &&
+                Character.isDigit(source.charAt(position + 1))) {
+            decimal = true;
+            position++;
+            while ((position < source.length()) && Character.isDigit(source.charAt(position))) {
+                position++;
+            }
+        }
+        token = source.substring(start, position);
+        if ((position < source.length()) && ((source.charAt(position) == '.') ||
+                Character.isJavaIdentifierPart(source.charAt(position)))) {
+            throw new IllegalArgumentException("Unsupported number at position " + start + ".");
+        }
+        if ((token.length() > 1) && (token.charAt(0) == '0') && Character.isDigit(token.charAt(1))) {
+            throw new IllegalArgumentException("Unsupported number [" + token + "].");
+        }
+        type = TokenType.LITERAL;
+        if (decimal) {
+            literal = new BigDecimal(token);
+        } else {
+            try {
+                long value = Long.parseLong(token);
+                if (value <= Integer.MAX_VALUE) {
+                    literal = (int) value;
+                } else {
+                    literal = value;
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Number [" + token + "] is too big.");
+            }
+        }
+    }
+
+    /**
+     * Read a string that is enclosed in single or double quotes.  Double quoted strings that contain
+     * <code>"$"</code> are rejected because Groovy treats them as template.
+     *
+     * @param quote the quote character.
+     */
+    private void readString(char quote) {
+        int start = position++;
+        StringBuilder result = new StringBuilder();
+        while (true) {
+            if (position >= source.length()) {
+                throw new IllegalArgumentException("Unterminated string at position " + start + ".");
+            }
+            char c = source.charAt(position++);
+            if (c == quote) {
+                break;
+            }
+            if ((c == '\n') || (c == '\r') || ((c == '$') && (quote == '"'))) {
+                throw new IllegalArgumentException("Unsupported string at position " + start + ".");
+            }
+            result.append((c == '\\') ? readEscape() : c);
+        }
+        type = TokenType.LITERAL;
+        token = source.substring(start, position);
+        literal = result.toString();
+    }
+
+    /**
+     * Read the character after a backslash in a string.
+     *
+     * @return the character that is represented by the escape sequence.
+     */
+    private char readEscape() {
+        if (position >= source.length()) {
+            throw new IllegalArgumentException("Unterminated escape sequence.");
+        }
+        char c = source.charAt(position++);
+        switch (c) {
+            case 'n':
+                return '\n';
+            case 't':
+                return '\t';
+            case 'r':
+                return '\r';
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case '\\':
+            case '\'':
+            case '"':
+                return c;
+            case 'u':
+                if (position + UNICODE_ESCAPE_LENGTH > source.length()) {
+                    throw new IllegalArgumentException("Invalid unicode escape sequence.");
+                }
+                String hex = source.substring(position, position + UNICODE_ESCAPE_LENGTH);
+                position += UNICODE_ESCAPE_LENGTH;
+                try {
+                    return (char) Integer.parseInt(hex, HEX_RADIX);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid unicode escape sequence [" + hex + "].");
+                }
+            default:
+                throw new IllegalArgumentException("Unsupported escape sequence [\\" + c + "].");
+        }
+    }
+
+    /**
+     * Read an identifier, <code>true</code>, <code>false</code> or <code>null</code>.
+     */
+    private void readIdentifier() {
+        int start = position;
+        while ((position < source.length()) && Character.isJavaIdentifierPart(source.charAt(position))) {
+            position++;
+        }
+        token = source.substring(start, position);
+        if (RESERVED_WORDS.contains(token)) {
+            throw new IllegalArgumentException("Unsupported keyword [" + token + "].");
+        }
+        type = TokenType.LITERAL;
+        if ("true".equals(token)) {
+            literal = Boolean.TRUE;
+        } else if ("false".equals(token)) {
+            literal = Boolean.FALSE;
+        } else if (!"null".equals(token)) {
+            type = TokenType.IDENTIFIER;
+        }
+    }
+
+}
@@ -1,10 +1,10 @@
 package simple.escp.placeholder;
 
 import simple.escp.data.DataSource;
+import simple.escp.data.ResolutionIndex;
 import simple.escp.exception.InvalidPlaceholder;
 import simple.escp.util.StringUtil;
 import java.math.BigDecimal;
-import java.text.DateFormat;
 import java.text.Format;
 import java.text.NumberFormat;
 import java.util.Collection;
@@ -40,12 +40,42 @@ public abstract class Placeholder {
     protected StringUtil.ALIGNMENT alignment;
 
     /**
-     * Create a new instance of placeholder.
+     * Create a new instance of placeholder.  The options in <code>text</code> are parsed in the same way as
+     * {@link PlaceholderSpec#forBasic(String)}.
      *
      * @param text a string that defines this placeholder.
      */
     protected Placeholder(String text) {
-        this.text = text.trim();
+        this(PlaceholderSpec.forBasic(text));
+    }
+
+    /**
+     * Create a new instance of placeholder from a parsed specification.
+     *
+     * @param spec the specification of this placeholder.
+     */
+    protected Placeholder(PlaceholderSpec spec) {
+        this.text = spec.getText();
+        this.format = spec.createFormat();
+        this.width = spec.getWidth();
+        this.sum = spec.isSum();
+        this.count = spec.isCount();
+        this.alignment = spec.getAlignment();
+    }
+
+    /**
+     * Create a new placeholder as a copy of another placeholder.  The text of the original placeholder will
+     * not be parsed again.
+     *
+     * @param another the placeholder to copy.
+     */
+    protected Placeholder(Placeholder another) {
+        this.text = another.text;
+        this.format = (another.format == null) ? null : (Format) another.format.clone();
+        this.width = another.width;
+        this.sum = another.sum;
+        this.count = another.count;
+        this.alignment = another.alignment;
     }
 
     /**
@@ -231,6 +261,45 @@ public abstract class Placeholder {
             }
         }
 
+        return align(result);
+    }
+
+    /**
+     * Get a formatted version, including width limit, of a <code>long</code> value.  If this placeholder uses a
+     * <code>NumberFormat</code>, the value is formatted without boxing it.
+     *
+     * @param value the value passed to this placeholder.
+     * @return the formatted value.
+     */
+    public Object getFormattedLong(long value) {
+        if (isSum() || isCount() || ((getFormat() != null) && !(getFormat() instanceof NumberFormat))) {
+            return getFormatted((Object) value);
+        }
+        return align((getFormat() == null) ? String.valueOf(value) : ((NumberFormat) getFormat()).format(value));
+    }
+
+    /**
+     * Get a formatted version, including width limit, of a <code>double</code> value.  If this placeholder uses a
+     * <code>NumberFormat</code>, the value is formatted without boxing it.
+     *
+     * @param value the value passed to this placeholder.
+     * @return the formatted value.
+     */
+    public Object getFormattedDouble(double value) {
+        if (isSum() || isCount() || ((getFormat() != null) && !(getFormat() instanceof NumberFormat))) {
+            return getFormatted((Object) value);
+        }
+        return align((getFormat() == null) ? String.valueOf(value) : ((NumberFormat) getFormat()).format(value));
+    }
+
+    /**
+     * Apply width limit and alignment of this placeholder to a value.
+     *
+     * @param value the formatted value.
+     * @return the aligned value, or <code>value</code> if this placeholder doesn't have width.
+     */
+    private Object align(Object value) {
+        Object result = value;
         if (getWidth() > 0) {
             result = (result != null) ? result : "";
             if (getAlignment() == null) {
@@ -264,20 +333,9 @@ public abstract class Placeholder {
      * @param text part of text for this placeholder.
      */
     protected void parseFormatter(String text) {
-        if ("number".equals(text)) {
-            format = NumberFormat.getNumberInstance();
-        } else if ("integer".equals(text)) {
-            format = NumberFormat.getIntegerInstance();
-        } else if ("currency".equals(text)) {
-            format = NumberFormat.getCurrencyInstance();
-        } else if ("date_full".equals(text)) {
-            format = DateFormat.getDateInstance(DateFormat.FULL);
-        } else if ("date_long".equals(text)) {
-            format = DateFormat.getDateInstance(DateFormat.LONG);
-        } else if ("date_medium".equals(text)) {
-            format = DateFormat.getDateInstance(DateFormat.MEDIUM);
-        } else if ("date_short".equals(text)) {
-            format = DateFormat.getDateInstance(DateFormat.SHORT);
+        Format parsed = PlaceholderSpec.parseFormat(text);
+        if (parsed != null) {
+            format = parsed;
         }
     }
 
@@ -287,10 +345,9 @@ public abstract class Placeholder {
      * @param text part of text for this placeholder.
      */
     protected void parseWidth(String text) {
-        try {
-            width = Integer.valueOf(text);
-        } catch (NumberFormatException e) {
-            LOG.fine("Can't convert [" + text + "] to number.");
+        Integer parsed = PlaceholderSpec.parseWidth(text);
+        if (parsed != null) {
+            width = parsed;
         }
     }
 
@@ -301,12 +358,9 @@ public abstract class Placeholder {
      * @param text part of text for this placeholder.
      */
     protected void parseAlignment(String text) {
-        if ("left".equals(text)) {
-            setAlignment(StringUtil.ALIGNMENT.LEFT);
-        } else if ("right".equals(text)) {
-            setAlignment(StringUtil.ALIGNMENT.RIGHT);
-        } else if ("center".equals(text)) {
-            setAlignment(StringUtil.ALIGNMENT.CENTER);
+        StringUtil.ALIGNMENT parsed = PlaceholderSpec.parseAlignment(text);
+        if (parsed != null) {
+            setAlignment(parsed);
         }
     }
 
@@ -337,6 +391,19 @@ public abstract class Placeholder {
      */
     public abstract Object getValue(DataSource[] dataSources);
 
+    /**
+     * Retrieve a value from the data sources of a <code>ResolutionIndex</code>.  Subclasses that read a member by
+     * its name can use the index so that the same member is not searched in every data source again.
+     *
+     * @param index the index of data sources from where this placeholder retrieves its value.
+     * @return the value for the member name.
+     * @throws simple.escp.exception.InvalidPlaceholder if can't find the value for the member name in
+     *         data source.
+     */
+    public Object getIndexedValue(ResolutionIndex index) {
+        return getValue(index.getDataSources());
+    }
+
     /**
      * Retrieve a value for a <code>Placeholder</code> in form of <code>String</code>.
      *
@@ -360,4 +427,15 @@ public abstract class Placeholder {
         return getFormatted(getValue(dataSources));
     }
 
+    /**
+     * Retrieve a value for a <code>Placeholder</code> in form of <code>String</code> by using a
+     * <code>ResolutionIndex</code>.
+     *
+     * @param index the index of data sources from where this placeholder retrieves its value.
+     * @return the value for the <code>placeholder</code> in form of <code>String</code>.
+     */
+    public String getIndexedValueAsString(ResolutionIndex index) {
+        return getFormatted(getIndexedValue(index)).toString();
+    }
+
 }
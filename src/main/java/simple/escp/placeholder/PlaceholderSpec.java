@@ -0,0 +1,301 @@
+/*
+ * Copyright 2014 Jocki Hendry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.escp.placeholder;
+
+import simple.escp.util.StringUtil;
+import java.text.DateFormat;
+import java.text.Format;
+import java.text.NumberFormat;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Logger;
+
+/**
+ *  <code>PlaceholderSpec</code> is the immutable result of parsing the text of a placeholder, such as
+ *  <code>"salary:currency:10:right"</code>.  It stores the name (or script), format, width, alignment and
+ *  aggregation of a placeholder.
+ *
+ *  <p>Specifications are stored in a process-wide cache keyed by the raw text of placeholder, so the same text is
+ *  only parsed once regardless of how many <code>FillJob</code> or templates use it.  The cache is bounded by
+ *  {@link #MAXIMUM_CACHE_SIZE} for each kind of placeholder.  If it is full, new specifications will still be
+ *  parsed but they will not be cached.
+ *
+ *  <p>Because <code>Format</code> is not thread-safe, {@link #createFormat()} always returns a new copy of the
+ *  parsed format.
+ */
+public final class PlaceholderSpec {
+
+    private static final Logger LOG = Logger.getLogger("simple.escp");
+    public static final int MAXIMUM_CACHE_SIZE = 10000;
+
+    private static final ConcurrentMap<String, PlaceholderSpec> BASIC_SPECS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, PlaceholderSpec> SCRIPT_SPECS = new ConcurrentHashMap<>();
+
+    private final String text;
+    private final String name;
+    private final Format format;
+    private final Locale locale;
+    private final int width;
+    private final boolean sum;
+    private final boolean count;
+    private final StringUtil.ALIGNMENT alignment;
+
+    /**
+     * Create a new specification by parsing the text of a placeholder.  The first part of text is the name (or
+     * script) of placeholder and the rest are options such as format, width, alignment and aggregation.
+     *
+     * @param text the raw text of placeholder.
+     * @param separator the separator for parts of placeholder.
+     * @param locale the current locale for format.
+     */
+    private PlaceholderSpec(String text, String separator, Locale locale) {
+        LOG.fine("Parsing [" + text + "]");
+        this.text = text.trim();
+        this.locale = locale;
+        Format parsedFormat = null;
+        int parsedWidth = 0;
+        boolean parsedSum = false;
+        boolean parsedCount = false;
+        StringUtil.ALIGNMENT parsedAlignment = null;
+        if (this.text.contains(separator)) {
+            String[] parts = this.text.split(separator, 2);
+            this.name = parts[0].trim();
+            for (String part: parts[1].split(separator)) {
+                part = part.trim();
+                LOG.fine("Processing part [" + part + "]");
+                parsedSum = parsedSum || "sum".equals(part);
+                parsedCount = parsedCount || "count".equals(part);
+                Format partFormat = parseFormat(part);
+                if (partFormat != null) {
+                    parsedFormat = partFormat;
+                }
+                Integer partWidth = parseWidth(part);
+                if (partWidth != null) {
+                    parsedWidth = partWidth;
+                }
+                StringUtil.ALIGNMENT partAlignment = parseAlignment(part);
+                if (partAlignment != null) {
+                    parsedAlignment = partAlignment;
+                }
+            }
+        } else {
+            this.name = this.text;
+        }
+        this.format = parsedFormat;
+        this.width = parsedWidth;
+        this.sum = parsedSum;
+        this.count = parsedCount;
+        this.alignment = parsedAlignment;
+    }
+
+    /**
+     * Retrieve the specification for a basic placeholder.  Parts of basic placeholder are separated by
+     * {@link BasicPlaceholder#SEPARATOR}.
+     *
+     * @param text the raw text of placeholder, for example <code>"name:10"</code>.
+     * @return the cached or newly parsed specification.
+     */
+    public static PlaceholderSpec forBasic(String text) {
+        return get(BASIC_SPECS, text, BasicPlaceholder.SEPARATOR);
+    }
+
+    /**
+     * Retrieve the specification for a script placeholder.  Parts of script placeholder are separated by
+     * {@link ScriptPlaceholder#SEPARATOR}.
+     *
+     * @param text the raw text of placeholder, for example <code>"salary * 2::number"</code>.
+     * @return the cached or newly parsed specification.
+     */
+    public static PlaceholderSpec forScript(String text) {
+        return get(SCRIPT_SPECS, text, ScriptPlaceholder.SEPARATOR);
+    }
+
+    /**
+     * Retrieve the number of specifications in cache.
+     *
+     * @return number of cached specifications for all kinds of placeholder.
+     */
+    public static int getCacheSize() {
+        return BASIC_SPECS.size() + SCRIPT_SPECS.size();
+    }
+
+    /**
+     * Remove all cached specifications.
+     */
+    public static void clearCache() {
+        BASIC_SPECS.clear();
+        SCRIPT_SPECS.clear();
+    }
+
+    /**
+     * Find a specification in cache or parse it if it is not in cache yet.
+     *
+     * @param cache the cache for this kind of placeholder.
+     * @param text the raw text of placeholder.
+     * @param separator the separator for parts of placeholder.
+     * @return the specification for <code>text</code>.
+     */
+    private static PlaceholderSpec get(ConcurrentMap<String, PlaceholderSpec> cache, String text, String separator) {
+        Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+        PlaceholderSpec spec = cache.get(text);
+        if ((spec != null) && ((spec.format == null) || spec.locale.equals(locale))) {
+            return spec;
+        }
+        spec = parse(text, separator, locale);
+        if (cache.size() < MAXIMUM_CACHE_SIZE) {
+            cache.put(text, spec);
+        } else {
+            LOG.fine("Placeholder cache is full, [" + text + "] will not be cached.");
+        }
+        return spec;
+    }
+
+    /**
+     * Parse the text of a placeholder.
+     *
+     * @param text the raw text of placeholder.
+     * @param separator the separator for parts of placeholder.
+     * @param locale the current locale for format.
+     * @return the result of parsing.
+     */
+    private static PlaceholderSpec parse(String text, String separator, Locale locale) {
+        return new PlaceholderSpec(text, separator, locale);
+    }
+
+    /**
+     * Parse formatter such as <code>number</code>, <code>date_full</code>, etc.
+     *
+     * @param part part of text for a placeholder.
+     * @return a new <code>Format</code> or <code>null</code> if <code>part</code> is not a formatter.
+     */
+    static Format parseFormat(String part) {
+        if ("number".equals(part)) {
+            return NumberFormat.getNumberInstance();
+        } else if ("integer".equals(part)) {
+            return NumberFormat.getIntegerInstance();
+        } else if ("currency".equals(part)) {
+            return NumberFormat.getCurrencyInstance();
+        } else if ("date_full".equals(part)) {
+            return DateFormat.getDateInstance(DateFormat.FULL);
+        } else if ("date_long".equals(part)) {
+            return DateFormat.getDateInstance(DateFormat.LONG);
+        } else if ("date_medium".equals(part)) {
+            return DateFormat.getDateInstance(DateFormat.MEDIUM);
+        } else if ("date_short".equals(part)) {
+            return DateFormat.getDateInstance(DateFormat.SHORT);
+        }
+        return null;
+    }
+
+    /**
+     * Parse width for a placeholder.
+     *
+     * @param part part of text for a placeholder.
+     * @return the width or <code>null</code> if <code>part</code> is not a number.
+     */
+    static Integer parseWidth(String part) {
+        try {
+            return Integer.valueOf(part);
+        } catch (NumberFormatException e) {
+            LOG.fine("Can't convert [" + part + "] to number.");
+            return null;
+        }
+    }
+
+    /**
+     * Parse alignment for a placeholder, such as <code>"left"</code>, <code>"right"</code>, or
+     * <code>"center"</code>.
+     *
+     * @param part part of text for a placeholder.
+     * @return the alignment or <code>null</code> if <code>part</code> is not an alignment.
+     */
+    static StringUtil.ALIGNMENT parseAlignment(String part) {
+        if ("left".equals(part)) {
+            return StringUtil.ALIGNMENT.LEFT;
+        } else if ("right".equals(part)) {
+            return StringUtil.ALIGNMENT.RIGHT;
+        } else if ("center".equals(part)) {
+            return StringUtil.ALIGNMENT.CENTER;
+        }
+        return null;
+    }
+
+    /**
+     * Retrieve the trimmed text of placeholder.
+     *
+     * @return the text of placeholder.
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Retrieve the name of basic placeholder or the script of script placeholder.
+     *
+     * @return the first part of placeholder text.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Create a new copy of the format of this placeholder.
+     *
+     * @return a new <code>Format</code> or <code>null</code> if this placeholder doesn't have format.
+     */
+    public Format createFormat() {
+        return (format == null) ? null : (Format) format.clone();
+    }
+
+    /**
+     * Retrieve the maximal width of this placeholder.
+     *
+     * @return maximal number of characters or <code>0</code> if it is unlimited.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Determine if this placeholder is for displaying sum of value.
+     *
+     * @return <code>true</code> if this placeholder is for displaying sum of value.
+     */
+    public boolean isSum() {
+        return sum;
+    }
+
+    /**
+     * Determine if this placeholder is for displaying count of value.
+     *
+     * @return <code>true</code> if this placeholder is for displaying count of value.
+     */
+    public boolean isCount() {
+        return count;
+    }
+
+    /**
+     * Retrieve the alignment of this placeholder.
+     *
+     * @return alignment or <code>null</code> if no alignment is specified.
+     */
+    public StringUtil.ALIGNMENT getAlignment() {
+        return alignment;
+    }
+
+}
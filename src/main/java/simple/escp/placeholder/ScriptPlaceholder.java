@@ -4,6 +4,7 @@ import simple.escp.data.DataSource;
 import simple.escp.exception.InvalidPlaceholder;
 
 import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
 import javax.script.ScriptException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -11,41 +12,61 @@ import java.util.logging.Logger;
 /**
  * This class represent a <code>Placeholder</code> that contains scripts that will be executed by using
  * JSR 223 Scripting for the Java Platform API.
+ *
+ * <p>Simple scripts, such as arithmetic, comparison or property access, are parsed once into an {@link Expression}
+ * and evaluated without script engine.  The script engine is only used for scripts that can't be evaluated by
+ * {@link Expression}.  The expression follows the rules of the language of script engine, so it returns the same
+ * value as the script engine.  If no script engine is available, the expression follows the rules of Groovy.
  */
 public class ScriptPlaceholder extends Placeholder {
 
     private static final Logger LOG = Logger.getLogger("simple.escp");
     public static final String SEPARATOR = "::";
 
+    private static volatile boolean expressionEnabled = true;
+
     private String script;
+    private Expression expression;
+    private Expression.Dialect dialect;
+    private boolean dialectResolved;
     private ScriptEngine scriptEngine;
 
     /**
-     * Create a new instance of script placeholder.
+     * Create a new instance of script placeholder.  The text will only be parsed if it is not in the cache of
+     * {@link PlaceholderSpec}.
      *
      * @param text a string that defines this placeholder.
      * @param scriptEngine a script engine to execute script in this placeholder.
      */
     public ScriptPlaceholder(String text, ScriptEngine scriptEngine) {
-        super(text);
+        this(PlaceholderSpec.forScript(text), scriptEngine);
+    }
+
+    /**
+     * Create a new instance of script placeholder from a parsed specification.
+     *
+     * @param spec the specification of this placeholder.
+     * @param scriptEngine a script engine to execute script in this placeholder.
+     */
+    public ScriptPlaceholder(PlaceholderSpec spec, ScriptEngine scriptEngine) {
+        super(spec);
+        this.script = spec.getName();
+        this.expression = Expression.parse(script);
         this.scriptEngine = scriptEngine;
-        parseText(getText());
     }
 
     /**
-     * Parse placeholder text.
+     * Create a new instance of script placeholder as a copy of another script placeholder.  The new placeholder
+     * will execute its script by using a different script engine.
      *
-     * @param text full text that represent this placeholder.
+     * @param another the placeholder to copy.
+     * @param scriptEngine a script engine to execute script in this placeholder.
      */
-    private void parseText(String text) {
-        LOG.fine("Parsing [" + text + "]");
-        if (text.contains(SEPARATOR)) {
-            String[] parts = text.split(SEPARATOR, 2);
-            this.script = parts[0].trim();
-            parseText(parts[1].split(SEPARATOR));
-        } else {
-            this.script = text;
-        }
+    public ScriptPlaceholder(ScriptPlaceholder another, ScriptEngine scriptEngine) {
+        super(another);
+        this.script = another.script;
+        this.expression = another.expression;
+        this.scriptEngine = scriptEngine;
     }
 
     /**
@@ -64,6 +85,35 @@ public class ScriptPlaceholder extends Placeholder {
      */
     public void setScript(String script) {
         this.script = script;
+        this.expression = Expression.parse(script);
+    }
+
+    /**
+     * Retrieve the expression that evaluates the script of this placeholder without script engine.
+     *
+     * @return the expression or <code>null</code> if the script can only be executed by a script engine.
+     */
+    public Expression getExpression() {
+        return expression;
+    }
+
+    /**
+     * Determine if simple scripts are evaluated without script engine.
+     *
+     * @return <code>true</code> if scripts are evaluated by {@link Expression} when possible.
+     */
+    public static boolean isExpressionEnabled() {
+        return expressionEnabled;
+    }
+
+    /**
+     * Determine if simple scripts are evaluated without script engine.  The default value is <code>true</code>.
+     * Set it to <code>false</code> to always execute scripts by using script engine.
+     *
+     * @param expressionEnabled <code>true</code> if scripts are evaluated by {@link Expression} when possible.
+     */
+    public static void setExpressionEnabled(boolean expressionEnabled) {
+        ScriptPlaceholder.expressionEnabled = expressionEnabled;
     }
 
     /**
@@ -71,6 +121,17 @@ public class ScriptPlaceholder extends Placeholder {
      */
     @Override
     public Object getValue(DataSource[] dataSources) {
+        if ((expression != null) && expressionEnabled && (getDialect() != null)) {
+            Object value = (scriptEngine == null) ? expression.evaluate(dataSources, dialect) :
+                expression.evaluate(scriptEngine.getContext(), dialect);
+            if (value != Expression.UNSUPPORTED) {
+                return value;
+            }
+        }
+        if (scriptEngine == null) {
+            LOG.warning("Can't execute script [" + script + "] without script engine.");
+            return "";
+        }
         try {
             return scriptEngine.eval(script);
         } catch (ScriptException e) {
@@ -79,4 +140,19 @@ public class ScriptPlaceholder extends Placeholder {
         }
     }
 
+    /**
+     * Determine the language whose rules are followed when evaluating the expression of this placeholder.
+     *
+     * @return the dialect of script engine, {@link Expression.Dialect#GROOVY} if there is no script engine that can
+     *         execute the script, or <code>null</code> if the language of script engine is not known.
+     */
+    private Expression.Dialect getDialect() {
+        if (!dialectResolved) {
+            ScriptEngineFactory factory = (scriptEngine == null) ? null : scriptEngine.getFactory();
+            dialect = (factory == null) ? Expression.Dialect.GROOVY : Expression.Dialect.of(factory);
+            dialectResolved = true;
+        }
+        return dialect;
+    }
+
 }
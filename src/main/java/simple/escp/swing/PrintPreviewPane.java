@@ -102,7 +102,7 @@ public class PrintPreviewPane extends JPanel implements ActionListener {
      * @param objectValue to fill placeholders in the <code>Template</code>.
      */
     public PrintPreviewPane(Template template, Map mapValue, Object objectValue) {
-        this(new FillJob(template.parse(), DataSources.from(mapValue, objectValue)).fill(),
+        this(new FillJob(template.compile(), DataSources.from(mapValue, objectValue)).fill(),
             template.getPageFormat().getPageLength(),
             template.getPageFormat().getPageWidth());
     }
@@ -162,7 +162,7 @@ public class PrintPreviewPane extends JPanel implements ActionListener {
      */
     public void display(Template template, DataSource dataSource) {
         PageFormat pageFormat = template.getPageFormat();
-        display(new FillJob(template.parse(), dataSource).fill(), pageFormat);
+        display(new FillJob(template.compile(), dataSource).fill(), pageFormat);
     }
 
     /**
@@ -173,7 +173,7 @@ public class PrintPreviewPane extends JPanel implements ActionListener {
      */
     public void display(Template template, DataSource[] dataSources) {
         PageFormat pageFormat = template.getPageFormat();
-        display(new FillJob(template.parse(), dataSources).fill(), pageFormat);
+        display(new FillJob(template.compile(), dataSources).fill(), pageFormat);
     }
 
     /**
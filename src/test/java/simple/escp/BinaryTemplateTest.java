@@ -0,0 +1,184 @@
+package simple.escp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import simple.escp.data.DataSources;
+import simple.escp.dom.PageFormat;
+import simple.escp.dom.line.TableLine;
+import simple.escp.fill.FillJob;
+import simple.escp.json.JsonTemplate;
+import simple.escp.util.EscpUtil;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import static org.junit.Assert.*;
+
+public class BinaryTemplateTest {
+
+    private static final String TEMPLATE = "{" +
+        "\"pageFormat\": {" +
+            "\"pageLength\": 20," +
+            "\"pageWidth\": 40," +
+            "\"leftMargin\": 2," +
+            "\"characterPitch\": \"12\"," +
+            "\"lineSpacing\": \"1/8\"," +
+            "\"typeface\": \"sans-serif\"," +
+            "\"autoLineFeed\": true," +
+            "\"usePageLengthFromPrinter\": false" +
+        "}," +
+        "\"template\": {" +
+            "\"header\": [\"Header %{PAGE_NO}\"]," +
+            "\"footer\": [\"Footer\"]," +
+            "\"lastPageFooter\": [\"Last Footer\"]," +
+            "\"firstPage\": [\"Customer: ${customer}\", \"Total: {{total * 2}}\"]," +
+            "\"detail\": [" +
+                "\"%{BOLD}Detail%{BOLD}\"," +
+                "{" +
+                    "\"table\": \"items\"," +
+                    "\"border\": true," +
+                    "\"columns\": [" +
+                        "{\"source\": \"name\", \"width\": 10, \"caption\": \"Item Name\", \"wrap\": true}," +
+                        "{\"source\": \"qty\", \"width\": 5}" +
+                    "]" +
+                "}," +
+                "{" +
+                    "\"list\": \"items\"," +
+                    "\"line\": \"* ${name}\"," +
+                    "\"header\": [\"Items:\"]," +
+                    "\"footer\": [\"End of items.\"]" +
+                "}" +
+            "]," +
+            "\"lastPage\": [\"Thank you\"]" +
+        "}" +
+    "}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Map<String, Object> createSource() {
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("name", "Item number " + i);
+            item.put("qty", i * 10);
+            items.add(item);
+        }
+        List<Map<String, Object>> persons = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            Map<String, Object> person = new HashMap<>();
+            person.put("firstName", "First " + i);
+            person.put("lastName", "Last " + i);
+            person.put("nickname", "Nick " + i);
+            persons.add(person);
+        }
+        Map<String, Object> source = new HashMap<>();
+        source.put("customer", "Solid Snake");
+        source.put("total", 25);
+        source.put("items", items);
+        source.put("persons", persons);
+        return source;
+    }
+
+    private byte[] toBinary(JsonTemplate template) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryTemplate.write(template, out);
+        return out.toByteArray();
+    }
+
+    private void assertSameResult(JsonTemplate jsonTemplate) throws IOException {
+        BinaryTemplate binaryTemplate = BinaryTemplate.read(new ByteArrayInputStream(toBinary(jsonTemplate)));
+        Map<String, Object> source = createSource();
+        assertEquals(
+            new FillJob(jsonTemplate.compile(), DataSources.from(source)).fill(),
+            new FillJob(binaryTemplate.compile(), DataSources.from(source)).fill()
+        );
+    }
+
+    @Test
+    public void readAndWrite() throws IOException {
+        JsonTemplate jsonTemplate = new JsonTemplate(TEMPLATE);
+        BinaryTemplate binaryTemplate = BinaryTemplate.read(new ByteArrayInputStream(toBinary(jsonTemplate)));
+        assertEquals(BinaryTemplate.checksum(TEMPLATE), binaryTemplate.getSourceChecksum());
+
+        PageFormat pageFormat = binaryTemplate.getPageFormat();
+        assertEquals(20, pageFormat.getPageLength().intValue());
+        assertEquals(40, pageFormat.getPageWidth().intValue());
+        assertEquals(2, pageFormat.getLeftMargin().intValue());
+        assertNull(pageFormat.getRightMargin());
+        assertEquals(EscpUtil.CHARACTER_PITCH.CPI_12, pageFormat.getCharacterPitch());
+        assertEquals(PageFormat.LINE_SPACING.ONE_PER_EIGHT_INCH, pageFormat.getLineSpacing());
+        assertEquals(EscpUtil.TYPEFACE.SANS_SERIF, pageFormat.getTypeface());
+        assertTrue(pageFormat.isAutoLineFeed());
+        assertFalse(pageFormat.isUsePageLengthFromPrinter());
+        assertEquals(jsonTemplate.getPageFormat().build(), pageFormat.build());
+
+        assertEquals(jsonTemplate.parse().getNumberOfPages(), binaryTemplate.parse().getNumberOfPages());
+        assertEquals("Last Footer", binaryTemplate.parse().getLastPageFooter()[0].getText());
+        TableLine tableLine = binaryTemplate.parse().getFirstPageWithTableLines().getTableLines().get(0);
+        assertTrue(tableLine.isDrawBorder());
+        assertEquals("Item Name", tableLine.getColumnAt(1).getCaption());
+        assertTrue(tableLine.getColumnAt(1).isWrap());
+        assertEquals(5, tableLine.getColumnAt(2).getWidth());
+    }
+
+    @Test
+    public void fill() throws IOException, URISyntaxException {
+        assertSameResult(new JsonTemplate(TEMPLATE));
+        assertSameResult(new JsonTemplate(getClass().getResource("/single_table.json").toURI()));
+        assertSameResult(new JsonTemplate(getClass().getResource("/single_list.json").toURI()));
+    }
+
+    @Test
+    public void load() throws IOException {
+        File jsonFile = folder.newFile("test.json");
+        Files.write(jsonFile.toPath(), TEMPLATE.getBytes(StandardCharsets.UTF_8));
+        File binaryFile = new File(folder.getRoot(), "test.json" + BinaryTemplate.EXTENSION);
+
+        assertTrue(BinaryTemplate.load(binaryFile, jsonFile) instanceof JsonTemplate);
+
+        try (OutputStream out = new FileOutputStream(binaryFile)) {
+            BinaryTemplate.write(new JsonTemplate(jsonFile), out);
+        }
+        assertTrue(BinaryTemplate.load(binaryFile, jsonFile) instanceof BinaryTemplate);
+
+        Files.write(jsonFile.toPath(), "{\"template\": [\"Changed\"]}".getBytes(StandardCharsets.UTF_8));
+        Template template = BinaryTemplate.load(binaryFile, jsonFile);
+        assertTrue(template instanceof JsonTemplate);
+        assertEquals("Changed", template.parse().getPage(1).getLine(1).toString());
+    }
+
+    @Test
+    public void loadCorrupted() throws IOException {
+        File jsonFile = folder.newFile("test.json");
+        Files.write(jsonFile.toPath(), TEMPLATE.getBytes(StandardCharsets.UTF_8));
+        File binaryFile = new File(folder.getRoot(), "test.json" + BinaryTemplate.EXTENSION);
+        byte[] bytes = toBinary(new JsonTemplate(TEMPLATE));
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(binaryFile.toPath(), bytes);
+        assertTrue(BinaryTemplate.load(binaryFile, jsonFile) instanceof JsonTemplate);
+    }
+
+    @Test(expected = IOException.class)
+    public void wrongVersion() throws IOException {
+        byte[] bytes = toBinary(new JsonTemplate(TEMPLATE));
+        bytes[7] = (byte) (BinaryTemplate.VERSION + 1);
+        BinaryTemplate.read(new ByteArrayInputStream(bytes));
+    }
+
+    @Test(expected = IOException.class)
+    public void notBinaryTemplate() throws IOException {
+        BinaryTemplate.read(new ByteArrayInputStream(TEMPLATE.getBytes(StandardCharsets.UTF_8)));
+    }
+
+}
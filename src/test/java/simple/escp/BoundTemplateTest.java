@@ -0,0 +1,213 @@
+package simple.escp;
+
+import org.junit.Test;
+import simple.escp.data.DataSources;
+import simple.escp.exception.InvalidPlaceholder;
+import simple.escp.fill.FillJob;
+import simple.escp.json.JsonTemplate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import static org.junit.Assert.*;
+
+public class BoundTemplateTest {
+
+    private static final String TEMPLATE = "{" +
+        "\"pageFormat\": {\"pageLength\": 20, \"usePageLengthFromPrinter\": false}," +
+        "\"template\": [" +
+            "\"Customer: ${customer.name:10} ${customer.address.city}\"," +
+            "\"Code    : ${@code} {{customer.name.length}}\"," +
+            "{" +
+                "\"table\": \"items\"," +
+                "\"columns\": [" +
+                    "{\"source\": \"row\", \"width\": 3}," +
+                    "{\"source\": \"name\", \"width\": 10}," +
+                    "{\"source\": \"qty::right\", \"width\": 5}," +
+                    "{\"source\": \"qty * 2\", \"width\": 5}," +
+                    "{\"source\": \"number\", \"width\": 5}" +
+                "]" +
+            "}," +
+            "{" +
+                "\"list\": \"items\"," +
+                "\"line\": \"* ${name} (${qty})\"," +
+                "\"header\": [\"Items of ${customer.name}\"]" +
+            "}" +
+        "]" +
+    "}";
+
+    public static class Address {
+        private final String city;
+
+        public Address(String city) {
+            this.city = city;
+        }
+
+        public String getCity() {
+            return city;
+        }
+    }
+
+    public static class Customer {
+        private final String name;
+        private final Address address;
+
+        public Customer(String name, Address address) {
+            this.name = name;
+            this.address = address;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Address getAddress() {
+            return address;
+        }
+    }
+
+    public static class Item {
+        private final String name;
+        private final int qty;
+
+        public Item(String name, int qty) {
+            this.name = name;
+            this.qty = qty;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getQty() {
+            return qty;
+        }
+    }
+
+    public static class Invoice {
+        private final Customer customer;
+        private final List<Item> items = new ArrayList<>();
+
+        public Invoice(Customer customer) {
+            this.customer = customer;
+        }
+
+        public Customer getCustomer() {
+            return customer;
+        }
+
+        public List<Item> getItems() {
+            return items;
+        }
+
+        public String getNumber() {
+            return "INV-1";
+        }
+
+        public String code() {
+            return "C01";
+        }
+    }
+
+    private Invoice createInvoice() {
+        Invoice invoice = new Invoice(new Customer("Solid", new Address("Shadow Moses")));
+        invoice.getItems().add(new Item("Box", 2));
+        invoice.getItems().add(new Item("Ration", 10));
+        return invoice;
+    }
+
+    @Test
+    public void bind() {
+        BoundTemplate template = new JsonTemplate(TEMPLATE).bind(Invoice.class);
+        assertEquals(Invoice.class, template.getRootType());
+        assertEquals(new HashSet<>(Arrays.asList("customer.name:10", "customer.address.city", "@code", "name",
+            "qty", "customer.name")), template.getBoundPlaceholderTexts());
+        assertEquals(new HashSet<>(Arrays.asList("name", "qty::right")), template.getBoundColumnTexts());
+    }
+
+    @Test
+    public void fill() {
+        JsonTemplate jsonTemplate = new JsonTemplate(TEMPLATE);
+        Invoice invoice = createInvoice();
+        String expected = new FillJob(jsonTemplate.compile(), DataSources.from(new Object[] {invoice})).fill();
+        assertEquals(expected, jsonTemplate.bind(Invoice.class).fill(invoice));
+        assertTrue(expected.contains("Customer: Solid      Shadow Moses"));
+        assertTrue(expected.contains("* Ration (10)"));
+    }
+
+    @Test
+    public void nullInPath() {
+        Invoice invoice = new Invoice(new Customer("Solid", null));
+        String result = new JsonTemplate("{\"template\": [\"City: ${customer.address.city}.\"]}")
+            .bind(Invoice.class).fill(invoice);
+        assertTrue(result.contains("City: ."));
+    }
+
+    @Test
+    public void invalidPlaceholders() {
+        try {
+            new JsonTemplate("{\"template\": [" +
+                "\"${customer.nama} ${customer.address.city}\"," +
+                "{\"table\": \"items\", \"columns\": [{\"source\": \"qyt\", \"width\": 5}]}," +
+                "{\"list\": \"items\", \"line\": \"${price}\"}" +
+            "]}").bind(Invoice.class);
+            fail("Invalid placeholders should be rejected.");
+        } catch (InvalidPlaceholder e) {
+            assertTrue(e.getMessage().contains("[nama]"));
+            assertTrue(e.getMessage().contains("[qyt]"));
+            assertTrue(e.getMessage().contains("[price]"));
+            assertFalse(e.getMessage().contains("[city]"));
+        }
+    }
+
+    public static class Box {
+        public Object[] getValues() {
+            return new Object[] {new Item("Box", 2)};
+        }
+    }
+
+    @Test
+    public void indexedPlaceholders() {
+        JsonTemplate jsonTemplate = new JsonTemplate("{" +
+            "\"pageFormat\": {\"pageLength\": 20, \"usePageLengthFromPrinter\": false}," +
+            "\"template\": [" +
+            "\"First: ${items[0].name} ${items[1].qty}, none: ${items[5].name}.\"," +
+            "{\"list\": \"items\", \"line\": \"* ${name}\"}" +
+        "]}");
+        Invoice invoice = createInvoice();
+        BoundTemplate template = jsonTemplate.bind(Invoice.class);
+        assertTrue(template.getBoundPlaceholderTexts().containsAll(Arrays.asList("items[0].name", "items[1].qty",
+            "items[5].name")));
+        String expected = new FillJob(jsonTemplate.compile(), DataSources.from(new Object[] {invoice})).fill();
+        assertEquals(expected, template.fill(invoice));
+        assertTrue(expected.contains("First: Box 10, none: ."));
+
+        // The element type of Object[] is unknown, so the rest of path is resolved while filling.
+        String result = new JsonTemplate("{\"template\": [\"${values[0].name} ${values[0].qty}\"]}")
+            .bind(Box.class).fill(new Box());
+        assertTrue(result.contains("Box 2"));
+    }
+
+    @Test
+    public void invalidIndexedPlaceholders() {
+        try {
+            new JsonTemplate("{\"template\": [\"${customer[0].name} ${items[0].nama}\"]}").bind(Invoice.class);
+            fail("Invalid placeholders should be rejected.");
+        } catch (InvalidPlaceholder e) {
+            assertTrue(e.getMessage().contains("Can't read element [0] of [customer[0].name]"));
+            assertTrue(e.getMessage().contains("[nama]"));
+        }
+    }
+
+    @Test(expected = InvalidPlaceholder.class)
+    public void invalidSource() {
+        new JsonTemplate("{\"template\": [{\"table\": \"itemz\", \"columns\": [{\"source\": \"name\", " +
+            "\"width\": 5}]}]}").bind(Invoice.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fillWithWrongType() {
+        new JsonTemplate("{\"template\": [\"${customer.name}\"]}").bind(Invoice.class).fill("Not an invoice");
+    }
+
+}
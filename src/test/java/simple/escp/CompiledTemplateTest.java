@@ -0,0 +1,127 @@
+package simple.escp;
+
+import org.junit.Test;
+import simple.escp.data.DataSources;
+import simple.escp.data.MapDataSource;
+import simple.escp.fill.FillJob;
+import simple.escp.json.JsonTemplate;
+import simple.escp.json.JsonTemplateFillTest.Person;
+import simple.escp.placeholder.BasicPlaceholder;
+import simple.escp.placeholder.ScriptPlaceholder;
+import simple.escp.util.EscpUtil;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import static org.junit.Assert.*;
+import static simple.escp.util.EscpUtil.*;
+
+public class CompiledTemplateTest {
+
+    private final String INIT = EscpUtil.escInitalize();
+
+    @Test
+    public void compileOnlyOnce() {
+        JsonTemplate jsonTemplate = new JsonTemplate("{\"template\": [\"Your id is ${id}.\"]}");
+        CompiledTemplate compiledTemplate = jsonTemplate.compile();
+        assertSame(compiledTemplate, jsonTemplate.compile());
+        assertSame(jsonTemplate.parse(), compiledTemplate.getReport());
+    }
+
+    @Test
+    public void pageFormatPrefix() {
+        JsonTemplate jsonTemplate = new JsonTemplate("{" +
+            "\"pageFormat\": {" +
+                "\"pageLength\": 10," +
+                "\"usePageLengthFromPrinter\": false" +
+            "}," +
+            "\"template\": [\"Line\"]" +
+        "}");
+        CompiledTemplate compiledTemplate = jsonTemplate.compile();
+        assertEquals(INIT + escPageLength(10), compiledTemplate.getPageFormatPrefix());
+    }
+
+    @Test
+    public void collectPlaceholders() throws URISyntaxException, IOException {
+        JsonTemplate jsonTemplate = new JsonTemplate("{" +
+            "\"pageFormat\": {" +
+                "\"pageLength\": 10" +
+            "}," +
+            "\"template\": {" +
+                "\"header\": [\"Page for ${name:10}\"]," +
+                "\"detail\": [" +
+                    "\"Your salary is {{salary * 2::number}}.\"," +
+                    "{" +
+                        "\"table\": \"persons\"," +
+                        "\"columns\": [" +
+                            "{ \"source\": \"firstName\", \"width\": 10 }" +
+                        "]" +
+                    "}" +
+                "]" +
+            "}" +
+        "}");
+        CompiledTemplate compiledTemplate = jsonTemplate.compile();
+        assertTrue(compiledTemplate.hasDynamicLine());
+        assertEquals(1, compiledTemplate.getBasicPlaceholderTexts().size());
+        assertTrue(compiledTemplate.getBasicPlaceholderTexts().contains("name:10"));
+        assertTrue(compiledTemplate.getScriptPlaceholderTexts().contains("salary * 2::number"));
+        assertTrue(compiledTemplate.getScriptPlaceholderTexts().contains("persons"));
+        assertTrue(compiledTemplate.getScriptPlaceholderTexts().contains("firstName"));
+
+        BasicPlaceholder basicPlaceholder = compiledTemplate.createBasicPlaceholder("name:10");
+        assertEquals("name", basicPlaceholder.getName());
+        assertEquals(10, basicPlaceholder.getWidth());
+        assertNotSame(basicPlaceholder, compiledTemplate.createBasicPlaceholder("name:10"));
+        assertNull(compiledTemplate.createBasicPlaceholder("unknown"));
+
+        ScriptPlaceholder scriptPlaceholder = compiledTemplate.createScriptPlaceholder("salary * 2::number", null);
+        assertEquals("salary * 2", scriptPlaceholder.getScript());
+        assertEquals(DecimalFormat.class, scriptPlaceholder.getFormat().getClass());
+        assertNotSame(scriptPlaceholder.getFormat(),
+            compiledTemplate.createScriptPlaceholder("salary * 2::number", null).getFormat());
+    }
+
+    @Test
+    public void fillManyTimes() {
+        JsonTemplate jsonTemplate = new JsonTemplate("{\"template\": [" +
+            "\"Your id is ${id}, Mr. {{ nickname }}.\"" +
+        "]}");
+        CompiledTemplate compiledTemplate = jsonTemplate.compile();
+        String[][] values = {{"007", "Solid Snake"}, {"008", "Liquid Snake"}, {"009", "Solidus Snake"}};
+        for (String[] value : values) {
+            Map<String, String> source = new HashMap<>();
+            source.put("id", value[0]);
+            source.put("nickname", value[1]);
+            assertEquals(INIT + "Your id is " + value[0] + ", Mr. " + value[1] + "." + CRLF + CRFF + INIT,
+                new FillJob(compiledTemplate, new MapDataSource(source)).fill());
+        }
+    }
+
+    @Test
+    public void fillTableAndList() throws URISyntaxException, IOException {
+        List<Person> persons = new ArrayList<>();
+        persons.add(new Person("None", "David", "None"));
+        persons.add(new Person("David", "Solid", "Snake"));
+        persons.add(new Person("Snake", "Jocki", "Hendry"));
+        Map<String, Object> source = new HashMap<>();
+        source.put("persons", persons);
+
+        JsonTemplate tableTemplate = new JsonTemplate(getClass().getResource("/single_table.json").toURI());
+        CompiledTemplate compiledTable = new JsonTemplate(getClass().getResource("/single_table.json").toURI())
+            .compile();
+        String expected = new FillJob(tableTemplate.parse(), DataSources.from(source)).fill();
+        assertEquals(expected, new FillJob(compiledTable, DataSources.from(source)).fill());
+        assertEquals(expected, new FillJob(compiledTable, DataSources.from(source)).fill());
+
+        JsonTemplate listTemplate = new JsonTemplate(getClass().getResource("/single_list.json").toURI());
+        CompiledTemplate compiledList = new JsonTemplate(getClass().getResource("/single_list.json").toURI())
+            .compile();
+        expected = new FillJob(listTemplate.parse(), DataSources.from(source)).fill();
+        assertEquals(expected, new FillJob(compiledList, DataSources.from(source)).fill());
+        assertEquals(expected, new FillJob(compiledList, DataSources.from(source)).fill());
+    }
+
+}
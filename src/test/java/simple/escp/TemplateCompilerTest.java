@@ -0,0 +1,89 @@
+package simple.escp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import simple.escp.json.JsonTemplate;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.*;
+
+public class TemplateCompilerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File write(File directory, String name, String json) throws IOException {
+        File file = new File(directory, name);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), json.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    public void compile() throws IOException {
+        File source = folder.newFolder("source");
+        File destination = new File(folder.getRoot(), "destination");
+        write(source, "invoice.json", "{\"template\": [\"Invoice ${id}\"]}");
+        write(source, "report/summary.json", "{\"template\": [{\"table\": \"items\", \"columns\": " +
+            "[{\"source\": \"name\", \"width\": 10}]}]}");
+        write(source, "readme.txt", "Not a template");
+
+        TemplateCompiler compiler = new TemplateCompiler(source, destination);
+        assertEquals(Arrays.asList(Paths.get("invoice.json"), Paths.get("report", "summary.json")),
+            compiler.findTemplates());
+        List<File> result = compiler.compile();
+        assertEquals(2, result.size());
+        File binary = new File(destination, "report/summary.json" + BinaryTemplate.EXTENSION);
+        assertTrue(binary.isFile());
+        assertTrue(BinaryTemplate.load(binary, new File(source, "report/summary.json")) instanceof BinaryTemplate);
+    }
+
+    @Test
+    public void patterns() throws IOException {
+        File source = folder.newFolder("source");
+        write(source, "invoice.json", "{\"template\": [\"Invoice\"]}");
+        write(source, "templates/receipt.json", "{\"template\": [\"Receipt\"]}");
+        TemplateCompiler compiler = new TemplateCompiler(source, folder.newFolder("destination"),
+            Arrays.asList("templates/**.json"));
+        assertEquals(Arrays.asList(Paths.get("templates", "receipt.json")), compiler.findTemplates());
+    }
+
+    @Test
+    public void invalidTemplates() throws IOException {
+        File source = folder.newFolder("source");
+        File destination = new File(folder.getRoot(), "destination");
+        write(source, "a.json", "{\"template\": [{\"table\": \"items\", \"columns\": [{\"source\": \"name\"}]}]}");
+        write(source, "b.json", "{\"template\": [\"Valid\"]}");
+        write(source, "c.json", "{\"template\": [{\"list\": \"items\"}]}");
+        try {
+            new TemplateCompiler(source, destination).compile();
+            fail("Invalid templates should be rejected.");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("a.json: Can't find 'width' for column 0"));
+            assertTrue(e.getMessage().contains("c.json: List must have 'line'."));
+            assertFalse(e.getMessage().contains("b.json"));
+        }
+        assertTrue(new File(destination, "b.json" + BinaryTemplate.EXTENSION).isFile());
+        assertFalse(new File(destination, "a.json" + BinaryTemplate.EXTENSION).exists());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tableWiderThanPage() {
+        TemplateCompiler.validate(new JsonTemplate("{\"pageFormat\": {\"pageWidth\": 10}, \"template\": [" +
+            "{\"table\": \"items\", \"columns\": [{\"source\": \"name\", \"width\": 8}, " +
+            "{\"source\": \"qty\", \"width\": 5}]}]}"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noRoomForContent() {
+        TemplateCompiler.validate(new JsonTemplate("{\"pageFormat\": {\"pageLength\": 2}, \"template\": {" +
+            "\"header\": [\"Header\"], \"footer\": [\"Footer\"], \"detail\": []}}"));
+    }
+
+}
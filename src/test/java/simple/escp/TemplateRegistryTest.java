@@ -0,0 +1,145 @@
+package simple.escp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import simple.escp.data.DataSource;
+import simple.escp.fill.FillJob;
+import simple.escp.util.EscpUtil;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.junit.Assert.*;
+import static simple.escp.util.EscpUtil.*;
+
+public class TemplateRegistryTest {
+
+    private final String INIT = EscpUtil.escInitalize();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File writeTemplate(String name, String line) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        Files.write(file.toPath(), ("{\"template\": [\"" + line + "\"]}").getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    public void getFromFile() throws IOException {
+        File file = writeTemplate("test.json", "This is a line.");
+        TemplateRegistry registry = new TemplateRegistry();
+        Template template = registry.get(file);
+        assertNotNull(template);
+        assertEquals(0, registry.getHitCount());
+        assertEquals(1, registry.getMissCount());
+        assertSame(template, registry.get(file));
+        assertSame(template, registry.get(file));
+        assertEquals(2, registry.getHitCount());
+        assertEquals(1, registry.getMissCount());
+        assertEquals(1, registry.size());
+        assertEquals(INIT + "This is a line." + CRLF + CRFF + INIT,
+            new FillJob(template.compile(), new DataSource[0]).fill());
+    }
+
+    @Test
+    public void reloadModifiedFile() throws IOException {
+        File file = writeTemplate("test.json", "This is a line.");
+        TemplateRegistry registry = new TemplateRegistry();
+        Template template = registry.get(file);
+        writeTemplate("test.json", "This is a modified line.");
+        Template newTemplate = registry.get(file);
+        assertNotSame(template, newTemplate);
+        assertEquals(1, registry.getReloadCount());
+        assertEquals(2, registry.getMissCount());
+        assertEquals(1, registry.size());
+        assertEquals(INIT + "This is a modified line." + CRLF + CRFF + INIT,
+            new FillJob(newTemplate.compile(), new DataSource[0]).fill());
+        assertSame(newTemplate, registry.get(file));
+    }
+
+    @Test
+    public void evictLeastRecentlyUsed() throws IOException {
+        File file1 = writeTemplate("test1.json", "Line 1");
+        File file2 = writeTemplate("test2.json", "Line 2");
+        File file3 = writeTemplate("test3.json", "Line 3");
+        TemplateRegistry registry = new TemplateRegistry(2);
+        Template template1 = registry.get(file1);
+        Template template2 = registry.get(file2);
+        registry.get(file1);
+        registry.get(file3);
+        assertEquals(2, registry.size());
+        assertEquals(1, registry.getEvictionCount());
+        assertSame(template1, registry.get(file1));
+        assertNotSame(template2, registry.get(file2));
+    }
+
+    @Test
+    public void removeAndClear() throws IOException {
+        File file = writeTemplate("test.json", "This is a line.");
+        TemplateRegistry registry = new TemplateRegistry();
+        Template template = registry.get(file);
+        registry.remove(file);
+        assertEquals(0, registry.size());
+        assertNotSame(template, registry.get(file));
+        registry.clear();
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    public void getFromClasspath() throws IOException {
+        TemplateRegistry registry = new TemplateRegistry();
+        Template template = registry.getResource("single_table.json");
+        assertSame(template, registry.getResource("single_table.json"));
+        assertEquals(1, registry.getHitCount());
+        assertEquals(3, template.getPageFormat().getPageLength().intValue());
+    }
+
+    @Test
+    public void useBinaryTemplate() throws IOException {
+        File file = writeTemplate("test.json", "This is a line.");
+        new TemplateCompiler(folder.getRoot(), folder.getRoot()).compile();
+        TemplateRegistry registry = new TemplateRegistry();
+        Template template = registry.get(file);
+        assertTrue(template instanceof BinaryTemplate);
+        assertEquals(INIT + "This is a line." + CRLF + CRFF + INIT,
+            new FillJob(template.compile(), new DataSource[0]).fill());
+    }
+
+    @Test(expected = IOException.class)
+    public void getFromInvalidClasspath() throws IOException {
+        new TemplateRegistry().getResource("not_exists.json");
+    }
+
+    @Test
+    public void concurrentAccess() throws Exception {
+        final File file = writeTemplate("test.json", "This is a line.");
+        final TemplateRegistry registry = new TemplateRegistry();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                results.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        return new FillJob(registry.get(file).compile(), new DataSource[0]).fill();
+                    }
+                }));
+            }
+            for (Future<String> result : results) {
+                assertEquals(INIT + "This is a line." + CRLF + CRFF + INIT, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(50, registry.getHitCount() + registry.getMissCount());
+    }
+
+}
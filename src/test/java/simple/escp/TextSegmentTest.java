@@ -0,0 +1,128 @@
+package simple.escp;
+
+import org.junit.Test;
+import simple.escp.data.MapDataSource;
+import simple.escp.dom.line.TextLine;
+import simple.escp.dom.line.TextSegment;
+import simple.escp.fill.FillJob;
+import simple.escp.json.JsonTemplate;
+import simple.escp.util.EscpUtil;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import static org.junit.Assert.*;
+import static simple.escp.util.EscpUtil.*;
+
+public class TextSegmentTest {
+
+    private final String INIT = EscpUtil.escInitalize();
+
+    @Test
+    public void tokenize() {
+        TextSegment[] segments = TextSegment.tokenize("Name: ${name:10} Total: {{ a + b }} %{BOLD}end");
+        assertEquals(7, segments.length);
+        assertEquals(TextSegment.Type.LITERAL, segments[0].getType());
+        assertEquals("Name: ", segments[0].getText());
+        assertEquals(TextSegment.Type.BASIC_PLACEHOLDER, segments[1].getType());
+        assertEquals("${name:10}", segments[1].getText());
+        assertEquals("name:10", segments[1].getContent());
+        assertEquals(" Total: ", segments[2].getText());
+        assertEquals(TextSegment.Type.SCRIPT_PLACEHOLDER, segments[3].getType());
+        assertEquals("{{ a + b }}", segments[3].getText());
+        assertEquals(" a + b ", segments[3].getContent());
+        assertEquals(" ", segments[4].getText());
+        assertEquals(TextSegment.Type.FUNCTION, segments[5].getType());
+        assertEquals("BOLD", segments[5].getContent());
+        assertEquals("end", segments[6].getText());
+    }
+
+    @Test
+    public void tokenizeLiteral() {
+        assertEquals(0, TextSegment.tokenize("").length);
+        assertEquals(0, TextSegment.tokenize(null).length);
+
+        TextSegment[] segments = TextSegment.tokenize("Price is $10, {not a placeholder}, ${} and ${unclosed");
+        assertEquals(1, segments.length);
+        assertTrue(segments[0].isLiteral());
+        assertEquals("Price is $10, {not a placeholder}, ${} and ${unclosed", segments[0].getText());
+    }
+
+    @Test
+    public void tokenizeBasicPlaceholderInScript() {
+        TextSegment[] segments = TextSegment.tokenize("Total: {{${qty}}} {{ ${price} * ${qty} }} {{ a }}");
+        assertEquals(6, segments.length);
+        assertEquals("{{${qty}}}", segments[1].getText());
+        assertEquals("${qty}", segments[1].getContent());
+        assertEquals(1, segments[1].getContentSegments().length);
+        assertEquals("qty", segments[1].getContentSegments()[0].getContent());
+        assertEquals(" ${price} * ${qty} ", segments[3].getContent());
+        assertEquals(5, segments[3].getContentSegments().length);
+        assertEquals(0, segments[5].getContentSegments().length);
+        assertEquals(0, TextSegment.tokenize("${a}")[0].getContentSegments().length);
+    }
+
+    @Test
+    public void fillBasicPlaceholderInScript() {
+        JsonTemplate jsonTemplate = new JsonTemplate("{\"template\": [\"Total: {{ ${price} * ${qty} }}, " +
+            "{{${qty}}}.\"]}");
+        Map<String, Object> source = new HashMap<>();
+        source.put("price", 5);
+        source.put("qty", 3);
+        assertEquals(INIT + "Total: 15, 3." + CRLF + CRFF + INIT,
+            new FillJob(jsonTemplate.parse(), new MapDataSource(source)).fill());
+        CompiledTemplate compiledTemplate = jsonTemplate.compile();
+        assertTrue(compiledTemplate.getBasicPlaceholderTexts().containsAll(Arrays.asList("price", "qty")));
+        assertTrue(compiledTemplate.getScriptPlaceholderTexts().isEmpty());
+        assertEquals(INIT + "Total: 15, 3." + CRLF + CRFF + INIT,
+            new FillJob(compiledTemplate, new MapDataSource(source)).fill());
+    }
+
+    @Test
+    public void tokenizeFunctionInScript() {
+        TextSegment[] segments = TextSegment.tokenize("{{%{PAGE_NO}}} {{ 'x%{BOLD}y' }} {{ '%{' }}");
+        assertEquals(5, segments.length);
+        assertEquals("{{%{PAGE_NO}}}", segments[0].getText());
+        assertEquals(1, segments[0].getContentSegments().length);
+        assertEquals(TextSegment.Type.FUNCTION, segments[0].getContentSegments()[0].getType());
+        assertEquals(3, segments[2].getContentSegments().length);
+        assertEquals("BOLD", segments[2].getContentSegments()[1].getContent());
+        assertEquals(0, segments[4].getContentSegments().length);
+        assertTrue(new TextLine("Page {{ '%{PAGE_NO}' }}").hasFunction());
+        assertFalse(new TextLine("Page {{ '%{' }}").hasFunction());
+    }
+
+    @Test
+    public void fillFunctionInScript() {
+        JsonTemplate jsonTemplate = new JsonTemplate("{\"template\": [\"Page {{ '%{PAGE_NO}' }} of " +
+            "{{%{PAGE_NO} + ${pages}}}.\", \"A{{ 'x%{BOLD}y%{BOLD}' }}B\"]}");
+        Map<String, Object> source = new HashMap<>();
+        source.put("pages", 1);
+        String expected = INIT + "Page 1 of 2." + CRLF + "Ax" + escSelectBoldFont() + "y" + escCancelBoldFont() +
+            "B" + CRLF + CRFF + INIT;
+        assertEquals(expected, new FillJob(jsonTemplate.parse(), new MapDataSource(source)).fill());
+        assertEquals(expected, new FillJob(jsonTemplate.compile(), new MapDataSource(source)).fill());
+    }
+
+    @Test
+    public void literalLine() {
+        assertTrue(new TextLine("This is a line.").isLiteral());
+        TextLine line = new TextLine("Your id is ${id}.");
+        assertFalse(line.isLiteral());
+        assertEquals(3, line.getSegments().length);
+        assertSame(line.getSegments(), new TextLine(line).getSegments());
+        line.setText("Changed");
+        assertTrue(line.isLiteral());
+        assertEquals("Changed", line.getSegments()[0].getText());
+    }
+
+    @Test
+    public void fillValueWithSpecialCharacters() {
+        JsonTemplate jsonTemplate = new JsonTemplate("{\"template\": [\"Price: ${price}, Path: {{path}}\"]}");
+        Map<String, Object> source = new HashMap<>();
+        source.put("price", "$10");
+        source.put("path", "C:\\temp");
+        assertEquals(INIT + "Price: $10, Path: C:\\temp" + CRLF + CRFF + INIT,
+            new FillJob(jsonTemplate.parse(), new MapDataSource(source)).fill());
+    }
+
+}
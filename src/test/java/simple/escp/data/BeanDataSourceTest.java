@@ -5,8 +5,12 @@ import simple.escp.exception.InvalidPlaceholder;
 import static org.junit.Assert.*;
 import java.beans.MethodDescriptor;
 import java.beans.PropertyDescriptor;
+import javax.json.Json;
+import java.math.BigDecimal;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class BeanDataSourceTest {
 
@@ -104,11 +108,142 @@ public class BeanDataSourceTest {
         assertEquals("Line1 City", ds.get("address.@shortAddress"));
     }
 
+    @Test
+    public void nestedNullProperty() {
+        Employee emp = new Employee("test", 10.0, 24.0);
+        BeanDataSource ds = new BeanDataSource(emp);
+        assertTrue(ds.has("address.city.name"));
+        assertNull(ds.get("address.city.name"));
+    }
+
+    @Test(expected = InvalidPlaceholder.class)
+    public void getInvalidNestedMember() {
+        Employee emp = new Employee("test", 10.0, 24.0);
+        emp.setAddress(new Address("Line1", "Line2", new City("CA", "City")));
+        new BeanDataSource(emp).get("address.city.zip");
+    }
+
+    @Test
+    public void nestedMapAndJson() {
+        Map<String, Object> extra = new HashMap<>();
+        extra.put("city", new City("CA", "City"));
+        extra.put("note", null);
+        extra.put("json", Json.createObjectBuilder().add("level", 3).add("tags", Json.createArrayBuilder().add("a"))
+            .addNull("empty").build());
+        Employee emp = new Employee("test", 10.0, 24.0);
+        emp.setExtra(extra);
+        BeanDataSource ds = new BeanDataSource(emp);
+        assertTrue(ds.has("extra.city.name"));
+        assertTrue(ds.has("extra.note"));
+        assertFalse(ds.has("extra.unknown"));
+        assertEquals("City", ds.get("extra.city.name"));
+        assertNull(ds.get("extra.note"));
+        assertEquals(new BigDecimal(3), ds.get("extra.json.level"));
+        assertEquals(1, ((List) ds.get("extra.json.tags")).size());
+        assertNull(ds.get("extra.json.empty"));
+        assertEquals(3, ds.get("extra.@size"));
+        assertFalse(ds.has("extra.json.unknown"));
+    }
+
+    @Test
+    public void cachedPropertyPath() {
+        assertSame(PropertyPath.of("address.city.name"), PropertyPath.of("address.city.name"));
+        assertFalse(PropertyPath.of("address.city.name").isResolved());
+        assertNull(PropertyPath.of("address.city.name").getType());
+        assertSame(PropertyPath.MISSING, PropertyPath.of("name.zip").find(new Employee("test", 10.0, 24.0)));
+    }
+
+    @Test
+    public void sharedMetadata() {
+        BeanMetadata metadata = BeanMetadata.of(Employee.class);
+        assertSame(metadata, BeanMetadata.of(Employee.class));
+        BeanDataSource ds1 = new BeanDataSource(new Employee("test1", 10.0, 24.0));
+        BeanDataSource ds2 = new BeanDataSource(new Employee("test2", 20.0, 12.0));
+        assertSame(ds1.getProperty("name"), ds2.getProperty("name"));
+        assertSame(ds1.getMethod("grossIncome"), ds2.getMethod("grossIncome"));
+        assertSame(metadata.getAccessor("@grossIncome"), metadata.getAccessor("@grossIncome"));
+        assertNull(metadata.getAccessor("grossIncome"));
+        assertEquals(240.0, metadata.getAccessor("@grossIncome").get(ds1.getSource()));
+        assertEquals("test2", metadata.getAccessor("name").get(ds2.getSource()));
+    }
+
+    @Test
+    public void getMembersReturnsCopy() {
+        BeanDataSource ds = new BeanDataSource(new Employee("test", 10.0, 24.0));
+        ds.getMembers()[0] = "changed";
+        assertFalse(Arrays.asList(ds.getMembers()).contains("changed"));
+    }
+
+    @Test
+    public void nonPublicBean() {
+        BeanDataSource ds = new BeanDataSource(new Secret("hidden"));
+        assertEquals("hidden", ds.get("value"));
+        assertEquals("hidden", ds.get("@value"));
+        try {
+            ds.get("failure");
+            fail("Exception from getter should be wrapped.");
+        } catch (InvalidPlaceholder e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test(expected = InvalidPlaceholder.class)
+    public void accessorWithWrongType() {
+        BeanMetadata.of(Employee.class).getAccessor("name").get("Not an employee");
+    }
+
+    @Test
+    public void exceptionFromGetter() {
+        BeanDataSource ds = new BeanDataSource(new Secret("hidden"));
+        try {
+            ds.get("cast");
+            fail("ClassCastException from getter should be wrapped.");
+        } catch (InvalidPlaceholder e) {
+            assertEquals("Can't read [cast].", e.getMessage());
+            assertTrue(e.getCause() instanceof ClassCastException);
+        }
+        try {
+            ds.get("broken");
+            fail("Error from getter should not be wrapped.");
+        } catch (StackOverflowError e) {
+            assertEquals("Broken", e.getMessage());
+        }
+    }
+
+    private static class Secret {
+        private final String value;
+
+        Secret(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public String value() {
+            return value;
+        }
+
+        public String getFailure() {
+            throw new IllegalStateException("Failure");
+        }
+
+        public String getCast() {
+            throw new ClassCastException("Cast");
+        }
+
+        public String getBroken() {
+            throw new StackOverflowError("Broken");
+        }
+    }
+
     public static class Employee {
         private String name;
         private double hourRate;
         private double workHours;
         private Address address;
+        private Map<String, Object> extra;
 
         public Employee(String name, double hourRate, double workHours) {
             this.name = name;
@@ -148,6 +283,14 @@ public class BeanDataSourceTest {
             this.address = address;
         }
 
+        public Map<String, Object> getExtra() {
+            return extra;
+        }
+
+        public void setExtra(Map<String, Object> extra) {
+            this.extra = extra;
+        }
+
         public double grossIncome() {
             return hourRate * workHours;
         }
@@ -0,0 +1,83 @@
+package simple.escp.data;
+
+import org.junit.Test;
+import simple.escp.fill.FillJob;
+import simple.escp.json.JsonTemplate;
+import java.text.NumberFormat;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import static org.junit.Assert.*;
+
+public class ColumnarTableTest {
+
+    private ColumnarTable createTable() {
+        return new ColumnarTable(3)
+            .addColumn("id", new long[] {1, 2, 3})
+            .addColumn("price", new double[] {1500.5, 20, 3.25})
+            .addColumn("name", new String[] {"Box", "Ration", "Cigar"});
+    }
+
+    @Test
+    public void columns() {
+        ColumnarTable table = createTable();
+        assertEquals(3, table.getRowCount());
+        assertEquals(3, table.getColumnCount());
+        assertEquals(1, table.getColumnIndex("price"));
+        assertEquals(-1, table.getColumnIndex("qty"));
+        assertEquals("name", table.getColumnName(2));
+        assertEquals(long.class, table.getColumnType(0));
+        assertEquals(double.class, table.getColumnType(1));
+        assertEquals(Object.class, table.getColumnType(2));
+        assertEquals(2, table.getLong(0, 1));
+        assertEquals(3.25, table.getDouble(1, 2), 0);
+        assertEquals("Box", table.getObject(2, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void columnTooShort() {
+        new ColumnarTable(3).addColumn("id", new long[] {1, 2});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void duplicateColumn() {
+        createTable().addColumn("id", new long[] {1, 2, 3});
+    }
+
+    @Test
+    public void cursor() {
+        Iterator<Map<String, Object>> rows = createTable().iterator();
+        Map<String, Object> first = rows.next();
+        assertEquals(1L, first.get("id"));
+        assertEquals("Box", first.get("name"));
+        assertEquals(3, first.size());
+        Map<String, Object> second = rows.next();
+        assertSame(first, second);
+        assertEquals("Ration", second.get("name"));
+        assertTrue(second.containsKey("price"));
+        assertFalse(second.containsKey("qty"));
+        rows.next();
+        assertFalse(rows.hasNext());
+    }
+
+    @Test
+    public void fillTable() {
+        String template = "{" +
+            "\"pageFormat\": {\"pageLength\": 20, \"usePageLengthFromPrinter\": false}," +
+            "\"template\": [{\"table\": \"items\", \"columns\": [" +
+                "{\"source\": \"row\", \"width\": 3}," +
+                "{\"source\": \"id\", \"width\": 3}," +
+                "{\"source\": \"name\", \"width\": 7}," +
+                "{\"source\": \"price::number::right\", \"width\": 10}," +
+                "{\"source\": \"price * 2\", \"width\": 7}" +
+            "]}]" +
+        "}";
+        Map<String, Object> source = Collections.<String, Object>singletonMap("items", createTable());
+        String result = new FillJob(new JsonTemplate(template).compile(), DataSources.from(source)).fill();
+        String price = NumberFormat.getNumberInstance().format(1500.5);
+        assertTrue(result.contains("1  1  Box    " + String.format("%10s", price) + "3001"));
+        assertTrue(result.contains("3  3  Cigar  " + String.format("%10s", NumberFormat.getNumberInstance()
+            .format(3.25)) + "6.5"));
+    }
+
+}
@@ -0,0 +1,110 @@
+package simple.escp.data;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import simple.escp.fill.FillJob;
+import simple.escp.json.JsonTemplate;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import static org.junit.Assert.*;
+
+public class CsvDataSourceTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File csv(String content) throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), content.getBytes(Charset.forName("UTF-8")));
+        return file;
+    }
+
+    private List<String> read(CsvDataSource ds, String column) {
+        List<String> result = new ArrayList<>();
+        for (Object row : (Iterable<?>) ds.get(ds.getMembers()[0])) {
+            result.add((String) ((Map<?, ?>) row).get(column));
+        }
+        return result;
+    }
+
+    @Test
+    public void headerAndRows() throws IOException {
+        CsvDataSource ds = new CsvDataSource(csv("id,name,price\r\n1,Solid,10\r\n2,Liquid,20\r\n"));
+        assertArrayEquals(new String[] {"id", "name", "price"}, ds.getColumnNames());
+        assertTrue(ds.has("rows"));
+        assertFalse(ds.has("name"));
+        assertArrayEquals(new String[] {"rows"}, ds.getMembers());
+        assertEquals(Arrays.asList("Solid", "Liquid"), read(ds, "name"));
+        assertEquals(Arrays.asList("10", "20"), read(ds, "price"));
+    }
+
+    @Test
+    public void quotedFields() throws IOException {
+        CsvDataSource ds = new CsvDataSource(csv("\uFEFFname,note\n\"Snake, Solid\",\"say \"\"hi\"\"\"\n" +
+            "Otacon,\"two\nlines\"\n"));
+        assertArrayEquals(new String[] {"name", "note"}, ds.getColumnNames());
+        assertEquals(Arrays.asList("Snake, Solid", "Otacon"), read(ds, "name"));
+        assertEquals(Arrays.asList("say \"hi\"", "two\nlines"), read(ds, "note"));
+    }
+
+    @Test
+    public void missingAndEmptyFields() throws IOException {
+        CsvDataSource ds = new CsvDataSource(csv("a;b;c\n1;;3\n\n4\n"), "items", ';', Charset.forName("UTF-8"));
+        assertTrue(ds.has("items"));
+        assertEquals(Arrays.asList("", ""), read(ds, "b"));
+        assertEquals(Arrays.asList("3", ""), read(ds, "c"));
+        Iterator<?> rows = ((Iterable<?>) ds.get("items")).iterator();
+        Map<?, ?> row = (Map<?, ?>) rows.next();
+        assertTrue(row.containsKey("a"));
+        assertFalse(row.containsKey("d"));
+        assertNull(row.get("d"));
+        assertEquals("{a=1, b=, c=3}", row.toString());
+    }
+
+    @Test
+    public void emptyFile() throws IOException {
+        CsvDataSource ds = new CsvDataSource(csv(""));
+        assertEquals(0, ds.getColumnNames().length);
+        assertFalse(((Iterable<?>) ds.get("rows")).iterator().hasNext());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidSeparator() throws IOException {
+        new CsvDataSource(csv("a,b\n"), "rows", '"', Charset.forName("UTF-8"));
+    }
+
+    @Test
+    public void fillTable() throws IOException {
+        String template = "{" +
+            "\"pageFormat\": {\"pageLength\": 20, \"usePageLengthFromPrinter\": false}," +
+            "\"template\": [{\"table\": \"rows\", \"columns\": [" +
+                "{\"source\": \"name\", \"width\": 7}, {\"source\": \"price\", \"width\": 4}]}]" +
+        "}";
+        CsvDataSource ds = new CsvDataSource(csv("name,price\nSolid,10\nLiquid,20\n"));
+        String result = new FillJob(new JsonTemplate(template).compile(), ds).fill();
+        assertTrue(result.contains("Solid  10"));
+        assertTrue(result.contains("Liquid 20"));
+    }
+
+    @Test
+    public void registerFile() throws IOException {
+        File file = csv("name\nSolid\n");
+        DataSources.register(File.class, CsvDataSource.class);
+        try {
+            DataSource ds = DataSources.from(file);
+            assertTrue(ds instanceof CsvDataSource);
+            assertSame(file, ds.getSource());
+        } finally {
+            DataSources.unregister(CsvDataSource.class);
+        }
+    }
+
+}
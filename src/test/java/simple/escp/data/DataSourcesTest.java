@@ -2,6 +2,7 @@ package simple.escp.data;
 
 import org.junit.Test;
 import static org.junit.Assert.*;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -59,4 +60,48 @@ public class DataSourcesTest {
         assertEquals("", dataSource.get("anything"));
     }
 
+    @Test
+    public void cachedEntry() {
+        DataSources.DataSourceEntry entry = DataSources.findEntry(BeanDataSourceTest.Employee.class);
+        assertEquals(BeanDataSource.class, entry.getDataSourceType());
+        assertSame(entry, DataSources.findEntry(BeanDataSourceTest.Employee.class));
+        assertEquals(MapDataSource.class, DataSources.findEntry(HashMap.class).getDataSourceType());
+    }
+
+    @Test
+    public void registerFactory() {
+        final DataSource[] created = new DataSource[1];
+        DataSourceFactory factory = new DataSourceFactory() {
+            @Override
+            public DataSource create(Object object) {
+                created[0] = new MapDataSource(Collections.singletonMap("name", ((StringBuilder) object).toString()));
+                return created[0];
+            }
+        };
+        assertEquals(BeanDataSource.class, DataSources.from(new StringBuilder("test")).getClass());
+        DataSources.register(StringBuilder.class, factory);
+        try {
+            DataSource ds = DataSources.from(new StringBuilder("test"));
+            assertSame(created[0], ds);
+            assertEquals("test", ds.get("name"));
+            assertSame(factory, DataSources.findEntry(StringBuilder.class).getFactory());
+            assertNull(DataSources.findEntry(StringBuilder.class).getDataSourceType());
+        } finally {
+            DataSources.unregister(factory);
+        }
+        assertEquals(BeanDataSource.class, DataSources.from(new StringBuilder("test")).getClass());
+    }
+
+    @Test
+    public void lookup() {
+        DataSource custom = new CustomJsonDataSource("{\"name\": \"Solid Snake\"}");
+        assertEquals("Solid Snake", DataSources.lookup(custom, "name"));
+        assertSame(LookupDataSource.MISSING, DataSources.lookup(custom, "age"));
+        DataSource bean = DataSources.from(new BeanDataSourceTest.Employee("test", 10.0, 24.0));
+        assertEquals("test", DataSources.lookup(bean, "name"));
+        assertEquals(240.0, DataSources.lookup(bean, "@grossIncome"));
+        assertSame(LookupDataSource.MISSING, DataSources.lookup(bean, "age"));
+        assertSame(LookupDataSource.MISSING, DataSources.lookup(DataSources.from((Object) null), "name"));
+    }
+
 }
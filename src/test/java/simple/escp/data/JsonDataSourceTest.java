@@ -2,6 +2,9 @@ package simple.escp.data;
 
 import org.junit.Before;
 import org.junit.Test;
+import simple.escp.exception.InvalidPlaceholder;
+import simple.escp.fill.FillJob;
+import simple.escp.json.JsonTemplate;
 import javax.json.JsonObject;
 import java.math.BigDecimal;
 import java.util.Arrays;
@@ -64,4 +67,40 @@ public class JsonDataSourceTest {
         assertTrue(result.contains("history"));
     }
 
+    @Test
+    public void nestedMember() {
+        JsonDataSource ds = new JsonDataSource(jsonString);
+        assertTrue(ds.has("address.line1"));
+        assertFalse(ds.has("address.line3"));
+        assertEquals("address line 1", ds.get("address.line1"));
+        assertTrue(ds.has("history[2]"));
+        assertTrue(ds.has("history[2].value"));
+        assertFalse(ds.has("history[3]"));
+        assertFalse(ds.has("history[3].value"));
+        assertEquals(new BigDecimal("20"), ds.get("history[1].value"));
+        assertEquals(new BigDecimal("3"), ds.get("history[2].date"));
+    }
+
+    @Test
+    public void nestedArrayAndNull() {
+        JsonDataSource ds = new JsonDataSource("{\"matrix\": [[1, 2], [3, null]], \"empty\": null}");
+        assertEquals(new BigDecimal("2"), ds.get("matrix[0][1]"));
+        assertTrue(ds.has("matrix[1][1]"));
+        assertNull(ds.get("matrix[1][1]"));
+        assertTrue(ds.has("empty.name"));
+        assertNull(ds.get("empty.name"));
+    }
+
+    @Test(expected = InvalidPlaceholder.class)
+    public void getInvalidNestedMember() {
+        new JsonDataSource(jsonString).get("history[5].value");
+    }
+
+    @Test
+    public void fillNestedMember() {
+        String template = "{\"template\": [\"${address.line2} ${history[1].value}\"]}";
+        String result = new FillJob(new JsonTemplate(template).compile(), new JsonDataSource(jsonString)).fill();
+        assertTrue(result.contains("address line 2 20"));
+    }
+
 }
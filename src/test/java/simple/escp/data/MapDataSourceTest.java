@@ -3,6 +3,7 @@ package simple.escp.data;
 import org.junit.Test;
 import simple.escp.exception.InvalidPlaceholder;
 import static org.junit.Assert.*;
+import javax.json.Json;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -57,4 +58,49 @@ public class MapDataSourceTest {
         assertEquals(source, ds.getSource());
     }
 
+    @Test
+    public void nestedMember() {
+        Map<String, Object> customer = new HashMap<>();
+        customer.put("name", "Solid Snake");
+        customer.put("rank", null);
+        Map<String, Object> source = new HashMap<>();
+        source.put("customer", customer);
+        source.put("customer.code", "FOX");
+        source.put("address", Json.createObjectBuilder().add("city", "Shadow Moses").build());
+        source.put("employee", new BeanDataSourceTest.Employee("test", 10.0, 24.0));
+        MapDataSource ds = new MapDataSource(source);
+        assertTrue(ds.has("customer.name"));
+        assertTrue(ds.has("customer.rank"));
+        assertTrue(ds.has("customer.code"));
+        assertFalse(ds.has("customer.age"));
+        assertEquals("Solid Snake", ds.get("customer.name"));
+        assertNull(ds.get("customer.rank"));
+        assertEquals("FOX", ds.get("customer.code"));
+        assertEquals("Shadow Moses", ds.get("address.city"));
+        assertEquals("test", ds.get("employee.name"));
+        assertEquals(240.0, ds.get("employee.@grossIncome"));
+    }
+
+    @Test(expected = InvalidPlaceholder.class)
+    public void getInvalidNestedMember() {
+        Map<String, Object> source = new HashMap<>();
+        source.put("customer", new HashMap<String, Object>());
+        new MapDataSource(source).get("customer.name");
+    }
+
+    @Test
+    public void lookup() {
+        Map<String, Object> customer = new HashMap<>();
+        customer.put("name", "Solid Snake");
+        Map<String, Object> source = new HashMap<>();
+        source.put("customer", customer);
+        source.put("rank", null);
+        MapDataSource ds = new MapDataSource(source);
+        assertSame(customer, ds.lookup("customer"));
+        assertEquals("Solid Snake", ds.lookup("customer.name"));
+        assertNull(ds.lookup("rank"));
+        assertSame(LookupDataSource.MISSING, ds.lookup("age"));
+        assertSame(LookupDataSource.MISSING, ds.lookup("customer.age"));
+    }
+
 }
@@ -0,0 +1,79 @@
+package simple.escp.data;
+
+import org.junit.Test;
+import java.util.HashMap;
+import java.util.Map;
+import static org.junit.Assert.*;
+
+public class ResolutionIndexTest {
+
+    /**
+     * A <code>MapDataSource</code> that counts the number of lookups.
+     */
+    private static class CountingDataSource extends MapDataSource {
+        private int lookups;
+
+        CountingDataSource(Map<String, Object> source) {
+            super(source);
+        }
+
+        @Override
+        public Object lookup(String member) {
+            lookups++;
+            return super.lookup(member);
+        }
+    }
+
+    private static Map<String, Object> map(String key, Object value) {
+        Map<String, Object> result = new HashMap<>();
+        result.put(key, value);
+        return result;
+    }
+
+    @Test
+    public void rememberWinningDataSource() {
+        CountingDataSource first = new CountingDataSource(map("name", "Solid"));
+        CountingDataSource second = new CountingDataSource(map("rank", "Fox"));
+        ResolutionIndex index = new ResolutionIndex(new DataSource[] {first, second});
+        assertEquals("Fox", index.lookup("rank"));
+        assertEquals(1, first.lookups);
+        assertEquals(1, second.lookups);
+        assertEquals("Fox", index.lookup("rank"));
+        assertEquals("Fox", index.lookup("rank"));
+        assertEquals(1, first.lookups);
+        assertEquals(3, second.lookups);
+        assertSame(second, index.find("rank"));
+        assertSame(first, index.find("name"));
+    }
+
+    @Test
+    public void priority() {
+        DataSource first = new MapDataSource(map("name", null));
+        DataSource second = new MapDataSource(map("name", "Liquid"));
+        ResolutionIndex index = new ResolutionIndex(new DataSource[] {first, second});
+        assertNull(index.lookup("name"));
+        assertSame(first, index.find("name"));
+    }
+
+    @Test
+    public void rememberMissingMember() {
+        CountingDataSource first = new CountingDataSource(map("name", "Solid"));
+        ResolutionIndex index = new ResolutionIndex(new DataSource[] {first});
+        assertSame(LookupDataSource.MISSING, index.lookup("age"));
+        assertSame(LookupDataSource.MISSING, index.lookup("age"));
+        assertNull(index.find("age"));
+        assertEquals(1, first.lookups);
+        index.clear();
+        assertSame(LookupDataSource.MISSING, index.lookup("age"));
+        assertEquals(2, first.lookups);
+    }
+
+    @Test
+    public void thirdPartyDataSource() {
+        DataSource custom = new CustomJsonDataSource("{\"name\": \"Solid\"}");
+        ResolutionIndex index = new ResolutionIndex(new DataSource[] {new EmptyDataSource(), custom});
+        assertEquals("Solid", index.lookup("name"));
+        assertSame(custom, index.find("name"));
+    }
+
+}
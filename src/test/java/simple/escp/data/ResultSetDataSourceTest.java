@@ -0,0 +1,131 @@
+package simple.escp.data;
+
+import org.junit.Test;
+import simple.escp.fill.FillJob;
+import simple.escp.json.JsonTemplate;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.Iterator;
+import java.util.Map;
+import static org.junit.Assert.*;
+
+public class ResultSetDataSourceTest {
+
+    /**
+     * A minimal forward-only <code>ResultSet</code> backed by an array.
+     */
+    private static class ResultSetStub implements InvocationHandler {
+        private final String[] labels;
+        private final Object[][] rows;
+        private int cursor = -1;
+        private int fetchSize;
+        private int nextCalls;
+        private boolean closed;
+
+        ResultSetStub(String[] labels, Object[][] rows) {
+            this.labels = labels;
+            this.rows = rows;
+        }
+
+        ResultSet create() {
+            return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] {ResultSet.class},
+                this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "next":
+                    nextCalls++;
+                    return ++cursor < rows.length;
+                case "getObject":
+                    return rows[cursor][(Integer) args[0] - 1];
+                case "setFetchSize":
+                    fetchSize = (Integer) args[0];
+                    return null;
+                case "close":
+                    closed = true;
+                    return null;
+                case "getMetaData":
+                    return Proxy.newProxyInstance(getClass().getClassLoader(),
+                        new Class[] {ResultSetMetaData.class}, new InvocationHandler() {
+                            @Override
+                            public Object invoke(Object proxy, Method method, Object[] args) {
+                                if (method.getName().equals("getColumnCount")) {
+                                    return labels.length;
+                                }
+                                return labels[(Integer) args[0] - 1];
+                            }
+                        });
+                case "toString":
+                    return "ResultSetStub";
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        }
+    }
+
+    private ResultSetStub createStub() {
+        return new ResultSetStub(new String[] {"SKU", "qty"}, new Object[][] {
+            {"A1", 10},
+            {"B2", 5},
+            {"C3", null}
+        });
+    }
+
+    @Test
+    public void iterateRows() {
+        ResultSetStub stub = createStub();
+        ResultSetDataSource ds = new ResultSetDataSource(stub.create(), "items", 100);
+        assertEquals(100, stub.fetchSize);
+        assertArrayEquals(new String[] {"SKU", "qty"}, ds.getColumnLabels());
+        assertTrue(ds.has("items"));
+        assertFalse(ds.has("rows"));
+        Iterator<?> rows = ((Iterable<?>) ds.get("items")).iterator();
+        assertEquals(0, stub.nextCalls);
+        assertTrue(rows.hasNext());
+        assertTrue(rows.hasNext());
+        assertEquals(1, stub.nextCalls);
+        Map<?, ?> row = (Map<?, ?>) rows.next();
+        assertEquals("A1", row.get("sku"));
+        assertEquals(10, row.get("QTY"));
+        assertEquals(2, row.size());
+        assertFalse(row.containsKey("price"));
+        rows.next();
+        row = (Map<?, ?>) rows.next();
+        assertTrue(row.containsKey("qty"));
+        assertNull(row.get("qty"));
+        assertFalse(rows.hasNext());
+        ds.close();
+        assertTrue(stub.closed);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void iterateOnlyOnce() {
+        ResultSetDataSource ds = new ResultSetDataSource(createStub().create());
+        ((Iterable<?>) ds.get("rows")).iterator();
+        ((Iterable<?>) ds.get("rows")).iterator();
+    }
+
+    @Test
+    public void fillTable() {
+        String template = "{" +
+            "\"pageFormat\": {\"pageLength\": 20, \"usePageLengthFromPrinter\": false}," +
+            "\"template\": [{\"table\": \"rows\", \"columns\": [" +
+                "{\"source\": \"row\", \"width\": 3}, {\"source\": \"SKU\", \"width\": 5}, " +
+                "{\"source\": \"qty\", \"width\": 5}]}]" +
+        "}";
+        ResultSetStub stub = createStub();
+        try (ResultSetDataSource ds = new ResultSetDataSource(stub.create())) {
+            String result = new FillJob(new JsonTemplate(template).compile(), ds).fill();
+            assertTrue(result.contains("1  A1   10   "));
+            assertTrue(result.contains("2  B2   5    "));
+            assertTrue(result.contains("3  C3"));
+        }
+        assertEquals(4, stub.nextCalls);
+    }
+
+}
@@ -0,0 +1,93 @@
+package simple.escp.data;
+
+import org.junit.Test;
+import simple.escp.fill.FillJob;
+import simple.escp.json.JsonTemplate;
+import javax.json.JsonObject;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Iterator;
+import static org.junit.Assert.*;
+
+public class StreamingJsonDataSourceTest {
+
+    private static final String JSON = "{" +
+        "\"title\": \"Stock\"," +
+        "\"warehouse\": {\"name\": \"Main\", \"codes\": [1, 2]}," +
+        "\"items\": [" +
+            "{\"sku\": \"A1\", \"qty\": 10, \"tags\": [\"new\"], \"discontinued\": false}," +
+            "{\"sku\": \"B2\", \"qty\": 5, \"tags\": [], \"discontinued\": null}" +
+        "]," +
+        "\"total\": 15" +
+    "}";
+
+    @Test
+    public void readMembersBeforeRows() {
+        StreamingJsonDataSource ds = new StreamingJsonDataSource(new StringReader(JSON), "items");
+        assertEquals("Stock", ds.get("title"));
+        assertEquals("Main", ds.get("warehouse.name"));
+        assertEquals(new BigDecimal("2"), ds.get("warehouse.codes[1]"));
+        assertTrue(ds.has("items"));
+        assertFalse(ds.has("total"));
+        assertTrue(Arrays.asList(ds.getMembers()).contains("items"));
+        ds.close();
+    }
+
+    @Test
+    public void iterateRows() {
+        StreamingJsonDataSource ds = new StreamingJsonDataSource(new StringReader(JSON), "items");
+        Iterator<?> rows = ((Iterable<?>) ds.get("items")).iterator();
+        assertTrue(rows.hasNext());
+        assertTrue(rows.hasNext());
+        JsonObject row = (JsonObject) rows.next();
+        assertEquals("A1", row.getString("sku"));
+        assertEquals(1, row.getJsonArray("tags").size());
+        assertEquals("B2", ((JsonObject) rows.next()).getString("sku"));
+        assertFalse(rows.hasNext());
+        assertEquals(new BigDecimal("15"), ds.get("total"));
+        assertEquals("Stock", ds.get("title"));
+        ds.close();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void iterateOnlyOnce() {
+        StreamingJsonDataSource ds = new StreamingJsonDataSource(new StringReader(JSON), "items");
+        ((Iterable<?>) ds.get("items")).iterator();
+        ((Iterable<?>) ds.get("items")).iterator();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void notAnObject() {
+        new StreamingJsonDataSource(new StringReader("[1, 2]"), "items");
+    }
+
+    @Test
+    public void fillTableAndList() {
+        String template = "{" +
+            "\"pageFormat\": {\"pageLength\": 20, \"usePageLengthFromPrinter\": false}," +
+            "\"template\": [" +
+                "\"${title} at ${warehouse.name}\"," +
+                "{\"table\": \"items\", \"lineSeparator\": true, \"columns\": [" +
+                    "{\"source\": \"sku\", \"width\": 5}, {\"source\": \"qty\", \"width\": 5}]}" +
+            "]" +
+        "}";
+        try (StreamingJsonDataSource ds = new StreamingJsonDataSource(new StringReader(JSON), "items")) {
+            String result = new FillJob(new JsonTemplate(template).compile(), ds).fill();
+            assertTrue(result.contains("Stock at Main"));
+            assertTrue(result.contains("A1   10   "));
+            assertTrue(result.contains("B2   5    "));
+        }
+
+        template = "{" +
+            "\"pageFormat\": {\"pageLength\": 20, \"usePageLengthFromPrinter\": false}," +
+            "\"template\": [{\"list\": \"items\", \"line\": \"* ${sku} (${qty})\"}]" +
+        "}";
+        try (StreamingJsonDataSource ds = new StreamingJsonDataSource(new StringReader(JSON), "items")) {
+            String result = new FillJob(new JsonTemplate(template).compile(), ds).fill();
+            assertTrue(result.contains("* A1 (10)"));
+            assertTrue(result.contains("* B2 (5)"));
+        }
+    }
+
+}
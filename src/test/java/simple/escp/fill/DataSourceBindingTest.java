@@ -0,0 +1,96 @@
+package simple.escp.fill;
+
+import org.junit.Test;
+import simple.escp.data.DataSource;
+import simple.escp.data.DataSources;
+import simple.escp.json.JsonTemplate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import static org.junit.Assert.*;
+
+public class DataSourceBindingTest {
+
+    public static class Item {
+        static int expensiveCalls;
+        private final int price;
+        private final int qty;
+
+        public Item(int price, int qty) {
+            this.price = price;
+            this.qty = qty;
+        }
+
+        public int getPrice() {
+            return price;
+        }
+
+        public int getQty() {
+            return qty;
+        }
+
+        public String getExpensive() {
+            expensiveCalls++;
+            return "expensive";
+        }
+    }
+
+    @Test
+    public void resolveLazily() {
+        Item.expensiveCalls = 0;
+        Item item = new Item(10, 2);
+        DataSourceBinding binding = new DataSourceBinding(DataSources.from(new Object[] {item}));
+        assertTrue(binding.containsKey("price"));
+        assertEquals(10, binding.get("price"));
+        assertEquals(0, Item.expensiveCalls);
+        assertEquals("expensive", binding.get("expensive"));
+        assertEquals("expensive", binding.get("expensive"));
+        assertEquals(1, Item.expensiveCalls);
+        assertSame(item, binding.get("bean"));
+        assertFalse(binding.containsKey("unknown"));
+        assertNull(binding.get("unknown"));
+    }
+
+    @Test
+    public void priorityOfDataSources() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("price", null);
+        map.put("name", "map");
+        DataSourceBinding binding = new DataSourceBinding(DataSources.from(map, new Item(10, 2)));
+        assertEquals(10, binding.get("price"));
+        assertEquals("map", binding.get("name"));
+        binding.put("name", "explicit");
+        assertEquals("explicit", binding.get("name"));
+        assertTrue(binding.get("dataSources") instanceof DataSource[]);
+    }
+
+    @Test
+    public void reset() {
+        DataSourceBinding binding = new DataSourceBinding(DataSources.from(new Object[] {new Item(10, 2)}));
+        binding.put("row", 1);
+        assertEquals(10, binding.get("price"));
+        binding.reset(DataSources.from(new Object[] {new Item(20, 3)}));
+        assertEquals(20, binding.get("price"));
+        assertEquals(1, binding.get("row"));
+        binding.reset(DataSources.from(new Object[] {Collections.singletonMap("other", 1)}));
+        assertFalse(binding.containsKey("price"));
+    }
+
+    @Test
+    public void scriptColumnDoesNotReadOtherProperties() {
+        Item.expensiveCalls = 0;
+        List<Item> items = new ArrayList<>();
+        items.add(new Item(10, 2));
+        items.add(new Item(5, 4));
+        Map<String, Object> source = new HashMap<>();
+        source.put("items", items);
+        JsonTemplate template = new JsonTemplate("{\"pageFormat\": {\"pageLength\": 10}, \"template\": [" +
+            "{\"table\": \"items\", \"columns\": [{\"source\": \"price * qty\", \"width\": 10}]}]}");
+        String result = new FillJob(template.compile(), DataSources.from(source)).fill();
+        assertTrue(result.contains("20"));
+        assertEquals(0, Item.expensiveCalls);
+    }
+
+}
@@ -0,0 +1,121 @@
+package simple.escp.fill;
+
+import org.junit.Assume;
+import org.junit.Test;
+import simple.escp.data.DataSources;
+import simple.escp.exception.InvalidPlaceholder;
+import simple.escp.json.JsonTemplate;
+import simple.escp.util.EscpUtil;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import static org.junit.Assert.*;
+
+public class FillJobTest {
+
+    public static class Person {
+        private final String name;
+
+        public Person(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    private static List<Person> persons(String... names) {
+        List<Person> result = new ArrayList<>();
+        for (String name : names) {
+            result.add(new Person(name));
+        }
+        return result;
+    }
+
+    private static final String TABLE = "{" +
+        "\"pageFormat\": {\"pageLength\": 20, \"usePageLengthFromPrinter\": false}," +
+        "\"template\": [{\"table\": \"names\", \"lineSeparator\": true, \"columns\": [" +
+            "{\"source\": \"row\", \"width\": 3}, {\"source\": \"name\", \"width\": 6}]}]" +
+    "}";
+
+    private static final String LIST = "{" +
+        "\"pageFormat\": {\"pageLength\": 20, \"usePageLengthFromPrinter\": false}," +
+        "\"template\": [{\"list\": \"names\", \"line\": \"* ${name}\"}]" +
+    "}";
+
+    private String fill(String template, Object names) {
+        Map<String, Object> source = new HashMap<>();
+        source.put("names", names);
+        return new FillJob(new JsonTemplate(template).compile(), DataSources.from(source)).fill();
+    }
+
+    private int countSeparators(String text) {
+        int result = 0;
+        for (String line : text.split(EscpUtil.CRLF)) {
+            if (line.startsWith(String.valueOf(EscpUtil.CP347_LIGHT_HORIZONTAL))) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void tableFromIterator() {
+        List<Person> names = persons("Solid", "Liquid", "Naked");
+        String expected = fill(TABLE, names);
+        String result = fill(TABLE, names.iterator());
+        assertEquals(expected, result);
+        assertTrue(result.contains("3  Naked "));
+        assertEquals(2, countSeparators(result));
+    }
+
+    @Test
+    public void tableFromArray() {
+        Person[] names = persons("Solid", "Liquid").toArray(new Person[0]);
+        assertEquals(fill(TABLE, Arrays.asList(names)), fill(TABLE, names));
+    }
+
+    @Test
+    public void listFromIterator() {
+        Iterator<Person> names = persons("Solid", "Liquid").iterator();
+        String result = fill(LIST, names);
+        assertTrue(result.contains("* Solid"));
+        assertTrue(result.contains("* Liquid"));
+    }
+
+    @Test
+    public void tableFromStream() throws Exception {
+        Object stream;
+        try {
+            stream = Arrays.class.getMethod("stream", Object[].class).invoke(null,
+                (Object) persons("Solid", "Liquid").toArray());
+        } catch (NoSuchMethodException e) {
+            Assume.assumeNoException(e);
+            return;
+        }
+        assertEquals(fill(TABLE, persons("Solid", "Liquid")), fill(TABLE, stream));
+    }
+
+    @Test
+    public void iteratorCanOnlyBeIteratedOnce() {
+        Iterable<?> iterable = FillJob.toIterable(Arrays.asList("Solid").iterator());
+        iterable.iterator();
+        try {
+            iterable.iterator();
+            fail("Iterator should only be iterated once.");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("only be iterated once"));
+        }
+        assertNull(FillJob.toIterable("Solid"));
+    }
+
+    @Test(expected = InvalidPlaceholder.class)
+    public void unsupportedSource() {
+        fill(TABLE, new Person("Solid"));
+    }
+
+}
@@ -0,0 +1,158 @@
+package simple.escp.fill;
+
+import org.junit.After;
+import org.junit.Test;
+import simple.escp.data.DataSource;
+import simple.escp.data.DataSources;
+import simple.escp.json.JsonTemplate;
+import javax.script.ScriptEngine;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import static org.junit.Assert.*;
+
+public class ScriptEnginePoolTest {
+
+    private final ScriptEnginePool defaultPool = FillJob.getScriptEnginePool();
+
+    @After
+    public void restorePool() {
+        FillJob.setScriptEnginePool(defaultPool);
+    }
+
+    private FillJob fillJob(String template) {
+        Map<String, Object> source = new HashMap<>();
+        source.put("name", "Solid");
+        source.put("items", Arrays.asList(Collections.singletonMap("code", "A"),
+            Collections.singletonMap("code", "B")));
+        DataSource dataSource = DataSources.from(source);
+        return new FillJob(new JsonTemplate(template).compile(), dataSource);
+    }
+
+    @Test
+    public void reuseEngines() {
+        ScriptEnginePool pool = new ScriptEnginePool(1, "JavaScript");
+        assertNotNull(pool.getFactory());
+        assertFalse(pool.isShared());
+        ScriptEngine first = pool.acquire();
+        ScriptEngine second = pool.acquire();
+        assertNotSame(first, second);
+        pool.release(first);
+        pool.release(second);
+        assertEquals(1, pool.getIdleCount());
+        assertSame(first, pool.acquire());
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    public void warmUp() {
+        ScriptEnginePool pool = new ScriptEnginePool(2, "JavaScript");
+        pool.warmUp(2);
+        assertEquals(2, pool.getIdleCount());
+    }
+
+    @Test
+    public void engineNotAvailable() {
+        ScriptEnginePool pool = new ScriptEnginePool(1, "unknown");
+        assertNull(pool.getFactory());
+        assertNull(pool.acquire());
+        FillJob.setScriptEnginePool(pool);
+        String result = fillJob("{\"template\": [\"Name: {{name}}, length: {{name.length}}.\"]}").fill();
+        assertTrue(result.contains("Name: Solid, length: ."));
+    }
+
+    @Test
+    public void fillReturnsEngine() {
+        ScriptEnginePool pool = new ScriptEnginePool(2, "unknown", "JavaScript");
+        FillJob.setScriptEnginePool(pool);
+        String template = "{" +
+            "\"pageFormat\": {\"pageLength\": 20, \"usePageLengthFromPrinter\": false}," +
+            "\"template\": [\"Name: {{name}} ({{name.length}}).\", " +
+                "{\"list\": \"items\", \"line\": \"Item {{code}}\"}]" +
+        "}";
+        for (int i = 0; i < 3; i++) {
+            String result = fillJob(template).fill();
+            assertTrue(result.contains("Name: Solid (5)."));
+            assertTrue(result.contains("Item B"));
+            assertEquals(1, pool.getIdleCount());
+        }
+    }
+
+    @Test
+    public void variablesAreNotShared() {
+        FillJob.setScriptEnginePool(new ScriptEnginePool(1, "JavaScript"));
+        String template = "{\"template\": [\"Greeting: {{greeting}}.\"]}";
+        FillJob first = fillJob(template);
+        first.addScriptVariable("greeting", "Hello");
+        assertTrue(first.fill().contains("Greeting: Hello."));
+        assertTrue(fillJob(template).fill().contains("Greeting: ."));
+        first.removeScriptVariable("greeting");
+        assertTrue(first.fill().contains("Greeting: ."));
+    }
+
+    @Test
+    public void compileScriptsOnce() throws Exception {
+        ScriptEnginePool pool = new ScriptEnginePool(1, 10, "JavaScript");
+        FillJob.setScriptEnginePool(pool);
+        String template = "{" +
+            "\"pageFormat\": {\"pageLength\": 20, \"usePageLengthFromPrinter\": false}," +
+            "\"template\": [\"Name: {{name.toUpperCase()}}.\", {\"table\": \"items\", \"columns\": [" +
+                "{\"source\": \"[code, row].join('')\", \"width\": 4}]}]" +
+        "}";
+        for (int i = 0; i < 2; i++) {
+            String result = fillJob(template).fill();
+            assertTrue(result.contains("Name: SOLID."));
+            assertTrue(result.contains("A1"));
+            assertTrue(result.contains("B2"));
+            // name.toUpperCase() and the source of table don't need script engine
+            assertEquals(1, pool.getCompiledScriptCount());
+        }
+        ScriptEngine engine = pool.acquire();
+        assertSame(pool.compile(engine, "code + row"), pool.compile(engine, "code + row"));
+        pool.clearCompiledScripts();
+        assertEquals(0, pool.getCompiledScriptCount());
+    }
+
+    @Test
+    public void limitCompiledScripts() throws Exception {
+        ScriptEnginePool pool = new ScriptEnginePool(1, 1, "JavaScript");
+        ScriptEngine engine = pool.acquire();
+        pool.compile(engine, "1 + 1");
+        pool.compile(engine, "2 + 2");
+        assertEquals(1, pool.getCompiledScriptCount());
+
+        pool = new ScriptEnginePool(1, 0, "JavaScript");
+        assertNull(pool.compile(pool.acquire(), "1 + 1"));
+        FillJob.setScriptEnginePool(pool);
+        assertTrue(fillJob("{\"template\": [\"Name: {{name.length}}.\"]}").fill().contains("Name: 5."));
+        assertEquals(0, pool.getCompiledScriptCount());
+    }
+
+    @Test
+    public void removeScriptsOfDiscardedEngine() throws Exception {
+        ScriptEnginePool pool = new ScriptEnginePool(1, 10, "JavaScript");
+        ScriptEngine kept = pool.acquire();
+        ScriptEngine discarded = pool.acquire();
+        pool.compile(kept, "1 + 1");
+        pool.compile(discarded, "1 + 1");
+        pool.compile(discarded, "2 + 2");
+        assertEquals(3, pool.getCompiledScriptCount());
+        pool.release(kept);
+        pool.release(discarded);
+        assertEquals(1, pool.getIdleCount());
+        assertEquals(1, pool.getCompiledScriptCount());
+        assertSame(kept, pool.acquire());
+
+        pool = new ScriptEnginePool(0, 10, "JavaScript");
+        FillJob.setScriptEnginePool(pool);
+        assertTrue(fillJob("{\"template\": [\"Name: {{name.length}}.\"]}").fill().contains("Name: 5."));
+        assertEquals(0, pool.getCompiledScriptCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noEngineName() {
+        new ScriptEnginePool(1);
+    }
+
+}
@@ -1,12 +1,17 @@
 package simple.escp.json;
 
 import org.junit.Test;
+import simple.escp.data.MapDataSource;
 import simple.escp.dom.Line;
 import simple.escp.dom.Page;
 import simple.escp.dom.Report;
 import simple.escp.fill.FillJob;
+import simple.escp.dom.line.TextSegment;
 import simple.escp.fill.function.Function;
+import simple.escp.fill.function.FunctionDispatcher;
 import simple.escp.util.EscpUtil;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.regex.Matcher;
 import static simple.escp.util.EscpUtil.*;
 import static org.junit.Assert.*;
@@ -357,6 +362,65 @@ public class FunctionTest {
         assertEquals(INIT + "Result: %{MY_CUSTOM}" + CRLF + CRFF + INIT, new FillJob(jsonTemplate.parse()).fill());
     }
 
+    @Test
+    public void customFunctionWithoutToken() {
+        Function function = new Function("\\[(\\w+)\\]|%\\{HELLO") {
+            @Override
+            public String process(Matcher matcher, Report report, Page page, Line line) {
+                return (matcher.group(1) == null) ? "%{BOLD}Hello" : matcher.group(1).toLowerCase();
+            }
+
+            @Override
+            public void reset() {
+                // do nothing
+            }
+        };
+        FillJob.addFunction(function);
+        String jsonString =
+        "{" +
+            "\"template\": [\"Literal [TEXT]\", \"${name} [NAME] on line %{LINE_NO}\", \"%{HELLO} %{PAGE_NO}\"]" +
+        "}";
+        JsonTemplate jsonTemplate = new JsonTemplate(jsonString);
+        Map<String, String> source = new HashMap<>();
+        source.put("name", "[Solid]");
+        try {
+            assertEquals(
+                INIT + "Literal text" + CRLF + "[Solid] name on line 2" + CRLF + escSelectBoldFont() + "Hello} 1" +
+                CRLF + CRFF + INIT,
+                new FillJob(jsonTemplate.parse(), new MapDataSource(source)).fill()
+            );
+        } finally {
+            FillJob.removeFunction(function);
+        }
+    }
+
+    @Test
+    public void functionsAndPlaceholdersInOneLine() {
+        String jsonString =
+        "{" +
+            "\"template\": [" +
+                "\"%{BOLD}${name}%{BOLD} is on line %{LINE_NO}, {{ 1 + 1 }} %{UNKNOWN}\"," +
+                "\"%{65 R3}%{INC A}%{INCA}\"" +
+            "]" +
+        "}";
+        JsonTemplate jsonTemplate = new JsonTemplate(jsonString);
+        Map<String, String> source = new HashMap<>();
+        source.put("name", "%{ITALIC}");
+        assertEquals(
+            INIT + escSelectBoldFont() + "%{ITALIC}" + escCancelBoldFont() + " is on line 1, 2 %{UNKNOWN}" + CRLF +
+            "AAA12" + CRLF + CRFF + INIT,
+            new FillJob(jsonTemplate.parse(), new MapDataSource(source)).fill()
+        );
+    }
+
+    @Test
+    public void functionName() {
+        assertEquals("INC", FunctionDispatcher.getName(new TextSegment(TextSegment.Type.FUNCTION, "%{ INC A }",
+            " INC A ")));
+        assertEquals("BOLD", FunctionDispatcher.getName(new TextSegment(TextSegment.Type.FUNCTION, "%{BOLD}",
+            "BOLD")));
+    }
+
     private static class CustomFunction extends Function {
 
         public CustomFunction() {
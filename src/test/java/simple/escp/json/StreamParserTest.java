@@ -0,0 +1,202 @@
+package simple.escp.json;
+
+import org.junit.Test;
+import simple.escp.dom.Line;
+import simple.escp.dom.PageFormat;
+import simple.escp.dom.Report;
+import simple.escp.dom.TableColumn;
+import simple.escp.dom.line.ListLine;
+import simple.escp.dom.line.TableLine;
+import simple.escp.dom.line.TextLine;
+import javax.json.Json;
+import javax.json.stream.JsonParser;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.*;
+
+public class StreamParserTest {
+
+    private Report parse(String json, PageFormat pageFormat) {
+        try (JsonParser jsonParser = Json.createParser(new StringReader(json))) {
+            return new StreamParser(jsonParser, pageFormat).parse();
+        }
+    }
+
+    @Test
+    public void templateBeforePageFormat() {
+        PageFormat pageFormat = new PageFormat();
+        Report report = parse("{" +
+            "\"template\": {" +
+                "\"header\": [\"Header\"]," +
+                "\"detail\": [\"Detail 1\", \"Detail 2\"]" +
+            "}," +
+            "\"unknown\": {\"a\": [1, 2, {\"b\": []}]}," +
+            "\"pageFormat\": {" +
+                "\"pageLength\": \"3\"," +
+                "\"pageWidth\": 20," +
+                "\"autoLineFeed\": true," +
+                "\"unknown\": [1, 2]" +
+            "}" +
+        "}", pageFormat);
+        assertEquals(3, pageFormat.getPageLength().intValue());
+        assertEquals(20, pageFormat.getPageWidth().intValue());
+        assertTrue(pageFormat.isAutoLineFeed());
+        assertEquals(1, report.getHeader().length);
+        assertEquals("Header", report.getHeader()[0].getText());
+        assertEquals(1, report.getNumberOfPages());
+        assertEquals("Detail 2", report.getPage(1).getLine(3).toString());
+    }
+
+    @Test
+    public void tableAndList() {
+        Report report = parse("{" +
+            "\"template\": [" +
+                "\"Line 1\"," +
+                "{" +
+                    "\"columns\": [" +
+                        "{ \"width\": 10, \"source\": \"name\", \"caption\": \"Name\", \"wrap\": true }," +
+                        "{ \"source\": \"qty\", \"width\": 5 }" +
+                    "]," +
+                    "\"border\": true," +
+                    "\"table\": \"items\"" +
+                "}," +
+                "{" +
+                    "\"list\": \"persons\"," +
+                    "\"line\": \"${name}\"," +
+                    "\"header\": [\"Persons\"]" +
+                "}" +
+            "]" +
+        "}", new PageFormat());
+        List<Line> lines = report.getFlatLines();
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(0) instanceof TextLine);
+
+        TableLine tableLine = (TableLine) lines.get(1);
+        assertEquals("items", tableLine.getSource());
+        assertTrue(tableLine.isDrawBorder());
+        assertEquals(2, tableLine.getNumberOfColumns());
+        assertEquals("name", tableLine.getColumnAt(1).getText());
+        assertEquals(10, tableLine.getColumnAt(1).getWidth());
+        assertEquals("Name", tableLine.getColumnAt(1).getCaption());
+        assertTrue(tableLine.getColumnAt(1).isWrap());
+        assertEquals(5, tableLine.getColumnAt(2).getWidth());
+
+        ListLine listLine = (ListLine) lines.get(2);
+        assertEquals("persons", listLine.getSource());
+        assertEquals("${name}", listLine.getLineSource());
+        assertEquals("Persons", listLine.getHeader()[0].getText());
+    }
+
+    @Test
+    public void sameLinesAsParser() {
+        String json = "{" +
+            "\"pageFormat\": {\"pageLength\": 10}," +
+            "\"template\": {" +
+                "\"firstPage\": [\"First\", {\"list\": \"persons\", \"line\": \"${name}\", " +
+                    "\"header\": [\"Persons\", 1, {\"a\": 2}], \"footer\": [null, \"End\"]}]," +
+                "\"header\": [\"Header\", \"Header 2\"]," +
+                "\"footer\": [\"Footer\"]," +
+                "\"detail\": [\"Detail\", {\"table\": \"items\", \"border\": \"yes\", \"lineSeparator\": true, " +
+                    "\"columns\": [{\"source\": \"name\", \"width\": 10.0, \"caption\": \"Name\", " +
+                    "\"wrap\": 1}, {\"source\": \"qty\", \"width\": 5, \"wrap\": true}]}]," +
+                "\"lastPage\": [\"Last\"]" +
+            "}" +
+        "}";
+        JsonTemplate jsonTemplate = new JsonTemplate(json);
+        Report streamReport = jsonTemplate.parse();
+        Report treeReport = jsonTemplate.parseTemplateText(Json.createReader(new StringReader(json)).readObject());
+        assertEquals(describe(treeReport.getHeader()), describe(streamReport.getHeader()));
+        assertEquals(describe(treeReport.getFooter()), describe(streamReport.getFooter()));
+        assertEquals(treeReport.getNumberOfPages(), streamReport.getNumberOfPages());
+        List<Line> treeLines = treeReport.getFlatLines();
+        List<Line> streamLines = streamReport.getFlatLines();
+        assertEquals(treeLines.size(), streamLines.size());
+        List<String> dynamicLines = new ArrayList<>();
+        for (int i = 0; i < treeLines.size(); i++) {
+            assertEquals(describe(treeLines.get(i)), describe(streamLines.get(i)));
+            if (!(streamLines.get(i) instanceof TextLine)) {
+                dynamicLines.add(describe(streamLines.get(i)));
+            }
+        }
+        assertEquals(Arrays.asList("List persons ${name} [Persons, null, null] [null, End]",
+            "Table items false true false [name 10 Name false, qty 5 qty true]"), dynamicLines);
+    }
+
+    @Test
+    public void appendRepeatedDetail() {
+        Report report = parse("{" +
+            "\"pageFormat\": {\"pageLength\": 10}," +
+            "\"template\": {\"detail\": [\"Detail 1\"], \"unknown\": 1, \"detail\": [\"Detail 2\"]}" +
+        "}", new PageFormat());
+        List<Line> lines = report.getFlatLines();
+        assertEquals(2, lines.size());
+        assertEquals("Detail 1", ((TextLine) lines.get(0)).getText());
+        assertEquals("Detail 2", ((TextLine) lines.get(1)).getText());
+    }
+
+    private String describe(Line[] lines) {
+        if (lines == null) {
+            return "null";
+        }
+        List<String> result = new ArrayList<>();
+        for (Line line : lines) {
+            result.add(describe(line));
+        }
+        return result.toString();
+    }
+
+    private String describe(Line line) {
+        if (line instanceof TableLine) {
+            TableLine table = (TableLine) line;
+            List<String> columns = new ArrayList<>();
+            for (int i = 1; i <= table.getNumberOfColumns(); i++) {
+                TableColumn column = table.getColumnAt(i);
+                columns.add(column.getText() + " " + column.getWidth() + " " + column.getCaption() + " " +
+                    column.isWrap());
+            }
+            return "Table " + table.getSource() + " " + table.isDrawBorder() + " " + table.isDrawLineSeparator() +
+                " " + table.isDrawUnderlineSeparator() + " " + columns;
+        } else if (line instanceof ListLine) {
+            ListLine list = (ListLine) line;
+            return "List " + list.getSource() + " " + list.getLineSource() + " " + describe(list.getHeader()) + " " +
+                describe(list.getFooter());
+        } else if (line instanceof TextLine) {
+            return ((TextLine) line).getText();
+        }
+        return String.valueOf(line);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missingTemplate() {
+        parse("{\"pageFormat\": {\"pageLength\": 10}}", new PageFormat());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missingColumnWidth() {
+        parse("{\"template\": [{\"table\": \"items\", \"columns\": [{\"source\": \"name\"}]}]}", new PageFormat());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsupportedObject() {
+        parse("{\"template\": [{\"unknown\": \"items\"}]}", new PageFormat());
+    }
+
+    @Test
+    public void largeInputStream() throws IOException {
+        StringBuilder json = new StringBuilder("{\"template\": [");
+        for (int i = 0; i < 5000; i++) {
+            json.append(i == 0 ? "" : ",").append("\"Line ").append(i).append(" ${name}\"");
+        }
+        json.append("]}");
+        JsonTemplate jsonTemplate = new JsonTemplate(new ByteArrayInputStream(
+            json.toString().getBytes(StandardCharsets.UTF_8)));
+        assertEquals(json.toString(), jsonTemplate.getOriginalText());
+        assertEquals(5000, jsonTemplate.parse().getFlatLines().size());
+    }
+
+}
@@ -162,4 +162,14 @@ public class BasicPlaceholderTest {
         assertEquals("          ", placeholder.getValueAsString(dataSources));
     }
 
+    @Test
+    public void formatPrimitives() {
+        assertEquals(NumberFormat.getNumberInstance().format(10000), new BasicPlaceholder("payment:number")
+            .getFormattedLong(10000));
+        assertEquals(NumberFormat.getIntegerInstance().format(10.55), new BasicPlaceholder("rate:integer")
+            .getFormattedDouble(10.55));
+        assertEquals("10.5      ", new BasicPlaceholder("rate:10").getFormattedDouble(10.5));
+        assertEquals("        42", new BasicPlaceholder("id:10:right").getFormattedLong(42));
+    }
+
 }
@@ -0,0 +1,241 @@
+package simple.escp.placeholder;
+
+import org.junit.Assume;
+import org.junit.Test;
+import simple.escp.data.DataSource;
+import simple.escp.data.DataSources;
+import simple.escp.placeholder.Expression.Dialect;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.SimpleBindings;
+import javax.script.SimpleScriptContext;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import static org.junit.Assert.*;
+
+public class ExpressionTest {
+
+    private static final String[] SCRIPTS = {
+        "1 + 1", "qty + 1", "qty * 2", "qty - 10", "-qty", "-1", "-0", "qty % 2", "qty / 2", "qty / 3", "10 / 4",
+        "10 / 2", "1 + 2 * 3 - 4 / 2", "7 / 2 * 2", "(qty + 1) / 2", "big * 2", "big + big", "2147483647 + 1",
+        "-2147483648", "2147483648", "id + 1", "id * 2", "qty + id", "rate * 2", "rate + qty", "price * 2",
+        "price + 1", "price * qty", "price / 3", "price / 7", "-price", "0.1 + 0.2", "1.5 * 2", "1 / 3", "22 / 7",
+        "qty == 3", "qty == 3.0", "qty != id", "id == 5", "price == 10.5", "price > 10", "rate < qty",
+        "name == 'Solid'", "name < 'Sz'", "empty == null", "name + qty", "qty + name", "name + rate",
+        "name + price", "name + 1.0", "name + 1 / 3", "name + 0.1 * 3", "name + rate / 3000000", "name + id",
+        "name + empty", "name + (qty > 1)", "name + -0.0", "1 + 1 + name", "name + big * 2",
+        "qty > 1 && !(qty > 5) || false", "qty > 1 ? 'many' : 'one'", "name.toUpperCase()", "name.toLowerCase()",
+        "name.length()", "name.substring(0, 3)", "name.substring(3, 1)", "name.indexOf('l')",
+        "name.startsWith('So')", "name.contains('li')", "name.trim()", "name.charAt(0)", "name.replace('o', '0')",
+        "customer.name", "customer.name.toUpperCase()", "qty / 0", "qty % 0", "price % 4", "empty + 1"
+    };
+
+    private Map<String, Object> variables() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("name", "Solid");
+        map.put("qty", 3);
+        map.put("big", 2000000000);
+        map.put("id", 5L);
+        map.put("price", new BigDecimal("10.50"));
+        map.put("rate", 0.5);
+        map.put("customer", new ScriptPlaceholderTest.Student("Snake"));
+        map.put("empty", null);
+        return map;
+    }
+
+    private Object evaluate(String script, Dialect dialect) {
+        Expression expression = Expression.parse(script);
+        assertNotNull("Can't parse [" + script + "]", expression);
+        return expression.evaluate(new DataSource[] {DataSources.from(variables())}, dialect);
+    }
+
+    private void assertSameAsEngine(String engineName, Dialect dialect) throws Exception {
+        ScriptEngine engine = new ScriptEngineManager().getEngineByName(engineName);
+        Assume.assumeNotNull(engine);
+        assertEquals(dialect, Dialect.of(engine.getFactory()));
+        for (Map.Entry<String, Object> entry : variables().entrySet()) {
+            engine.put(entry.getKey(), entry.getValue());
+        }
+        int supported = 0;
+        for (String script : SCRIPTS) {
+            Object value = Expression.parse(script).evaluate(engine.getContext(), dialect);
+            if (value == Expression.UNSUPPORTED) {
+                continue;
+            }
+            Object expected = engine.eval(script);
+            assertEquals("Value of [" + script + "]", expected, value);
+            assertEquals("Type of [" + script + "]", (expected == null) ? null : expected.getClass(),
+                (value == null) ? null : value.getClass());
+            supported++;
+        }
+        assertTrue(supported > SCRIPTS.length / 2);
+    }
+
+    @Test
+    public void parse() {
+        Expression expression = Expression.parse("qty * 2");
+        assertEquals("qty * 2", expression.getSource());
+        assertSame(expression, Expression.parse("qty * 2"));
+        assertNull(Expression.parse(null));
+        assertNull(Expression.parse(""));
+        assertNull(Expression.parse("qty = 2"));
+        assertNull(Expression.parse("qty === 2"));
+        assertNull(Expression.parse("qty; 2"));
+        assertNull(Expression.parse("max(qty, 2)"));
+        assertNull(Expression.parse("new Date()"));
+        assertNull(Expression.parse("items[0]"));
+        assertNull(Expression.parse("name ?: 'none'"));
+        assertNull(Expression.parse("customer?.name"));
+        assertNull(Expression.parse("\"Hello ${name}\""));
+        assertNull(Expression.parse("0x1F"));
+        assertNull(Expression.parse("010"));
+        assertNull(Expression.parse("'unterminated"));
+    }
+
+    @Test
+    public void dialectOf() {
+        assertEquals(Dialect.JAVASCRIPT, Dialect.of(new ScriptEngineManager().getEngineByName("JavaScript").getFactory()));
+        assertNull(Dialect.of(null));
+    }
+
+    @Test
+    public void groovyArithmetic() {
+        assertEquals(2, evaluate("1 + 1", Dialect.GROOVY));
+        assertEquals(6, evaluate("qty * 2", Dialect.GROOVY));
+        assertEquals(-1, evaluate("qty - 4", Dialect.GROOVY));
+        assertEquals(-3, evaluate("-qty", Dialect.GROOVY));
+        assertEquals(1, evaluate("qty % 2", Dialect.GROOVY));
+        assertEquals(new BigDecimal("3"), evaluate("qty * 2 / 2", Dialect.GROOVY));
+        assertEquals(new BigDecimal("1.5"), evaluate("qty / 2", Dialect.GROOVY));
+        assertEquals(new BigDecimal("0.3333333333"), evaluate("1 / 3", Dialect.GROOVY));
+        assertEquals(new BigDecimal("3.50"), evaluate("price / 3", Dialect.GROOVY));
+        assertEquals(0, evaluate("65536 * 65536", Dialect.GROOVY));
+        assertEquals(Long.MIN_VALUE, evaluate("9223372036854775807 + 1", Dialect.GROOVY));
+        assertEquals(10L, evaluate("id * 2", Dialect.GROOVY));
+        assertEquals(new BigDecimal("21.00"), evaluate("price * 2", Dialect.GROOVY));
+        assertEquals(new BigDecimal("0.3"), evaluate("0.1 + 0.2", Dialect.GROOVY));
+        assertEquals(1.5, evaluate("qty * rate", Dialect.GROOVY));
+        assertEquals(Integer.MIN_VALUE, evaluate("-2147483648", Dialect.GROOVY));
+        assertEquals(Expression.UNSUPPORTED, evaluate("qty / 0", Dialect.GROOVY));
+        assertEquals(Expression.UNSUPPORTED, evaluate("price % 4", Dialect.GROOVY));
+        assertEquals(Expression.UNSUPPORTED, evaluate("name * 2", Dialect.GROOVY));
+        assertEquals(Expression.UNSUPPORTED, evaluate("empty + 1", Dialect.GROOVY));
+    }
+
+    @Test
+    public void javaScriptArithmetic() {
+        assertEquals(2, evaluate("1 + 1", Dialect.JAVASCRIPT));
+        assertEquals(3, evaluate("6 / 2", Dialect.JAVASCRIPT));
+        assertEquals(3.5, evaluate("7 / 2", Dialect.JAVASCRIPT));
+        assertEquals(7.0, evaluate("7 / 2 * 2", Dialect.JAVASCRIPT));
+        assertEquals(-0.0, evaluate("-0", Dialect.JAVASCRIPT));
+        assertEquals(6.0, evaluate("qty * 2", Dialect.JAVASCRIPT));
+        assertEquals(-3.0, evaluate("-qty", Dialect.JAVASCRIPT));
+        assertEquals(1.0, evaluate("qty % 2", Dialect.JAVASCRIPT));
+        assertEquals(4.294967296E9, evaluate("65536 * 65536", Dialect.JAVASCRIPT));
+        assertEquals(21.0, evaluate("price * 2", Dialect.JAVASCRIPT));
+        assertEquals(0.30000000000000004, evaluate("0.1 + 0.2", Dialect.JAVASCRIPT));
+        assertEquals(Double.POSITIVE_INFINITY, evaluate("qty / 0", Dialect.JAVASCRIPT));
+        assertEquals(Expression.UNSUPPORTED, evaluate("name * 2", Dialect.JAVASCRIPT));
+        assertEquals(Expression.UNSUPPORTED, evaluate("empty + 1", Dialect.JAVASCRIPT));
+    }
+
+    @Test
+    public void concatenate() {
+        assertEquals("Solid3", evaluate("name + qty", Dialect.GROOVY));
+        assertEquals("3Solid", evaluate("qty + name", Dialect.GROOVY));
+        assertEquals("Name: Solid", evaluate("'Name: ' + name", Dialect.GROOVY));
+        assertEquals("Name: \"Solid\"", evaluate("\"Name: \\\"\" + name + '\"'", Dialect.GROOVY));
+        assertEquals("Solidnull", evaluate("name + empty", Dialect.GROOVY));
+        assertEquals("Solid1.0", evaluate("name + 1.0", Dialect.GROOVY));
+        assertEquals("Solid0.3333333333", evaluate("name + 1 / 3", Dialect.GROOVY));
+        assertEquals(Expression.UNSUPPORTED, evaluate("true + name", Dialect.GROOVY));
+
+        assertEquals("Solid3", evaluate("name + qty", Dialect.JAVASCRIPT));
+        assertEquals("Solid1", evaluate("name + 1.0", Dialect.JAVASCRIPT));
+        assertEquals("Solid10.50", evaluate("name + price", Dialect.JAVASCRIPT));
+        assertEquals("Solid0.3333333333333333", evaluate("name + 1 / 3", Dialect.JAVASCRIPT));
+        assertEquals("Solid1e-7", evaluate("name + 0.0000001", Dialect.JAVASCRIPT));
+        assertEquals("Solid4000000000", evaluate("name + big * 2", Dialect.JAVASCRIPT));
+        assertEquals("trueSolid", evaluate("true + name", Dialect.JAVASCRIPT));
+    }
+
+    @Test
+    public void compare() {
+        for (Dialect dialect : Dialect.values()) {
+            assertEquals(true, evaluate("qty == 3", dialect));
+            assertEquals(true, evaluate("qty == 3.0", dialect));
+            assertEquals(false, evaluate("qty != 3", dialect));
+            assertEquals(true, evaluate("price > 10", dialect));
+            assertEquals(true, evaluate("price <= 10.5", dialect));
+            assertEquals(true, evaluate("rate < qty", dialect));
+            assertEquals(true, evaluate("name == 'Solid'", dialect));
+            assertEquals(true, evaluate("name < 'Sz'", dialect));
+            assertEquals(true, evaluate("empty == null", dialect));
+            assertEquals(false, evaluate("name == null", dialect));
+            assertEquals(true, evaluate("qty > 1 && !(qty > 5) || false", dialect));
+            assertEquals(Expression.UNSUPPORTED, evaluate("name == 3", dialect));
+            assertEquals(Expression.UNSUPPORTED, evaluate("qty && true", dialect));
+        }
+        assertEquals(true, evaluate("id == price / 2.1", Dialect.GROOVY));
+        assertEquals(Expression.UNSUPPORTED, evaluate("id == price", Dialect.JAVASCRIPT));
+    }
+
+    @Test
+    public void conditional() {
+        assertEquals("many", evaluate("qty > 1 ? 'many' : 'one'", Dialect.GROOVY));
+        assertEquals("one", evaluate("qty > 5 ? 'many' : qty > 1 ? 'one' : 'none'", Dialect.GROOVY));
+        assertEquals(Expression.UNSUPPORTED, evaluate("name ? 'yes' : 'no'", Dialect.GROOVY));
+    }
+
+    @Test
+    public void memberAndMethod() {
+        assertEquals("Snake", evaluate("customer.name", Dialect.GROOVY));
+        assertEquals("SNAKE", evaluate("customer.name.toUpperCase()", Dialect.GROOVY));
+        assertEquals("Sol", evaluate("name.substring(0, 3)", Dialect.GROOVY));
+        assertEquals(2, evaluate("name.indexOf('l')", Dialect.GROOVY));
+        assertEquals(true, evaluate("name.startsWith('So')", Dialect.GROOVY));
+        assertEquals('S', evaluate("name.charAt(0)", Dialect.GROOVY));
+        assertEquals("S0lid", evaluate("name.replace('o', '0')", Dialect.GROOVY));
+        assertEquals(Expression.UNSUPPORTED, evaluate("name.length", Dialect.GROOVY));
+        assertEquals(Expression.UNSUPPORTED, evaluate("name.unknown()", Dialect.GROOVY));
+        assertEquals(Expression.UNSUPPORTED, evaluate("empty.name", Dialect.GROOVY));
+        assertEquals(Expression.UNSUPPORTED, evaluate("unknown", Dialect.GROOVY));
+
+        assertEquals("Sol", evaluate("name.substring(0, 3)", Dialect.JAVASCRIPT));
+        assertEquals(true, evaluate("name.contains('li')", Dialect.JAVASCRIPT));
+        assertEquals(Expression.UNSUPPORTED, evaluate("name.charAt(0)", Dialect.JAVASCRIPT));
+        assertEquals(Expression.UNSUPPORTED, evaluate("name.replace('o', '0')", Dialect.JAVASCRIPT));
+        assertEquals(Expression.UNSUPPORTED, evaluate("name.trim()", Dialect.JAVASCRIPT));
+    }
+
+    @Test
+    public void sameResultAsJavaScript() throws Exception {
+        assertSameAsEngine("JavaScript", Dialect.JAVASCRIPT);
+    }
+
+    @Test
+    public void sameResultAsGroovy() throws Exception {
+        assertSameAsEngine("groovy", Dialect.GROOVY);
+    }
+
+    @Test
+    public void evaluateScriptContext() {
+        SimpleBindings bindings = new SimpleBindings();
+        bindings.put("row", 2);
+        bindings.put("col", 1);
+        SimpleBindings global = new SimpleBindings();
+        global.put("code", "A");
+        global.put("row", 0);
+        ScriptContext context = new SimpleScriptContext();
+        context.setBindings(bindings, ScriptContext.ENGINE_SCOPE);
+        context.setBindings(global, ScriptContext.GLOBAL_SCOPE);
+        assertEquals("A2", Expression.parse("code + row").evaluate(context, Dialect.GROOVY));
+        assertEquals(3, Expression.parse("row + col").evaluate(context, Dialect.GROOVY));
+        assertEquals(3.0, Expression.parse("row + col").evaluate(context, Dialect.JAVASCRIPT));
+        assertEquals(Expression.UNSUPPORTED, Expression.parse("unknown").evaluate(context, Dialect.GROOVY));
+    }
+
+}
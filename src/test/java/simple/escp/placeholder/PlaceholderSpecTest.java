@@ -0,0 +1,69 @@
+/*
+ * Copyright 2014 Jocki Hendry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.escp.placeholder;
+
+import org.junit.Test;
+import simple.escp.util.StringUtil;
+import java.text.DecimalFormat;
+import static org.junit.Assert.*;
+
+public class PlaceholderSpecTest {
+
+    @Test
+    public void parseBasic() {
+        PlaceholderSpec spec = PlaceholderSpec.forBasic(" salary:number:10:right ");
+        assertEquals("salary:number:10:right", spec.getText());
+        assertEquals("salary", spec.getName());
+        assertEquals(DecimalFormat.class, spec.createFormat().getClass());
+        assertEquals(10, spec.getWidth());
+        assertEquals(StringUtil.ALIGNMENT.RIGHT, spec.getAlignment());
+        assertFalse(spec.isSum());
+        assertFalse(spec.isCount());
+
+        spec = PlaceholderSpec.forBasic("items:sum");
+        assertEquals("items", spec.getName());
+        assertTrue(spec.isSum());
+        assertNull(spec.createFormat());
+    }
+
+    @Test
+    public void parseScript() {
+        PlaceholderSpec spec = PlaceholderSpec.forScript("a + ':' + b::count");
+        assertEquals("a + ':' + b", spec.getName());
+        assertTrue(spec.isCount());
+    }
+
+    @Test
+    public void cached() {
+        PlaceholderSpec.clearCache();
+        PlaceholderSpec spec = PlaceholderSpec.forBasic("name:currency");
+        assertSame(spec, PlaceholderSpec.forBasic("name:currency"));
+        assertNotSame(spec, PlaceholderSpec.forScript("name:currency"));
+        assertEquals(2, PlaceholderSpec.getCacheSize());
+        assertNotSame(spec.createFormat(), spec.createFormat());
+
+        BasicPlaceholder placeholder1 = new BasicPlaceholder("name:currency");
+        BasicPlaceholder placeholder2 = new BasicPlaceholder("name:currency");
+        assertEquals("name", placeholder1.getName());
+        assertNotSame(placeholder1.getFormat(), placeholder2.getFormat());
+        assertEquals(2, PlaceholderSpec.getCacheSize());
+
+        PlaceholderSpec.clearCache();
+        assertEquals(0, PlaceholderSpec.getCacheSize());
+    }
+
+}
@@ -1,6 +1,7 @@
 package simple.escp.placeholder;
 
 import org.junit.Test;
+import simple.escp.data.DataSource;
 import simple.escp.data.DataSources;
 import simple.escp.fill.DataSourceBinding;
 import javax.script.ScriptEngine;
@@ -113,6 +114,36 @@ public class ScriptPlaceholderTest {
         assertEquals("          ", placeholder.getValueAsString(null));
     }
 
+    @Test
+    public void getValueWithoutScriptEngine() {
+        DataSource[] dataSources = new DataSource[] {DataSources.from(new Student("student"))};
+        ScriptPlaceholder placeholder = new ScriptPlaceholder("name.toUpperCase() + ' ' + (1 + 1)", null);
+        assertNotNull(placeholder.getExpression());
+        assertEquals("STUDENT 2", placeholder.getValueAsString(dataSources));
+        assertSame(placeholder.getExpression(), new ScriptPlaceholder(placeholder, null).getExpression());
+
+        placeholder = new ScriptPlaceholder("name.length", null);
+        assertEquals("", placeholder.getValueAsString(dataSources));
+
+        placeholder = new ScriptPlaceholder("typeof name", null);
+        assertNull(placeholder.getExpression());
+        assertEquals("", placeholder.getValueAsString(dataSources));
+    }
+
+    @Test
+    public void disableExpression() {
+        ScriptEngine scriptEngine = new ScriptEngineManager().getEngineByName("JavaScript");
+        ScriptPlaceholder placeholder = new ScriptPlaceholder("7 / 2", scriptEngine);
+        assertEquals(3.5, placeholder.getValue(null));
+        ScriptPlaceholder.setExpressionEnabled(false);
+        try {
+            assertEquals(3.5, placeholder.getValue(null));
+            assertFalse(ScriptPlaceholder.isExpressionEnabled());
+        } finally {
+            ScriptPlaceholder.setExpressionEnabled(true);
+        }
+    }
+
     public static class Student {
 
         private String name;